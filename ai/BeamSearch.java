@@ -0,0 +1,467 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import model.Piece;
+import data_types.RotateState;
+
+/**
+ * BeamSearch
+ * @author Josh Chia
+ *
+ * Chooses a placement by searching ahead over the Pieces in the
+ * preview, keeping only the best boards (the beam) at each depth
+ * as scored by an Evaluator. Line clears along the way are added to
+ * the score of the final board.
+ *
+ * Beam width and depth trade playing strength against time. The
+ * boards and candidates are preallocated and reused between searches.
+ * Expanding a beam can be split across the threads of an
+ * ExecutorService, the result does not depend on the number of threads.
+ * A BeamSearch itself is not thread safe (use one per bot).
+ *
+ */
+public class BeamSearch {
+	private static final Piece[] PIECES = Piece.values();
+	private static final RotateState[] ROTATE_STATES = RotateState.values();
+	
+	private Evaluator evaluator;
+	private double line_weight;
+	private final int beam_width, max_depth;
+	private final ExecutorService pool;
+	private final List<Worker> workers;
+	
+	// Upcoming Pieces, the current Piece followed by the preview
+	private Piece[] queue = new Piece[0];
+	private int queue_size;
+	
+	// Beam being expanded and the beam being selected for the next depth
+	private Board[] beam, next_beam;
+	private byte[] beam_hold, next_hold;
+	private int[] beam_index, next_index;
+	private int[] beam_root, next_root;
+	private double[] beam_reward, next_reward;
+	private double[] beam_score, next_score;
+	private int beam_size;
+	
+	// First placement of each root of the search
+	private byte[] root_piece, root_rot;
+	private int[] root_x, root_y;
+	private boolean[] root_hold;
+	
+	// Min-heap of the best candidates (worker, index into its candidates)
+	private int[] heap_worker, heap_index;
+	private double[] heap_score;
+	private int heap_size;
+	
+	// Result of the last search
+	private int best_root;
+	private double best_score;
+	
+	/**
+	 * Construct a single threaded BeamSearch
+	 * @param e, Evaluator to score boards with
+	 * @param width, number of boards kept at each depth
+	 * @param depth, number of Pieces to search ahead (including the current)
+	 */
+	public BeamSearch(Evaluator e, int width, int depth) {
+		this(e, width, depth, null, 1);
+	}
+	
+	/**
+	 * Construct a BeamSearch that expands beams on several threads
+	 * @param e, Evaluator to score boards with
+	 * @param width, number of boards kept at each depth
+	 * @param depth, number of Pieces to search ahead (including the current)
+	 * @param p, threads to expand beams on or null to expand on the caller
+	 * @param threads, number of parts to split each beam into
+	 */
+	public BeamSearch(Evaluator e, int width, int depth, ExecutorService p, int threads) {
+		if (width < 1 || depth < 1 || threads < 1) {
+			throw new IllegalArgumentException("Beam width, depth and threads must be positive");
+		}
+		evaluator = e;
+		line_weight = e.getWeight(Evaluator.Feature.LINES_CLEARED);
+		beam_width = width;
+		max_depth = depth;
+		pool = p;
+		
+		workers = new ArrayList<Worker>(threads);
+		for (int i=0; i<((p == null) ? 1: threads); i++) {
+			workers.add(new Worker());
+		}
+		
+		beam_hold = new byte[width];
+		next_hold = new byte[width];
+		beam_index = new int[width];
+		next_index = new int[width];
+		beam_root = new int[width];
+		next_root = new int[width];
+		beam_reward = new double[width];
+		next_reward = new double[width];
+		beam_score = new double[width];
+		next_score = new double[width];
+		
+		root_piece = new byte[width];
+		root_rot = new byte[width];
+		root_x = new int[width];
+		root_y = new int[width];
+		root_hold = new boolean[width];
+		
+		heap_worker = new int[width];
+		heap_index = new int[width];
+		heap_score = new double[width];
+	}
+	
+	/**
+	 * Change the Evaluator boards are scored with, so that a search can
+	 * be reused e.g. when tuning weights
+	 * @param e, Evaluator
+	 */
+	public void setEvaluator(Evaluator e) {
+		evaluator = e;
+		line_weight = e.getWeight(Evaluator.Feature.LINES_CLEARED);
+	}
+	
+	/**
+	 * Search for the best placement of the current Piece
+	 * @param board, Board to place on
+	 * @param current, Piece in play
+	 * @param hold, Piece in hold or null if nothing is held
+	 * @param can_hold, true if hold can be used for the current Piece
+	 * @param preview, upcoming Pieces
+	 * @return, true if a placement was found (see getPiece, getX etc.)
+	 */
+	public boolean search(Board board, Piece current, Piece hold, boolean can_hold, List<Piece> preview) {
+		ensureCapacity(board, preview.size()+1);
+		
+		queue_size = 0;
+		queue[queue_size++] = current;
+		for (int i=0; i<preview.size(); i++) {
+			queue[queue_size++] = preview.get(i);
+		}
+		
+		beam[0].copyFrom(board);
+		beam_hold[0] = (byte) ((hold == null) ? -1: hold.ordinal());
+		beam_index[0] = 0;
+		beam_root[0] = -1;
+		beam_reward[0] = 0;
+		beam_size = 1;
+		best_root = -1;
+		
+		for (int depth=0; depth<max_depth && beam_size>0; depth++) {
+			expand(depth == 0 && !can_hold);
+			select(depth == 0);
+			if (heap_size == 0) {
+				break;
+			}
+		}
+		
+		// Best root is that of the best board at the deepest depth reached
+		for (int n=0; n<beam_size; n++) {
+			if (best_root < 0 || beam_score[n] > best_score) {
+				best_root = beam_root[n];
+				best_score = beam_score[n];
+			}
+		}
+		return best_root >= 0;
+	}
+	
+	/**
+	 * Expand every board in the beam by the placements of its next Piece
+	 * @param no_hold, true if hold can't be used
+	 */
+	private void expand(boolean no_hold) {
+		int parts = workers.size();
+		for (int i=0; i<parts; i++) {
+			workers.get(i).set(beam_size*i/parts, beam_size*(i+1)/parts, no_hold);
+		}
+		
+		if (pool == null || parts == 1) {
+			workers.get(0).call();
+			return;
+		}
+		try {
+			for (Future<Void> f: pool.invokeAll(workers)) {
+				f.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Search interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Search failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Select the best candidates of the workers as the next beam
+	 * @param root, true if the candidates are the first placements
+	 */
+	private void select(boolean root) {
+		heap_size = 0;
+		for (int w=0; w<workers.size(); w++) {
+			Worker worker = workers.get(w);
+			for (int i=0; i<worker.size; i++) {
+				offer(w, i, worker.score[i]);
+			}
+		}
+		
+		for (int k=0; k<heap_size; k++) {
+			Worker worker = workers.get(heap_worker[k]);
+			int i = heap_index[k];
+			int n = worker.parent[i];
+			Piece p = PIECES[worker.piece[i]];
+			RotateState s = ROTATE_STATES[worker.rot[i]];
+			Piece held = (beam_hold[n] < 0) ? null: PIECES[beam_hold[n]];
+			Piece current = queue[beam_index[n]];
+			
+			next_beam[k].copyFrom(beam[n]);
+			next_beam[k].place(p, s, worker.x[i], worker.y[i]);
+			if (worker.hold[i]) {
+				next_hold[k] = (byte) current.ordinal();
+				next_index[k] = beam_index[n] + ((held == null) ? 2: 1);
+			}
+			else {
+				next_hold[k] = beam_hold[n];
+				next_index[k] = beam_index[n] + 1;
+			}
+			next_reward[k] = worker.reward[i];
+			next_score[k] = worker.score[i];
+			
+			if (root) {
+				root_piece[k] = worker.piece[i];
+				root_rot[k] = worker.rot[i];
+				root_x[k] = worker.x[i];
+				root_y[k] = worker.y[i];
+				root_hold[k] = worker.hold[i];
+				next_root[k] = k;
+			}
+			else {
+				next_root[k] = beam_root[n];
+			}
+		}
+		
+		if (heap_size > 0) {
+			swapBeams();
+			beam_size = heap_size;
+		}
+	}
+	
+	/**
+	 * Offer a candidate to the heap of the best candidates
+	 */
+	private void offer(int w, int i, double score) {
+		if (heap_size < beam_width) {
+			int k = heap_size++;
+			while (k > 0 && heap_score[(k-1)/2] > score) {
+				moveHeap((k-1)/2, k);
+				k = (k-1)/2;
+			}
+			setHeap(k, w, i, score);
+		}
+		else if (score > heap_score[0]) {
+			int k = 0;
+			while (2*k+1 < heap_size) {
+				int c = 2*k+1;
+				if (c+1 < heap_size && heap_score[c+1] < heap_score[c]) {
+					c++;
+				}
+				if (heap_score[c] >= score) {
+					break;
+				}
+				moveHeap(c, k);
+				k = c;
+			}
+			setHeap(k, w, i, score);
+		}
+	}
+	
+	private void moveHeap(int from, int to) {
+		setHeap(to, heap_worker[from], heap_index[from], heap_score[from]);
+	}
+	
+	private void setHeap(int k, int w, int i, double score) {
+		heap_worker[k] = w;
+		heap_index[k] = i;
+		heap_score[k] = score;
+	}
+	
+	private void swapBeams() {
+		Board[] b = beam;
+		beam = next_beam;
+		next_beam = b;
+		
+		byte[] h = beam_hold;
+		beam_hold = next_hold;
+		next_hold = h;
+		
+		int[] i = beam_index;
+		beam_index = next_index;
+		next_index = i;
+		
+		int[] r = beam_root;
+		beam_root = next_root;
+		next_root = r;
+		
+		double[] d = beam_reward;
+		beam_reward = next_reward;
+		next_reward = d;
+		
+		d = beam_score;
+		beam_score = next_score;
+		next_score = d;
+	}
+	
+	/**
+	 * Size the boards and queue for a search
+	 * @param board, Board searched
+	 * @param pieces, number of Pieces known
+	 */
+	private void ensureCapacity(Board board, int pieces) {
+		if (beam == null || beam[0].getRows() != board.getRows() || beam[0].getCols() != board.getCols()) {
+			beam = new Board[beam_width];
+			next_beam = new Board[beam_width];
+			for (int i=0; i<beam_width; i++) {
+				beam[i] = new Board(board);
+				next_beam[i] = new Board(board);
+			}
+			for (Worker w: workers) {
+				w.scratch = new Board(board);
+			}
+		}
+		if (queue.length < pieces) {
+			queue = new Piece[pieces];
+		}
+	}
+	
+	/**
+	 * Piece of the best placement
+	 * @return, Piece to place (the held Piece if usesHold)
+	 */
+	public Piece getPiece() {
+		return PIECES[root_piece[best_root]];
+	}
+	
+	/**
+	 * State of rotation of the best placement
+	 * @return, RotateState
+	 */
+	public RotateState getRotState() {
+		return ROTATE_STATES[root_rot[best_root]];
+	}
+	
+	/**
+	 * x-coordinate of the best placement
+	 * @return, x-coordinate
+	 */
+	public int getX() {
+		return root_x[best_root];
+	}
+	
+	/**
+	 * y-coordinate of the best placement
+	 * @return, y-coordinate
+	 */
+	public int getY() {
+		return root_y[best_root];
+	}
+	
+	/**
+	 * Check if the best placement needs hold
+	 * @return, true if the Piece is swapped with the hold first
+	 */
+	public boolean usesHold() {
+		return root_hold[best_root];
+	}
+	
+	/**
+	 * Score of the best board found
+	 * @return, score
+	 */
+	public double getScore() {
+		return best_score;
+	}
+	
+	/**
+	 * Expands a range of the beam, each with its own MoveGenerator
+	 * and candidate storage so that ranges can be expanded in parallel
+	 */
+	private class Worker implements Callable<Void> {
+		private final MoveGenerator generator = new MoveGenerator();
+		private final PlacementList placements = new PlacementList();
+		private Board scratch;
+		private int from, to;
+		private boolean no_hold;
+		
+		// Candidates found
+		private int size;
+		private int[] parent = new int[256];
+		private byte[] piece = new byte[256], rot = new byte[256];
+		private int[] x = new int[256], y = new int[256];
+		private boolean[] hold = new boolean[256];
+		private double[] score = new double[256], reward = new double[256];
+		
+		private void set(int f, int t, boolean nh) {
+			from = f;
+			to = t;
+			no_hold = nh;
+		}
+		
+		@Override
+		public Void call() {
+			size = 0;
+			for (int n=from; n<to; n++) {
+				int index = beam_index[n];
+				if (index >= queue_size) {
+					continue;
+				}
+				Piece current = queue[index];
+				Piece held = (beam_hold[n] < 0) ? null: PIECES[beam_hold[n]];
+				Piece swap = (held != null) ? held: (index+1 < queue_size) ? queue[index+1]: null;
+				
+				generator.generate(beam[n], current, no_hold ? null: swap, placements);
+				for (int i=0; i<placements.size(); i++) {
+					Piece p = placements.getPiece(i);
+					RotateState s = placements.getRotState(i);
+					scratch.copyFrom(beam[n]);
+					int lines = scratch.place(p, s, placements.getX(i), placements.getY(i));
+					add(n, p, s, placements.getX(i), placements.getY(i), placements.usesHold(i),
+							beam_reward[n] + evaluator.evaluate(scratch, lines),
+							beam_reward[n] + line_weight*lines);
+				}
+			}
+			return null;
+		}
+		
+		private void add(int n, Piece p, RotateState s, int px, int py, boolean h, double sc, double rw) {
+			if (size == parent.length) {
+				int capacity = size*2;
+				parent = Arrays.copyOf(parent, capacity);
+				piece = Arrays.copyOf(piece, capacity);
+				rot = Arrays.copyOf(rot, capacity);
+				x = Arrays.copyOf(x, capacity);
+				y = Arrays.copyOf(y, capacity);
+				hold = Arrays.copyOf(hold, capacity);
+				score = Arrays.copyOf(score, capacity);
+				reward = Arrays.copyOf(reward, capacity);
+			}
+			parent[size] = n;
+			piece[size] = (byte) p.ordinal();
+			rot[size] = (byte) s.ordinal();
+			x[size] = px;
+			y[size] = py;
+			hold[size] = h;
+			score[size] = sc;
+			reward[size] = rw;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package ai;
+
+import java.util.Arrays;
+
+import model.Piece;
+import model.Playfield;
+import data_types.RotateState;
+
+/**
+ * Board
+ * @author Josh Chia
+ *
+ * A lightweight copy of a Playfield's occupancy (one bitmask per row)
+ * for searching ahead, so that placements can be tried without the
+ * Minos, colors and Polyominos of a real Playfield.
+ *
+ * Line Clears drop the rows above by the number cleared (naive
+ * gravity) rather than the cascade of the Game, which is close
+ * enough for evaluating placements.
+ *
+ */
+public class Board {
+	private final int rows, cols;
+	private final int spawn_x, spawn_y;
+	private final int full_row;
+	private final int[] masks;
+	private final int[] heights;
+	
+	/**
+	 * Construct an empty Board with the dimensions of a Playfield
+	 * @param pf, Playfield to match
+	 */
+	public Board(Playfield pf) {
+		rows = pf.getRows();
+		cols = pf.getCols();
+		spawn_x = pf.getSpawnX();
+		spawn_y = pf.getSpawnY();
+		full_row = (cols == Integer.SIZE) ? -1: (1 << cols) - 1;
+		masks = new int[rows];
+		heights = new int[cols];
+	}
+	
+	/**
+	 * Construct a copy of a Board
+	 * @param b, Board to copy
+	 */
+	public Board(Board b) {
+		rows = b.rows;
+		cols = b.cols;
+		spawn_x = b.spawn_x;
+		spawn_y = b.spawn_y;
+		full_row = b.full_row;
+		masks = Arrays.copyOf(b.masks, rows);
+		heights = new int[cols];
+	}
+	
+	/**
+	 * Copy the locked Minos of a Playfield
+	 * @param pf, Playfield to copy, of the same dimensions
+	 */
+	public void copyFrom(Playfield pf) {
+		for (int r=0; r<rows; r++) {
+			masks[r] = pf.getRowMask(r);
+		}
+	}
+	
+	/**
+	 * Copy another Board
+	 * @param b, Board to copy, of the same dimensions
+	 */
+	public void copyFrom(Board b) {
+		System.arraycopy(b.masks, 0, masks, 0, rows);
+	}
+	
+	/**
+	 * Lock a Piece into the Board and clear any lines it forms
+	 * @param p, Piece to lock
+	 * @param s, state of rotation
+	 * @param x, x-coordinate of the Tetromino
+	 * @param y, y-coordinate of the Tetromino
+	 * @return, number of lines cleared
+	 */
+	public int place(Piece p, RotateState s, int x, int y) {
+		int left = x + p.getMinX(s);
+		int bottom = y + p.getMinY(s);
+		int top = y + p.getMaxY(s);
+		
+		for (int r=bottom; r<=top; r++) {
+			masks[r] |= p.getRowMask(s, r-bottom) << left;
+		}
+		
+		int cleared = 0;
+		for (int r=bottom; r<rows; r++) {
+			if (r <= top && masks[r] == full_row) {
+				cleared++;
+			}
+			else if (cleared > 0) {
+				masks[r-cleared] = masks[r];
+			}
+		}
+		for (int r=rows-cleared; r<rows; r++) {
+			masks[r] = 0;
+		}
+		return cleared;
+	}
+	
+	/**
+	 * Compute the height of every column (see getHeight)
+	 */
+	public void computeHeights() {
+		int seen = 0;
+		for (int r=rows-1; r>=0 && seen != full_row; r--) {
+			int found = masks[r] & ~seen;
+			while (found != 0) {
+				heights[Integer.numberOfTrailingZeros(found)] = r+1;
+				found &= found-1;
+			}
+			seen |= masks[r];
+		}
+		int empty = full_row & ~seen;
+		while (empty != 0) {
+			heights[Integer.numberOfTrailingZeros(empty)] = 0;
+			empty &= empty-1;
+		}
+	}
+	
+	/**
+	 * Height of a column as of the last computeHeights
+	 * @param c, column
+	 * @return, row above the top most occupied cell
+	 */
+	public int getHeight(int c) {
+		return heights[c];
+	}
+	
+	/**
+	 * Get the occupancy bitmask of a row
+	 * @param r, row to get
+	 * @return, bitmask where bit c is set if column c is occupied
+	 */
+	public int getRowMask(int r) {
+		return masks[r];
+	}
+	
+	/**
+	 * Get number of rows (including the vanish zone)
+	 * @return, rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Get number of columns
+	 * @return, cols
+	 */
+	public int getCols() {
+		return cols;
+	}
+	
+	/**
+	 * Get the x-coordinate Tetrominos are spawned at
+	 * @return, spawn x-coordinate
+	 */
+	public int getSpawnX() {
+		return spawn_x;
+	}
+	
+	/**
+	 * Get the y-coordinate Tetrominos are spawned at
+	 * @return, spawn y-coordinate
+	 */
+	public int getSpawnY() {
+		return spawn_y;
+	}
+}
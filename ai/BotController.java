@@ -0,0 +1,121 @@
+package ai;
+
+import game.Controller;
+import game.Game;
+import model.Playfield;
+import model.Tetromino;
+import data_types.InputType;
+
+/**
+ * BotController
+ * @author Josh Chia
+ *
+ * Plays a Game by choosing a placement for each Tetromino with a
+ * BeamSearch and then giving the inputs to get it there, one input
+ * every few frames like a player would.
+ *
+ * The path is regenerated from where the Tetromino is before every
+ * input, so gravity moving it along the way does not matter. If the
+ * placement can no longer be reached a new one is searched for.
+ *
+ */
+public class BotController implements Controller {
+	private final BeamSearch search;
+	private final int input_delay;
+	private final MoveGenerator generator = new MoveGenerator();
+	private final PlacementList placements = new PlacementList();
+	private Board board;
+	
+	// Tetromino the placement was chosen for
+	private Tetromino planned;
+	private boolean has_target;
+	private int wait;
+	
+	/**
+	 * Construct a bot that gives an input every frame
+	 * @param s, search to choose placements with
+	 */
+	public BotController(BeamSearch s) {
+		this(s, 0);
+	}
+	
+	/**
+	 * Construct a bot
+	 * @param s, search to choose placements with
+	 * @param delay, frames to wait between inputs
+	 */
+	public BotController(BeamSearch s, int delay) {
+		search = s;
+		input_delay = delay;
+	}
+	
+	/**
+	 * Get the search the bot chooses placements with
+	 * @return, search
+	 */
+	public BeamSearch getSearch() {
+		return search;
+	}
+	
+	@Override
+	public void update(Game game) {
+		Playfield pf = game.getPlayfield();
+		Tetromino t = pf.active_piece;
+		
+		if (t == null) {
+			return;
+		}
+		if (t != planned) {
+			planned = t;
+			plan(game);
+			wait = input_delay;
+		}
+		if (!has_target) {
+			return;
+		}
+		if (wait > 0) {
+			wait--;
+			return;
+		}
+		wait = input_delay;
+		
+		// Swapping spawns a new Tetromino, planned for on the next frame
+		if (search.usesHold()) {
+			game.input(InputType.HOLD);
+			return;
+		}
+		
+		int i = find(pf, t);
+		if (i < 0) {
+			plan(game);
+			i = has_target && !search.usesHold() ? find(pf, t): -1;
+		}
+		if (i < 0) {
+			game.input(InputType.HARD_DROP);
+			return;
+		}
+		game.input(placements.getInput(i, 0));
+	}
+	
+	/**
+	 * Choose a placement for the active Tetromino
+	 * @param game, Game being played
+	 */
+	private void plan(Game game) {
+		Playfield pf = game.getPlayfield();
+		if (board == null || board.getRows() != pf.getRows() || board.getCols() != pf.getCols()) {
+			board = new Board(pf);
+		}
+		board.copyFrom(pf);
+		has_target = search.search(board, pf.active_piece.piece, game.getHeldPiece(), game.canHold(), game.getPreviewList());
+	}
+	
+	/**
+	 * Find the path from where the Tetromino is to the chosen placement
+	 * @return, index of the placement or -1 if it can't be reached
+	 */
+	private int find(Playfield pf, Tetromino t) {
+		generator.generate(pf, t.piece, t.getRotState(), t.getX(), t.getY(), placements);
+		return placements.indexOf(search.getPiece(), search.getRotState(), search.getX(), search.getY());
+	}
+}
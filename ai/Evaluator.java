@@ -0,0 +1,168 @@
+package ai;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Evaluator
+ * @author Josh Chia
+ *
+ * Scores a Board for the bots as a weighted sum of its features,
+ * higher is better. Weights are usually negative for features that
+ * make the stack harder to play (holes, height) and positive for
+ * line clears.
+ *
+ * An Evaluator is immutable, therefore it can be shared by searches
+ * running on different threads. Weights can be saved to and loaded from
+ * a properties file (one line per Feature), see WeightTuner.
+ *
+ */
+public class Evaluator {
+	/**
+	 * Features of a Board that are weighted
+	 *  AGGREGATE_HEIGHT:	sum of the column heights
+	 *  HOLES:				free cells with an occupied cell above
+	 *  BUMPINESS:			sum of height differences of adjacent columns
+	 *  WELLS:				sum of the depths of columns lower than both neighbours
+	 *  LINES_CLEARED:		lines cleared by the placement
+	 */
+	public enum Feature {
+		AGGREGATE_HEIGHT, HOLES, BUMPINESS, WELLS, LINES_CLEARED;
+	}
+	
+	private static final double[] DEFAULT_WEIGHTS = {-0.51, -0.36, -0.18, -0.1, 0.76};
+	
+	private final double[] weights;
+	
+	/**
+	 * Construct an Evaluator with the default weights
+	 */
+	public Evaluator() {
+		this(DEFAULT_WEIGHTS);
+	}
+	
+	/**
+	 * Construct an Evaluator
+	 * @param w, weight of each Feature in order
+	 */
+	public Evaluator(double[] w) {
+		if (w.length != Feature.values().length) {
+			throw new IllegalArgumentException("Expected " + Feature.values().length + " weights");
+		}
+		weights = Arrays.copyOf(w, w.length);
+	}
+	
+	/**
+	 * Get the weight of a Feature
+	 * @param f, Feature
+	 * @return, weight
+	 */
+	public double getWeight(Feature f) {
+		return weights[f.ordinal()];
+	}
+	
+	/**
+	 * Get all the weights
+	 * @return, copy of the weights in Feature order
+	 */
+	public double[] getWeights() {
+		return Arrays.copyOf(weights, weights.length);
+	}
+	
+	/**
+	 * Score a Board
+	 * @param b, Board after a placement
+	 * @param lines, lines cleared by the placement
+	 * @return, score (higher is better)
+	 */
+	public double evaluate(Board b, int lines) {
+		int cols = b.getCols();
+		b.computeHeights();
+		
+		int aggregate = 0, bumpiness = 0, wells = 0;
+		for (int c=0; c<cols; c++) {
+			int h = b.getHeight(c);
+			int left = (c == 0) ? Integer.MAX_VALUE: b.getHeight(c-1);
+			int right = (c == cols-1) ? Integer.MAX_VALUE: b.getHeight(c+1);
+			
+			aggregate += h;
+			if (c > 0) {
+				bumpiness += Math.abs(h-left);
+			}
+			if (left > h && right > h) {
+				wells += Math.min(left, right) - h;
+			}
+		}
+		
+		// Free cells covered by an occupied cell higher in the column
+		int holes = 0, cover = 0;
+		for (int r=b.getRows()-1; r>=0; r--) {
+			holes += Integer.bitCount(cover & ~b.getRowMask(r));
+			cover |= b.getRowMask(r);
+		}
+		
+		return weights[Feature.AGGREGATE_HEIGHT.ordinal()]*aggregate
+				+ weights[Feature.HOLES.ordinal()]*holes
+				+ weights[Feature.BUMPINESS.ordinal()]*bumpiness
+				+ weights[Feature.WELLS.ordinal()]*wells
+				+ weights[Feature.LINES_CLEARED.ordinal()]*lines;
+	}
+	
+	/**
+	 * Load an Evaluator from a weights file, Features missing from the
+	 * file keep their default weight
+	 * @param f, weights file
+	 * @return, Evaluator
+	 * @throws IOException, if the file can't be read or a weight isn't a number
+	 */
+	public static Evaluator load(File f) throws IOException {
+		Properties props = new Properties();
+		InputStream in = new FileInputStream(f);
+		try {
+			props.load(in);
+		}
+		finally {
+			in.close();
+		}
+		
+		double[] w = Arrays.copyOf(DEFAULT_WEIGHTS, DEFAULT_WEIGHTS.length);
+		for (Feature feature: Feature.values()) {
+			String value = props.getProperty(feature.name());
+			if (value != null) {
+				try {
+					w[feature.ordinal()] = Double.parseDouble(value.trim());
+				}
+				catch (NumberFormatException e) {
+					throw new IOException("Bad weight for " + feature + ": " + value, e);
+				}
+			}
+		}
+		return new Evaluator(w);
+	}
+	
+	/**
+	 * Save the weights to a file (see load)
+	 * @param f, weights file
+	 * @param comment, written at the top of the file
+	 * @throws IOException, if the file can't be written
+	 */
+	public void save(File f, String comment) throws IOException {
+		Properties props = new Properties();
+		for (Feature feature: Feature.values()) {
+			props.setProperty(feature.name(), Double.toString(weights[feature.ordinal()]));
+		}
+		OutputStream out = new FileOutputStream(f);
+		try {
+			props.store(out, comment);
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package ai;
+
+import java.util.Arrays;
+
+import model.Piece;
+import model.Playfield;
+import data_types.InputType;
+import data_types.RotateDirection;
+import data_types.RotateState;
+
+/**
+ * MoveGenerator
+ * @author Josh Chia
+ *
+ * Finds every distinct final resting placement of a Piece that can
+ * be reached on a Playfield, together with the inputs that get it
+ * there.
+ *
+ * Searches (breadth first) the states (x, y, RotateState) of the
+ * Tetromino with the same legality rules and SRS Wall Kicks as the
+ * Playfield, so placements that need tucks, slides or spins are found.
+ * Legality is precomputed from the Playfield's row bitmasks into one
+ * mask of legal x-coordinates per row, thus each move is a bit test.
+ * Above the stack every row is the same, so the search starts just
+ * above it rather than exploring the empty rows in between. A state
+ * is a resting placement if the Tetromino cannot drop any further.
+ * Paths are the shortest in number of inputs, where SOFT_DROP drops a
+ * single row (as in Game) and the path always ends with a HARD_DROP.
+ *
+ * All search storage is allocated up front and reused, therefore a
+ * MoveGenerator is not thread safe (use one per thread).
+ *
+ */
+public class MoveGenerator {
+	// Margin around the Playfield so that every legal x, y is encodable
+	private static final int MARGIN = 2;
+	// Encoded states are (rot, y) rows of x-coordinates
+	private static final int X_BITS = 6;
+	private static final int X_MASK = (1 << X_BITS) - 1;
+	private static final int MINOS = 4;
+	// Rows above the stack from which no Piece (after any kick) can touch it
+	private static final int OPEN_AIR = 4;
+	// Columns to the left of the Playfield in the blocked masks
+	private static final int WALL = 8;
+	private static final int ROTATE_STATES = RotateState.values().length;
+	private static final RotateState[] STATES = RotateState.values();
+	private static final InputType[] INPUTS = InputType.values();
+	
+	private int width, height;
+	private Board scratch;
+	
+	// Search storage, indexed by encoded state
+	private long[] legal;
+	private int[] visited;
+	private int[] parent;
+	private byte[] input;
+	private short[] depth;
+	private int[] queue;
+	private int[] path;
+	private int generation;
+	
+	// Open air above the stack of the current search
+	private int open_y, air_drops;
+	
+	/**
+	 * Construct a MoveGenerator, storage is sized on first use
+	 */
+	public MoveGenerator() {
+		width = 0;
+		height = 0;
+	}
+	
+	/**
+	 * Generate the placements of a Piece, and optionally those of the
+	 * Piece in hold, starting from the spawn position.
+	 * If nothing is held then the Piece that would be swapped in is the
+	 * next in the preview, pass that as the hold Piece.
+	 * @param pf, Playfield to search
+	 * @param current, Piece in play
+	 * @param hold, Piece that can be swapped in or null if hold can't be used
+	 * @param out, list to fill (cleared first)
+	 */
+	public void generate(Playfield pf, Piece current, Piece hold, PlacementList out) {
+		generate(copy(pf), current, hold, out);
+	}
+	
+	/**
+	 * Generate the placements of a Tetromino from where it currently is
+	 * e.g. to replan once it has started moving.
+	 * @param pf, Playfield to search
+	 * @param p, Piece in play
+	 * @param s, its state of rotation
+	 * @param x, its x-coordinate
+	 * @param y, its y-coordinate
+	 * @param out, list to fill (cleared first)
+	 */
+	public void generate(Playfield pf, Piece p, RotateState s, int x, int y, PlacementList out) {
+		out.clear();
+		search(copy(pf), p, s, x, y, false, out);
+	}
+	
+	/**
+	 * Generate the placements on a Board (see generate for Playfields)
+	 * @param b, Board to search
+	 * @param current, Piece in play
+	 * @param hold, Piece that can be swapped in or null if hold can't be used
+	 * @param out, list to fill (cleared first)
+	 */
+	public void generate(Board b, Piece current, Piece hold, PlacementList out) {
+		out.clear();
+		search(b, current, RotateState.ZERO, b.getSpawnX(), b.getSpawnY(), false, out);
+		if (hold != null && hold != current) {
+			search(b, hold, RotateState.ZERO, b.getSpawnX(), b.getSpawnY(), true, out);
+		}
+	}
+	
+	/**
+	 * Copy a Playfield into the scratch Board
+	 * @param pf, Playfield to copy
+	 * @return, scratch Board
+	 */
+	private Board copy(Playfield pf) {
+		if (scratch == null || scratch.getRows() != pf.getRows() || scratch.getCols() != pf.getCols()) {
+			scratch = new Board(pf);
+		}
+		scratch.copyFrom(pf);
+		return scratch;
+	}
+	
+	/**
+	 * Breadth first search from a state, adding each resting state found
+	 * @param b, Board to search
+	 * @param p, Piece to place
+	 * @param s, starting state of rotation
+	 * @param x, starting x-coordinate
+	 * @param y, starting y-coordinate
+	 * @param hold, true if the paths start with a hold
+	 * @param out, list to add to
+	 */
+	private void search(Board b, Piece p, RotateState s, int x, int y, boolean hold, PlacementList out) {
+		ensureCapacity(b.getCols(), b.getRows());
+		computeLegal(b, p);
+		if (!isLegal(s.ordinal(), x, y)) {
+			return;
+		}
+		nextGeneration();
+		
+		// Drop straight to just above the stack, nothing differs higher up
+		open_y = stackHeight(b) + OPEN_AIR;
+		air_drops = 0;
+		if (y > open_y) {
+			air_drops = y - open_y;
+			y = open_y;
+		}
+		
+		int start = encode(s.ordinal(), x, y);
+		int head = 0, tail = 0;
+		visit(start, -1, null, 0);
+		queue[tail++] = start;
+		
+		while (head < tail) {
+			int state = queue[head++];
+			int row = state >>> X_BITS;
+			int rot = row / height;
+			int sx = (state & X_MASK) - MARGIN;
+			int sy = decodeY(state);
+			short d = (short) (depth[state]+1);
+			
+			if ((legal[row] >>> (state & X_MASK)-1 & 1) != 0) {
+				tail = enqueue(state-1, state, InputType.SHIFT_LEFT, d, tail);
+			}
+			if ((legal[row] >>> (state & X_MASK)+1 & 1) != 0) {
+				tail = enqueue(state+1, state, InputType.SHIFT_RIGHT, d, tail);
+			}
+			if (sy > -MARGIN && (legal[row-1] >>> (state & X_MASK) & 1) != 0) {
+				tail = enqueue(state-(1 << X_BITS), state, InputType.SOFT_DROP, d, tail);
+			}
+			else {
+				addPlacement(p, STATES[rot], sx, sy, state, hold, out);
+			}
+			tail = rotate(p, rot, RotateDirection.LEFT, sx, sy, state, InputType.ROTATE_LEFT, d, tail);
+			tail = rotate(p, rot, RotateDirection.RIGHT, sx, sy, state, InputType.ROTATE_RIGHT, d, tail);
+		}
+	}
+	
+	/**
+	 * Enqueue the state reached by rotating, if the rotation succeeds.
+	 * Wall Kicks are tested in order as in Playfield.testRotation.
+	 * @return, new tail of the queue
+	 */
+	private int rotate(Piece p, int rot, RotateDirection dir, int x, int y,
+			int state, InputType in, short d, int tail) {
+		RotateState s = STATES[rot];
+		int new_rot = s.rotate(dir).ordinal();
+		
+		for (int i=0; i<p.getWallKickTests(); i++) {
+			int nx = x + p.getWallKickX(s, dir, i);
+			int ny = y + p.getWallKickY(s, dir, i);
+			if (isLegal(new_rot, nx, ny)) {
+				return enqueue(encode(new_rot, nx, ny), state, in, d, tail);
+			}
+		}
+		return tail;
+	}
+	
+	/**
+	 * Build the legal positions of a Piece on the Board, one bitmask
+	 * of x-coordinates per state of rotation and y-coordinate, so that
+	 * the search only does bit tests.
+	 * @param b, Board to search
+	 * @param p, Piece to place
+	 */
+	private void computeLegal(Board b, Piece p) {
+		int rows = b.getRows();
+		int cols = b.getCols();
+		long x_range = (1L << width) - 1;
+		
+		for (int rot=0; rot<ROTATE_STATES; rot++) {
+			RotateState s = STATES[rot];
+			for (int yy=0; yy<height; yy++) {
+				int y = yy - MARGIN;
+				if (y + p.getMinY(s) < 0 || y + p.getMaxY(s) >= rows) {
+					legal[rot*height+yy] = 0;
+					continue;
+				}
+				// Bit c+WALL of blocked is set if column c is occupied or off the Playfield
+				long collide = 0;
+				for (int i=0; i<MINOS; i++) {
+					long free = ~b.getRowMask(y + p.getMinoY(s, i)) & ((1L << cols) - 1);
+					long blocked = ~(free << WALL);
+					collide |= blocked >>> (WALL - MARGIN + p.getMinoX(s, i));
+				}
+				legal[rot*height+yy] = ~collide & x_range;
+			}
+		}
+	}
+	
+	private boolean isLegal(int rot, int x, int y) {
+		if (x < -MARGIN || x >= width-MARGIN || y < -MARGIN || y >= height-MARGIN) {
+			return false;
+		}
+		return (legal[rot*height + y+MARGIN] >>> (x+MARGIN) & 1) != 0;
+	}
+	
+	/**
+	 * Enqueue a state if it has not been visited
+	 * @return, new tail of the queue
+	 */
+	private int enqueue(int state, int from, InputType in, short d, int tail) {
+		if (visited[state] != generation) {
+			visit(state, from, in, d);
+			queue[tail++] = state;
+		}
+		return tail;
+	}
+	
+	private void visit(int state, int from, InputType in, int d) {
+		visited[state] = generation;
+		parent[state] = from;
+		input[state] = (byte) ((in == null) ? -1: in.ordinal());
+		depth[state] = (short) d;
+	}
+	
+	/**
+	 * Add a resting state with its path. The drops skipped through the
+	 * open air are given just before the path goes below it and trailing
+	 * soft drops are replaced by the hard drop that locks the Tetromino.
+	 */
+	private void addPlacement(Piece p, RotateState s, int x, int y, int state, boolean hold, PlacementList out) {
+		int last = state;
+		while (parent[last] >= 0 && input[last] == InputType.SOFT_DROP.ordinal()) {
+			last = parent[last];
+		}
+		
+		// Path of states from the start, to find where it leaves the air
+		int steps = depth[last];
+		int air = steps;
+		for (int j=steps-1, k=last; j>=0; j--, k=parent[k]) {
+			path[j] = k;
+			if (decodeY(k) < open_y) {
+				air = j;
+			}
+		}
+		int drops = (air < steps) ? air_drops: 0;
+		int offset = hold ? 1: 0;
+		int length = offset + steps + drops + 1;
+		int i = out.add(p, s, x, y, hold, length);
+		
+		int n = 0;
+		if (hold) {
+			out.setInput(i, n++, InputType.HOLD);
+		}
+		for (int j=0; j<steps; j++) {
+			if (j == air) {
+				for (int k=0; k<drops; k++) {
+					out.setInput(i, n++, InputType.SOFT_DROP);
+				}
+			}
+			out.setInput(i, n++, INPUTS[input[path[j]]]);
+		}
+		out.setInput(i, n, InputType.HARD_DROP);
+	}
+	
+	/**
+	 * Height of the stack, i.e. row above the top most occupied row
+	 * @param b, Board to search
+	 * @return, height of the stack
+	 */
+	private int stackHeight(Board b) {
+		int r = b.getRows();
+		while (r > 0 && b.getRowMask(r-1) == 0) {
+			r--;
+		}
+		return r;
+	}
+	
+	private int decodeY(int state) {
+		return (state >>> X_BITS) % height - MARGIN;
+	}
+	
+	/**
+	 * Encode a state of the Tetromino as an index into the search storage
+	 */
+	private int encode(int rot, int x, int y) {
+		return (rot*height + y+MARGIN) << X_BITS | x+MARGIN;
+	}
+	
+	/**
+	 * Advance the generation so every state is unvisited, without clearing
+	 */
+	private void nextGeneration() {
+		generation++;
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+	
+	/**
+	 * Size the search storage for a Playfield
+	 * @param cols, columns of the Playfield
+	 * @param rows, rows of the Playfield
+	 */
+	private void ensureCapacity(int cols, int rows) {
+		if (width == cols+2*MARGIN && height == rows+2*MARGIN) {
+			return;
+		}
+		width = cols+2*MARGIN;
+		height = rows+2*MARGIN;
+		int states = (height*ROTATE_STATES) << X_BITS;
+		legal = new long[height*ROTATE_STATES];
+		visited = new int[states];
+		parent = new int[states];
+		input = new byte[states];
+		depth = new short[states];
+		queue = new int[states];
+		path = new int[states];
+		generation = 0;
+	}
+}
@@ -0,0 +1,205 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.Piece;
+import data_types.InputType;
+import data_types.RotateState;
+
+/**
+ * PlacementList
+ * @author Josh Chia
+ *
+ * The final resting placements found by the MoveGenerator, each with
+ * the path of inputs that gets the Tetromino there.
+ *
+ * Stored as parallel primitive arrays that grow as needed and are
+ * reused between searches (see clear), so generating placements does
+ * not allocate once warmed up.
+ *
+ */
+public class PlacementList {
+	private static final InputType[] INPUTS = InputType.values();
+	private static final RotateState[] ROTATE_STATES = RotateState.values();
+	private static final Piece[] PIECES = Piece.values();
+	
+	private int size;
+	private byte[] piece, rot_state;
+	private int[] x, y;
+	private boolean[] hold;
+	private int[] path_start, path_length;
+	
+	private int path_size;
+	private byte[] paths;
+	
+	/**
+	 * Construct an empty list of placements
+	 */
+	public PlacementList() {
+		piece = new byte[64];
+		rot_state = new byte[64];
+		x = new int[64];
+		y = new int[64];
+		hold = new boolean[64];
+		path_start = new int[64];
+		path_length = new int[64];
+		paths = new byte[1024];
+	}
+	
+	/**
+	 * Remove all placements, keeping the storage for reuse
+	 */
+	public void clear() {
+		size = 0;
+		path_size = 0;
+	}
+	
+	/**
+	 * Number of placements
+	 * @return, size
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Piece that is placed
+	 * @param i, placement
+	 * @return, Piece
+	 */
+	public Piece getPiece(int i) {
+		return PIECES[piece[i]];
+	}
+	
+	/**
+	 * Final x-coordinate of the Tetromino
+	 * @param i, placement
+	 * @return, x-coordinate
+	 */
+	public int getX(int i) {
+		return x[i];
+	}
+	
+	/**
+	 * Final y-coordinate of the Tetromino
+	 * @param i, placement
+	 * @return, y-coordinate
+	 */
+	public int getY(int i) {
+		return y[i];
+	}
+	
+	/**
+	 * Final state of rotation of the Tetromino
+	 * @param i, placement
+	 * @return, RotateState
+	 */
+	public RotateState getRotState(int i) {
+		return ROTATE_STATES[rot_state[i]];
+	}
+	
+	/**
+	 * Check if the placement needs the Piece to be swapped with the hold
+	 * @param i, placement
+	 * @return, true if the path starts with a hold
+	 */
+	public boolean usesHold(int i) {
+		return hold[i];
+	}
+	
+	/**
+	 * Number of inputs in the path to a placement
+	 * @param i, placement
+	 * @return, number of inputs
+	 */
+	public int getPathLength(int i) {
+		return path_length[i];
+	}
+	
+	/**
+	 * Get an input in the path to a placement
+	 * @param i, placement
+	 * @param j, index in the path
+	 * @return, input
+	 */
+	public InputType getInput(int i, int j) {
+		return INPUTS[paths[path_start[i]+j]];
+	}
+	
+	/**
+	 * Get the path to a placement as a list (allocates)
+	 * @param i, placement
+	 * @return, list of inputs
+	 */
+	public List<InputType> getPath(int i) {
+		List<InputType> path = new ArrayList<InputType>(path_length[i]);
+		for (int j=0; j<path_length[i]; j++) {
+			path.add(getInput(i, j));
+		}
+		return path;
+	}
+	
+	/**
+	 * Find a placement
+	 * @param p, Piece placed
+	 * @param s, final state of rotation
+	 * @param px, final x-coordinate
+	 * @param py, final y-coordinate
+	 * @return, index of the placement or -1 if not in the list
+	 */
+	public int indexOf(Piece p, RotateState s, int px, int py) {
+		for (int i=0; i<size; i++) {
+			if (piece[i] == p.ordinal() && rot_state[i] == s.ordinal() && x[i] == px && y[i] == py) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Add a placement, its path is then written with setInput
+	 * @param p, Piece placed
+	 * @param s, final state of rotation
+	 * @param px, final x-coordinate
+	 * @param py, final y-coordinate
+	 * @param h, true if the Piece comes from the hold
+	 * @param length, number of inputs in the path
+	 * @return, index of the placement
+	 */
+	int add(Piece p, RotateState s, int px, int py, boolean h, int length) {
+		if (size == x.length) {
+			int capacity = size*2;
+			piece = Arrays.copyOf(piece, capacity);
+			rot_state = Arrays.copyOf(rot_state, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			hold = Arrays.copyOf(hold, capacity);
+			path_start = Arrays.copyOf(path_start, capacity);
+			path_length = Arrays.copyOf(path_length, capacity);
+		}
+		if (path_size + length > paths.length) {
+			paths = Arrays.copyOf(paths, Math.max(paths.length*2, path_size + length));
+		}
+		piece[size] = (byte) p.ordinal();
+		rot_state[size] = (byte) s.ordinal();
+		x[size] = px;
+		y[size] = py;
+		hold[size] = h;
+		path_start[size] = path_size;
+		path_length[size] = length;
+		path_size += length;
+		return size++;
+	}
+	
+	/**
+	 * Set an input of a placement's path
+	 * @param i, placement
+	 * @param j, index in the path
+	 * @param input, to set
+	 */
+	void setInput(int i, int j, InputType input) {
+		paths[path_start[i]+j] = (byte) input.ordinal();
+	}
+}
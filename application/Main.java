@@ -1,10 +1,37 @@
 package application;
 
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+import game.Battle;
 import game.DemoGame;
 import game.Game;
+import game.GameLoop;
+import game.InputQueue;
+import game.InputSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.JMException;
+
+import metrics.EngineMetrics;
+import metrics.MetricsRegistry;
+import model.RandomGenerator;
+import net.RollbackLoop;
+import net.RollbackSession;
+import net.UdpTransport;
+import replay.ArchiveEntry;
+import replay.Replay;
+import replay.ReplayArchive;
+import replay.ReplayRecorder;
+
+import ui.GameView;
 import ui.MenuScene;
-import data_types.DropType;
-import data_types.RotateDirection;
+import data_types.InputType;
 import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
@@ -46,6 +73,29 @@ public class Main extends javafx.application.Application {
 	private final int VANISH = 2;
 	private final String NAME = "JFXTRIS";
 	
+	// Bot Setting Constants (WeightTuner tunes for the same search by default)
+	private final int BOT_BEAM_WIDTH = 16;
+	private final int BOT_DEPTH = 3;
+	private final int BOT_INPUT_DELAY = 6; // frames between inputs
+	private final String BOT_WEIGHTS_FILE = "bot_weights.properties"; // see WeightTuner
+	
+	// Metrics Setting Constants
+	private final String METRICS_MBEAN = "jfxtris:type=Metrics";
+	private final String METRICS_FILE = "jfxtris_metrics.prom"; // Prometheus text format
+	private final long METRICS_PERIOD = 10; // seconds between writes
+	
+	// Replay Setting Constants
+	private final String REPLAY_ARCHIVE = "replays.jfxa";
+	
+	// Auto Repeat Setting Constants (overridden by --das, --arr)
+	private final int DAS_FRAMES = 10; // frames a shift is held before it repeats
+	private final int ARR_FRAMES = 2; // frames between repeats, 0 to shift to the wall
+	
+	// Network Game Setting Constants (overridden by --port, --delay)
+	private final int NET_PORT = 7777;
+	private final int NET_INPUT_DELAY = 2; // frames
+	private final long NET_TIMEOUT = 30000; // ms to wait for the peer
+	
 	// Display Constants
 	private final int FPS = 60;
 	private final double RES_X = 1024;
@@ -78,43 +128,70 @@ public class Main extends javafx.application.Application {
 	private MenuScene main_menu, ingame_menu;
 	private Scene game_scene;
 	private AnimationTimer timer;
+	private GameLoop loop;
+	
+	// Replay Components (recorders of the Games being played)
+	private ReplayArchive archive;
+	private ReplayRecorder[] recorders = new ReplayRecorder[0];
+	private String[] players = new String[0];
+	
+	// Bot Components
+	private Evaluator bot_evaluator;
+	
+	// Auto Repeat of the players' shift keys
+	private int das, arr;
 	
 	@Override
 	public void start(final Stage primary_stage) throws Exception {
+		bot_evaluator = loadBotEvaluator();
+		startMetrics();
+		archive = openArchive();
+		das = getIntParameter("das", DAS_FRAMES);
+		arr = Math.max(0, getIntParameter("arr", ARR_FRAMES));
 		
 		// Handler for configuring single player controls
 		class OnePlayerController implements EventHandler<KeyEvent> {
-			Game game;
+			InputSink inputs;
+			Set<KeyCode> held = EnumSet.noneOf(KeyCode.class);
 			
-			public OnePlayerController(Game g) {
-				game = g;
+			public OnePlayerController(InputSink in) {
+				inputs = in;
 			}
 			
 			@Override
 			public void handle(KeyEvent k) {
-				if (k.getCode().equals(P1_HARD_DROP)) {
-					game.setDrop(DropType.HARD);
+				if (k.getEventType() == KeyEvent.KEY_RELEASED) {
+					if (k.getCode().equals(P1_SHIFT_LEFT)) {
+						releaseShift(inputs, held, k.getCode(), InputType.RELEASE_LEFT);
+					}
+					else if (k.getCode().equals(P1_SHIFT_RIGHT)) {
+						releaseShift(inputs, held, k.getCode(), InputType.RELEASE_RIGHT);
+					}
+				}
+				else if (k.getCode().equals(P1_HARD_DROP)) {
+					inputs.offer(InputType.HARD_DROP);
 				}
 				else if (k.getCode().equals(P1_SOFT_DROP)) {
-					game.setDrop(DropType.SOFT);
+					inputs.offer(InputType.SOFT_DROP);
 				}
 				else if (k.getCode().equals(P1_SHIFT_LEFT)) {
-					game.shiftLeft();
+					pressShift(inputs, held, k.getCode(), InputType.SHIFT_LEFT);
 				}
 				else if (k.getCode().equals(P1_SHIFT_RIGHT)) {
-					game.shiftRight();
+					pressShift(inputs, held, k.getCode(), InputType.SHIFT_RIGHT);
 				}
 				else if (k.getCode().equals(P1_ROTATE_LEFT)) {
-					game.rotate(RotateDirection.LEFT);
+					inputs.offer(InputType.ROTATE_LEFT);
 				}
 				else if (k.getCode().equals(P1_ROTATE_RIGHT)) {
-					game.rotate(RotateDirection.RIGHT);
+					inputs.offer(InputType.ROTATE_RIGHT);
 				}
 				else if (k.getCode().equals(P1_HOLD)) {
-					game.holdPiece();
+					inputs.offer(InputType.HOLD);
 				}
 				else if (k.getCode().equals(MENU)) {
 					timer.stop();
+					loop.pause();
 					primary_stage.setScene(ingame_menu);
 				}
 			}
@@ -122,123 +199,159 @@ public class Main extends javafx.application.Application {
 		
 		// Handler for configuring two player controls
 		class TwoPlayerController implements EventHandler<KeyEvent> {
-			Game game1, game2;
+			InputQueue inputs1, inputs2;
+			Set<KeyCode> held = EnumSet.noneOf(KeyCode.class);
 			
-			public TwoPlayerController(Game g1, Game g2) {
-				game1 = g1;
-				game2 = g2;
+			public TwoPlayerController(InputQueue in1, InputQueue in2) {
+				inputs1 = in1;
+				inputs2 = in2;
 			}
 			
 			@Override
 			public void handle(KeyEvent k) {
-				if (k.getCode().equals(P1_HARD_DROP)) {
-					game1.setDrop(DropType.HARD);
+				if (k.getEventType() == KeyEvent.KEY_RELEASED) {
+					if (k.getCode().equals(P1_SHIFT_LEFT)) {
+						releaseShift(inputs1, held, k.getCode(), InputType.RELEASE_LEFT);
+					}
+					else if (k.getCode().equals(P1_SHIFT_RIGHT)) {
+						releaseShift(inputs1, held, k.getCode(), InputType.RELEASE_RIGHT);
+					}
+					else if (k.getCode().equals(P2_SHIFT_LEFT)) {
+						releaseShift(inputs2, held, k.getCode(), InputType.RELEASE_LEFT);
+					}
+					else if (k.getCode().equals(P2_SHIFT_RIGHT)) {
+						releaseShift(inputs2, held, k.getCode(), InputType.RELEASE_RIGHT);
+					}
+				}
+				else if (k.getCode().equals(P1_HARD_DROP)) {
+					inputs1.offer(InputType.HARD_DROP);
 				}
 				else if (k.getCode().equals(P1_SOFT_DROP)) {
-					game1.setDrop(DropType.SOFT);
+					inputs1.offer(InputType.SOFT_DROP);
 				}
 				else if (k.getCode().equals(P1_SHIFT_LEFT)) {
-					game1.shiftLeft();
+					pressShift(inputs1, held, k.getCode(), InputType.SHIFT_LEFT);
 				}
 				else if (k.getCode().equals(P1_SHIFT_RIGHT)) {
-					game1.shiftRight();
+					pressShift(inputs1, held, k.getCode(), InputType.SHIFT_RIGHT);
 				}
 				else if (k.getCode().equals(P1_ROTATE_LEFT)) {
-					game1.rotate(RotateDirection.LEFT);
+					inputs1.offer(InputType.ROTATE_LEFT);
 				}
 				else if (k.getCode().equals(P1_ROTATE_RIGHT)) {
-					game1.rotate(RotateDirection.RIGHT);
+					inputs1.offer(InputType.ROTATE_RIGHT);
 				}
 				else if (k.getCode().equals(P1_HOLD)) {
-					game1.holdPiece();
+					inputs1.offer(InputType.HOLD);
 				}
 				else if (k.getCode().equals(P2_HARD_DROP)) {
-					game2.setDrop(DropType.HARD);
+					inputs2.offer(InputType.HARD_DROP);
 				}
 				else if (k.getCode().equals(P2_SOFT_DROP)) {
-					game2.setDrop(DropType.SOFT);
+					inputs2.offer(InputType.SOFT_DROP);
 				}
 				else if (k.getCode().equals(P2_SHIFT_LEFT)) {
-					game2.shiftLeft();
+					pressShift(inputs2, held, k.getCode(), InputType.SHIFT_LEFT);
 				}
 				else if (k.getCode().equals(P2_SHIFT_RIGHT)) {
-					game2.shiftRight();
+					pressShift(inputs2, held, k.getCode(), InputType.SHIFT_RIGHT);
 				}
 				else if (k.getCode().equals(P2_ROTATE_LEFT)) {
-					game2.rotate(RotateDirection.LEFT);
+					inputs2.offer(InputType.ROTATE_LEFT);
 				}
 				else if (k.getCode().equals(P2_ROTATE_RIGHT)) {
-					game2.rotate(RotateDirection.RIGHT);
+					inputs2.offer(InputType.ROTATE_RIGHT);
 				}
 				else if (k.getCode().equals(P2_HOLD)) {
-					game2.holdPiece();
+					inputs2.offer(InputType.HOLD);
 				}
 				else if (k.getCode().equals(MENU)) {
 					timer.stop();
+					loop.pause();
 					primary_stage.setScene(ingame_menu);
 				}
 			}
 		}
 		
 		/*
-		 * Locks the game to run at 60FPS regardless of JavaFX refresh
-		 * Abstracts away logic associated with game frane updates 
+		 * Redraws the views from the latest snapshots of their Games
+		 * on each JavaFX pulse. The Games themselves run at 60FPS on
+		 * the GameLoop's thread, regardless of JavaFX refresh.
 		 */
 		class GameTimer extends AnimationTimer {
-			Game[] games;
-			long prev;
-			double delta_secs, frame_count;
-			int frames; 
+			GameView[] views;
 			
-			public GameTimer(Game[] gs) {
+			public GameTimer(GameView[] vs) {
 				super();
-				games = gs;
-				prev = 0;
-				delta_secs = 0;
-				frames = 0;
-				frame_count = 0;
+				views = vs;
 			}
 			
 			@Override
 			public void handle(long now) {
-				prev = (prev==0) ? now: prev;
-				delta_secs = (now-prev)/1000000000.0;
-				frame_count += FPS*delta_secs;
-				
-				if (frame_count > 1) {
-					frames = (int)frame_count;
-					for(Game g: games) {
-						g.updateGame(frames);
-					}
-					frame_count -= frames;
+				long start = System.nanoTime();
+				for (int i=0; i<views.length; i++) {
+					views[i].update(loop.getSnapshot(i));
 				}
-				prev = now;
+				EngineMetrics.RENDER.record(System.nanoTime() - start);
 			}
-			
+		}
+		
+		// Handler for the controls while watching a replay
+		class WatchController implements EventHandler<KeyEvent> {
 			@Override
-			public void stop() {
-				super.stop();
-				prev = 0;
+			public void handle(KeyEvent k) {
+				if (k.getCode().equals(MENU)) {
+					timer.stop();
+					loop.pause();
+					primary_stage.setScene(ingame_menu);
+				}
+			}
+		}
+		
+		/*
+		 * Start running a set of Games and drawing their views,
+		 * stopping any Games already running and archiving their replays
+		 * under the names of their players (null to not record)
+		 * (a loop started directly must have the Games stopped first)
+		 */
+		class GameStarter {
+			public void start(Game[] games, GameView[] views, String[] names) {
+				stopGames();
+				players = (names != null && archive != null) ? names: new String[0];
+				recorders = new ReplayRecorder[players.length];
+				for (int i=0; i<recorders.length; i++) {
+					recorders[i] = new ReplayRecorder(games[i]);
+				}
+				start(new GameLoop(games, FPS), views);
 			}
 			
-			@Override
-			public void start() {
-				super.start();
+			public void start(GameLoop l, GameView[] views) {
+				loop = l;
+				loop.start();
+				
+				timer = new GameTimer(views);
+				timer.start();
 			}
 		}
+		final GameStarter starter = new GameStarter();
 		
 		// Handler for the creation of single player games
 		class NewOnePlayerGameHandler implements EventHandler<ActionEvent> {
 			@Override
 			public void handle(ActionEvent arg0) {
-				final Game game1  = new Game(RES_X/4, 0, RES_X/2, RES_Y, ROWS, COLS, VANISH);
-				game_scene = new Scene(game1, RES_X, RES_Y);
+				final Game game1  = new Game(ROWS, COLS, VANISH);
+				game1.setAutoRepeat(das, arr);
+				final InputQueue inputs1 = new InputQueue();
+				game1.setController(inputs1);
+				final GameView view1 = new GameView(game1, RES_X/4, 0, RES_X/2, RES_Y);
+				game_scene = new Scene(view1, RES_X, RES_Y);
 				primary_stage.setScene(game_scene);
 				
-				timer = new GameTimer(new Game[] {game1});
-				timer.start();
+				starter.start(new Game[] {game1}, new GameView[] {view1}, new String[] {"P1"});
 				
-				game_scene.setOnKeyPressed(new OnePlayerController(game1));
+				OnePlayerController keys = new OnePlayerController(inputs1);
+				game_scene.setOnKeyPressed(keys);
+				game_scene.setOnKeyReleased(keys);
 				game_scene.setFill(BACKGROUND_COLOR);
 			}
 		}
@@ -254,36 +367,209 @@ public class Main extends javafx.application.Application {
 			
 			@Override
 			public void handle(ActionEvent arg0) {
-				final Game game1  = new DemoGame(RES_X/4, 0, RES_X/2, RES_Y, lvl);
-				game_scene = new Scene(game1, RES_X, RES_Y);
+				final Game game1  = new DemoGame(lvl);
+				final InputQueue inputs1 = new InputQueue();
+				game1.setController(inputs1);
+				game1.setAutoRepeat(das, arr);
+				final GameView view1 = new GameView(game1, RES_X/4, 0, RES_X/2, RES_Y);
+				game_scene = new Scene(view1, RES_X, RES_Y);
 				primary_stage.setScene(game_scene);
 				
-				timer = new GameTimer(new Game[] {game1});
-				timer.start();
+				starter.start(new Game[] {game1}, new GameView[] {view1}, null);
 				
-				game_scene.setOnKeyPressed(new OnePlayerController(game1));
+				OnePlayerController keys = new OnePlayerController(inputs1);
+				game_scene.setOnKeyPressed(keys);
+				game_scene.setOnKeyReleased(keys);
 				game_scene.setFill(BACKGROUND_COLOR);
 			}
 		}
 		
-		// Handler for the creation of two player games
+		// Handler for the creation of two player games, optionally a battle
 		class NewTwoPlayerGameHandler implements EventHandler<ActionEvent> {
+			boolean battle;
+			
+			public NewTwoPlayerGameHandler(boolean b) {
+				super();
+				battle = b;
+			}
+			
 			@Override
 			public void handle(ActionEvent arg0) {
-				final Game game1  = new Game(RES_X/2, 0, RES_X/2, RES_Y, ROWS, COLS, VANISH);
-				final Game game2  = new Game(0, 0, RES_X/2, RES_Y, ROWS, COLS, VANISH);
+				final Game game1  = new Game(ROWS, COLS, VANISH);
+				final Game game2  = new Game(ROWS, COLS, VANISH);
+				game1.setAutoRepeat(das, arr);
+				game2.setAutoRepeat(das, arr);
+				if (battle) {
+					new Battle(game1, game2);
+				}
+				final InputQueue inputs1 = new InputQueue();
+				final InputQueue inputs2 = new InputQueue();
+				game1.setController(inputs1);
+				game2.setController(inputs2);
+				final GameView view1 = new GameView(game1, RES_X/2, 0, RES_X/2, RES_Y);
+				final GameView view2 = new GameView(game2, 0, 0, RES_X/2, RES_Y);
 				
 				Group root = new Group();
-				root.getChildren().add(game1);
-				root.getChildren().add(game2);
+				root.getChildren().add(view1);
+				root.getChildren().add(view2);
 				
 				game_scene = new Scene(root, RES_X, RES_Y);
 				primary_stage.setScene(game_scene);
 				
-				timer = new GameTimer(new Game[] {game1, game2});
-				timer.start();
+				// A battle game can't be replayed alone, its garbage comes from the other
+				starter.start(new Game[] {game1, game2}, new GameView[] {view1, view2}, battle ? null: new String[] {"P1", "P2"});
+				
+				TwoPlayerController keys = new TwoPlayerController(inputs1, inputs2);
+				game_scene.setOnKeyPressed(keys);
+				game_scene.setOnKeyReleased(keys);
+				game_scene.setFill(BACKGROUND_COLOR);
+			}
+		}
+		
+		// Handler for the creation of games against a bot
+		class NewBotGameHandler implements EventHandler<ActionEvent> {
+			@Override
+			public void handle(ActionEvent arg0) {
+				final Game game1  = new Game(ROWS, COLS, VANISH);
+				final Game game2  = new Game(ROWS, COLS, VANISH);
+				game1.setAutoRepeat(das, arr);
+				final InputQueue inputs1 = new InputQueue();
+				game1.setController(inputs1);
+				final GameView view1 = new GameView(game1, RES_X/2, 0, RES_X/2, RES_Y);
+				final GameView view2 = new GameView(game2, 0, 0, RES_X/2, RES_Y);
+				
+				BeamSearch search = new BeamSearch(bot_evaluator, BOT_BEAM_WIDTH, BOT_DEPTH);
+				game2.setController(new BotController(search, BOT_INPUT_DELAY));
+				
+				Group root = new Group();
+				root.getChildren().add(view1);
+				root.getChildren().add(view2);
+				
+				game_scene = new Scene(root, RES_X, RES_Y);
+				primary_stage.setScene(game_scene);
+				
+				starter.start(new Game[] {game1, game2}, new GameView[] {view1, view2}, new String[] {"P1", "Bot"});
 				
-				game_scene.setOnKeyPressed(new TwoPlayerController(game1, game2));
+				OnePlayerController keys = new OnePlayerController(inputs1);
+				game_scene.setOnKeyPressed(keys);
+				game_scene.setOnKeyReleased(keys);
+				game_scene.setFill(BACKGROUND_COLOR);
+			}
+		}
+		
+		/*
+		 * Start a network game against a peer once connected
+		 * (called on the JavaFX application thread)
+		 */
+		class NetworkGameStarter {
+			public void start(long seed, int player, UdpTransport transport, int delay) {
+				stopGames();
+				final Game[] games = {new Game(ROWS, COLS, VANISH, seed), new Game(ROWS, COLS, VANISH, seed)};
+				
+				// Both peers must simulate the same Auto Repeat, so the defaults are used
+				for (Game g: games) {
+					g.setAutoRepeat(DAS_FRAMES, ARR_FRAMES);
+				}
+				RollbackSession session = new RollbackSession(games, player, transport, delay);
+				
+				// Local player on the right, as player one of a 2P game
+				GameView[] views = new GameView[2];
+				views[player] = new GameView(games[player], RES_X/2, 0, RES_X/2, RES_Y);
+				views[1-player] = new GameView(games[1-player], 0, 0, RES_X/2, RES_Y);
+				
+				Group root = new Group();
+				root.getChildren().addAll(views);
+				
+				game_scene = new Scene(root, RES_X, RES_Y);
+				primary_stage.setScene(game_scene);
+				
+				starter.start(new RollbackLoop(games, session, FPS), views);
+				
+				OnePlayerController keys = new OnePlayerController(session);
+				game_scene.setOnKeyPressed(keys);
+				game_scene.setOnKeyReleased(keys);
+				game_scene.setFill(BACKGROUND_COLOR);
+			}
+		}
+		final NetworkGameStarter net_starter = new NetworkGameStarter();
+		
+		/*
+		 * Handler for the creation of network games, connecting to the
+		 * peer given by --peer=host:port in the background
+		 * The peer started with --host offers the seed, the other joins.
+		 */
+		class NewNetworkGameHandler implements EventHandler<ActionEvent> {
+			@Override
+			public void handle(ActionEvent arg0) {
+				final String peer = getParameters().getNamed().get("peer");
+				if (peer == null) {
+					System.err.println("Network games need the peer's address: --peer=host:port");
+					return;
+				}
+				final boolean host = getParameters().getUnnamed().contains("--host");
+				final int port = getIntParameter("port", NET_PORT);
+				final int delay = Math.max(0, Math.min(RollbackSession.MAX_DELAY, getIntParameter("delay", NET_INPUT_DELAY)));
+				
+				Thread connect = new Thread("net-connect") {
+					@Override
+					public void run() {
+						UdpTransport transport = null;
+						try {
+							transport = new UdpTransport(port);
+							transport.connect(UdpTransport.parseAddress(peer));
+							final long seed;
+							if (host) {
+								seed = RandomGenerator.randomSeed();
+								RollbackSession.host(transport, seed, NET_TIMEOUT);
+							}
+							else {
+								seed = RollbackSession.join(transport, NET_TIMEOUT);
+							}
+							
+							final UdpTransport connected = transport;
+							Platform.runLater(new Runnable() {
+								@Override
+								public void run() {
+									net_starter.start(seed, host ? 0: 1, connected, delay);
+								}
+							});
+						}
+						catch (IOException | IllegalArgumentException e) {
+							System.err.println("Could not connect to " + peer + ": " + e.getMessage());
+							if (transport != null) {
+								try {
+									transport.close();
+								}
+								catch (IOException ce) {
+									// Already failed
+								}
+							}
+						}
+					}
+				};
+				connect.setDaemon(true);
+				connect.start();
+			}
+		}
+		
+		// Handler for watching the highest scoring replay
+		class WatchReplayHandler implements EventHandler<ActionEvent> {
+			@Override
+			public void handle(ActionEvent arg0) {
+				stopGames();
+				Replay replay = loadBestReplay();
+				if (replay == null) {
+					return;
+				}
+				
+				final Game game1 = replay.createGame();
+				final GameView view1 = new GameView(game1, RES_X/4, 0, RES_X/2, RES_Y);
+				game_scene = new Scene(view1, RES_X, RES_Y);
+				primary_stage.setScene(game_scene);
+				
+				starter.start(new GameLoop(new Game[] {game1}, FPS, replay.getEndFrame()), new GameView[] {view1});
+				
+				game_scene.setOnKeyPressed(new WatchController());
 				game_scene.setFill(BACKGROUND_COLOR);
 			}
 		}
@@ -292,6 +578,7 @@ public class Main extends javafx.application.Application {
 		class ResumeGameHandler implements EventHandler<ActionEvent> {
 			@Override
 			public void handle(ActionEvent e) {
+				loop.resume();
 				timer.start();
 				primary_stage.setScene(game_scene);				
 			}
@@ -306,6 +593,8 @@ public class Main extends javafx.application.Application {
 		class ExitHandler implements EventHandler<ActionEvent> {
 			@Override
 			public void handle(ActionEvent e) {
+				stopGames();
+				closeArchive();
 				Platform.exit();
 			}
 		}
@@ -313,18 +602,26 @@ public class Main extends javafx.application.Application {
 		// Setup Game Menus
 		main_menu = new MenuScene(NAME, RES_X, RES_Y, BACKGROUND_COLOR, MENU_FONT);
 		main_menu.addMenuItem("New 1P Game", new NewOnePlayerGameHandler());
-		main_menu.addMenuItem("New 2P Game", new NewTwoPlayerGameHandler());
+		main_menu.addMenuItem("New 2P Game", new NewTwoPlayerGameHandler(false));
+		main_menu.addMenuItem("New 2P Battle", new NewTwoPlayerGameHandler(true));
+		main_menu.addMenuItem("New Bot Game", new NewBotGameHandler());
+		main_menu.addMenuItem("Network Game", new NewNetworkGameHandler());
 		main_menu.addMenuItem("Demo Level 1", new NewDemoGameHandler(1));
 		main_menu.addMenuItem("Demo Level 2", new NewDemoGameHandler(2));
+		main_menu.addMenuItem("Watch Best Game", new WatchReplayHandler());
 		main_menu.addMenuItem("Exit Game", new ExitHandler());
 		main_menu.addMenuText(getHelpText());
 		
 		ingame_menu = new MenuScene(NAME, RES_X, RES_Y, BACKGROUND_COLOR, MENU_FONT);
 		ingame_menu.addMenuItem("Resume", new ResumeGameHandler());
 		ingame_menu.addMenuItem("New 1P Game", new NewOnePlayerGameHandler());
-		ingame_menu.addMenuItem("New 2P Game", new NewTwoPlayerGameHandler());
+		ingame_menu.addMenuItem("New 2P Game", new NewTwoPlayerGameHandler(false));
+		ingame_menu.addMenuItem("New 2P Battle", new NewTwoPlayerGameHandler(true));
+		ingame_menu.addMenuItem("New Bot Game", new NewBotGameHandler());
+		ingame_menu.addMenuItem("Network Game", new NewNetworkGameHandler());
 		ingame_menu.addMenuItem("Demo Level 1", new NewDemoGameHandler(1));
 		ingame_menu.addMenuItem("Demo Level 2", new NewDemoGameHandler(2));
+		ingame_menu.addMenuItem("Watch Best Game", new WatchReplayHandler());
 		ingame_menu.addMenuItem("Exit Game", new ExitHandler());
 		ingame_menu.addMenuText(getHelpText());
 		
@@ -336,6 +633,157 @@ public class Main extends javafx.application.Application {
 		primary_stage.show();
 	}
 	
+	/**
+	 * Offer the press of a shift key. The key repeats of the OS are
+	 * ignored while it is held, the Game repeats it (see AutoRepeat).
+	 * @param inputs, inputs of the player
+	 * @param held, shift keys held
+	 * @param key, key pressed
+	 * @param in, shift input
+	 */
+	private void pressShift(InputSink inputs, Set<KeyCode> held, KeyCode key, InputType in) {
+		if (held.add(key)) {
+			inputs.offer(in);
+		}
+	}
+	
+	/**
+	 * Offer the release of a shift key
+	 * @param inputs, inputs of the player
+	 * @param held, shift keys held
+	 * @param key, key released
+	 * @param in, release input
+	 */
+	private void releaseShift(InputSink inputs, Set<KeyCode> held, KeyCode key, InputType in) {
+		if (held.remove(key)) {
+			inputs.offer(in);
+		}
+	}
+	
+	/**
+	 * Get an integer application parameter e.g. --port=7777
+	 * @param name, name of the parameter
+	 * @param d, default if it isn't given or isn't a number
+	 * @return, value
+	 */
+	private int getIntParameter(String name, int d) {
+		String value = getParameters().getNamed().get(name);
+		if (value == null) {
+			return d;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e) {
+			System.err.println("Bad --" + name + ", using " + d + ": " + value);
+			return d;
+		}
+	}
+	
+	/**
+	 * Load the bot's weights if they have been tuned, else the defaults
+	 * @return, Evaluator for the bot
+	 */
+	private Evaluator loadBotEvaluator() {
+		File weights = new File(BOT_WEIGHTS_FILE);
+		if (weights.exists()) {
+			try {
+				return Evaluator.load(weights);
+			}
+			catch (IOException e) {
+				System.err.println("Could not load " + BOT_WEIGHTS_FILE + ", using default weights: " + e.getMessage());
+			}
+		}
+		return new Evaluator();
+	}
+	
+	/**
+	 * Stop the Games being played, if any, and archive their replays
+	 */
+	private void stopGames() {
+		if (loop != null) {
+			loop.stop();
+		}
+		
+		long date = System.currentTimeMillis();
+		for (int i=0; i<recorders.length; i++) {
+			Replay replay = recorders[i].finish();
+			Game game = recorders[i].getGame();
+			if (replay.getEndFrame() == 0) {
+				continue;
+			}
+			try {
+				archive.append(replay, players[i], date, game.getScoreSystem().score, game.getScoreSystem().lines);
+			}
+			catch (IOException e) {
+				System.err.println("Could not archive replay: " + e.getMessage());
+			}
+		}
+		recorders = new ReplayRecorder[0];
+	}
+	
+	/**
+	 * Open the replay archive
+	 * @return, archive or null if it can't be opened (games aren't recorded)
+	 */
+	private ReplayArchive openArchive() {
+		try {
+			return new ReplayArchive(new File(REPLAY_ARCHIVE), true);
+		}
+		catch (IOException e) {
+			System.err.println("Could not open " + REPLAY_ARCHIVE + ", games won't be recorded: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Close the replay archive if it is open
+	 */
+	private void closeArchive() {
+		if (archive != null) {
+			try {
+				archive.close();
+			}
+			catch (IOException e) {
+				System.err.println("Could not close " + REPLAY_ARCHIVE + ": " + e.getMessage());
+			}
+			archive = null;
+		}
+	}
+	
+	/**
+	 * Load the highest scoring replay
+	 * @return, Replay or null if there are none
+	 */
+	private Replay loadBestReplay() {
+		if (archive == null) {
+			return null;
+		}
+		try {
+			List<ArchiveEntry> best = archive.topByScore(1);
+			return best.isEmpty() ? null: archive.getReplay(best.get(0).getId());
+		}
+		catch (IOException e) {
+			System.err.println("Could not load replay: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Expose the engine metrics over JMX and write them to a file
+	 * periodically, the game runs without them if JMX fails
+	 */
+	private void startMetrics() {
+		MetricsRegistry registry = MetricsRegistry.getDefault();
+		try {
+			registry.registerMBean(METRICS_MBEAN);
+		}
+		catch (JMException e) {
+			System.err.println("Could not register metrics with JMX: " + e.getMessage());
+		}
+		registry.startExport(new File(METRICS_FILE), METRICS_PERIOD);
+	}
+	
 	/**
 	 * Provide player with help text on the controls 
 	 * @return, help text
@@ -0,0 +1,40 @@
+package benchmark;
+
+import game.Game;
+import model.Tetromino;
+
+/**
+ * BenchmarkGame
+ * @author Josh Chia
+ * 
+ * Specialization of Game class that starts on a benchmark board and
+ * exposes the steps of locking and clearing lines to the benchmarks.
+ * 
+ */
+public class BenchmarkGame extends Game {
+	
+	/**
+	 * Construct a Game on a benchmark board
+	 * @param board, see Boards
+	 * @param seed, seed of the Random Generator
+	 */
+	public BenchmarkGame(String board, long seed) {
+		super(22, 10, 2, seed);
+		Boards.fill(playfield, board);
+	}
+	
+	/**
+	 * Lock a Tetromino into the Playfield, finding the rows it clears
+	 * @param t, Tetromino to lock
+	 */
+	public void lockPiece(Tetromino t) {
+		lock(t);
+	}
+	
+	/**
+	 * Clear the rows found by lockPiece, flood filling the debris above
+	 */
+	public void clear() {
+		clearLines();
+	}
+}
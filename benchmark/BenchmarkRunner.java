@@ -0,0 +1,35 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner
+ * @author Josh Chia
+ * 
+ * Runs the engine benchmarks and writes the results as JSON, so runs
+ * on different commits can be compared (e.g. with a JMH visualizer).
+ * 
+ * Arguments: [results file] [benchmark regex]
+ */
+public class BenchmarkRunner {
+	private static final String DEFAULT_RESULTS = "jmh-result.json";
+	
+	public static void main(String[] args) throws RunnerException {
+		String results = (args.length > 0) ? args[0]: DEFAULT_RESULTS;
+		String include = (args.length > 1) ? args[1]: BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark\\..*";
+		
+		Options options = new OptionsBuilder()
+				.include(include)
+				.forks(1)
+				.warmupIterations(3)
+				.measurementIterations(5)
+				.resultFormat(ResultFormatType.JSON)
+				.result(results)
+				.build();
+		new Runner(options).run();
+	}
+}
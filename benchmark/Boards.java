@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.Random;
+
+import model.Mino;
+import model.Playfield;
+import data_types.Vector2D;
+
+/**
+ * Boards
+ * @author Josh Chia
+ * 
+ * Representative Playfields for the benchmarks, filled the same way
+ * on every run so that results can be compared between commits.
+ * 
+ * Boards:
+ *  EMPTY:			nothing locked
+ *  MID_GAME:		stack of 6-9 rows with a few holes and a well
+ *  NEAR_TOP_OUT:	stack of 15-17 rows with holes, spawning still possible
+ *  
+ */
+
+public class Boards {
+	public static final String EMPTY = "EMPTY";
+	public static final String MID_GAME = "MID_GAME";
+	public static final String NEAR_TOP_OUT = "NEAR_TOP_OUT";
+	
+	private static final long SEED = 20140601;
+	
+	/**
+	 * Fill a Playfield with a board
+	 * @param pf, Playfield to fill (assumed empty)
+	 * @param board, one of EMPTY, MID_GAME or NEAR_TOP_OUT
+	 */
+	public static void fill(Playfield pf, String board) {
+		if (EMPTY.equals(board)) {
+			return;
+		}
+		else if (MID_GAME.equals(board)) {
+			fill(pf, 6, 9);
+		}
+		else if (NEAR_TOP_OUT.equals(board)) {
+			fill(pf, 15, 17);
+		}
+		else {
+			throw new IllegalArgumentException("Unknown board: " + board);
+		}
+	}
+	
+	/**
+	 * Fill columns to random heights, leaving a well in the last column
+	 * and roughly one hole in six cells
+	 * @param pf, Playfield to fill
+	 * @param min, lowest column height
+	 * @param max, highest column height
+	 */
+	private static void fill(Playfield pf, int min, int max) {
+		Random rand = new Random(SEED);
+		for (int c=0; c<pf.getCols()-1; c++) {
+			int h = min + rand.nextInt(max-min+1);
+			for (int r=0; r<h; r++) {
+				if (rand.nextInt(6) != 0) {
+					pf.addToGrid(new Mino(new Vector2D(c, r)));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * GameBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmark of a full frame update of a Game without inputs
+ * (gravity, lock delay, spawning, line clears). A Game that tops out
+ * is restarted on the same board, so near top out boards include
+ * the cost of restarting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameBenchmark {
+	@Param({Boards.EMPTY, Boards.MID_GAME, Boards.NEAR_TOP_OUT})
+	public String board;
+	
+	BenchmarkGame game;
+	long seed;
+	
+	@Setup
+	public void setUp() {
+		seed = 1;
+		game = new BenchmarkGame(board, seed);
+	}
+	
+	@Benchmark
+	public BenchmarkGame updateGame() {
+		if (game.isGameOver()) {
+			game = new BenchmarkGame(board, ++seed);
+		}
+		game.updateGame(1);
+		return game;
+	}
+}
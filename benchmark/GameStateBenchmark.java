@@ -0,0 +1,64 @@
+package benchmark;
+
+import game.GameState;
+import net.RollbackSession;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * GameStateBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmark of saving and restoring the full state of a Game
+ * (see GameState) with a Tetromino in play, and of a rollback by a
+ * network game: restoring and resimulating its longest prediction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameStateBenchmark {
+	@Param({Boards.EMPTY, Boards.MID_GAME, Boards.NEAR_TOP_OUT})
+	public String board;
+	
+	BenchmarkGame game;
+	GameState state;
+	
+	@Setup
+	public void setUp() {
+		game = new BenchmarkGame(board, 1);
+		game.updateGame(1);
+		state = new GameState(game);
+		state.save(game);
+	}
+	
+	@Benchmark
+	public GameState save() {
+		state.save(game);
+		return state;
+	}
+	
+	@Benchmark
+	public BenchmarkGame restore() {
+		state.restore(game);
+		return game;
+	}
+	
+	@Benchmark
+	public BenchmarkGame rollback() {
+		state.restore(game);
+		for (int i=0; i<RollbackSession.MAX_PREDICTION; i++) {
+			state.save(game);
+			game.updateGame(1);
+		}
+		return game;
+	}
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import data_types.RotateDirection;
+import data_types.RotateState;
+import data_types.Vector2D;
+
+/**
+ * LineClearBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmark of locking a vertical I into the right most column and
+ * clearing the lines it forms, including flood filling the debris
+ * above into Polyominos for recursive gravity.
+ * 
+ * The bottom rows are replaced with the lines to clear, the rest of
+ * the board is left as debris.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LineClearBenchmark {
+	@Param({Boards.EMPTY, Boards.MID_GAME, Boards.NEAR_TOP_OUT})
+	public String board;
+	
+	@Param({"1", "2", "4"})
+	public int lines;
+	
+	BenchmarkGame game;
+	Tetromino tetromino;
+	
+	@Setup(Level.Invocation)
+	public void setUp() {
+		game = new BenchmarkGame(board, 1);
+		Playfield pf = game.getPlayfield();
+		int last = pf.getCols()-1;
+		
+		for (int r=0; r<4; r++) {
+			for (int c=0; c<last; c++) {
+				pf.removeFromGrid(r, c);
+				// Rows that aren't cleared are left open in the first column
+				if (r < lines || c > 0) {
+					pf.addToGrid(new Mino(new Vector2D(c, r)));
+				}
+			}
+			pf.removeFromGrid(r, last);
+		}
+		
+		tetromino = Piece.I.create(new Vector2D(last - Piece.I.getMinX(RotateState.RIGHT), -Piece.I.getMinY(RotateState.RIGHT)));
+		tetromino.rotate(RotateDirection.RIGHT);
+	}
+	
+	@Benchmark
+	public BenchmarkGame lockAndClear() {
+		game.lockPiece(tetromino);
+		game.clear();
+		return game;
+	}
+}
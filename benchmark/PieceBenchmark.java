@@ -0,0 +1,45 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import model.Piece;
+import model.Tetromino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import data_types.Vector2D;
+
+/**
+ * PieceBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmark of creating a Tetromino of each Piece
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PieceBenchmark {
+	@Param({"I", "O", "T", "S", "Z", "J", "L"})
+	public String piece;
+	
+	Piece p;
+	Vector2D pos;
+	
+	@Setup
+	public void setUp() {
+		p = Piece.valueOf(piece);
+		pos = new Vector2D(4, 20);
+	}
+	
+	@Benchmark
+	public Tetromino create() {
+		return p.create(pos);
+	}
+}
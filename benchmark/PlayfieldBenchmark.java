@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * PlayfieldBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmarks of moving a Tetromino on a Playfield
+ * 
+ * Benchmarks:
+ *  isLegalMove: legality of a drop by one row
+ *  shift: a shift right then back left
+ *  hardDrop: a full hard drop in one move (then put back without checks)
+ *  hardDropByRow: the same drop moved and checked a row at a time
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayfieldBenchmark {
+	@Param({Boards.EMPTY, Boards.MID_GAME, Boards.NEAR_TOP_OUT})
+	public String board;
+	
+	Playfield playfield;
+	Tetromino tetromino;
+	
+	@Setup
+	public void setUp() {
+		playfield = new Playfield(22, 10, 2);
+		Boards.fill(playfield, board);
+		tetromino = Piece.T.create(playfield);
+	}
+	
+	@Benchmark
+	public boolean isLegalMove() {
+		return playfield.isLegalMove(tetromino, 0, -1);
+	}
+	
+	@Benchmark
+	public int shift() {
+		playfield.move(tetromino, 1, 0);
+		playfield.move(tetromino, -1, 0);
+		return tetromino.getX();
+	}
+	
+	@Benchmark
+	public int hardDrop() {
+		int dropped = playfield.drop(tetromino, playfield.getRows());
+		tetromino.move(0, dropped);
+		return dropped;
+	}
+	
+	@Benchmark
+	public int hardDropByRow() {
+		int y = tetromino.getY();
+		playfield.move(tetromino, 0, -playfield.getRows());
+		int dropped = y - tetromino.getY();
+		tetromino.move(0, dropped);
+		return dropped;
+	}
+}
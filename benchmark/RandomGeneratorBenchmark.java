@@ -0,0 +1,52 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Piece;
+import model.RandomGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * RandomGeneratorBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmarks of generating and previewing Pieces
+ * 
+ * Benchmarks:
+ *  next: the next Piece, shuffling a new bag when needed
+ *  previewList: reading every Piece in the preview
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RandomGeneratorBenchmark {
+	RandomGenerator<Piece> rand_gen;
+	
+	@Setup
+	public void setUp() {
+		rand_gen = new RandomGenerator<Piece>(Piece.class, 5, 1);
+	}
+	
+	@Benchmark
+	public Piece next() {
+		return rand_gen.next();
+	}
+	
+	@Benchmark
+	public int previewList() {
+		List<Piece> preview = rand_gen.getPreviewList();
+		int sum = 0;
+		for (int i=0; i<preview.size(); i++) {
+			sum += preview.get(i).ordinal();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,114 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import data_types.RotateDirection;
+import data_types.RotateState;
+import data_types.Vector2D;
+
+/**
+ * RotateBenchmark
+ * @author Josh Chia
+ * 
+ * Benchmarks of rotating a T on a Playfield for each outcome of the
+ * Wall Kick tests i.e. the first test (0) to the last (4) succeeding,
+ * or every test failing (FAIL).
+ * 
+ * The position for each outcome is found by searching seeded random
+ * boards, so it is the same on every run.
+ * 
+ * Benchmarks:
+ *  testRotation: finding the Wall Kick without rotating
+ *  rotate: rotating (then put back without checks)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RotateBenchmark {
+	private static final int MAX_BOARDS = 100000;
+	
+	@Param({"0", "1", "2", "3", "4", "FAIL"})
+	public String kick;
+	
+	Playfield playfield;
+	Tetromino tetromino;
+	RotateDirection direction;
+	
+	@Setup
+	public void setUp() {
+		int target = "FAIL".equals(kick) ? -1: Integer.parseInt(kick);
+		Random rand = new Random(target+2);
+		
+		for (int i=0; i<MAX_BOARDS; i++) {
+			playfield = new Playfield(22, 10, 2);
+			for (int c=0; c<playfield.getCols(); c++) {
+				for (int r=0; r<8; r++) {
+					if (rand.nextInt(3) == 0) {
+						playfield.addToGrid(new Mino(new Vector2D(c, r)));
+					}
+				}
+			}
+			if (find(target)) {
+				return;
+			}
+		}
+		throw new IllegalStateException("No position found for kick " + kick);
+	}
+	
+	/**
+	 * Find a position of a T on the Playfield that rotates with a kick
+	 * @param target, Wall Kick test index or -1 for a failed rotation
+	 * @return, true if found (tetromino and direction are set)
+	 */
+	private boolean find(int target) {
+		for (RotateState s: RotateState.values()) {
+			for (RotateDirection d: RotateDirection.values()) {
+				for (int y=0; y<8; y++) {
+					for (int x=0; x<playfield.getCols(); x++) {
+						if (playfield.isLegalPosition(Piece.T, s, x, y)
+								&& playfield.testRotation(Piece.T, s, d, x, y) == target) {
+							tetromino = Piece.T.create(new Vector2D(x, y));
+							while (tetromino.getRotState() != s) {
+								tetromino.rotate(RotateDirection.RIGHT);
+							}
+							direction = d;
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	@Benchmark
+	public int testRotation() {
+		return playfield.testRotation(tetromino.piece, tetromino.getRotState(), direction, tetromino.getX(), tetromino.getY());
+	}
+	
+	@Benchmark
+	public int rotate() {
+		RotateState s = tetromino.getRotState();
+		int k = playfield.rotate(tetromino, direction);
+		if (k >= 0) {
+			tetromino.move(-Piece.T.getWallKickX(s, direction, k), -Piece.T.getWallKickY(s, direction, k));
+			tetromino.rotate(direction.opposite());
+		}
+		return k;
+	}
+}
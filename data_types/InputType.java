@@ -0,0 +1,17 @@
+package data_types;
+
+/**
+ * InputType
+ * @author Josh Chia
+ * 
+ * The inputs a player (or bot) can give to control a Game.
+ * Used to describe the path a Tetromino takes to a placement.
+ * 
+ * A shift is the press of its key, RELEASE_LEFT and RELEASE_RIGHT are
+ * the releases so the Game knows how long a shift is held for (see
+ * AutoRepeat).
+ *
+ */
+public enum InputType {
+	SHIFT_LEFT, SHIFT_RIGHT, ROTATE_LEFT, ROTATE_RIGHT, SOFT_DROP, HARD_DROP, HOLD, RELEASE_LEFT, RELEASE_RIGHT;
+}
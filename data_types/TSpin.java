@@ -0,0 +1,15 @@
+package data_types;
+
+/**
+ * TSpin
+ * @author Josh Chia
+ * 
+ * Kinds of T-Spin a T Tetromino can lock with, see Playfield.testTSpin
+ *  NONE:	not a T-Spin
+ *  MINI:	three corners blocked but only one in front of the T
+ *  FULL:	both front corners blocked (or kicked in by the last test)
+ *
+ */
+public enum TSpin {
+	NONE, MINI, FULL;
+}
@@ -0,0 +1,18 @@
+package game;
+
+/**
+ * AttackListener
+ * @author Josh Chia
+ * 
+ * Notified of the garbage a Game sends after cancelling its own
+ * incoming garbage, e.g. to pass it to the opponent (see Battle).
+ * 
+ */
+public interface AttackListener {
+	/**
+	 * Called when a line clear sends garbage
+	 * @param g, Game that sent it
+	 * @param lines, garbage lines sent
+	 */
+	public void onAttack(Game g, int lines);
+}
@@ -0,0 +1,63 @@
+package game;
+
+import data_types.TSpin;
+
+/**
+ * AttackTable
+ * @author Josh Chia
+ * 
+ * Garbage lines sent by a line clear in a battle, per the guideline
+ * attack tables:
+ *  Single 0, Double 1, Triple 2, Tetris 4
+ *  T-Spin Mini Single 0, Mini Double 1
+ *  T-Spin Single 2, Double 4, Triple 6
+ *  Back-to-Back (Tetris or T-Spin after another) +1
+ *  Combo +0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 4, then 5
+ *  Perfect Clear (empty Playfield) +10
+ *
+ */
+public final class AttackTable {
+	private static final int[] LINES = {0, 0, 1, 2, 4};
+	private static final int[] TSPIN_LINES = {0, 2, 4, 6};
+	private static final int[] MINI_LINES = {0, 0, 1};
+	private static final int[] COMBO = {0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 4, 5};
+	private static final int BACK_TO_BACK = 1;
+	private static final int PERFECT_CLEAR = 10;
+	
+	private AttackTable() {}
+	
+	/**
+	 * Get the garbage lines a line clear sends
+	 * @param lines, lines cleared
+	 * @param t, kind of T-Spin the clear was
+	 * @param b2b, true if it was a difficult clear after another
+	 * @param combo, clears in a row before this one
+	 * @param perfect, true if the clear emptied the Playfield
+	 * @return, garbage lines
+	 */
+	public static int attack(int lines, TSpin t, boolean b2b, int combo, boolean perfect) {
+		if (lines <= 0) {
+			return 0;
+		}
+		int attack;
+		switch (t) {
+		case FULL:
+			attack = TSPIN_LINES[Math.min(lines, TSPIN_LINES.length-1)];
+			break;
+		case MINI:
+			attack = MINI_LINES[Math.min(lines, MINI_LINES.length-1)];
+			break;
+		default:
+			attack = (lines < LINES.length) ? LINES[lines]: lines;
+			break;
+		}
+		if (b2b) {
+			attack += BACK_TO_BACK;
+		}
+		attack += COMBO[Math.min(Math.max(combo, 0), COMBO.length-1)];
+		if (perfect) {
+			attack += PERFECT_CLEAR;
+		}
+		return attack;
+	}
+}
@@ -0,0 +1,156 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * AutoRepeat
+ * @author Josh Chia
+ * 
+ * Guideline Auto Repeat System (DAS/ARR) for the shift keys. A shift
+ * moves the Tetromino once when its key is pressed. If the key is
+ * still held after the delay (DAS) it repeats every rate (ARR) frames,
+ * or goes straight to the wall every frame if the rate is 0.
+ * 
+ * Key presses and releases are inputs to the Game, so auto repeat is
+ * part of the simulation and plays back exactly in replays and
+ * rollbacks. It is off unless set (e.g. for bots that tap the keys).
+ * 
+ */
+public class AutoRepeat {
+	/** Delay that turns auto repeat off */
+	public static final int OFF = -1;
+	
+	/** Shift returned by update to move to the wall */
+	public static final int TO_WALL = Integer.MAX_VALUE;
+	
+	private int delay, rate;
+	private boolean left_held, right_held;
+	private int direction; // -1 left, 1 right or 0 if neither held
+	private int charge; // frames the direction has been held
+	
+	/**
+	 * Construct an auto repeat
+	 * @param d, frames held before repeating (DAS) or OFF
+	 * @param r, frames between repeats (ARR), 0 to go to the wall
+	 */
+	public AutoRepeat(int d, int r) {
+		set(d, r);
+	}
+	
+	/**
+	 * Set the delay and rate
+	 * @param d, frames held before repeating (DAS) or OFF
+	 * @param r, frames between repeats (ARR), 0 to go to the wall
+	 */
+	public void set(int d, int r) {
+		if (r < 0) {
+			throw new IllegalArgumentException("Negative auto repeat rate: " + r);
+		}
+		delay = (d < 0) ? OFF: d;
+		rate = r;
+	}
+	
+	/**
+	 * Get the frames held before repeating
+	 * @return, DAS or OFF
+	 */
+	public int getDelay() {
+		return delay;
+	}
+	
+	/**
+	 * Get the frames between repeats
+	 * @return, ARR (0 is to the wall)
+	 */
+	public int getRate() {
+		return rate;
+	}
+	
+	/**
+	 * Press a shift key, it takes over from the other if that is held
+	 * @param dir, -1 for left or 1 for right
+	 */
+	public void press(int dir) {
+		if (dir < 0) {
+			left_held = true;
+		}
+		else {
+			right_held = true;
+		}
+		direction = dir;
+		charge = 0;
+	}
+	
+	/**
+	 * Release a shift key, the other one repeats (after the delay) if
+	 * it is still held
+	 * @param dir, -1 for left or 1 for right
+	 */
+	public void release(int dir) {
+		if (dir < 0) {
+			left_held = false;
+		}
+		else {
+			right_held = false;
+		}
+		if (direction == dir) {
+			direction = (dir < 0) ? (right_held ? 1: 0): (left_held ? -1: 0);
+			charge = 0;
+		}
+	}
+	
+	/**
+	 * Frame update, counting the frames the direction is held
+	 * @return, cells to shift this frame: 0, -1/1 or -TO_WALL/TO_WALL
+	 */
+	public int update() {
+		if (delay == OFF || direction == 0) {
+			return 0;
+		}
+		int shift = 0;
+		if (charge >= delay) {
+			if (rate == 0) {
+				shift = direction*TO_WALL;
+			}
+			else if ((charge - delay) % rate == 0) {
+				shift = direction;
+			}
+		}
+		charge++;
+		return shift;
+	}
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	int stateSize() {
+		return 3*4 + 2;
+	}
+	
+	/**
+	 * Write the settings and the keys held
+	 * @param b, buffer to write to
+	 */
+	void writeState(ByteBuffer b) {
+		b.putInt(delay);
+		b.putInt(rate);
+		b.put((byte) ((left_held ? 1: 0) | (right_held ? 2: 0)));
+		b.put((byte) direction);
+		b.putInt(charge);
+	}
+	
+	/**
+	 * Read the state written by writeState
+	 * @param b, buffer to read from
+	 */
+	void readState(ByteBuffer b) {
+		delay = b.getInt();
+		rate = b.getInt();
+		int held = b.get();
+		left_held = (held & 1) != 0;
+		right_held = (held & 2) != 0;
+		direction = b.get();
+		charge = b.getInt();
+	}
+}
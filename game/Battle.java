@@ -0,0 +1,46 @@
+package game;
+
+/**
+ * Battle
+ * @author Josh Chia
+ * 
+ * Versus rules between two Games: the garbage each sends is added to
+ * the other's queue of incoming garbage. Games are only linked, they
+ * are still updated by whoever runs them (e.g. a GameLoop), so a
+ * Battle is as deterministic as the order the Games are updated in.
+ *
+ */
+public class Battle {
+	private final Game[] games;
+	
+	/**
+	 * Link two Games, replacing their AttackListeners
+	 * @param g0, first Game
+	 * @param g1, second Game
+	 */
+	public Battle(Game g0, Game g1) {
+		games = new Game[] {g0, g1};
+		link(g0, g1);
+		link(g1, g0);
+	}
+	
+	private static void link(Game from, final Game to) {
+		from.setAttackListener(new AttackListener() {
+			@Override
+			public void onAttack(Game g, int lines) {
+				to.receiveGarbage(lines);
+			}
+		});
+	}
+	
+	/**
+	 * Get the winner, the Game still playing once the other is over
+	 * @return, winning Game or null if neither (or both) are over
+	 */
+	public Game getWinner() {
+		if (games[0].isGameOver() != games[1].isGameOver()) {
+			return games[0].isGameOver() ? games[1]: games[0];
+		}
+		return null;
+	}
+}
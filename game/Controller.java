@@ -0,0 +1,20 @@
+package game;
+
+/**
+ * Controller
+ * @author Josh Chia
+ * 
+ * Methods all controllers that play a Game every frame must implement
+ * e.g. bots. Controllers drive the Game through the same operations
+ * as the keyboard (shiftLeft, rotate, setDrop, holdPiece).
+ * 
+ */
+
+
+public interface Controller {
+	/**
+	 * Called at the start of every frame the Game is updated
+	 * @param game, Game being controlled
+	 */
+	public void update(Game game);
+}
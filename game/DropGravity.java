@@ -1,5 +1,7 @@
 package game;
 
+import java.nio.ByteBuffer;
+
 import model.Tetromino;
 import data_types.DropType;
 
@@ -15,6 +17,8 @@ import data_types.DropType;
  */
 
 public class DropGravity extends Gravity {
+	private static final DropType[] DROP_TYPES = DropType.values();
+	
 	private Tetromino affected;
 	private DropType drop_type;
 	private int current_frame;
@@ -35,20 +39,22 @@ public class DropGravity extends Gravity {
 	 * Implements hard and soft-drops per Tetris Guidelines
 	 * Hard: set to instantly drop (i.e. number of rows in a Playfield)
 	 * Soft: 60 cells per second i.e. 1 cell per frame
+	 * The Tetromino lands in one move however far it drops, so hard
+	 * drops and 20G cost the same as a drop of one cell.
 	 */
 	@Override
 	protected void effect() {
 		if (affected != null) {
 			switch (drop_type) {
 			case HARD:
-				game.playfield.move(affected, 0, -game.playfield.rows);
+				game.playfield.drop(affected, game.playfield.getRows());
 				break;
 			case SOFT:
-				game.playfield.move(affected, 0, -1);
+				game.playfield.drop(affected, 1);
 				break;
 			case NORMAL:
 			default:
-				game.playfield.move(affected, 0, -cell);
+				game.playfield.drop(affected, cell);
 				break;
 			}
 		}
@@ -91,4 +97,23 @@ public class DropGravity extends Gravity {
 	public void set(Tetromino t) {
 		affected = t;
 	}
+	
+	@Override
+	int stateSize() {
+		return super.stateSize() + 1 + 4;
+	}
+	
+	@Override
+	void writeState(ByteBuffer b) {
+		super.writeState(b);
+		b.put((byte) drop_type.ordinal());
+		b.putInt(current_frame);
+	}
+	
+	@Override
+	void readState(ByteBuffer b) {
+		super.readState(b);
+		drop_type = DROP_TYPES[b.get()];
+		current_frame = b.getInt();
+	}
 }
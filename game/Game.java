@@ -1,11 +1,19 @@
 package game;
 
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import metrics.EngineMetrics;
+import metrics.GameOverEvent;
+import metrics.LevelUpEvent;
+import metrics.LineClearEvent;
+import metrics.LockEvent;
+import metrics.SpawnEvent;
+import model.Fragments;
 import model.Mino;
 import model.Piece;
 import model.Playfield;
@@ -14,13 +22,9 @@ import model.RandomGenerator;
 import model.Tetromino;
 
 import data_types.DropType;
+import data_types.InputType;
 import data_types.RotateDirection;
-import data_types.Vector2D;
-
-import javafx.scene.Group;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
-import javafx.scene.text.Text;
+import data_types.TSpin;
 
 /**
  * Game
@@ -31,9 +35,20 @@ import javafx.scene.text.Text;
  * 
  * Used to abstract away the underlying details of how the game runs and
  * provide a safe interface for controlling the game
+ * 
+ * A Game has no dependency on JavaFX and can be run headless, see
+ * GameView in the ui package for how it is displayed.
+ * 
+ * Its full state can be saved to and restored from a buffer without
+ * allocating e.g. for rollback or undo, see GameState.
+ * 
+ * In a Battle, line clears send garbage (see AttackTable) to an
+ * AttackListener after cancelling the Game's own incoming garbage.
  *
  */
-public class Game extends Group {
+public class Game {
+	private static final TSpin[] TSPINS = TSpin.values();
+	
 	// Preset Game Constants
 	private final int PREVIEW_SIZE = 5;
 	private final int INITIAL_LEVEL = 1;
@@ -43,31 +58,8 @@ public class Game extends Group {
 	private final double DROP_GRAVITY_GROWTH_FACTOR = 1.0; // i.e. increases at 100%
 	private final int CLEAR_GRAVITY_CELLS = 1; 
 	private final int CLEAR_GRAVITY_FRAMES = 1; // lower frames, more responsive animation
-	
-	/*
-	 * Preset UI Constants
-	 * Used to make Games scalable for different screen resolutions
-	 * 
-	 * Using relative factors allows the game to support some variation from
-	 * default resolution.
-	 * 
-	 * If there is more time, would be better to implement an abstraction
-	 * for layouts. 
-	 */
-	private final double PLAYFIELD_RELATIVE_OFFSET_X = 0.25;
-	private final double PLAYFIELD_RELATIVE_OFFSET_Y = 0.10;
-	private final double PLAYFIELD_RELATIVE_WIDTH = 0.50;
-	private final double PLAYFIELD_RELATIVE_HEIGHT = 0.85;
-	private final double PIECE_DISPLAY_RELATIVE_WIDTH = 0.2;
-	private final double PIECE_DISPLAY_RELATIVE_HEIGHT = 0.17;
-	
-	// Constants determined by Game parameters
-	public final double PLAYFIELD_POS_X, PLAYFIELD_POS_Y, PLAYFIELD_WIDTH, PLAYFIELD_HEIGHT;
-	public final double PIECE_DISPLAY_WIDTH, PIECE_DISPLAY_HEIGHT;
-	private final int PLAYFIELD_ROWS, PLAYFIELD_COLS, PLAYFIELD_VANISH;
-	private final Vector2D PLAYFIELD_POS;
-	private final Font GAME_FONT;
-	private final double PADDING;
+	private final int MAX_FEEDBACK = 64; // characters of feedback saved with the state
+	private final int GARBAGE_DELAY = 20; // frames to cancel incoming garbage before it is ready
 	
 	// Game Objects (that compose a Game of Tetris)
 	protected Playfield playfield;
@@ -76,89 +68,76 @@ public class Game extends Group {
 	private RandomGenerator<Piece> rand_gen;
 	private LockDelay lock_delay;
 	private ScoreSystem score;
-	private PiecePreview piece_preview;
 	private PieceHold piece_hold;
+	private GarbageQueue garbage;
+	private AutoRepeat auto_repeat;
+	
+	// Controller called every frame (e.g. a bot) or null
+	private Controller controller;
+	
+	// Listener told of every input (e.g. a replay recorder) or null
+	private InputListener input_listener;
 	
-	// JavaFX UI
-	protected Text score_text, level_text, goal_text, next_text, hold_text, feedback_text;
+	// Listener told of the garbage sent (e.g. a Battle) or null
+	private AttackListener attack_listener;
+	
+	// Game Statistics
+	private int frame_count = 0;
+	private int pieces_placed = 0;
+	private boolean game_over_reported = false;
+	private int lines_sent = 0;
+	private boolean topped_out = false; // pushed out of the top by garbage
+	
+	// Wall Kick test of the active piece's last rotation, -1 if it last moved otherwise
+	private int last_kick = -1;
+	private TSpin lock_tspin = TSpin.NONE;
+	
+	// Feedback to the player e.g. "Tetris!"
+	private String feedback = "";
 	
 	// Game Variables - used to cache lines to clear (reduce search time)
 	private Set<Integer> rows_to_clear = new HashSet<Integer>();
+	
+	// Cells taken as debris in the current line clear (metrics)
+	private int cells_filled = 0;
+	
+	// Fragments of the grid left by a line clear, reused between clears
+	private Fragments fragments;
+	
+	// Settle debris at once rather than animate it (see setSettleCascades)
+	private boolean settle_cascades = false;
 
 	/**
-	 * Sets up a game of Tetris
-	 * @param x, x-coordinate to display the game
-	 * @param y, y-coordinate to display the game
-	 * @param width, in pixels
-	 * @param height, in pixels
+	 * Sets up a game of Tetris with a random seed
 	 * @param rows, number of rows
 	 * @param cols, number of cols
 	 * @param vanish, size of vanish zone
 	 */
-	public Game(double x, double y, double width, double height, int rows, int cols, int vanish) {
-		// Set/Determine Constants for Playfield
-		PLAYFIELD_POS_X = x + width * PLAYFIELD_RELATIVE_OFFSET_X;
-		PLAYFIELD_POS_Y = y + height * PLAYFIELD_RELATIVE_OFFSET_Y;
-		PLAYFIELD_POS = new Vector2D(PLAYFIELD_POS_X, PLAYFIELD_POS_Y);
-		PLAYFIELD_WIDTH = width * PLAYFIELD_RELATIVE_WIDTH;
-		PLAYFIELD_HEIGHT = height * PLAYFIELD_RELATIVE_HEIGHT;
-		PLAYFIELD_ROWS = rows;
-		PLAYFIELD_COLS = cols;
-		PLAYFIELD_VANISH = vanish;
-		
-		// Set/Determine Constants for PieceDisplay
-		PIECE_DISPLAY_WIDTH = PIECE_DISPLAY_RELATIVE_WIDTH * width;
-		PIECE_DISPLAY_HEIGHT = PIECE_DISPLAY_RELATIVE_HEIGHT * height;
-		
-		// Style Setup
-		GAME_FONT = Font.font("Tahoma",  FontWeight.NORMAL, height*0.03);
-		PADDING = height * 0.02;
-		
+	public Game(int rows, int cols, int vanish) {
+		this(rows, cols, vanish, RandomGenerator.randomSeed());
+	}
+	
+	/**
+	 * Sets up a game of Tetris whose Piece sequence is determined by a seed
+	 * @param rows, number of rows
+	 * @param cols, number of cols
+	 * @param vanish, size of vanish zone
+	 * @param seed, seed of the Random Generator
+	 */
+	public Game(int rows, int cols, int vanish, long seed) {
 		// Game Setup ("Gridworlds")
-		playfield = new Playfield(PLAYFIELD_POS, PLAYFIELD_WIDTH, PLAYFIELD_HEIGHT, PLAYFIELD_ROWS, PLAYFIELD_COLS, PLAYFIELD_VANISH);
-		piece_preview = new PiecePreview(new Vector2D(PLAYFIELD_POS, PLAYFIELD_WIDTH+PADDING, 0), PREVIEW_SIZE, PIECE_DISPLAY_WIDTH, PIECE_DISPLAY_HEIGHT);
-		piece_hold = new PieceHold(new Vector2D(PLAYFIELD_POS_X-PADDING*10, PLAYFIELD_POS_Y), PIECE_DISPLAY_WIDTH, PIECE_DISPLAY_HEIGHT);
+		playfield = new Playfield(rows, cols, vanish);
+		piece_hold = new PieceHold();
 		
 		// Game Setup ("Controllers")
 		drop_gravity = new DropGravity(INITIAL_DROP_GRAVITY_CELLS, INITIAL_DROP_GRAVITY_FRAMES, this);
 		recursive_gravity = new LineClearGravity(CLEAR_GRAVITY_CELLS, CLEAR_GRAVITY_FRAMES, this);
 		score = new ScoreSystem(INITIAL_LEVEL, this);
-		rand_gen = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE);
+		rand_gen = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, seed);
 		lock_delay = new LockDelay(DELAY_FRAMES);
-		
-
-		// UI Setup
-		score_text = new Text(PLAYFIELD_POS_X, PLAYFIELD_POS_Y-PADDING, "Score: " + score.score);
-		score_text.setFont(GAME_FONT);
-
-		level_text = new Text(PLAYFIELD_POS_X+PLAYFIELD_WIDTH-PADDING, PLAYFIELD_POS_Y-PADDING, "Level: " + score.level);
-		level_text.setFont(GAME_FONT);
-		level_text.setTranslateX(-level_text.getLayoutBounds().getWidth());
-
-		goal_text = new Text(PLAYFIELD_POS_X+PLAYFIELD_WIDTH+PADDING*2, PLAYFIELD_POS_Y+PLAYFIELD_HEIGHT, "Goal: " + score.goal);
-		goal_text.setFont(GAME_FONT);
-		goal_text.setTranslateY(goal_text.getLayoutBounds().getHeight());
-
-		next_text = new Text(PLAYFIELD_POS_X+PLAYFIELD_WIDTH+PADDING*3, PLAYFIELD_POS_Y-PADDING, "Next");
-		next_text.setFont(GAME_FONT);
-
-		hold_text = new Text(PLAYFIELD_POS_X-PADDING*6, PLAYFIELD_POS_Y-PADDING, "Hold");
-		hold_text.setFont(GAME_FONT);
-
-		feedback_text = new Text(PLAYFIELD_POS_X, PLAYFIELD_POS_Y+PLAYFIELD_HEIGHT, "");
-		feedback_text.setFont(GAME_FONT);
-		feedback_text.setTranslateY(feedback_text.getLayoutBounds().getHeight());
-		
-		// Add to JavaFx Group for display 
-		this.getChildren().add(playfield);
-		this.getChildren().add(piece_preview);
-		this.getChildren().add(piece_hold);
-		this.getChildren().add(score_text);
-		this.getChildren().add(level_text);
-		this.getChildren().add(goal_text);
-		this.getChildren().add(next_text);
-		this.getChildren().add(hold_text);
-		this.getChildren().add(feedback_text);
+		garbage = new GarbageQueue(GARBAGE_DELAY, cols, seed);
+		auto_repeat = new AutoRepeat(AutoRepeat.OFF, 0);
+		fragments = new Fragments(rows, cols);
 	}
 	
 	/**
@@ -166,18 +145,28 @@ public class Game extends Group {
 	 * @param frames, number frame updates
 	 */
 	public void updateGame(int frames) {
+		long start_nanos = System.nanoTime();
+		long start_bytes = EngineMetrics.allocatedBytes();
+		int start_frame = frame_count;
+		
 		while (frames > 0) {
 			// If game is over terminate
 			if (isGameOver()) {
-				feedback_text.setText("GAME OVER! Press Esc");
-				return;
+				reportGameOver();
+				break;
+			}
+			
+			if (controller != null) {
+				controller.update(this);
 			}
 
 			// Spawn piece if needed and possible (line clear gravity not in effect)
 			if (playfield.needSpawn() && recursive_gravity.isEmpty() && rows_to_clear.isEmpty()) {
 				spawn(rand_gen.next());
-				piece_preview.update(rand_gen.getPreviewList());
 			}
+			
+			// Repeat the shift key that is held
+			callAutoRepeat();
 
 			// Call drop gravity on the active Tetromino 
 			callDropGravity();
@@ -191,10 +180,25 @@ public class Game extends Group {
 			}
 
 			// Call line clear gravity on Polyominos created after line clear
-			recursive_gravity.call();
+			if (settle_cascades) {
+				settleCascade();
+			}
+			else {
+				recursive_gravity.call();
+			}
 			
+			frame_count++;
 			frames--;
 		}
+		
+		// Metrics are per frame, averaged over the frames of this update
+		int played = frame_count - start_frame;
+		if (played > 0) {
+			EngineMetrics.TICK.record((System.nanoTime() - start_nanos)/played);
+			if (start_bytes >= 0) {
+				EngineMetrics.ALLOCATION.record((EngineMetrics.allocatedBytes() - start_bytes)/played);
+			}
+		}
 	}
 	
 	/**
@@ -202,7 +206,7 @@ public class Game extends Group {
 	 */
 	public void shiftLeft() {
 		if (!playfield.needSpawn()) {
-			playfield.move(playfield.active_piece, -1, 0);
+			shift(-1);
 		}
 	}
 	
@@ -211,7 +215,46 @@ public class Game extends Group {
 	 */
 	public void shiftRight() {
 		if (!playfield.needSpawn()) {
-			playfield.move(playfield.active_piece, 1, 0);
+			shift(1);
+		}
+	}
+	
+	/**
+	 * Shift the active piece, it is no longer a T-Spin if it moves
+	 * @param vx, columns to shift (negative is left)
+	 */
+	private void shift(int vx) {
+		int x = playfield.active_piece.getX();
+		playfield.move(playfield.active_piece, vx, 0);
+		if (playfield.active_piece.getX() != x) {
+			last_kick = -1;
+		}
+	}
+	
+	/**
+	 * Shift the active piece as far as it goes, in one step
+	 * @param dir, -1 for left or 1 for right
+	 */
+	private void shiftToWall(int dir) {
+		int d = playfield.shiftDistance(playfield.active_piece, dir);
+		if (d > 0) {
+			playfield.active_piece.move(dir*d, 0);
+			last_kick = -1;
+		}
+	}
+	
+	/**
+	 * Shift the active piece if a held shift key repeats this frame
+	 */
+	private void callAutoRepeat() {
+		int vx = auto_repeat.update();
+		if (vx != 0 && !playfield.needSpawn()) {
+			if (vx == AutoRepeat.TO_WALL || vx == -AutoRepeat.TO_WALL) {
+				shiftToWall(Integer.signum(vx));
+			}
+			else {
+				shift(vx);
+			}
 		}
 	}
 	
@@ -231,7 +274,10 @@ public class Game extends Group {
 	 */
 	public void rotate(RotateDirection d) {
 		if (!playfield.needSpawn()) {
-			playfield.rotate(playfield.active_piece, d);
+			int kick = playfield.rotate(playfield.active_piece, d);
+			if (kick >= 0) {
+				last_kick = kick;
+			}
 		}
 	}
 	
@@ -243,10 +289,6 @@ public class Game extends Group {
 			Piece current = playfield.active_piece.piece;
 			Piece replace = piece_hold.swap(current);
 
-			if (current != null) {
-				playfield.removeFromGroup(playfield.active_piece);
-			}
-
 			if (replace != null) {
 				spawn(replace);
 			}
@@ -257,11 +299,349 @@ public class Game extends Group {
 	}
 	
 	/**
-	 * Game is over if there is a need to spawn and it cannot be spawned
+	 * Give an input to the game, as a player would
+	 * @param in, input
+	 */
+	public void input(InputType in) {
+		if (input_listener != null) {
+			input_listener.onInput(frame_count, in);
+		}
+		
+		switch (in) {
+		case SHIFT_LEFT:
+			auto_repeat.press(-1);
+			shiftLeft();
+			break;
+		case SHIFT_RIGHT:
+			auto_repeat.press(1);
+			shiftRight();
+			break;
+		case RELEASE_LEFT:
+			auto_repeat.release(-1);
+			break;
+		case RELEASE_RIGHT:
+			auto_repeat.release(1);
+			break;
+		case ROTATE_LEFT:
+			rotate(RotateDirection.LEFT);
+			break;
+		case ROTATE_RIGHT:
+			rotate(RotateDirection.RIGHT);
+			break;
+		case SOFT_DROP:
+			setDrop(DropType.SOFT);
+			break;
+		case HARD_DROP:
+			setDrop(DropType.HARD);
+			break;
+		case HOLD:
+			holdPiece();
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Set the Auto Repeat of the shift keys, it is off unless set
+	 * @param das, frames a shift is held before it repeats or AutoRepeat.OFF
+	 * @param arr, frames between repeats, 0 to shift to the wall
+	 */
+	public void setAutoRepeat(int das, int arr) {
+		auto_repeat.set(das, arr);
+	}
+	
+	/**
+	 * Get the frames a shift is held before it repeats
+	 * @return, DAS or AutoRepeat.OFF
+	 */
+	public int getAutoRepeatDelay() {
+		return auto_repeat.getDelay();
+	}
+	
+	/**
+	 * Get the frames between repeats of a held shift
+	 * @return, ARR (0 shifts to the wall)
+	 */
+	public int getAutoRepeatRate() {
+		return auto_repeat.getRate();
+	}
+	
+	/**
+	 * Settle the debris of line clears (and the line clears it causes)
+	 * within the frame, rather than animate it falling over many
+	 * frames. For games that aren't watched e.g. bots and simulations.
+	 * @param s, true to settle, false to animate (default)
+	 */
+	public void setSettleCascades(boolean s) {
+		settle_cascades = s;
+	}
+	
+	/**
+	 * Check if the debris of line clears is settled within the frame
+	 * @return, true if settled, false if animated
+	 */
+	public boolean isSettleCascades() {
+		return settle_cascades;
+	}
+	
+	/**
+	 * Set the Controller that plays the game every frame
+	 * @param c, Controller or null for none
+	 */
+	public void setController(Controller c) {
+		controller = c;
+	}
+	
+	/**
+	 * Set the listener told of every input
+	 * @param l, listener or null for none
+	 */
+	public void setInputListener(InputListener l) {
+		input_listener = l;
+	}
+	
+	/**
+	 * Set the listener told of the garbage sent
+	 * @param l, listener or null for none
+	 */
+	public void setAttackListener(AttackListener l) {
+		attack_listener = l;
+	}
+	
+	/**
+	 * Queue garbage sent by the opponent
+	 * @param lines, garbage lines
+	 */
+	public void receiveGarbage(int lines) {
+		garbage.add(lines, frame_count);
+	}
+	
+	/**
+	 * Get the incoming garbage not yet inserted
+	 * @return, garbage lines
+	 */
+	public int getPendingGarbage() {
+		return garbage.getPending();
+	}
+	
+	/**
+	 * Get the garbage sent to the opponent (after cancelling)
+	 * @return, garbage lines
+	 */
+	public int getLinesSent() {
+		return lines_sent;
+	}
+	
+	/**
+	 * Check if hold can be used for the active piece
+	 * @return, true if hold can be used
+	 */
+	public boolean canHold() {
+		return piece_hold.canUse();
+	}
+	
+	/**
+	 * Take an immutable snapshot of what is shown of the game
+	 * @return, snapshot at the current frame
+	 */
+	public GameSnapshot snapshot() {
+		return new GameSnapshot(this);
+	}
+	
+	/**
+	 * Most bytes written by saveState
+	 * @return, bytes
+	 */
+	public int stateSize() {
+		return 3*4 + 4 + 4 + 1 + 2 + MAX_FEEDBACK*2 + 2 + playfield.getRows()*2
+				+ playfield.stateSize() + rand_gen.stateSize() + piece_hold.stateSize()
+				+ score.stateSize() + drop_gravity.stateSize() + recursive_gravity.stateSize()
+				+ lock_delay.stateSize() + garbage.stateSize() + 4 + 1 + 4 + 1
+				+ auto_repeat.stateSize() + 1;
+	}
+	
+	/**
+	 * Write the full state of the game: the Playfield, the Random
+	 * Generator, the Hold, the score, gravity, lock delay and the shift
+	 * keys held. The Controller and input listener aren't part of the
+	 * state.
+	 * @param b, buffer to write to, with at least stateSize bytes remaining
+	 */
+	public void saveState(ByteBuffer b) {
+		b.putInt(playfield.getRows());
+		b.putInt(playfield.getCols());
+		b.putInt(playfield.getVanish());
+		b.putInt(frame_count);
+		b.putInt(pieces_placed);
+		b.put((byte) (game_over_reported ? 1: 0));
+		
+		int length = Math.min(feedback.length(), MAX_FEEDBACK);
+		b.putShort((short) length);
+		for (int i=0; i<length; i++) {
+			b.putChar(feedback.charAt(i));
+		}
+		
+		b.putShort((short) rows_to_clear.size());
+		if (!rows_to_clear.isEmpty()) {
+			for (int r: rows_to_clear) {
+				b.putShort((short) r);
+			}
+		}
+		
+		playfield.writeState(b);
+		rand_gen.writeState(b);
+		piece_hold.writeState(b);
+		score.writeState(b);
+		drop_gravity.writeState(b);
+		recursive_gravity.writeState(b);
+		lock_delay.writeState(b);
+		garbage.writeState(b);
+		b.putInt(last_kick);
+		b.put((byte) lock_tspin.ordinal());
+		b.putInt(lines_sent);
+		b.put((byte) (topped_out ? 1: 0));
+		auto_repeat.writeState(b);
+		b.put((byte) (settle_cascades ? 1: 0));
+	}
+	
+	/**
+	 * Restore the state written by saveState (of this or another Game
+	 * of the same size). Nothing is allocated unless the falling
+	 * Polyominos, rows to clear or feedback differ from the current ones.
+	 * @param b, buffer to read from
+	 */
+	public void restoreState(ByteBuffer b) {
+		int rows = b.getInt();
+		int cols = b.getInt();
+		int vanish = b.getInt();
+		if (rows != playfield.getRows() || cols != playfield.getCols() || vanish != playfield.getVanish()) {
+			throw new IllegalArgumentException("State is of a " + rows + "x" + cols + " Playfield, not "
+					+ playfield.getRows() + "x" + playfield.getCols());
+		}
+		frame_count = b.getInt();
+		pieces_placed = b.getInt();
+		game_over_reported = b.get() != 0;
+		
+		int length = b.getShort();
+		boolean same = length == feedback.length();
+		for (int i=0; i<length && same; i++) {
+			same = b.getChar(b.position() + i*2) == feedback.charAt(i);
+		}
+		if (!same) {
+			char[] chars = new char[length];
+			for (int i=0; i<length; i++) {
+				chars[i] = b.getChar(b.position() + i*2);
+			}
+			feedback = new String(chars);
+		}
+		b.position(b.position() + length*2);
+		
+		rows_to_clear.clear();
+		int count = b.getShort();
+		for (int i=0; i<count; i++) {
+			rows_to_clear.add((int) b.getShort());
+		}
+		
+		playfield.readState(b);
+		rand_gen.readState(b);
+		piece_hold.readState(b);
+		score.readState(b);
+		drop_gravity.readState(b);
+		recursive_gravity.readState(b);
+		
+		drop_gravity.set(playfield.active_piece);
+		lock_delay.setTarget(playfield.active_piece);
+		lock_delay.readState(b);
+		recursive_gravity.setAffected(playfield.polyominos);
+		garbage.readState(b);
+		last_kick = b.getInt();
+		lock_tspin = TSPINS[b.get()];
+		lines_sent = b.getInt();
+		topped_out = b.get() != 0;
+		auto_repeat.readState(b);
+		settle_cascades = b.get() != 0;
+	}
+	
+	/**
+	 * Get the Playfield the game is played in
+	 * @return, playfield
+	 */
+	public Playfield getPlayfield() {
+		return playfield;
+	}
+	
+	/**
+	 * Get the number of frames the game has been updated
+	 * @return, frames played
+	 */
+	public int getFrameCount() {
+		return frame_count;
+	}
+	
+	/**
+	 * Get the number of Tetrominos locked
+	 * @return, pieces placed
+	 */
+	public int getPiecesPlaced() {
+		return pieces_placed;
+	}
+	
+	/**
+	 * Get the scoring system (score, level, goal) of the game
+	 * @return, score system
+	 */
+	public ScoreSystem getScoreSystem() {
+		return score;
+	}
+	
+	/**
+	 * Get the upcoming Pieces from the Random Generator
+	 * @return, list of Pieces to preview
+	 */
+	public List<Piece> getPreviewList() {
+		return rand_gen.getPreviewList();
+	}
+	
+	/**
+	 * Get the seed the game's Piece sequence is generated from
+	 * @return, seed
+	 */
+	public long getSeed() {
+		return rand_gen.getSeed();
+	}
+	
+	/**
+	 * Get the Piece currently held
+	 * @return, held Piece or null if none
+	 */
+	public Piece getHeldPiece() {
+		return piece_hold.getHeld();
+	}
+	
+	/**
+	 * Get the latest feedback for the player e.g. "Tetris!"
+	 * @return, feedback text
+	 */
+	public String getFeedback() {
+		return feedback;
+	}
+	
+	/**
+	 * Set the feedback for the player
+	 * @param f, feedback text
+	 */
+	protected void setFeedback(String f) {
+		feedback = f;
+	}
+	
+	/**
+	 * Game is over if there is a need to spawn and it cannot be spawned,
+	 * or garbage pushed the stack out of the top
 	 * @return, true if over
 	 */
 	public boolean isGameOver() {
-		return playfield.needSpawn() && !playfield.canSpawn(rand_gen.peek());
+		return topped_out || (playfield.needSpawn() && !playfield.canSpawn(rand_gen.peek()));
 	}
 	
 	/**
@@ -279,7 +659,9 @@ public class Game extends Group {
 		
 		dropped = (int)(old_y-new_y); //since 0 = bottom
 		score.addCellsDropped(dropped, drop_gravity.getDropType());
-		score_text.setText("Score: " + score.score);
+		if (dropped > 0) {
+			last_kick = -1;
+		}
 		
 		// Instant lock on hard drop (per Guideline/sonic-lock)
 		if (drop_gravity.getDropType() == DropType.HARD){
@@ -314,8 +696,21 @@ public class Game extends Group {
 	protected void lock(Polyomino p) {
 		boolean lock_active_piece = p.equals(playfield.active_piece); 
 		
+		lock_tspin = TSpin.NONE;
 		if (lock_active_piece) {
+			lock_tspin = playfield.testTSpin(playfield.active_piece, last_kick);
+			LockEvent event = new LockEvent();
+			if (event.shouldCommit()) {
+				event.piece = playfield.active_piece.piece.name();
+				event.frame = frame_count;
+				event.lock_delay_frames = lock_delay.getFramesUsed();
+				event.commit();
+			}
 			playfield.active_piece = null;
+			pieces_placed++;
+		}
+		else {
+			playfield.polyominos.remove(p);
 		}
 		
 		playfield.addToGrid(p);
@@ -324,6 +719,7 @@ public class Game extends Group {
 		
 		if (lock_active_piece && rows_to_clear.isEmpty()) {
 			score.resetCombo();
+			topped_out |= garbage.insertReady(playfield, frame_count);
 		}
 	}
 	
@@ -344,22 +740,73 @@ public class Game extends Group {
 	 * Clear the lines and apply recursive gravity
 	 * Uses rows_to_clear to cache where to look for line clears
 	 */
-	private void clearLines() {
+	protected void clearLines() {
+		LineClearEvent event = new LineClearEvent();
+		event.begin();
+		
 		for (int r: rows_to_clear) {
 			playfield.clearLine(r);
 		}
 		
+		cells_filled = 0;
+		int polyominos = 0;
+		long fill_nanos = event.isEnabled() ? System.nanoTime(): 0;
+		fragments.label(playfield);
 		for (int r: rows_to_clear) {
-			recursive_gravity.addAll(createPolyominos(r+1));
+			List<Polyomino> debris = createPolyominos(r+1);
+			recursive_gravity.addAll(debris);
+			playfield.polyominos.addAll(debris);
+			polyominos += debris.size();
 		}
+		fill_nanos = event.isEnabled() ? System.nanoTime() - fill_nanos: 0;
+		EngineMetrics.FLOOD_FILL_CELLS.add(cells_filled);
+		EngineMetrics.LINES_CLEARED.add(rows_to_clear.size());
 		
-		score.addLinesCleared(rows_to_clear.size());
-		score_text.setText("Score: " + score.score);
-		level_text.setText("Level: " + score.level);
-		goal_text.setText("Goal: " + score.goal);
+		int lines = rows_to_clear.size();
+		score.addLinesCleared(lines, lock_tspin);
+		sendAttack(AttackTable.attack(lines, lock_tspin, score.isBackToBack(), score.combo-1, isPerfectClear()));
+		lock_tspin = TSpin.NONE;
+		
+		if (event.shouldCommit()) {
+			event.rows = rows_to_clear.size();
+			event.polyominos = polyominos;
+			event.cells_filled = cells_filled;
+			event.create_polyominos_time = fill_nanos;
+			event.commit();
+		}
 		rows_to_clear.clear();
 	}
 	
+	/**
+	 * Cancel incoming garbage with an attack and send the rest
+	 * @param attack, garbage lines of a line clear
+	 */
+	private void sendAttack(int attack) {
+		int left = garbage.cancel(attack);
+		if (left > 0) {
+			lines_sent += left;
+			if (attack_listener != null) {
+				attack_listener.onAttack(this, left);
+			}
+		}
+	}
+	
+	/**
+	 * Check if a line clear emptied the Playfield
+	 * @return, true if no Minos are left
+	 */
+	private boolean isPerfectClear() {
+		if (!playfield.polyominos.isEmpty()) {
+			return false;
+		}
+		for (int r=0; r<playfield.getRows(); r++) {
+			if (playfield.getRowMask(r) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * Spawns a particular Tetromino Piece
 	 * @param p, Piece to spawn
@@ -369,59 +816,52 @@ public class Game extends Group {
 		drop_gravity.set(t);
 		lock_delay.setTarget(t);
 		playfield.spawn(t);
+		last_kick = -1;
+		EngineMetrics.PIECES_SPAWNED.increment();
+		
+		SpawnEvent event = new SpawnEvent();
+		if (event.shouldCommit()) {
+			event.piece = p.name();
+			event.frame = frame_count;
+			event.commit();
+		}
 	}
 	
 	/**
 	 * Create the Polyominos to apply recursive gravity to
-	 * after there is a line clear.
-	 * @param r, row that was line cleared
+	 * after there is a line clear: the fragments (labelled after the
+	 * rows were cleared) with a Mino in the row above it, left to right.
+	 * @param r, row above the row that was line cleared
 	 * @return, list of Polyominos created from the line clear
 	 */
 	private List<Polyomino> createPolyominos(int r) {
 		List<Polyomino> debris = new ArrayList<Polyomino>();
-		boolean consecutive = false;
+		if (r >= playfield.getRows()) {
+			return debris;
+		}
 		
-		for (int c=0; c<playfield.cols; c++) {
-			if (!consecutive && playfield.grid[r][c] != null) {
-				List<Mino> ms = floodFill(r, c);
-				debris.add(new Polyomino(ms.toArray(new Mino[ms.size()])));
-				consecutive = true;
-			}
-			else if (playfield.grid[r][c] == null) {
-				consecutive = false;
+		for (int c=0; c<playfield.getCols(); c++) {
+			int f = fragments.get(r, c);
+			Polyomino p = (f < 0) ? null: fragments.take(playfield, f);
+			if (p != null) {
+				debris.add(p);
+				cells_filled += p.minos.length;
 			}
 		}
 		return debris;
 	}
 	
 	/**
-	 * Flood-fill algorithm for generating Polyominos after 
-	 * line clear
-	 * @param r, row to check
-	 * @param c, column to check
-	 * @return, list of Minos to construct the Polyomino
+	 * Settle the debris falling after a line clear and clear the lines
+	 * it completes, until there is no debris left
 	 */
-	private List<Mino> floodFill(int r, int c) {
-		List<Mino> ms = new ArrayList<Mino>();
-		
-		if (r < 0 || r >= playfield.rows || c < 0 || c >= playfield.cols) {
-			return ms;
-		}
-		
-		if (playfield.grid[r][c] == null) {
-			return ms;
-		}
-		else {
-			ms.add(playfield.grid[r][c]);
-			playfield.grid[r][c] = null; // remove it
+	private void settleCascade() {
+		while (!recursive_gravity.isEmpty()) {
+			recursive_gravity.settle();
+			if (!rows_to_clear.isEmpty()) {
+				clearLines();
+			}
 		}
-		
-		ms.addAll(floodFill(r+1, c));
-		ms.addAll(floodFill(r, c-1));
-		ms.addAll(floodFill(r-1, c));
-		ms.addAll(floodFill(r, c+1));
-		
-		return ms;
 	}
 	
 	/**
@@ -433,6 +873,33 @@ public class Game extends Group {
 			increaseGravity();
 			i--;
 		}
+		
+		LevelUpEvent event = new LevelUpEvent();
+		if (event.shouldCommit()) {
+			event.level = score.level;
+			event.gravity_cells = drop_gravity.getCell();
+			event.gravity_frames = drop_gravity.getFrame();
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Record the end of the game, once
+	 */
+	private void reportGameOver() {
+		if (game_over_reported) {
+			return;
+		}
+		game_over_reported = true;
+		
+		GameOverEvent event = new GameOverEvent();
+		if (event.shouldCommit()) {
+			event.frame = frame_count;
+			event.score = score.score;
+			event.lines = score.lines;
+			event.pieces = pieces_placed;
+			event.commit();
+		}
 	}
 	
 	/**
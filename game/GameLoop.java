@@ -0,0 +1,178 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop
+ * @author Josh Chia
+ * 
+ * Runs Games on their own thread at a fixed number of frames per
+ * second, independent of rendering. After every step a GameSnapshot
+ * of each Game is published for the renderer to draw.
+ * 
+ * Once started the Games must only be touched by the loop's thread,
+ * other threads give inputs through an InputQueue (the Game's
+ * Controller) and read the snapshots.
+ * 
+ * A loop can be given a frame limit e.g. the end of a Replay, Games
+ * are not updated past it.
+ * 
+ * Subclasses can change how a frame is stepped, e.g. to run the Games
+ * of a network game (see the net package).
+ * 
+ * If the loop falls behind (e.g. the machine was suspended) it catches
+ * up at most MAX_CATCH_UP frames at once, then drops the rest rather
+ * than fast forwarding the Games.
+ *
+ */
+public class GameLoop implements Runnable {
+	private static final int MAX_CATCH_UP = 10;
+	
+	private final Game[] games;
+	private final long step_nanos;
+	private final int max_frames;
+	private final AtomicReferenceArray<GameSnapshot> snapshots;
+	
+	private Thread thread;
+	private volatile boolean running, paused;
+	
+	/**
+	 * Construct a loop over Games
+	 * @param gs, Games to run, in the order of their snapshots
+	 * @param fps, frames per second
+	 */
+	public GameLoop(Game[] gs, int fps) {
+		this(gs, fps, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Construct a loop over Games that stops updating them at a frame
+	 * @param gs, Games to run, in the order of their snapshots
+	 * @param fps, frames per second
+	 * @param max, frame the Games are not updated past
+	 */
+	public GameLoop(Game[] gs, int fps, int max) {
+		games = gs;
+		step_nanos = 1000000000L/fps;
+		max_frames = max;
+		snapshots = new AtomicReferenceArray<GameSnapshot>(games.length);
+		for (int i=0; i<games.length; i++) {
+			snapshots.set(i, games[i].snapshot());
+		}
+	}
+	
+	/**
+	 * Start running the Games on a new (daemon) thread
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Loop already started");
+		}
+		running = true;
+		thread = new Thread(this, "game-loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stop the loop and wait for the frame being played to finish,
+	 * the Games are left as they are and can be read once it returns
+	 */
+	public void stop() {
+		Thread t;
+		synchronized (this) {
+			running = false;
+			t = thread;
+		}
+		if (t == null || t == Thread.currentThread()) {
+			return;
+		}
+		LockSupport.unpark(t);
+		
+		boolean interrupted = false;
+		while (t.isAlive()) {
+			try {
+				t.join();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Pause the Games e.g. while the menu is shown
+	 */
+	public void pause() {
+		paused = true;
+	}
+	
+	/**
+	 * Resume the Games after a pause
+	 */
+	public synchronized void resume() {
+		paused = false;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
+	/**
+	 * Get the latest snapshot of a Game
+	 * Safe to call from any thread
+	 * @param i, index of the Game
+	 * @return, snapshot
+	 */
+	public GameSnapshot getSnapshot(int i) {
+		return snapshots.get(i);
+	}
+	
+	/**
+	 * Step the Games by one frame, on the loop's thread
+	 */
+	protected void step() {
+		for (Game g: games) {
+			if (g.getFrameCount() < max_frames) {
+				g.updateGame(1);
+			}
+		}
+	}
+	
+	@Override
+	public void run() {
+		long next = System.nanoTime();
+		
+		while (running) {
+			if (paused) {
+				LockSupport.park(this);
+				// Don't catch up the frames missed while paused
+				next = System.nanoTime();
+				continue;
+			}
+			
+			long now = System.nanoTime();
+			if (now - next < 0) {
+				LockSupport.parkNanos(this, next - now);
+				continue;
+			}
+			
+			int frames = 0;
+			while (now - next >= 0 && frames < MAX_CATCH_UP) {
+				step();
+				next += step_nanos;
+				frames++;
+			}
+			if (now - next >= 0) {
+				next = now + step_nanos;
+			}
+			
+			for (int i=0; i<games.length; i++) {
+				snapshots.set(i, games[i].snapshot());
+			}
+		}
+	}
+}
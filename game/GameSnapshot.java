@@ -0,0 +1,219 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Polyomino;
+import model.Tetromino;
+
+/**
+ * GameSnapshot
+ * @author Josh Chia
+ * 
+ * Immutable copy of what is shown of a Game at the end of a frame:
+ * the visible grids (with the active Tetromino, its ghost and the
+ * falling Polyominos drawn in), the preview, the held Piece, the
+ * score and the incoming garbage.
+ * 
+ * Snapshots are taken on the thread that runs the Game and can be
+ * read from any other thread (e.g. the renderer) without locking.
+ *
+ */
+public final class GameSnapshot {
+	private final int frame;
+	private final int rows, cols;
+	private final byte[] colors;
+	private final List<Piece> preview;
+	private final Piece held;
+	private final int score, level, goal, lines;
+	private final int garbage;
+	private final String feedback;
+	private final boolean game_over;
+	
+	/**
+	 * Take a snapshot of a Game
+	 * @param g, Game to copy
+	 */
+	GameSnapshot(Game g) {
+		Playfield pf = g.getPlayfield();
+		ScoreSystem s = g.getScoreSystem();
+		
+		frame = g.getFrameCount();
+		rows = pf.getRows()-pf.getVanish();
+		cols = pf.getCols();
+		colors = new byte[rows*cols];
+		for (int r=0; r<rows; r++) {
+			for (int c=0; c<cols; c++) {
+				colors[r*cols+c] = pf.getColor(r, c);
+			}
+		}
+		if (pf.active_piece != null) {
+			addGhost(pf.active_piece, pf.active_piece.getY() - pf.getGhostY());
+			addColors(pf.active_piece);
+		}
+		for (Polyomino p: pf.polyominos) {
+			addColors(p);
+		}
+		
+		List<Piece> next = g.getPreviewList();
+		preview = Collections.unmodifiableList(Arrays.asList(next.toArray(new Piece[next.size()])));
+		held = g.getHeldPiece();
+		score = s.score;
+		level = s.level;
+		goal = s.goal;
+		lines = s.lines;
+		garbage = g.getPendingGarbage();
+		feedback = g.getFeedback();
+		game_over = g.isGameOver();
+	}
+	
+	/**
+	 * Draw the visible Minos of a Polyomino into the colors
+	 * @param p, Polyomino to add
+	 */
+	private void addColors(Polyomino p) {
+		for (Mino m: p.minos) {
+			int r = (int) m.getPos().getAbsY();
+			int c = (int) m.getPos().getAbsX();
+			if (r >= 0 && r < rows && c >= 0 && c < cols) {
+				colors[r*cols+c] = m.getColorCode();
+			}
+		}
+	}
+	
+	/**
+	 * Draw the ghost of the active Tetromino where it would land, into
+	 * the free grids only, as the negative of its color code
+	 * @param t, active Tetromino
+	 * @param drop, rows it would drop
+	 */
+	private void addGhost(Tetromino t, int drop) {
+		for (Mino m: t.minos) {
+			int r = (int) m.getPos().getAbsY() - drop;
+			int c = (int) m.getPos().getAbsX();
+			if (r >= 0 && r < rows && colors[r*cols+c] == 0) {
+				colors[r*cols+c] = (byte) -m.getColorCode();
+			}
+		}
+	}
+	
+	/**
+	 * Get the frame the snapshot was taken after
+	 * @return, frames played
+	 */
+	public int getFrame() {
+		return frame;
+	}
+	
+	/**
+	 * Get the number of visible rows (excludes the vanish zone)
+	 * @return, rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Get the number of columns
+	 * @return, cols
+	 */
+	public int getCols() {
+		return cols;
+	}
+	
+	/**
+	 * Get the color code shown at a grid
+	 * @param r, row
+	 * @param c, column
+	 * @return, color code (0 if empty, negative for the ghost piece)
+	 */
+	public byte getColor(int r, int c) {
+		return colors[r*cols+c];
+	}
+	
+	/**
+	 * Check if the visible grids are the same as another snapshot's
+	 * e.g. to skip redrawing
+	 * @param s, other snapshot or null
+	 * @return, true if every grid has the same color
+	 */
+	public boolean sameColors(GameSnapshot s) {
+		return s != null && Arrays.equals(colors, s.colors);
+	}
+	
+	/**
+	 * Get the upcoming Pieces
+	 * @return, read-only list of Pieces to preview
+	 */
+	public List<Piece> getPreviewList() {
+		return preview;
+	}
+	
+	/**
+	 * Get the Piece held
+	 * @return, held Piece or null if none
+	 */
+	public Piece getHeldPiece() {
+		return held;
+	}
+	
+	/**
+	 * Get the score
+	 * @return, score
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Get the level
+	 * @return, level
+	 */
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Get the lines left to clear for the next level
+	 * @return, goal
+	 */
+	public int getGoal() {
+		return goal;
+	}
+	
+	/**
+	 * Get the total lines cleared
+	 * @return, lines
+	 */
+	public int getLines() {
+		return lines;
+	}
+	
+	/**
+	 * Get the incoming garbage not yet inserted
+	 * @return, garbage lines
+	 */
+	public int getPendingGarbage() {
+		return garbage;
+	}
+	
+	/**
+	 * Get the feedback for the player e.g. "Tetris!"
+	 * @return, feedback text
+	 */
+	public String getFeedback() {
+		return feedback;
+	}
+	
+	/**
+	 * Check if the game was over
+	 * @return, true if over
+	 */
+	public boolean isGameOver() {
+		return game_over;
+	}
+}
@@ -0,0 +1,95 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * GameState
+ * @author Josh Chia
+ * 
+ * Reusable buffer holding the full state of a Game at a frame, for
+ * rollback, undo, autosaves, seeking replays or searching ahead.
+ * 
+ * The buffer is sized for the Game once, so saving and restoring a
+ * state copies into it without allocating. A GameState is not
+ * thread safe, keep one per thread (or guard it) like the Game.
+ *
+ */
+public final class GameState {
+	private final ByteBuffer buffer;
+	private int frame = -1;
+	
+	/**
+	 * Construct an empty state sized for a Game
+	 * @param g, Game (or one of the same size) to be saved
+	 */
+	public GameState(Game g) {
+		buffer = ByteBuffer.allocate(g.stateSize());
+	}
+	
+	/**
+	 * Save the state of a Game, replacing the state held
+	 * @param g, Game to save
+	 */
+	public void save(Game g) {
+		buffer.clear();
+		g.saveState(buffer);
+		buffer.flip();
+		frame = g.getFrameCount();
+	}
+	
+	/**
+	 * Restore a Game to the state held
+	 * @param g, Game to restore (of the same size as the one saved)
+	 */
+	public void restore(Game g) {
+		if (isEmpty()) {
+			throw new IllegalStateException("No state has been saved");
+		}
+		buffer.rewind();
+		g.restoreState(buffer);
+	}
+	
+	/**
+	 * Copy the state held by another GameState
+	 * @param s, state to copy (of a Game of the same size)
+	 */
+	public void copyFrom(GameState s) {
+		buffer.clear();
+		buffer.put(s.buffer.array(), 0, s.buffer.limit());
+		buffer.flip();
+		frame = s.frame;
+	}
+	
+	/**
+	 * Check if a state has been saved
+	 * @return, true if empty
+	 */
+	public boolean isEmpty() {
+		return frame < 0;
+	}
+	
+	/**
+	 * Get the frame of the Game when it was saved
+	 * @return, frame or -1 if empty
+	 */
+	public int getFrame() {
+		return frame;
+	}
+	
+	/**
+	 * Get the size of the state held
+	 * @return, bytes
+	 */
+	public int getSize() {
+		return buffer.limit();
+	}
+	
+	/**
+	 * Get a read-only view of the state held e.g. to write an autosave
+	 * (restore it with Game.restoreState)
+	 * @return, buffer from the start to the end of the state
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.asReadOnlyBuffer();
+	}
+}
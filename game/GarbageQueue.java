@@ -0,0 +1,148 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+import model.Mino;
+import model.Playfield;
+
+/**
+ * GarbageQueue
+ * @author Josh Chia
+ *
+ * Garbage sent by the opponent in a battle, waiting to be inserted.
+ * Each attack is an entry of lines sharing one hole column, chosen
+ * from the queue's own seeded sequence so a Game stays deterministic.
+ * 
+ * Garbage is ready a few frames after it is received and is inserted
+ * when the player next locks a Tetromino without clearing a line.
+ * Until then, the player's own attacks cancel it, oldest first.
+ * 
+ */
+public class GarbageQueue {
+	private static final int CAPACITY = 32;
+	
+	private final int delay, cols;
+	private final int[] lines = new int[CAPACITY];
+	private final int[] holes = new int[CAPACITY];
+	private final int[] ready = new int[CAPACITY];
+	private int head = 0, size = 0;
+	private long hole_seed;
+	
+	/**
+	 * Create an empty queue
+	 * @param d, frames before garbage received is ready
+	 * @param c, number of columns (for the holes)
+	 * @param seed, seed of the hole columns
+	 */
+	public GarbageQueue(int d, int c, long seed) {
+		delay = d;
+		cols = c;
+		hole_seed = seed;
+	}
+	
+	/**
+	 * Add an attack to the queue
+	 * @param n, garbage lines
+	 * @param frame, current frame of the Game
+	 */
+	public void add(int n, int frame) {
+		if (n <= 0) {
+			return;
+		}
+		if (size == CAPACITY) {
+			// Merge into the newest attack rather than drop it
+			lines[(head+size-1) % CAPACITY] += n;
+			return;
+		}
+		int i = (head+size) % CAPACITY;
+		hole_seed = hole_seed*6364136223846793005L + 1442695040888963407L;
+		lines[i] = n;
+		holes[i] = (int) ((hole_seed >>> 33) % cols);
+		ready[i] = frame + delay;
+		size++;
+	}
+	
+	/**
+	 * Cancel queued garbage with an attack, oldest first
+	 * @param attack, lines of the attack
+	 * @return, lines of the attack left to send
+	 */
+	public int cancel(int attack) {
+		while (attack > 0 && size > 0) {
+			int n = Math.min(attack, lines[head]);
+			attack -= n;
+			lines[head] -= n;
+			if (lines[head] == 0) {
+				head = (head+1) % CAPACITY;
+				size--;
+			}
+		}
+		return attack;
+	}
+	
+	/**
+	 * Insert the garbage that is ready into a Playfield
+	 * @param pf, Playfield to insert into
+	 * @param frame, current frame of the Game
+	 * @return, true if the stack was pushed out of the top
+	 */
+	public boolean insertReady(Playfield pf, int frame) {
+		boolean lost = false;
+		while (size > 0 && ready[head] <= frame) {
+			lost |= pf.insertGarbage(lines[head], holes[head], Mino.DEFAULT_COLOR);
+			head = (head+1) % CAPACITY;
+			size--;
+		}
+		return lost;
+	}
+	
+	/**
+	 * Get the garbage lines waiting to be inserted
+	 * @return, lines
+	 */
+	public int getPending() {
+		int n = 0;
+		for (int i=0; i<size; i++) {
+			n += lines[(head+i) % CAPACITY];
+		}
+		return n;
+	}
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	int stateSize() {
+		return 8 + 2 + CAPACITY*3*4;
+	}
+	
+	/**
+	 * Write the queued garbage and the hole sequence
+	 * @param b, buffer to write to
+	 */
+	void writeState(ByteBuffer b) {
+		b.putLong(hole_seed);
+		b.putShort((short) size);
+		for (int i=0; i<size; i++) {
+			int j = (head+i) % CAPACITY;
+			b.putInt(lines[j]);
+			b.putInt(holes[j]);
+			b.putInt(ready[j]);
+		}
+	}
+	
+	/**
+	 * Read the state written by writeState
+	 * @param b, buffer to read from
+	 */
+	void readState(ByteBuffer b) {
+		hole_seed = b.getLong();
+		size = b.getShort();
+		head = 0;
+		for (int i=0; i<size; i++) {
+			lines[i] = b.getInt();
+			holes[i] = b.getInt();
+			ready[i] = b.getInt();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package game;
 
+import java.nio.ByteBuffer;
 
 /**
  * Gravity
@@ -76,4 +77,32 @@ public abstract class Gravity {
 	 * Apply gravity (drop) all the affected Polyominos
 	 */
 	abstract protected void effect();
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	int stateSize() {
+		return 3*4;
+	}
+	
+	/**
+	 * Write the gravity and the frames counted towards it
+	 * @param b, buffer to write to
+	 */
+	void writeState(ByteBuffer b) {
+		b.putInt(cell);
+		b.putInt(frame);
+		b.putInt(frame_count);
+	}
+	
+	/**
+	 * Read the state written by writeState
+	 * @param b, buffer to read from
+	 */
+	void readState(ByteBuffer b) {
+		cell = b.getInt();
+		frame = b.getInt();
+		frame_count = b.getInt();
+	}
 }
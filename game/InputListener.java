@@ -0,0 +1,22 @@
+package game;
+
+import data_types.InputType;
+
+/**
+ * InputListener
+ * @author Josh Chia
+ * 
+ * Notified of every input given to a Game (see Game.input), whoever
+ * gave it, e.g. to record a replay.
+ * 
+ */
+
+
+public interface InputListener {
+	/**
+	 * Called when an input is given, before it is applied
+	 * @param frame, frame of the Game when the input is given
+	 * @param in, input
+	 */
+	public void onInput(int frame, InputType in);
+}
@@ -0,0 +1,40 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import data_types.InputType;
+
+/**
+ * InputQueue
+ * @author Josh Chia
+ * 
+ * Controller that passes inputs from another thread (e.g. the keyboard
+ * on the JavaFX application thread) to a Game running on its own thread.
+ * 
+ * Inputs are given at the start of the Game's next frame, in the order
+ * they were offered. The queue is lock-free, so offering an input never
+ * waits on the simulation.
+ *
+ */
+public class InputQueue implements Controller, InputSink {
+	private final Queue<InputType> queue = new ConcurrentLinkedQueue<InputType>();
+	
+	/**
+	 * Queue an input for the next frame of the Game
+	 * Safe to call from any thread
+	 * @param in, input
+	 */
+	@Override
+	public void offer(InputType in) {
+		queue.offer(in);
+	}
+	
+	@Override
+	public void update(Game game) {
+		InputType in;
+		while ((in = queue.poll()) != null) {
+			game.input(in);
+		}
+	}
+}
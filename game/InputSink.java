@@ -0,0 +1,21 @@
+package game;
+
+import data_types.InputType;
+
+/**
+ * InputSink
+ * @author Josh Chia
+ * 
+ * Takes the inputs of a player from another thread (e.g. the keyboard
+ * on the JavaFX application thread) for the Game they control, see
+ * InputQueue.
+ * 
+ */
+public interface InputSink {
+	/**
+	 * Give an input for the next frame of the player's Game
+	 * Safe to call from any thread
+	 * @param in, input
+	 */
+	public void offer(InputType in);
+}
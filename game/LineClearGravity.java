@@ -13,8 +13,12 @@ import model.Polyomino;
  * Gravity employed to plug the gaps created after a 
  * line is cleared.
  * 
- * Implemented as recursive gravity using flood fill.
+ * Implemented as recursive gravity over the fragments left by a
+ * Line Clear (see Fragments).
  * Can be used as naive if cell value is set to 1
+ * 
+ * The fragments either fall a few cells per frame (animated) or are
+ * settled at once, e.g. for bots and simulations (see settle).
  */
 public class LineClearGravity extends Gravity {
 	private List<Polyomino> affected, cleanup;
@@ -52,15 +56,42 @@ public class LineClearGravity extends Gravity {
 	@Override
 	protected void effect() {
 		for (Polyomino p: affected) {
-			if (game.playfield.isDroppable(p)) {
-				game.playfield.move(p, 0, -cell);
-			}
-			else {
+			if (game.playfield.drop(p, cell) == 0) {
 				game.lock(p);
 				cleanup.add(p);
 			}
 		}
 		affected.removeAll(cleanup);
+		cleanup.clear();
+	}
+	
+	/**
+	 * Drop and lock every affected Polyomino at once. They fall
+	 * together, so the next to land is the one with the least drop
+	 * distance. Every Polyomino is dropped by that distance in one move
+	 * and those that landed are locked, until all have locked. Lines
+	 * they complete are cleared after, rather than while others are
+	 * still falling as when animated.
+	 */
+	public void settle() {
+		while (!affected.isEmpty()) {
+			int d = Integer.MAX_VALUE;
+			for (Polyomino p: affected) {
+				d = Math.min(d, game.playfield.dropDistance(p));
+			}
+			for (Polyomino p: affected) {
+				game.playfield.drop(p, d);
+			}
+			for (Polyomino p: affected) {
+				if (game.playfield.dropDistance(p) == 0) {
+					game.lock(p);
+					cleanup.add(p);
+				}
+			}
+			affected.removeAll(cleanup);
+			cleanup.clear();
+		}
+		frame_count = 0;
 	}
 	
 	/**
@@ -70,4 +101,17 @@ public class LineClearGravity extends Gravity {
 	public boolean isEmpty() {
 		return affected.isEmpty();
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Replace the Polyominos affected, e.g. with those of a restored
+	 * Playfield
+	 * @param ps, Polyominos to be affected
+	 */
+	void setAffected(List<Polyomino> ps) {
+		affected.clear();
+		cleanup.clear();
+		for (int i=0; i<ps.size(); i++) {
+			affected.add(ps.get(i));
+		}
+	}
+}
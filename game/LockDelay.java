@@ -1,5 +1,7 @@
 package game;
 
+import java.nio.ByteBuffer;
+
 import model.Tetromino;
 
 /**
@@ -15,6 +17,7 @@ import model.Tetromino;
 public class LockDelay {
 	private final int DELAY;
 	private int delay_count;
+	private int frames_used;
 	private Tetromino target;
 	
 	/**
@@ -32,6 +35,7 @@ public class LockDelay {
 	public void setTarget(Tetromino t) {
 		target = t;
 		delay_count = 0;
+		frames_used = 0;
 	}
 	
 	/**
@@ -60,6 +64,7 @@ public class LockDelay {
 		
 		// If can't be dropped, decrease the remaining delay
 		if (!droppable) {
+			frames_used++;
 			if (delay_count < DELAY) {
 				delay_count++;
 			}
@@ -77,4 +82,39 @@ public class LockDelay {
 	public boolean timeToLock() {
 		return delay_count == DELAY;
 	}
+	
+	/**
+	 * Get the frames the target has spent unable to drop, including
+	 * those before a reset of the delay
+	 * @return, frames used
+	 */
+	public int getFramesUsed() {
+		return frames_used;
+	}
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	int stateSize() {
+		return 2*4;
+	}
+	
+	/**
+	 * Write the frames counted towards locking
+	 * @param b, buffer to write to
+	 */
+	void writeState(ByteBuffer b) {
+		b.putInt(delay_count);
+		b.putInt(frames_used);
+	}
+	
+	/**
+	 * Read the state written by writeState, the target must be set first
+	 * @param b, buffer to read from
+	 */
+	void readState(ByteBuffer b) {
+		delay_count = b.getInt();
+		frames_used = b.getInt();
+	}
 }
@@ -1,8 +1,8 @@
 package game;
 
+import java.nio.ByteBuffer;
+
 import model.Piece;
-import data_types.Vector2D;
-import javafx.scene.Group;
 
 /**
  * PieceHold
@@ -13,32 +13,18 @@ import javafx.scene.Group;
  * before it needs to be reset. 
  * 
  */
-public class PieceHold extends Group {
-	private boolean used;
-	private double width, height;
+public class PieceHold {
+	private static final Piece[] PIECES = Piece.values();
 	
-	private Vector2D pos;
+	private boolean used;
 	private Piece held;
-	private PieceDisplay display;
-	
-	private final int DISPLAY_ROWS = 4;
-	private final int DISPLAY_COLS = 4;
 	
 	/**
-	 * Create a grid world for holding Tetrominos
-	 * @param p, position of the hold
-	 * @param w, width in pixels
-	 * @param h, height in pixels
+	 * Create an empty hold
 	 */
-	public PieceHold(Vector2D p, double w, double h) {
+	public PieceHold() {
 		used = false;
-		pos = p;
 		held = null;
-		width = w;
-		height = h;
-		
-		display = new PieceDisplay(new Vector2D(pos,0, 0), width, height, DISPLAY_ROWS, DISPLAY_COLS);
-		this.getChildren().add(display);
 	}
 	
 	/**
@@ -56,6 +42,14 @@ public class PieceHold extends Group {
 		return !used;
 	}
 	
+	/**
+	 * Get the Piece currently held
+	 * @return, held Piece or null if empty
+	 */
+	public Piece getHeld() {
+		return held;
+	}
+	
 	/**
 	 * Swaps the Piece in the Hold for another if available.
 	 * @param p, Piece to be swapped
@@ -64,8 +58,34 @@ public class PieceHold extends Group {
 	public Piece swap(Piece p) {
 		Piece swapped_piece = (held==null) ? null: held;
 		held = p;
-		display.setDisplay(p);
 		used = true;
 		return swapped_piece;
 	}
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	int stateSize() {
+		return 2;
+	}
+	
+	/**
+	 * Write the held Piece and whether the Hold was used
+	 * @param b, buffer to write to
+	 */
+	void writeState(ByteBuffer b) {
+		b.put((byte) (used ? 1: 0));
+		b.put((byte) ((held == null) ? -1: held.ordinal()));
+	}
+	
+	/**
+	 * Read the state written by writeState
+	 * @param b, buffer to read from
+	 */
+	void readState(ByteBuffer b) {
+		used = b.get() != 0;
+		int h = b.get();
+		held = (h < 0) ? null: PIECES[h];
+	}
 }
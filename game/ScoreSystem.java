@@ -1,6 +1,9 @@
 package game;
 
+import java.nio.ByteBuffer;
+
 import data_types.DropType;
+import data_types.TSpin;
 
 /**
  * ScoreSystem
@@ -9,15 +12,15 @@ import data_types.DropType;
  * Tetris guideline compatible scoring system.
  * Scores for combos, soft drop, hard drop and all
  * the various line clears, include those in excess of
- * 4 lines (Tetris).   
+ * 4 lines (Tetris) and T-Spins.   
  *
  */
 
 public class ScoreSystem {
 	private final double B2B_DIFFICULT_MULTIPLIER = 3.0/2;
 	private final int LEVELUP_GOAL = 10;
-	private boolean difficult_clear;
-	public int level, last_level_gain, score, combo, goal;
+	private boolean difficult_clear, back_to_back;
+	public int level, last_level_gain, score, combo, goal, lines;
 	
 	private Game game;
 	
@@ -31,8 +34,10 @@ public class ScoreSystem {
 		last_level_gain = 0;
 		goal = LEVELUP_GOAL;
 		difficult_clear = false;
+		back_to_back = false;
 		score = 0;
 		combo = 0;
+		lines = 0;
 		
 		game = g;
 	}
@@ -42,11 +47,29 @@ public class ScoreSystem {
 	 * @param lines, number cleared
 	 */
 	public void addLinesCleared(int lines) {
-		game.feedback_text.setText(lineClearFeedback(lines));
-		scoreLinesCleared(lines);
+		addLinesCleared(lines, TSpin.NONE);
+	}
+	
+	/**
+	 * Update the score system and feedback given lines clears 
+	 * @param lines, number cleared
+	 * @param t, kind of T-Spin the clear was
+	 */
+	public void addLinesCleared(int lines, TSpin t) {
+		this.lines += lines;
+		game.setFeedback(lineClearFeedback(lines, t));
+		scoreLinesCleared(lines, t);
 		updateGoal(lines);
 	}
 	
+	/**
+	 * Check if the last line clear was a difficult one after another
+	 * @return, true if Back-to-Back
+	 */
+	public boolean isBackToBack() {
+		return back_to_back;
+	}
+	
 	/**
 	 * Update the score system given soft or hard drops
 	 * @param cells, soft/hard dropped
@@ -67,31 +90,41 @@ public class ScoreSystem {
 	 * Update the score given the lines cleared,
 	 * setting the appropriate level, difficulty and combo multipliers.
 	 * @param lines, number cleared
+	 * @param t, kind of T-Spin the clear was
 	 */
-	private void scoreLinesCleared(int lines) {
+	private void scoreLinesCleared(int lines, TSpin t) {
 		int base_score;
-		double multiplier = (difficult_clear && isDifficultLineClear(lines)) ? B2B_DIFFICULT_MULTIPLIER: 1;
-		difficult_clear = (isDifficultLineClear(lines)) ? true: false;
+		back_to_back = difficult_clear && isDifficultLineClear(lines, t);
+		double multiplier = back_to_back ? B2B_DIFFICULT_MULTIPLIER: 1;
+		difficult_clear = (isDifficultLineClear(lines, t)) ? true: false;
 		
-		switch (lines) {
-		case 0:
-			base_score = 0;
-			break;
-		case 1:
-			base_score = 100;
-			break;
-		case 2:
-			base_score = 300; 
-			break;
-		case 3:
-			base_score = 500;
-			break;
-		case 4:
-			base_score = 800;
-			break;
-		default:
-			base_score = 1000;
-			break;
+		if (t == TSpin.FULL) {
+			base_score = 400*(lines+1);
+		}
+		else if (t == TSpin.MINI) {
+			base_score = (lines >= 2) ? 400: 100*(lines+1);
+		}
+		else {
+			switch (lines) {
+			case 0:
+				base_score = 0;
+				break;
+			case 1:
+				base_score = 100;
+				break;
+			case 2:
+				base_score = 300; 
+				break;
+			case 3:
+				base_score = 500;
+				break;
+			case 4:
+				base_score = 800;
+				break;
+			default:
+				base_score = 1000;
+				break;
+			}
 		}
 		
 		score += base_score*level*multiplier + 50*combo*level;
@@ -99,10 +132,10 @@ public class ScoreSystem {
 		
 		// Provide feedback to the player
 		if (multiplier > 1) {
-			game.feedback_text.setText("Back-2-Back Difficult!");
+			game.setFeedback("Back-2-Back Difficult!");
 		}
 		if (combo > 1) {
-			game.feedback_text.setText("Combo " + combo + "!");
+			game.setFeedback("Combo " + combo + "!");
 		}
 	}
 	
@@ -132,18 +165,24 @@ public class ScoreSystem {
 	/**
 	 * Determination of what is a difficult line clear
 	 * @param lines, number cleared
+	 * @param t, kind of T-Spin the clear was
 	 * @return. true if difficult
 	 */
-	private boolean isDifficultLineClear(int lines) {
-		return lines>=4;
+	private boolean isDifficultLineClear(int lines, TSpin t) {
+		return lines>=4 || (lines>0 && t != TSpin.NONE);
 	}
 	
 	/**
 	 * Feedback to the player for line clears
 	 * @param lines, number cleared
+	 * @param t, kind of T-Spin the clear was
 	 * @return feedback string
 	 */
-	private String lineClearFeedback(int lines) {
+	private String lineClearFeedback(int lines, TSpin t) {
+		if (t != TSpin.NONE && lines > 0 && lines < 4) {
+			String[] names = {"", "Single!", "Double!", "Triple!"};
+			return ((t == TSpin.MINI) ? "T-Spin Mini ": "T-Spin ") + names[lines];
+		}
 		switch (lines) {
 		case 0:
 			return "";
@@ -159,4 +198,42 @@ public class ScoreSystem {
 			return "SUPER!";
 		}
 	}
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	int stateSize() {
+		return 6*4 + 2;
+	}
+	
+	/**
+	 * Write the score, level, goal, lines and combo
+	 * @param b, buffer to write to
+	 */
+	void writeState(ByteBuffer b) {
+		b.putInt(level);
+		b.putInt(last_level_gain);
+		b.putInt(score);
+		b.putInt(combo);
+		b.putInt(goal);
+		b.putInt(lines);
+		b.put((byte) (difficult_clear ? 1: 0));
+		b.put((byte) (back_to_back ? 1: 0));
+	}
+	
+	/**
+	 * Read the state written by writeState
+	 * @param b, buffer to read from
+	 */
+	void readState(ByteBuffer b) {
+		level = b.getInt();
+		last_level_gain = b.getInt();
+		score = b.getInt();
+		combo = b.getInt();
+		goal = b.getInt();
+		lines = b.getInt();
+		difficult_clear = b.get() != 0;
+		back_to_back = b.get() != 0;
+	}
 }
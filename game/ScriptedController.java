@@ -0,0 +1,49 @@
+package game;
+
+import data_types.InputType;
+
+/**
+ * ScriptedController
+ * @author Josh Chia
+ * 
+ * Plays a Game from a fixed script of inputs, each given on a
+ * particular frame. Used to run reproducible games without a player
+ * e.g. for testing rule changes.
+ * 
+ */
+
+public class ScriptedController implements Controller {
+	private final int[] frames;
+	private final InputType[] inputs;
+	private int next;
+	
+	/**
+	 * Construct a scripted controller
+	 * @param f, frame of each input, in order
+	 * @param in, inputs to give
+	 */
+	public ScriptedController(int[] f, InputType[] in) {
+		if (f.length != in.length) {
+			throw new IllegalArgumentException("Each input needs a frame");
+		}
+		frames = f;
+		inputs = in;
+		next = 0;
+	}
+	
+	@Override
+	public void update(Game game) {
+		while (next < inputs.length && frames[next] <= game.getFrameCount()) {
+			game.input(inputs[next]);
+			next++;
+		}
+	}
+	
+	/**
+	 * Check if every input in the script has been given
+	 * @return, true if finished
+	 */
+	public boolean isFinished() {
+		return next >= inputs.length;
+	}
+}
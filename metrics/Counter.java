@@ -0,0 +1,101 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter
+ * @author Josh Chia
+ * 
+ * A Metric that only goes up e.g. pieces spawned. Besides the total,
+ * the rate per second over the last sample period is kept (see
+ * MetricsRegistry.sampleRates).
+ *
+ */
+public class Counter extends Metric {
+	private final AtomicLong value = new AtomicLong();
+	
+	// Written by the sampling thread only
+	private long sampled_value;
+	private volatile double rate;
+	
+	/**
+	 * Construct a Counter, see MetricsRegistry.counter
+	 * @param n, name (ending in _total)
+	 * @param h, description
+	 */
+	Counter(String n, String h) {
+		super(n, h);
+	}
+	
+	/**
+	 * Add one to the Counter
+	 */
+	public void increment() {
+		value.incrementAndGet();
+	}
+	
+	/**
+	 * Add to the Counter
+	 * @param n, amount (not negative)
+	 */
+	public void add(long n) {
+		value.addAndGet(n);
+	}
+	
+	/**
+	 * Get the total
+	 * @return, value
+	 */
+	public long get() {
+		return value.get();
+	}
+	
+	/**
+	 * Get the rate over the last sample period
+	 * @return, increments per second
+	 */
+	public double getRate() {
+		return rate;
+	}
+	
+	/**
+	 * Update the rate from the increments since the last sample
+	 * @param secs, seconds since the last sample
+	 */
+	void sample(double secs) {
+		long v = value.get();
+		rate = (secs > 0) ? (v - sampled_value)/secs: 0;
+		sampled_value = v;
+	}
+	
+	@Override
+	public void writePrometheus(StringBuilder out) {
+		out.append("# HELP ").append(getName()).append(' ').append(getHelp()).append('\n');
+		out.append("# TYPE ").append(getName()).append(" counter\n");
+		out.append(getName()).append(' ').append(get()).append('\n');
+		
+		String rate_name = getRateName();
+		out.append("# HELP ").append(rate_name).append(" Rate of ").append(getName()).append(" over the last sample period\n");
+		out.append("# TYPE ").append(rate_name).append(" gauge\n");
+		out.append(rate_name).append(' ').append(getRate()).append('\n');
+	}
+	
+	@Override
+	public void addAttributes(Map<String, Object> attributes) {
+		attributes.put(getName(), get());
+		attributes.put(getRateName(), getRate());
+	}
+	
+	/**
+	 * Name of the rate e.g. lines_cleared_total is lines_cleared_per_second
+	 * @return, name of the rate
+	 */
+	private String getRateName() {
+		String name = getName();
+		if (name.endsWith("_total")) {
+			name = name.substring(0, name.length() - "_total".length());
+		}
+		return name + "_per_second";
+	}
+}
@@ -0,0 +1,82 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * EngineMetrics
+ * @author Josh Chia
+ * 
+ * The Metrics of the engine's hot paths, registered with the default
+ * MetricsRegistry. Shared by every Game in the JVM (e.g. both players
+ * of a split-screen game or every game of a batch).
+ *
+ */
+public final class EngineMetrics {
+	private static final MetricsRegistry REGISTRY = MetricsRegistry.getDefault();
+	private static final double NANOS = 1e-9;
+	
+	/** Time of each call to Game.updateGame, per frame */
+	public static final Histogram TICK = REGISTRY.histogram("jfxtris_tick_seconds",
+			"Time to update a Game by one frame", Histogram.exponentialBounds(1000, 16), NANOS);
+	
+	/** Time of each JavaFX pulse spent drawing the views */
+	public static final Histogram RENDER = REGISTRY.histogram("jfxtris_render_seconds",
+			"Time to redraw the views on a pulse", Histogram.exponentialBounds(10000, 14), NANOS);
+	
+	/** Wall Kick tests tried by each rotation */
+	public static final Histogram KICK_ATTEMPTS = REGISTRY.histogram("jfxtris_rotation_kick_attempts",
+			"Wall Kick tests tried per rotation", new long[] {1, 2, 3, 4, 5}, 1);
+	
+	/** Cells visited flood filling debris after line clears */
+	public static final Counter FLOOD_FILL_CELLS = REGISTRY.counter("jfxtris_flood_fill_cells_total",
+			"Cells visited by the line clear flood fill");
+	
+	/** Lines cleared (rate is lines per second) */
+	public static final Counter LINES_CLEARED = REGISTRY.counter("jfxtris_lines_cleared_total",
+			"Lines cleared");
+	
+	/** Tetrominos spawned */
+	public static final Counter PIECES_SPAWNED = REGISTRY.counter("jfxtris_pieces_spawned_total",
+			"Tetrominos spawned");
+	
+	/** Bytes allocated by Game.updateGame, per frame */
+	public static final Histogram ALLOCATION = REGISTRY.histogram("jfxtris_allocated_bytes_per_frame",
+			"Bytes allocated updating a Game by one frame", Histogram.exponentialBounds(64, 16), 1);
+	
+	/** Frames resimulated by each rollback of a network game */
+	public static final Histogram ROLLBACK_FRAMES = REGISTRY.histogram("jfxtris_rollback_frames",
+			"Frames resimulated per rollback", new long[] {1, 2, 3, 4, 6, 8, 12, 16}, 1);
+	
+	/** Frames a network game waited for the peer's inputs */
+	public static final Counter NET_STALLS = REGISTRY.counter("jfxtris_net_stall_frames_total",
+			"Frames waited for the peer's inputs");
+	
+	// Per thread allocation counter of HotSpot JVMs, null if unsupported
+	private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+	
+	private EngineMetrics() {}
+	
+	/**
+	 * Get the bytes the calling thread has allocated so far
+	 * @return, bytes or -1 if not supported by the JVM
+	 */
+	public static long allocatedBytes() {
+		return (THREADS == null) ? -1: THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Find the thread allocation counter if the JVM supports it
+	 * @return, bean or null
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads;
+			}
+		}
+		return null;
+	}
+}
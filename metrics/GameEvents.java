@@ -0,0 +1,44 @@
+package metrics;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+/**
+ * GameEvents
+ * @author Josh Chia
+ * 
+ * Java Flight Recorder events of the game's lifecycle and hot paths,
+ * so gameplay stalls can be lined up against GC and JIT activity in
+ * one recording.
+ * 
+ * Events are disabled by default and are only filled in when enabled
+ * (shouldCommit), so they cost nothing when off. Enable them with
+ * enableAll, or on the command line e.g.
+ *  -XX:StartFlightRecording:+jfxtris.LineClear#enabled=true
+ *
+ */
+public final class GameEvents {
+	public static final String PREFIX = "jfxtris.";
+	public static final String CATEGORY = "JFXTRIS";
+	
+	/**
+	 * Every event type of the game
+	 */
+	private static final Class<?>[] EVENTS = {
+		SpawnEvent.class, LockEvent.class, LineClearEvent.class,
+		RotationEvent.class, LevelUpEvent.class, GameOverEvent.class
+	};
+	
+	private GameEvents() {}
+	
+	/**
+	 * Enable every event of the game in a recording
+	 * @param r, recording
+	 */
+	@SuppressWarnings("unchecked")
+	public static void enableAll(Recording r) {
+		for (Class<?> c: EVENTS) {
+			r.enable((Class<? extends Event>) c);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * GameOverEvent
+ * @author Josh Chia
+ * 
+ * Flight Recorder event for the end of a Game (see GameEvents).
+ *
+ */
+@Name(GameEvents.PREFIX + "GameOver")
+@Label("Game Over")
+@Category(GameEvents.CATEGORY)
+@Description("The next Tetromino could not be spawned")
+@Enabled(false)
+@StackTrace(false)
+public class GameOverEvent extends Event {
+	@Label("Frame")
+	public int frame;
+	
+	@Label("Score")
+	public int score;
+	
+	@Label("Lines")
+	public int lines;
+	
+	@Label("Pieces")
+	public int pieces;
+}
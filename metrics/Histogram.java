@@ -0,0 +1,168 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram
+ * @author Josh Chia
+ * 
+ * A Metric that counts observations (e.g. tick durations) into fixed
+ * buckets. Observations are recorded as longs in a raw unit (e.g.
+ * nanoseconds) and scaled to the exported unit (e.g. seconds) only
+ * when exported, so recording is a search over a few bounds and
+ * three atomic adds.
+ *
+ */
+public class Histogram extends Metric {
+	private final long[] bounds;
+	private final double scale;
+	
+	// Bounds in the exported unit, written exactly (e.g. 0.000001 not 1.0000000000000002E-6)
+	private final String[] labels;
+	
+	// Count of each bucket, the last is for observations above all bounds
+	private final AtomicLongArray buckets;
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Construct a Histogram, see MetricsRegistry.histogram
+	 * @param n, name
+	 * @param h, description
+	 * @param b, inclusive upper bound of each bucket in the raw unit, ascending
+	 * @param s, factor from the raw unit to the exported unit
+	 */
+	Histogram(String n, String h, long[] b, double s) {
+		super(n, h);
+		bounds = Arrays.copyOf(b, b.length);
+		scale = s;
+		buckets = new AtomicLongArray(bounds.length+1);
+		
+		labels = new String[bounds.length];
+		for (int i=0; i<bounds.length; i++) {
+			labels[i] = new BigDecimal(bounds[i]).multiply(BigDecimal.valueOf(scale)).stripTrailingZeros().toPlainString();
+		}
+	}
+	
+	/**
+	 * Bounds that double from a start e.g. 1, 2, 4, 8
+	 * @param start, first bound
+	 * @param n, number of bounds
+	 * @return, bounds
+	 */
+	public static long[] exponentialBounds(long start, int n) {
+		long[] b = new long[n];
+		for (int i=0; i<n; i++) {
+			b[i] = start << i;
+		}
+		return b;
+	}
+	
+	/**
+	 * Record an observation
+	 * @param v, value in the raw unit
+	 */
+	public void record(long v) {
+		int i = Arrays.binarySearch(bounds, v);
+		buckets.incrementAndGet((i >= 0) ? i: -i-1);
+		count.incrementAndGet();
+		sum.addAndGet(v);
+		
+		long m = max.get();
+		while (v > m && !max.compareAndSet(m, v)) {
+			m = max.get();
+		}
+	}
+	
+	/**
+	 * Get the number of observations
+	 * @return, count
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * Get the sum of the observations
+	 * @return, sum in the exported unit
+	 */
+	public double getSum() {
+		return sum.get()*scale;
+	}
+	
+	/**
+	 * Get the mean of the observations
+	 * @return, mean in the exported unit (0 if none)
+	 */
+	public double getMean() {
+		long n = count.get();
+		return (n > 0) ? getSum()/n: 0;
+	}
+	
+	/**
+	 * Get the largest observation
+	 * @return, max in the exported unit
+	 */
+	public double getMax() {
+		return max.get()*scale;
+	}
+	
+	/**
+	 * Get the count of observations at or below a bucket's bound
+	 * @param i, bucket (bounds.length for all observations)
+	 * @return, cumulative count
+	 */
+	public long getCumulativeCount(int i) {
+		long n = 0;
+		for (int j=0; j<=i; j++) {
+			n += buckets.get(j);
+		}
+		return n;
+	}
+	
+	/**
+	 * Estimate a quantile as the bound of the bucket it falls in
+	 * @param q, quantile [0, 1] e.g. 0.99
+	 * @return, bound in the exported unit, the max if above all bounds (0 if empty)
+	 */
+	public double getQuantile(double q) {
+		long rank = (long) Math.ceil(q*count.get());
+		long n = 0;
+		for (int i=0; i<bounds.length; i++) {
+			n += buckets.get(i);
+			if (n >= rank && n > 0) {
+				return Math.min(bounds[i], max.get())*scale;
+			}
+		}
+		return getMax();
+	}
+	
+	@Override
+	public void writePrometheus(StringBuilder out) {
+		out.append("# HELP ").append(getName()).append(' ').append(getHelp()).append('\n');
+		out.append("# TYPE ").append(getName()).append(" histogram\n");
+		
+		long cumulative = 0;
+		for (int i=0; i<bounds.length; i++) {
+			cumulative += buckets.get(i);
+			out.append(getName()).append("_bucket{le=\"").append(labels[i]).append("\"} ")
+					.append(cumulative).append('\n');
+		}
+		cumulative += buckets.get(bounds.length);
+		out.append(getName()).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+		out.append(getName()).append("_sum ").append(getSum()).append('\n');
+		out.append(getName()).append("_count ").append(getCount()).append('\n');
+	}
+	
+	@Override
+	public void addAttributes(Map<String, Object> attributes) {
+		attributes.put(getName() + "_count", getCount());
+		attributes.put(getName() + "_mean", getMean());
+		attributes.put(getName() + "_max", getMax());
+	}
+}
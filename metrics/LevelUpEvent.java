@@ -0,0 +1,36 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * LevelUpEvent
+ * @author Josh Chia
+ * 
+ * Flight Recorder event for each level up and the drop gravity of
+ * the new level (see GameEvents).
+ *
+ */
+@Name(GameEvents.PREFIX + "LevelUp")
+@Label("Level Up")
+@Category(GameEvents.CATEGORY)
+@Description("The level went up, increasing drop gravity")
+@Enabled(false)
+@StackTrace(false)
+public class LevelUpEvent extends Event {
+	@Label("Level")
+	public int level;
+	
+	@Label("Gravity Cells")
+	@Description("Cells dropped each time gravity is applied")
+	public int gravity_cells;
+	
+	@Label("Gravity Frames")
+	@Description("Frames between each time gravity is applied")
+	public int gravity_frames;
+}
@@ -0,0 +1,41 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * LineClearEvent
+ * @author Josh Chia
+ * 
+ * Flight Recorder event spanning Game.clearLines, with the time of
+ * flood filling the debris into Polyominos (see GameEvents).
+ *
+ */
+@Name(GameEvents.PREFIX + "LineClear")
+@Label("Line Clear")
+@Category(GameEvents.CATEGORY)
+@Description("Lines were cleared and the debris above flood filled into Polyominos")
+@Enabled(false)
+@StackTrace(false)
+public class LineClearEvent extends Event {
+	@Label("Rows")
+	public int rows;
+	
+	@Label("Polyominos")
+	@Description("Polyominos created for recursive gravity")
+	public int polyominos;
+	
+	@Label("Cells Filled")
+	@Description("Cells visited by the flood fill")
+	public int cells_filled;
+	
+	@Label("Create Polyominos Time")
+	@Timespan
+	public long create_polyominos_time;
+}
@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * LockEvent
+ * @author Josh Chia
+ * 
+ * Flight Recorder event for each active Tetromino locked into the
+ * Playfield, with the lock delay it used (see GameEvents).
+ *
+ */
+@Name(GameEvents.PREFIX + "Lock")
+@Label("Piece Lock")
+@Category(GameEvents.CATEGORY)
+@Description("The active Tetromino was locked")
+@Enabled(false)
+@StackTrace(false)
+public class LockEvent extends Event {
+	@Label("Piece")
+	public String piece;
+	
+	@Label("Frame")
+	public int frame;
+	
+	@Label("Lock Delay Frames")
+	@Description("Frames spent on the ground before locking")
+	public int lock_delay_frames;
+}
@@ -0,0 +1,58 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Metric
+ * @author Josh Chia
+ * 
+ * A named measurement of the engine kept by a MetricsRegistry.
+ * Metrics are updated from the threads running Games and read from
+ * the exporters (JMX, file), therefore updates must be thread safe
+ * and cheap enough to leave on in production.
+ * 
+ * Names follow Prometheus conventions (snake_case, unit suffix).
+ *
+ */
+public abstract class Metric {
+	private final String name;
+	private final String help;
+	
+	/**
+	 * Construct a Metric
+	 * @param n, name
+	 * @param h, description of what is measured
+	 */
+	protected Metric(String n, String h) {
+		name = n;
+		help = h;
+	}
+	
+	/**
+	 * Get the name of the Metric
+	 * @return, name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Get the description of the Metric
+	 * @return, help text
+	 */
+	public String getHelp() {
+		return help;
+	}
+	
+	/**
+	 * Append the Metric in the Prometheus text format
+	 * @param out, text to append to
+	 */
+	public abstract void writePrometheus(StringBuilder out);
+	
+	/**
+	 * Add the current values of the Metric as JMX attributes
+	 * @param attributes, attribute name to value
+	 */
+	public abstract void addAttributes(Map<String, Object> attributes);
+}
@@ -0,0 +1,98 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanConstructorInfo;
+import javax.management.ReflectionException;
+
+/**
+ * MetricsMBean
+ * @author Josh Chia
+ * 
+ * Read-only JMX view of a MetricsRegistry. Every Metric is shown as
+ * one or more attributes (e.g. a Histogram's count, mean and max),
+ * read when the attribute is.
+ *
+ */
+class MetricsMBean implements DynamicMBean {
+	private final MetricsRegistry registry;
+	
+	/**
+	 * Construct a view of a registry
+	 * @param r, registry
+	 */
+	MetricsMBean(MetricsRegistry r) {
+		registry = r;
+	}
+	
+	/**
+	 * Read the current attributes of every Metric
+	 * @return, attribute name to value, in order of registration
+	 */
+	private Map<String, Object> readAttributes() {
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+		for (Metric m: registry.getMetrics()) {
+			m.addAttributes(attributes);
+		}
+		return attributes;
+	}
+	
+	@Override
+	public Object getAttribute(String name) throws AttributeNotFoundException {
+		Map<String, Object> attributes = readAttributes();
+		if (!attributes.containsKey(name)) {
+			throw new AttributeNotFoundException(name);
+		}
+		return attributes.get(name);
+	}
+	
+	@Override
+	public AttributeList getAttributes(String[] names) {
+		Map<String, Object> attributes = readAttributes();
+		AttributeList list = new AttributeList();
+		for (String name: names) {
+			if (attributes.containsKey(name)) {
+				list.add(new Attribute(name, attributes.get(name)));
+			}
+		}
+		return list;
+	}
+	
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+	}
+	
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+	
+	@Override
+	public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+		// There are no operations
+		throw new ReflectionException(new NoSuchMethodException(action));
+	}
+	
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> infos = new ArrayList<MBeanAttributeInfo>();
+		for (Map.Entry<String, Object> a: readAttributes().entrySet()) {
+			infos.add(new MBeanAttributeInfo(a.getKey(), a.getValue().getClass().getName(), a.getKey(), true, false, false));
+		}
+		return new MBeanInfo(getClass().getName(), "Engine metrics",
+				infos.toArray(new MBeanAttributeInfo[infos.size()]), new MBeanConstructorInfo[0],
+				new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
+	}
+}
@@ -0,0 +1,193 @@
+package metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * MetricsRegistry
+ * @author Josh Chia
+ * 
+ * Holds the Metrics of the engine and exports them over JMX and to
+ * a file in the Prometheus text format, so a slow room or client can
+ * be looked into without attaching a profiler.
+ * 
+ * The engine registers its Metrics with the default registry (see
+ * EngineMetrics). Metrics are created once and updated lock free,
+ * exporting only reads them.
+ *
+ */
+public class MetricsRegistry {
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private final List<Metric> metrics = new ArrayList<Metric>();
+	private ScheduledExecutorService exporter;
+	private long sampled_nanos = System.nanoTime();
+	
+	/**
+	 * Get the registry the engine's Metrics are in
+	 * @return, default registry
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+	
+	/**
+	 * Create and register a Counter
+	 * @param name, name (ending in _total)
+	 * @param help, description
+	 * @return, Counter
+	 */
+	public Counter counter(String name, String help) {
+		return register(new Counter(name, help));
+	}
+	
+	/**
+	 * Create and register a Histogram
+	 * @param name, name
+	 * @param help, description
+	 * @param bounds, inclusive upper bound of each bucket in the raw unit, ascending
+	 * @param scale, factor from the raw unit to the exported unit (e.g. 1e-9 for nanoseconds to seconds)
+	 * @return, Histogram
+	 */
+	public Histogram histogram(String name, String help, long[] bounds, double scale) {
+		return register(new Histogram(name, help, bounds, scale));
+	}
+	
+	/**
+	 * Register a Metric
+	 * @param m, Metric with a name not already registered
+	 * @return, the Metric
+	 */
+	private synchronized <T extends Metric> T register(T m) {
+		for (Metric other: metrics) {
+			if (other.getName().equals(m.getName())) {
+				throw new IllegalArgumentException("Metric already registered: " + m.getName());
+			}
+		}
+		metrics.add(m);
+		return m;
+	}
+	
+	/**
+	 * Get the registered Metrics
+	 * @return, read-only copy of the Metrics in order of registration
+	 */
+	public synchronized List<Metric> getMetrics() {
+		return Collections.unmodifiableList(new ArrayList<Metric>(metrics));
+	}
+	
+	/**
+	 * Update the rate of every Counter from the increments since the
+	 * last sample
+	 */
+	public synchronized void sampleRates() {
+		long now = System.nanoTime();
+		double secs = (now - sampled_nanos)/1e9;
+		sampled_nanos = now;
+		for (Metric m: metrics) {
+			if (m instanceof Counter) {
+				((Counter) m).sample(secs);
+			}
+		}
+	}
+	
+	/**
+	 * Write every Metric in the Prometheus text format
+	 * @return, text
+	 */
+	public String toPrometheus() {
+		StringBuilder out = new StringBuilder();
+		for (Metric m: getMetrics()) {
+			m.writePrometheus(out);
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * Write the Metrics to a file in the Prometheus text format
+	 * The file is replaced atomically so a scraper never reads half of it.
+	 * @param f, file to write
+	 * @throws IOException, if the file can't be written
+	 */
+	public void writeTo(File f) throws IOException {
+		File tmp = new File(f.getPath() + ".tmp");
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(toPrometheus().getBytes(UTF8));
+		}
+		finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Register the Metrics with the platform MBean server
+	 * @param name, object name e.g. jfxtris:type=Metrics
+	 * @throws JMException, if the name is invalid or taken
+	 */
+	public void registerMBean(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(new MetricsMBean(this), new ObjectName(name));
+	}
+	
+	/**
+	 * Periodically sample the rates and write the Metrics to a file on
+	 * a daemon thread, until stopExport
+	 * @param f, file to write
+	 * @param period, seconds between writes
+	 */
+	public synchronized void startExport(final File f, long period) {
+		if (exporter != null) {
+			throw new IllegalStateException("Export already started");
+		}
+		exporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "metrics-export");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		exporter.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				sampleRates();
+				try {
+					writeTo(f);
+				}
+				catch (IOException e) {
+					System.err.println("Could not write metrics to " + f + ": " + e.getMessage());
+				}
+			}
+		}, period, period, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Stop writing the Metrics to a file
+	 */
+	public synchronized void stopExport() {
+		if (exporter != null) {
+			exporter.shutdown();
+			exporter = null;
+		}
+	}
+}
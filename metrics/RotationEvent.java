@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * RotationEvent
+ * @author Josh Chia
+ * 
+ * Flight Recorder event for each rotation in a Playfield and the
+ * Wall Kick it used (see GameEvents).
+ *
+ */
+@Name(GameEvents.PREFIX + "Rotation")
+@Label("Rotation")
+@Category(GameEvents.CATEGORY)
+@Description("A Tetromino was rotated in the Playfield")
+@Enabled(false)
+@StackTrace(false)
+public class RotationEvent extends Event {
+	@Label("Piece")
+	public String piece;
+	
+	@Label("Direction")
+	public String direction;
+	
+	@Label("Kick")
+	@Description("Index of the Wall Kick test used, -1 if it could not rotate")
+	public int kick;
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * SpawnEvent
+ * @author Josh Chia
+ * 
+ * Flight Recorder event for each Tetromino spawned by a Game
+ * (see GameEvents).
+ *
+ */
+@Name(GameEvents.PREFIX + "Spawn")
+@Label("Piece Spawn")
+@Category(GameEvents.CATEGORY)
+@Description("A Tetromino was spawned")
+@Enabled(false)
+@StackTrace(false)
+public class SpawnEvent extends Event {
+	@Label("Piece")
+	public String piece;
+	
+	@Label("Frame")
+	public int frame;
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Fragments
+ * @author Josh Chia
+ *
+ * Finds the fragments (4-connected groups of locked Minos) of a
+ * Playfield's grid e.g. to make the debris that falls after a Line
+ * Clear.
+ *
+ * The grid is labelled in one pass over its row bitmasks, with
+ * union-find over the runs of occupied cells in each row. Runs in
+ * adjacent rows that overlap are the same fragment. Nothing recurses
+ * and nothing is allocated, the arrays are sized for the worst case
+ * (every other cell occupied) and reused.
+ *
+ */
+public class Fragments {
+	private final int rows;
+	
+	// Runs in order of row then column, each row's start at row_start
+	private final int[] run_row, run_mask, parent;
+	private final int[] row_start;
+	private int runs;
+	
+	// Runs of each fragment, a list from head (by root) through next
+	private final int[] head, next;
+	private final boolean[] taken;
+	
+	/**
+	 * Construct the fragments of a Playfield's size
+	 * @param r, number of rows
+	 * @param c, number of cols
+	 */
+	public Fragments(int r, int c) {
+		rows = r;
+		int max_runs = r*((c+1)/2);
+		run_row = new int[max_runs];
+		run_mask = new int[max_runs];
+		parent = new int[max_runs];
+		head = new int[max_runs];
+		next = new int[max_runs];
+		taken = new boolean[max_runs];
+		row_start = new int[r+1];
+	}
+	
+	/**
+	 * Label the fragments of the grid as it is now, none are taken
+	 * @param pf, Playfield to label
+	 */
+	public void label(Playfield pf) {
+		runs = 0;
+		for (int r=0; r<rows; r++) {
+			row_start[r] = runs;
+			for (int mask=pf.getRowMask(r); mask != 0; ) {
+				int low = mask & -mask;
+				int run = mask & ~(mask + low);
+				mask &= ~run;
+				
+				run_row[runs] = r;
+				run_mask[runs] = run;
+				parent[runs] = runs;
+				if (r > 0) {
+					for (int i=row_start[r-1]; i<row_start[r]; i++) {
+						if ((run_mask[i] & run) != 0) {
+							union(i, runs);
+						}
+					}
+				}
+				runs++;
+			}
+		}
+		row_start[rows] = runs;
+		
+		Arrays.fill(head, 0, runs, -1);
+		Arrays.fill(taken, 0, runs, false);
+		for (int i=runs-1; i>=0; i--) {
+			int root = find(i);
+			next[i] = head[root];
+			head[root] = i;
+		}
+	}
+	
+	/**
+	 * Get the fragment that occupies a cell
+	 * @param r, row of the cell
+	 * @param c, column of the cell
+	 * @return, id of the fragment or -1 if the cell is free
+	 */
+	public int get(int r, int c) {
+		for (int i=row_start[r]; i<row_start[r+1]; i++) {
+			if ((run_mask[i] >>> c & 1) != 0) {
+				return find(i);
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Take a fragment off the grid as a Polyomino, unless it has
+	 * already been taken since it was labelled
+	 * @param pf, Playfield that was labelled
+	 * @param f, id of the fragment (see get)
+	 * @return, Polyomino of the fragment's Minos or null if already taken
+	 */
+	public Polyomino take(Playfield pf, int f) {
+		if (taken[f]) {
+			return null;
+		}
+		taken[f] = true;
+		
+		int cells = 0;
+		for (int i=head[f]; i >= 0; i=next[i]) {
+			cells += Integer.bitCount(run_mask[i]);
+		}
+		Mino[] ms = new Mino[cells];
+		int n = 0;
+		for (int i=head[f]; i >= 0; i=next[i]) {
+			for (int mask=run_mask[i]; mask != 0; mask &= mask-1) {
+				ms[n++] = pf.removeFromGrid(run_row[i], Integer.numberOfTrailingZeros(mask));
+			}
+		}
+		return new Polyomino(ms);
+	}
+	
+	/**
+	 * Find the root of a run, halving the path to it
+	 * @param i, run
+	 * @return, root run
+	 */
+	private int find(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+	
+	/**
+	 * Join the fragments of two runs, the earlier root is kept
+	 * @param a, run
+	 * @param b, run
+	 */
+	private void union(int a, int b) {
+		int ra = find(a), rb = find(b);
+		if (ra < rb) {
+			parent[rb] = ra;
+		}
+		else if (rb < ra) {
+			parent[ra] = rb;
+		}
+	}
+}
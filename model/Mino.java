@@ -1,77 +1,47 @@
 package model;
 
-import game.GridCanvas;
 import data_types.Vector2D;
-import javafx.scene.effect.Light;
-import javafx.scene.effect.Lighting;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.Paint;
-import javafx.scene.shape.Rectangle;
 
 /**
  * Mino
  * @author Josh Chia
  * 
  * The smallest (atomic) building block in the game of Tetris
- * that exist within a grid world (GridCanvas) 
- * Visually Minos are represented as rectangles
+ * that exist within a grid world (Playfield).
+ * 
+ * A Mino only knows its position and color code, how it is drawn
+ * is left to the views (see the ui package).
  *
  */
-public class Mino extends Rectangle implements Movable {
-	protected Vector2D pos;
-	protected GridCanvas grid_canvas;
-	
+public class Mino implements Movable {
 	/**
-	 * Setup lighting effects for '3D look'
+	 * Color code of the default (color) Mino.
+	 * Codes 1-7 are used by the Pieces (see Piece.getColorCode)
+	 * and code 0 is reserved for an empty cell.
 	 */
-	private static Light.Distant light = new Light.Distant();
-	static {
-		light.setAzimuth(-90.0);
-	}
-	private static Lighting lighting = new Lighting();
-	static {
-		lighting.setLight(light);
-		lighting.setSurfaceScale(3.0);
-	}
+	public static final byte DEFAULT_COLOR = 8;
+	
+	protected Vector2D pos;
+	private byte color_code;
 	
 	/**
 	 * Construct default (color) Mino
 	 * Used for debugging and creating demonstration games
 	 * See DemoGame.java
-	 * @param gc, grid world this Mino exists in
 	 * @param p, position vector of this Mino
 	 */
-	public Mino(GridCanvas gc, Vector2D p) {
-		super(gc.getGridWidth(), gc.getGridHeight(), Color.SEASHELL);
-		super.setStroke(Color.BLACK);
-		super.setEffect(lighting);
-		
-		grid_canvas = gc;
-		pos = p;
-		
-		grid_canvas.getChildren().add(this);
-		grid_canvas.updateDrawState(this);
+	public Mino(Vector2D p) {
+		this(p, DEFAULT_COLOR);
 	}
 	
 	/**
 	 * Construct specific Mino, stipulating its color.
-	 * Set as invisible first until we are sure that it can 
-	 * be seen in the grid world.
-	 * @param gc, gird world this Mino exists in
 	 * @param p, position vector of this Mino
-	 * @param c, color of this Mino
+	 * @param c, color code of this Mino
 	 */
-	public Mino(GridCanvas gc, Vector2D p, Paint c) {
-		super(gc.getGridWidth(), gc.getGridHeight(), c);
-		super.setStroke(Color.BLACK);
-		super.setEffect(lighting);
-		
-		grid_canvas = gc;
+	public Mino(Vector2D p, byte c) {
 		pos = p;
-		
-		gc.getChildren().add(this);
-		this.setVisible(false);
-		grid_canvas.updateDrawState(this);
+		color_code = c;
 	}
 	
 	/**
@@ -82,7 +52,6 @@ public class Mino extends Rectangle implements Movable {
 	@Override
 	public void move(int vx, int vy) {
 		pos.adjustXY(vx, vy);
-		grid_canvas.updateDrawState(this);
 	}
 	
 	/**
@@ -91,8 +60,7 @@ public class Mino extends Rectangle implements Movable {
 	 * @param y, new y-coordinate
 	 */
 	public void setPos(double x, double y) {
-		pos.setXY(x, y);	
-		grid_canvas.updateDrawState(this);
+		pos.setXY(x, y);
 	}
 	
 	public Vector2D getPos() {
@@ -101,21 +69,29 @@ public class Mino extends Rectangle implements Movable {
 	
 	/**
 	 * Set Mino's color
-	 * @param p, color to set it to
+	 * @param c, color code to set it to
+	 */
+	public void setColorCode(byte c) {
+		color_code = c;
+	}
+	
+	/**
+	 * Get the color code of the Mino, as stored in the
+	 * Playfield's color plane
+	 * @return, color code
 	 */
-	public void setColor(Paint p) {
-		this.setFill(p);
+	public byte getColorCode() {
+		return color_code;
 	}
 	
 	/**
 	 * For JUnit Testing purposes, a Mino is equal to another if it
-	 * occupies the same absolute position in the same grid world 
+	 * occupies the same absolute position
 	 * @param m, other Mino being compared
 	 * @return, true if they are equal
 	 */
 	public boolean equalsTest(Mino m) {
 		return pos.getAbsX() == m.pos.getAbsX() && 
-				pos.getAbsY() == m.pos.getAbsY() && 
-				m.grid_canvas==grid_canvas;
+				pos.getAbsY() == m.pos.getAbsY();
 	}
-}
\ No newline at end of file
+}
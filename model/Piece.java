@@ -1,7 +1,6 @@
 package model;
 
-import game.GridCanvas;
-
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -9,8 +8,6 @@ import data_types.RotateDirection;
 import data_types.RotateState;
 import data_types.Vector2D;
 
-import javafx.scene.paint.Color;
-
 /**
  * Piece
  * @author Josh Chia
@@ -40,132 +37,213 @@ public enum Piece implements TetrominoFactory<Tetromino> {
 	 */
 	I {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, 0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.SKYBLUE),
-					new Mino(gc, new Vector2D(pos, -1, 0), Color.SKYBLUE),
-					new Mino(gc, new Vector2D(pos, 1, 0), Color.SKYBLUE),
-					new Mino(gc, new Vector2D(pos, 2, 0), Color.SKYBLUE)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 2, 0), getColorCode())
 			});
 		}
 	},
 	O {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, -0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.GOLD),
-					new Mino(gc, new Vector2D(pos, 1, 0), Color.GOLD),
-					new Mino(gc, new Vector2D(pos, 0, 1), Color.GOLD),
-					new Mino(gc, new Vector2D(pos, 1, 1), Color.GOLD)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 0, 1), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 1), getColorCode())
 			});
 		}
 	},
 	T {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, 0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.DARKORCHID),
-					new Mino(gc, new Vector2D(pos, -1, 0), Color.DARKORCHID),
-					new Mino(gc, new Vector2D(pos, 0, 1), Color.DARKORCHID),
-					new Mino(gc, new Vector2D(pos, 1, 0), Color.DARKORCHID)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 0, 1), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 0), getColorCode())
 			});
 		}
 	},
 	S {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, 0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.LIMEGREEN),
-					new Mino(gc, new Vector2D(pos, -1, 0), Color.LIMEGREEN),
-					new Mino(gc, new Vector2D(pos, 0, 1), Color.LIMEGREEN),
-					new Mino(gc, new Vector2D(pos, 1, 1), Color.LIMEGREEN)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 0, 1), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 1), getColorCode())
 			});
 		}
 	},
 	Z {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, -0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.RED),
-					new Mino(gc, new Vector2D(pos, 0, 1), Color.RED),
-					new Mino(gc, new Vector2D(pos, -1, 1), Color.RED),
-					new Mino(gc, new Vector2D(pos, 1, 0), Color.RED)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 0, 1), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 1), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 0), getColorCode())
 			});
 		}
 	},
 	J {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, -0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.ROYALBLUE),
-					new Mino(gc, new Vector2D(pos, -1, 0), Color.ROYALBLUE),
-					new Mino(gc, new Vector2D(pos, -1, 1), Color.ROYALBLUE),
-					new Mino(gc, new Vector2D(pos, 1, 0), Color.ROYALBLUE)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 1), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 0), getColorCode())
 			});
 		}
 	},
 	L {
 		@Override
-		public Tetromino create(GridCanvas gc) {
-			Vector2D pos = gc.getSpawnPos(this);
+		public Tetromino create(Vector2D pos) {
 			return new Tetromino(this, pos, new Vector2D(pos, 0.0, 0.0), new Mino[] { 
-					new Mino(gc, new Vector2D(pos, 0, 0), Color.DARKORANGE),
-					new Mino(gc, new Vector2D(pos, -1, 0), Color.DARKORANGE),
-					new Mino(gc, new Vector2D(pos, 1, 0), Color.DARKORANGE),
-					new Mino(gc, new Vector2D(pos, 1, 1), Color.DARKORANGE)
+					new Mino(new Vector2D(pos, 0, 0), getColorCode()),
+					new Mino(new Vector2D(pos, -1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 0), getColorCode()),
+					new Mino(new Vector2D(pos, 1, 1), getColorCode())
 			});
 		}
 	};
 	
 	/**
-	 * Calculate the position translations to check when attempting 
-	 * to Wall Kick a Tetromino into a valid position when it attempts 
-	 * to rotate.
-	 * 
-	 * Employs the simplified Wall Kick logic used by TTC
-	 * 
-	 * @param t, Tetromino being rotated
+	 * Creates a Tetromino at this Piece's spawn position in a Playfield
+	 * @param pf, the Playfield to spawn into
+	 * @return, Tetromino instance
+	 */
+	public Tetromino create(Playfield pf) {
+		return create(pf.getSpawnPos(this));
+	}
+	
+	/**
+	 * Color code of the Minos of this Piece (see Mino)
+	 * @return, color code
+	 */
+	public byte getColorCode() {
+		return (byte) (ordinal()+1);
+	}
+	
+	/**
+	 * Number of Wall Kick tests to check when rotating this Piece
+	 * @return, number of tests
+	 */
+	public int getWallKickTests() {
+		return WALL_KICK_TESTS[ordinal()];
+	}
+	
+	/**
+	 * Translation along the x-axis of a Wall Kick test.
+	 * Employs the simplified Wall Kick logic used by TTC, i.e. the
+	 * difference between the offsets of the current and new state.
+	 * @param s, current state of rotation
 	 * @param d, rotation direction
-	 * @return, list of translations to check
+	 * @param i, test to get
+	 * @return, translation along x-axis
 	 */
-	public static Vector2D[] getWallKickTranslations(Tetromino t, RotateDirection d) {
-		Vector2D[] current_offsets, new_offsets, translations; 
-		
-		switch (t.piece) {
-		case I:
-			current_offsets = WALL_KICK_OFFSET_I.get(t.getRotState());
-			new_offsets = WALL_KICK_OFFSET_I.get(t.getRotState().rotate(d));
-			break;
-		case O:
-			current_offsets = WALL_KICK_OFFSET_O.get(t.getRotState());
-			new_offsets = WALL_KICK_OFFSET_O.get(t.getRotState().rotate(d));
-			break;
-		case J:
-		case L:
-		case S:
-		case T:
-		case Z:
-		default:
-			current_offsets = WALL_KICK_OFFSET_JLSTZ.get(t.getRotState());
-			new_offsets = WALL_KICK_OFFSET_JLSTZ.get(t.getRotState().rotate(d));
-			break;
-		}
-		
-		translations = new Vector2D[current_offsets.length];
-		for (int i=0; i<current_offsets.length; i++) {
-			translations[i] = calculateWallKickTranslation(current_offsets[i], new_offsets[i]);
-		}
-		return translations;
+	public int getWallKickX(RotateState s, RotateDirection d, int i) {
+		return WALL_KICKS[wallKickIndex(s, d, i)];
+	}
+	
+	/**
+	 * Translation along the y-axis of a Wall Kick test.
+	 * @param s, current state of rotation
+	 * @param d, rotation direction
+	 * @param i, test to get
+	 * @return, translation along y-axis
+	 */
+	public int getWallKickY(RotateState s, RotateDirection d, int i) {
+		return WALL_KICKS[wallKickIndex(s, d, i)+1];
+	}
+	
+	/**
+	 * Position of a Mino relative to the Tetromino's position
+	 * @param s, state of rotation
+	 * @param i, Mino to get
+	 * @return, x-coordinate relative to the Tetromino
+	 */
+	public int getMinoX(RotateState s, int i) {
+		return SHAPE_MINOS[(shapeIndex(s)*MINOS+i)*2];
+	}
+	
+	/**
+	 * Position of a Mino relative to the Tetromino's position
+	 * @param s, state of rotation
+	 * @param i, Mino to get
+	 * @return, y-coordinate relative to the Tetromino
+	 */
+	public int getMinoY(RotateState s, int i) {
+		return SHAPE_MINOS[(shapeIndex(s)*MINOS+i)*2+1];
+	}
+	
+	/**
+	 * Bounds of the Piece's Minos relative to the Tetromino's position
+	 * @param s, state of rotation
+	 * @return, left most x-coordinate
+	 */
+	public int getMinX(RotateState s) {
+		return SHAPE_BOUNDS[shapeIndex(s)*4];
+	}
+	
+	/**
+	 * @param s, state of rotation
+	 * @return, right most x-coordinate
+	 */
+	public int getMaxX(RotateState s) {
+		return SHAPE_BOUNDS[shapeIndex(s)*4+1];
+	}
+	
+	/**
+	 * @param s, state of rotation
+	 * @return, bottom most y-coordinate
+	 */
+	public int getMinY(RotateState s) {
+		return SHAPE_BOUNDS[shapeIndex(s)*4+2];
+	}
+	
+	/**
+	 * @param s, state of rotation
+	 * @return, top most y-coordinate
+	 */
+	public int getMaxY(RotateState s) {
+		return SHAPE_BOUNDS[shapeIndex(s)*4+3];
 	}
 	
-	private static Vector2D calculateWallKickTranslation(Vector2D offset1, Vector2D offset2) {
-		return new Vector2D(offset1.getAbsX()-offset2.getAbsX(), offset1.getAbsY()-offset2.getAbsY());
+	/**
+	 * Occupancy bitmask of a row of the Piece, in the same layout 
+	 * as the Playfield's rows but starting from the left most Mino
+	 * (see getMinX).
+	 * @param s, state of rotation
+	 * @param r, row counting up from the bottom most Mino (see getMinY)
+	 * @return, bitmask of the row
+	 */
+	public int getRowMask(RotateState s, int r) {
+		return SHAPE_ROWS[shapeIndex(s)*MINOS+r];
+	}
+	
+	/**
+	 * Bottom most Mino of a column of the Piece e.g. to find how far
+	 * it falls in that column
+	 * @param s, state of rotation
+	 * @param c, column counting right from the left most Mino (see getMinX)
+	 * @return, row of the Mino counting up from the bottom most Mino (see getMinY)
+	 */
+	public int getColumnBottom(RotateState s, int c) {
+		return SHAPE_COLUMNS[shapeIndex(s)*MINOS+c];
+	}
+	
+	private int shapeIndex(RotateState s) {
+		return ordinal()*ROTATE_STATES + s.ordinal();
+	}
+	
+	private int wallKickIndex(RotateState s, RotateDirection d, int i) {
+		return ((shapeIndex(s)*ROTATE_DIRECTIONS + d.ordinal())*MAX_WALL_KICK_TESTS + i)*2;
 	}
 	
 	/**
@@ -256,4 +334,86 @@ public enum Piece implements TetrominoFactory<Tetromino> {
 				new Vector2D(-1, 0)
 		});
 	}
+	
+	/**
+	 * Precompiled tables, so rotating and checking positions 
+	 * needs no lookups or allocation:
+	 *  SHAPE_MINOS: relative (x, y) of each Mino per Piece and state
+	 *  SHAPE_BOUNDS: min x, max x, min y, max y per Piece and state
+	 *  SHAPE_ROWS: row bitmasks per Piece and state (see getRowMask)
+	 *  SHAPE_COLUMNS: bottom of each column per Piece and state (see getColumnBottom)
+	 *  WALL_KICKS: (x, y) translations per Piece, state, direction and test
+	 */
+	private static final int MINOS = 4;
+	private static final int ROTATE_STATES = RotateState.values().length;
+	private static final int ROTATE_DIRECTIONS = RotateDirection.values().length;
+	private static final int MAX_WALL_KICK_TESTS = 5;
+	
+	private static final int[] SHAPE_MINOS = new int[values().length*ROTATE_STATES*MINOS*2];
+	private static final int[] SHAPE_BOUNDS = new int[values().length*ROTATE_STATES*4];
+	private static final int[] SHAPE_ROWS = new int[values().length*ROTATE_STATES*MINOS];
+	private static final int[] SHAPE_COLUMNS = new int[values().length*ROTATE_STATES*MINOS];
+	private static final int[] WALL_KICKS = new int[values().length*ROTATE_STATES*ROTATE_DIRECTIONS*MAX_WALL_KICK_TESTS*2];
+	private static final int[] WALL_KICK_TESTS = new int[values().length];
+	static {
+		for (Piece p: values()) {
+			Tetromino t = p.create(new Vector2D(0, 0));
+			
+			for (RotateState s: RotateState.values()) {
+				int shape = p.shapeIndex(s);
+				int min_x = Integer.MAX_VALUE, max_x = Integer.MIN_VALUE;
+				int min_y = Integer.MAX_VALUE, max_y = Integer.MIN_VALUE;
+				
+				for (int i=0; i<MINOS; i++) {
+					int x = (int) t.minos[i].getPos().getX();
+					int y = (int) t.minos[i].getPos().getY();
+					SHAPE_MINOS[(shape*MINOS+i)*2] = x;
+					SHAPE_MINOS[(shape*MINOS+i)*2+1] = y;
+					min_x = Math.min(min_x, x);
+					max_x = Math.max(max_x, x);
+					min_y = Math.min(min_y, y);
+					max_y = Math.max(max_y, y);
+				}
+				SHAPE_BOUNDS[shape*4] = min_x;
+				SHAPE_BOUNDS[shape*4+1] = max_x;
+				SHAPE_BOUNDS[shape*4+2] = min_y;
+				SHAPE_BOUNDS[shape*4+3] = max_y;
+				
+				for (int i=0; i<MINOS; i++) {
+					int x = SHAPE_MINOS[(shape*MINOS+i)*2];
+					int y = SHAPE_MINOS[(shape*MINOS+i)*2+1];
+					SHAPE_ROWS[shape*MINOS+y-min_y] |= 1 << (x-min_x);
+				}
+				Arrays.fill(SHAPE_COLUMNS, shape*MINOS, (shape+1)*MINOS, MINOS);
+				for (int i=0; i<MINOS; i++) {
+					int c = shape*MINOS + SHAPE_MINOS[(shape*MINOS+i)*2] - min_x;
+					SHAPE_COLUMNS[c] = Math.min(SHAPE_COLUMNS[c], SHAPE_MINOS[(shape*MINOS+i)*2+1] - min_y);
+				}
+				
+				Map<RotateState,Vector2D[]> offsets;
+				switch (p) {
+				case I:
+					offsets = WALL_KICK_OFFSET_I;
+					break;
+				case O:
+					offsets = WALL_KICK_OFFSET_O;
+					break;
+				default:
+					offsets = WALL_KICK_OFFSET_JLSTZ;
+					break;
+				}
+				for (RotateDirection d: RotateDirection.values()) {
+					Vector2D[] current_offsets = offsets.get(s);
+					Vector2D[] new_offsets = offsets.get(s.rotate(d));
+					WALL_KICK_TESTS[p.ordinal()] = current_offsets.length;
+					
+					for (int i=0; i<current_offsets.length; i++) {
+						WALL_KICKS[p.wallKickIndex(s, d, i)] = (int) (current_offsets[i].getAbsX()-new_offsets[i].getAbsX());
+						WALL_KICKS[p.wallKickIndex(s, d, i)+1] = (int) (current_offsets[i].getAbsY()-new_offsets[i].getAbsY());
+					}
+				}
+				t.rotate(RotateDirection.RIGHT);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -1,57 +1,96 @@
 package model;
 
-import game.GridCanvas;
-
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import metrics.EngineMetrics;
+import metrics.RotationEvent;
+
 import data_types.RotateDirection;
+import data_types.RotateState;
+import data_types.TSpin;
 import data_types.Vector2D;
 
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Rectangle;
-
 /**
  * Playfield
  * @author Josh Chia
- * 
+ *
  * The grid world in which Tetrominos are spawned and the game is played
- * 
- * The grid 2D-array is used to track which grids are free or otherwise 
- * occupied by locked Mino. Polyominos and Tetrominos are not locked 
- * therefore they aren't on the grid (must be locked first). 
+ *
+ * Occupancy is tracked as one bitmask per row (bit c set if column c
+ * is occupied by a locked Mino) so that legality checks are mask tests
+ * and a Line Clear is a single comparison against a full row.
+ * Garbage is inserted by shifting the rows up, without touching any
+ * Mino.
+ * The skyline is kept alongside as one bitmask per column (bit r set
+ * if row r is occupied), so how far a Piece can drop in a column is a
+ * bit scan rather than a walk down the rows, even under an overhang.
+ * The landing position of the active Tetromino (its ghost) is found
+ * from it, and only again once the Tetromino or the grid has changed.
+ * The color of each locked cell is kept in a parallel byte plane
+ * (see Mino) for rendering. Polyominos and Tetrominos are not
+ * locked therefore they aren't on the grid (must be locked first).
+ *
+ * The Playfield has no knowledge of how it is drawn, see the
+ * ui package for its views.
+ *
+ * Its state (grid, active Tetromino and falling Polyominos) can be
+ * written to and read from a buffer, see GameState.
  *
  */
 
-public class Playfield extends GridCanvas {
+public class Playfield {
+	private static final Piece[] PIECES = Piece.values();
+	private static final RotateState[] ROTATE_STATES = RotateState.values();
+	
 	public Tetromino active_piece;
-	public Mino[][] grid;
 	
-	private int vanish;
+	private int[] occupancy;
+	private long[] columns;
+	private byte[] colors;
+	private int grid_changes; // count of changes to the grid, see getGhostY
+	private final int FULL_ROW;
+	
+	private int rows, cols, vanish;
 	private int spawn_pos_x;
 	private int spawn_pos_y;
 	
+	// Polyominos (debris) that are falling after a Line Clear
 	public List<Polyomino> polyominos = new ArrayList<Polyomino>();
 	
+	// Pose of the active Tetromino and grid changes the ghost was found for
+	private Piece ghost_piece;
+	private RotateState ghost_state;
+	private int ghost_x, ghost_from_y, ghost_changes, ghost_y;
+	
+	// Tetrominos reused by readState, one per Piece
+	private final Tetromino[] spare_pieces = new Tetromino[PIECES.length];
+	
 	/**
 	 * Constructs a Playfield
-	 * @param p, position to draw the Playfield
-	 * @param w, draw width (pixels) of the Playfield 
-	 * @param h, draw height (pixels) of the Playfield
 	 * @param r, number of rows
 	 * @param c, number of columns
 	 * @param v, size of vanish zone
 	 */
-	public Playfield(Vector2D p, double w, double h, int r, int c, int v) {
-		super(p, w, h, r, c);
+	public Playfield(int r, int c, int v) {
+		if (c > Integer.SIZE) {
+			throw new IllegalArgumentException("Playfield supports at most " + Integer.SIZE + " columns");
+		}
+		if (r > Long.SIZE) {
+			throw new IllegalArgumentException("Playfield supports at most " + Long.SIZE + " rows");
+		}
+		rows = r;
+		cols = c;
 		vanish = v;
-		grid = new Mino[r][c];
+		occupancy = new int[r];
+		columns = new long[c];
+		colors = new byte[r*c];
+		FULL_ROW = (c == Integer.SIZE) ? -1: (1 << c) - 1;
 		
 		spawn_pos_x = cols/2-1;
 		spawn_pos_y = rows-vanish;
-		
-		createBackground();
 	}
 	
 	/**
@@ -69,8 +108,7 @@ public class Playfield extends GridCanvas {
 	 * @return, true if it can be spawned
 	 */
 	public boolean canSpawn(Piece p) {
-		Tetromino t = p.create(this);
-		return isLegalPosition(t) ? true: false;
+		return isLegalPosition(p, RotateState.ZERO, spawn_pos_x, spawn_pos_y);
 	}
 	
 	/**
@@ -83,7 +121,7 @@ public class Playfield extends GridCanvas {
 	
 	/**
 	 * Moves a Polyomino according to the rules and conditions
-	 * of the Playfield's state 
+	 * of the Playfield's state
 	 * @param p, Polyomino to move
 	 * @param vx, amount to move along x-axis
 	 * @param vy, amount to move along y-axis
@@ -95,7 +133,7 @@ public class Playfield extends GridCanvas {
 		}
 		
 		// Calculate the unit vectors i.e. +/-1
-		int dx = (int) Math.signum(vx);		
+		int dx = (int) Math.signum(vx);
 		int dy = (int) Math.signum(vy);
 		
 		// Move the Polyomino incrementally (recursive call)
@@ -105,6 +143,22 @@ public class Playfield extends GridCanvas {
 		}
 	}
 	
+	/**
+	 * Drops a Polyomino by up to a number of rows in a single move,
+	 * stopping where it lands (see dropDistance) rather than moving
+	 * and checking it a row at a time
+	 * @param p, Polyomino to drop
+	 * @param cells, most rows to drop
+	 * @return, rows dropped
+	 */
+	public int drop(Polyomino p, int cells) {
+		int d = Math.min(cells, dropDistance(p));
+		if (d > 0) {
+			p.move(0, -d);
+		}
+		return d;
+	}
+	
 	public boolean isDroppable(Polyomino p) {
 		return isLegalMove(p, 0, -1);
 	}
@@ -112,36 +166,205 @@ public class Playfield extends GridCanvas {
 	/**
 	 * Rotates a Tetromino according to the state of the Playfield
 	 * and the Wall Kick translations.
+	 * Only the Wall Kick that succeeds is applied to the Tetromino.
 	 * @param t, Tetromino to rotate
 	 * @param d, direction being rotated
+	 * @return, index of the Wall Kick test used or -1 if it could not rotate
 	 */
-	public void rotate(Tetromino t, RotateDirection d) {
-		// Get Wall Kick translations
-		Vector2D[] wall_kick_tests = Piece.getWallKickTranslations(t, d);
+	public int rotate(Tetromino t, RotateDirection d) {
+		RotateState s = t.getRotState();
+		int kick = testRotation(t.piece, s, d, t.getX(), t.getY());
 		
-		// Check if any of the translations lead to valid positions
-		for (Vector2D v: wall_kick_tests) {
-			t.move((int)v.getAbsX(), (int)v.getAbsY());
+		if (kick >= 0) {
 			t.rotate(d);
-			if (isLegalPosition(t)) {
-				break;
+			t.move(t.piece.getWallKickX(s, d, kick), t.piece.getWallKickY(s, d, kick));
+		}
+		EngineMetrics.KICK_ATTEMPTS.record((kick >= 0) ? kick+1: t.piece.getWallKickTests());
+		
+		RotationEvent event = new RotationEvent();
+		if (event.shouldCommit()) {
+			event.piece = t.piece.name();
+			event.direction = d.name();
+			event.kick = kick;
+			event.commit();
+		}
+		return kick;
+	}
+	
+	/**
+	 * Find how far a Tetromino can shift before it hits the wall or the
+	 * stack, without moving it. Each row of a Piece is contiguous, so
+	 * it is the nearest occupied cell (or wall) beside each of the
+	 * Piece's rows, found with a bit scan of the row's mask.
+	 * @param t, Tetromino to shift
+	 * @param dir, -1 for left or 1 for right
+	 * @return, cells it can shift (0 if blocked)
+	 */
+	public int shiftDistance(Tetromino t, int dir) {
+		Piece p = t.piece;
+		RotateState s = t.getRotState();
+		int left = t.getX() + p.getMinX(s);
+		int bottom = t.getY() + p.getMinY(s);
+		int top = t.getY() + p.getMaxY(s);
+		
+		int distance = cols;
+		for (int r=bottom; r<=top; r++) {
+			int mask = p.getRowMask(s, r-bottom);
+			int d;
+			if (dir < 0) {
+				int edge = left + Integer.numberOfTrailingZeros(mask);
+				int blockers = occupancy[r] & ((1 << edge) - 1);
+				d = edge - (Integer.SIZE - Integer.numberOfLeadingZeros(blockers));
 			}
 			else {
-				t.rotate(d.opposite());
-				t.move((int)-v.getAbsX(), (int)-v.getAbsY());
+				int edge = left + Integer.SIZE-1 - Integer.numberOfLeadingZeros(mask);
+				int blockers = (edge >= cols-1) ? 0: occupancy[r] >>> (edge+1);
+				d = (blockers == 0) ? cols-1 - edge: Integer.numberOfTrailingZeros(blockers);
+			}
+			distance = Math.min(distance, d);
+		}
+		return distance;
+	}
+	
+	/**
+	 * Find the Wall Kick that a rotation would use, without 
+	 * rotating anything.
+	 * @param p, Piece being rotated
+	 * @param s, current state of rotation
+	 * @param d, direction being rotated
+	 * @param x, current x-coordinate of the Tetromino
+	 * @param y, current y-coordinate of the Tetromino
+	 * @return, index of the first legal Wall Kick test or -1 if none
+	 */
+	public int testRotation(Piece p, RotateState s, RotateDirection d, int x, int y) {
+		RotateState new_state = s.rotate(d);
+		
+		for (int i=0; i<p.getWallKickTests(); i++) {
+			if (isLegalPosition(p, new_state, x+p.getWallKickX(s, d, i), y+p.getWallKickY(s, d, i))) {
+				return i;
 			}
 		}
+		return -1;
 	}
 	
 	/**
-	 * Clears a row in the Playfield 
+	 * Clears a row in the Playfield
 	 * @param r, row to clear
 	 */
 	public void clearLine(int r) {
-		for (Mino m: grid[r]) {
-			this.getChildren().remove(m);
+		Arrays.fill(colors, r*cols, (r+1)*cols, (byte) 0);
+		occupancy[r] = 0;
+		long mask = ~(1L << r);
+		for (int c=0; c<cols; c++) {
+			columns[c] &= mask;
+		}
+		grid_changes++;
+	}
+	
+	/**
+	 * Insert garbage rows at the bottom, shifting the grid up. Every
+	 * cell of a garbage row is occupied except the hole. The active
+	 * Tetromino is pushed up if it would overlap and falling
+	 * Polyominos are moved up with the grid.
+	 * @param lines, number of rows to insert
+	 * @param hole, column of the hole
+	 * @param color, color code of the garbage
+	 * @return, true if occupied rows were pushed out of the top
+	 */
+	public boolean insertGarbage(int lines, int hole, byte color) {
+		lines = Math.min(lines, rows);
+		boolean lost = false;
+		for (int r=rows-lines; r<rows; r++) {
+			lost |= occupancy[r] != 0;
+		}
+		
+		System.arraycopy(occupancy, 0, occupancy, lines, rows-lines);
+		System.arraycopy(colors, 0, colors, lines*cols, (rows-lines)*cols);
+		int mask = FULL_ROW & ~(1 << hole);
+		for (int r=0; r<lines; r++) {
+			occupancy[r] = mask;
+			Arrays.fill(colors, r*cols, (r+1)*cols, color);
+			colors[r*cols+hole] = 0;
+		}
+		long garbage = (lines == Long.SIZE) ? -1: (1L << lines) - 1;
+		for (int c=0; c<cols; c++) {
+			columns[c] = (lines == Long.SIZE) ? 0: columns[c] << lines;
+			if (c != hole) {
+				columns[c] |= garbage;
+			}
 		}
-		grid[r] = new Mino[cols];
+		grid_changes++;
+		
+		for (Polyomino p: polyominos) {
+			p.move(0, lines);
+		}
+		if (active_piece != null) {
+			for (int i=0; i<lines && !isLegalMove(active_piece, 0, 0); i++) {
+				active_piece.move(0, 1);
+			}
+		}
+		return lost;
+	}
+	
+	/**
+	 * Find the kind of T-Spin a Tetromino would lock with where it is.
+	 * It is a T-Spin if it is a T whose last move was a rotation and
+	 * three of the four corners around its centre are blocked (by the
+	 * grid, the walls or the floor).
+	 * @param t, Tetromino about to lock
+	 * @param kick, Wall Kick test of its last rotation or -1 if its
+	 * last move wasn't a rotation
+	 * @return, kind of T-Spin
+	 */
+	public TSpin testTSpin(Tetromino t, int kick) {
+		if (t.piece != Piece.T || kick < 0) {
+			return TSpin.NONE;
+		}
+		// Direction the T points in
+		int fx = 0, fy = 0;
+		switch (t.getRotState()) {
+		case ZERO:
+			fy = 1;
+			break;
+		case RIGHT:
+			fx = 1;
+			break;
+		case TWO:
+			fy = -1;
+			break;
+		default:
+			fx = -1;
+			break;
+		}
+		
+		int corners = 0, front = 0;
+		for (int dx=-1; dx<=1; dx+=2) {
+			for (int dy=-1; dy<=1; dy+=2) {
+				if (isBlocked(t.getY()+dy, t.getX()+dx)) {
+					corners++;
+					if ((fx != 0 && dx == fx) || (fy != 0 && dy == fy)) {
+						front++;
+					}
+				}
+			}
+		}
+		if (corners < 3) {
+			return TSpin.NONE;
+		}
+		return (front == 2 || kick == t.piece.getWallKickTests()-1) ? TSpin.FULL: TSpin.MINI;
+	}
+	
+	/**
+	 * Check if a cell is occupied or outside the walls and floor
+	 * @param r, row of the cell
+	 * @param c, column of the cell
+	 * @return, true if blocked
+	 */
+	private boolean isBlocked(int r, int c) {
+		if (r < 0 || c < 0 || c >= cols) {
+			return true;
+		}
+		return r < rows && isOccupied(r, c);
 	}
 	
 	/**
@@ -150,12 +373,7 @@ public class Playfield extends GridCanvas {
 	 * @return, true if it is a Line Clear
 	 */
 	public boolean isLine(int r) {
-		for (Mino m: grid[r]) {
-			if (m==null) {
-				return false;
-			}
-		}
-		return true;
+		return occupancy[r] == FULL_ROW;
 	}
 	
 	/**
@@ -164,48 +382,179 @@ public class Playfield extends GridCanvas {
 	 */
 	public void addToGrid(Polyomino p) {
 		for (Mino m: p.minos) {
-			grid[(int) m.pos.getAbsY()][(int) m.pos.getAbsX()] = m;
+			addToGrid(m);
 		}
 	}
 	
+	/**
+	 * Add a single Mino to the Playfield's grid
+	 * @param m, Mino to add
+	 */
+	public void addToGrid(Mino m) {
+		int r = (int) m.pos.getAbsY();
+		int c = (int) m.pos.getAbsX();
+		
+		occupancy[r] |= 1 << c;
+		columns[c] |= 1L << r;
+		colors[r*cols+c] = m.getColorCode();
+		grid_changes++;
+	}
+	
 	/**
 	 * Remove Polyomino from the Playfield's grid
 	 * @param p, Polyomino to remove
 	 */
 	public void removeFromGrid(Polyomino p) {
 		for (Mino m: p.minos) {
-			grid[(int) m.pos.getAbsY()][(int) m.pos.getAbsX()] = null;
+			removeFromGrid((int) m.pos.getAbsY(), (int) m.pos.getAbsX());
+		}
+	}
+	
+	/**
+	 * Remove a single cell from the Playfield's grid
+	 * @param r, row of the cell
+	 * @param c, column of the cell
+	 * @return, a Mino in place of the one that occupied the cell
+	 * or null if it was free
+	 */
+	public Mino removeFromGrid(int r, int c) {
+		if (!isOccupied(r, c)) {
+			return null;
 		}
+		Mino m = new Mino(new Vector2D(c, r), colors[r*cols+c]);
+		occupancy[r] &= ~(1 << c);
+		columns[c] &= ~(1L << r);
+		colors[r*cols+c] = 0;
+		grid_changes++;
+		return m;
 	}
 	
 	/**
-	 * Remove a Polyomino visually only.
-	 * This is useful for swapping Tetrominos for Piece Hold since
-	 * they are not on the grid. 
-	 * @param p
+	 * Check if a cell is occupied by a locked Mino
+	 * @param r, row of the cell
+	 * @param c, column of the cell
+	 * @return, true if occupied
 	 */
-	public void removeFromGroup(Polyomino p) {
+	public boolean isOccupied(int r, int c) {
+		return (occupancy[r] >>> c & 1) != 0;
+	}
+	
+	/**
+	 * Get the occupancy bitmask of a row
+	 * @param r, row to get
+	 * @return, bitmask where bit c is set if column c is occupied
+	 */
+	public int getRowMask(int r) {
+		return occupancy[r];
+	}
+	
+	/**
+	 * Get the height of a column of the skyline
+	 * @param c, column to get
+	 * @return, one above its highest occupied row (0 if empty)
+	 */
+	public int getColumnHeight(int c) {
+		return Long.SIZE - Long.numberOfLeadingZeros(columns[c]);
+	}
+	
+	/**
+	 * Find how far a Polyomino can drop before it lands on the stack
+	 * or the floor, without moving it. Each Mino drops to the highest
+	 * occupied row below it, found with a bit scan of its column's mask.
+	 * @param p, Polyomino to drop
+	 * @return, rows it can drop (0 if it is resting)
+	 */
+	public int dropDistance(Polyomino p) {
+		if (p instanceof Tetromino) {
+			Tetromino t = (Tetromino) p;
+			return dropDistance(t.piece, t.getRotState(), t.getX(), t.getY());
+		}
+		
+		int distance = rows;
 		for (Mino m: p.minos) {
-			this.getChildren().removeAll(m);
+			int r = (int) m.pos.getAbsY();
+			long below = columns[(int) m.pos.getAbsX()] & ((1L << r) - 1);
+			distance = Math.min(distance, r - (Long.SIZE - Long.numberOfLeadingZeros(below)));
+		}
+		return distance;
+	}
+	
+	/**
+	 * Find how far a Piece can drop, using the bottom Mino of each of
+	 * the Piece's columns i.e. one bit scan per column of the Piece.
+	 * @param p, Piece to drop
+	 * @param s, state of rotation
+	 * @param x, x-coordinate of the Tetromino
+	 * @param y, y-coordinate of the Tetromino
+	 * @return, rows it can drop (0 if it is resting)
+	 */
+	private int dropDistance(Piece p, RotateState s, int x, int y) {
+		int left = x + p.getMinX(s);
+		int bottom = y + p.getMinY(s);
+		int width = p.getMaxX(s) - p.getMinX(s) + 1;
+		
+		int distance = bottom;
+		for (int i=0; i<width; i++) {
+			int b = bottom + p.getColumnBottom(s, i);
+			long below = columns[left+i] & ((1L << b) - 1);
+			distance = Math.min(distance, b - (Long.SIZE - Long.numberOfLeadingZeros(below)));
 		}
+		return distance;
+	}
+	
+	/**
+	 * Get the row the active Tetromino would land on if hard dropped
+	 * i.e. where its ghost is drawn. It is only found again once the
+	 * Tetromino has shifted, rotated or left the path it is falling
+	 * down, or the grid has changed.
+	 * @return, y-coordinate the active Tetromino would land at
+	 */
+	public int getGhostY() {
+		Tetromino t = active_piece;
+		if (t.piece != ghost_piece || t.getRotState() != ghost_state || t.getX() != ghost_x
+				|| t.getY() > ghost_from_y || t.getY() < ghost_y || grid_changes != ghost_changes) {
+			ghost_piece = t.piece;
+			ghost_state = t.getRotState();
+			ghost_x = t.getX();
+			ghost_from_y = t.getY();
+			ghost_changes = grid_changes;
+			ghost_y = t.getY() - dropDistance(t);
+		}
+		return ghost_y;
+	}
+	
+	/**
+	 * Get the color code of a locked cell (0 if free)
+	 * @param r, row of the cell
+	 * @param c, column of the cell
+	 * @return, color code (see Mino)
+	 */
+	public byte getColor(int r, int c) {
+		return colors[r*cols+c];
 	}
 	
 	/**
-	 * Get size to draw individual grid width
-	 * @return, pixel width of a individual grid
+	 * Get number of rows (including the vanish zone)
+	 * @return, rows
 	 */
-	@Override
-	public double getGridWidth() {
-		return width/cols;
+	public int getRows() {
+		return rows;
 	}
 	
 	/**
-	 * Get size to draw individual grid height
-	 * @return, pixel height of a individual grid
+	 * Get number of columns
+	 * @return, cols
 	 */
-	@Override
-	public double getGridHeight() {
-		return height/(rows-vanish);
+	public int getCols() {
+		return cols;
+	}
+	
+	/**
+	 * Get the size of the vanish zone
+	 * @return, vanish
+	 */
+	public int getVanish() {
+		return vanish;
 	}
 	
 	/**
@@ -228,6 +577,11 @@ public class Playfield extends GridCanvas {
 		int new_pos_x;
 		int new_pos_y;
 		
+		if (p instanceof Tetromino) {
+			Tetromino t = (Tetromino) p;
+			return isLegalPosition(t.piece, t.getRotState(), t.getX()+vx, t.getY()+vy);
+		}
+		
 		for (Mino m: p.minos) {
 			new_pos_x = (int) (m.pos.getAbsX() + vx);
 			new_pos_y = (int) (m.pos.getAbsY() + vy);
@@ -236,18 +590,59 @@ public class Playfield extends GridCanvas {
 				return false;
 			}
 			
-			if (grid[new_pos_y][new_pos_x] != null) {
+			if ((occupancy[new_pos_y] >>> new_pos_x & 1) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Check if a Piece would occupy a legal position, using the 
+	 * Piece's row bitmasks i.e. one mask test per row of the Piece.
+	 * @param p, Piece to check
+	 * @param s, state of rotation
+	 * @param x, x-coordinate of the Tetromino
+	 * @param y, y-coordinate of the Tetromino
+	 * @return, true if legal
+	 */
+	public boolean isLegalPosition(Piece p, RotateState s, int x, int y) {
+		int left = x + p.getMinX(s);
+		int bottom = y + p.getMinY(s);
+		int top = y + p.getMaxY(s);
+		
+		if (left < 0 || x + p.getMaxX(s) >= cols || bottom < 0 || top >= rows) {
+			return false;
+		}
+		
+		for (int r=bottom; r<=top; r++) {
+			if ((p.getRowMask(s, r-bottom) << left & occupancy[r]) != 0) {
 				return false;
 			}
 		}
 		return true;
 	}
 	
+	/**
+	 * Get the x-coordinate Tetrominos are spawned at
+	 * @return, spawn x-coordinate
+	 */
+	public int getSpawnX() {
+		return spawn_pos_x;
+	}
+	
+	/**
+	 * Get the y-coordinate Tetrominos are spawned at
+	 * @return, spawn y-coordinate
+	 */
+	public int getSpawnY() {
+		return spawn_pos_y;
+	}
+	
 	/**
 	 * Get the spawn position for a Piece
 	 * @param p, piece to get spawn position
 	 */
-	@Override
 	public Vector2D getSpawnPos(Piece p) {
 		switch (p) {
 		default:
@@ -256,53 +651,140 @@ public class Playfield extends GridCanvas {
 	}
 	
 	/**
-	 * Create a background image for the Playfield
+	 * Most bytes written by writeState i.e. every cell in a
+	 * falling Polyomino of its own
+	 * @return, bytes
 	 */
-	private void createBackground() {
-		Rectangle background = new Rectangle(pos.getAbsX(), pos.getAbsY(), width, height);
-		background.setFill(Color.BLACK);
-		background.setStrokeWidth(5);
-		background.setStroke(Color.DARKGREY);
-		this.getChildren().add(background);
-
-		for (int i=0; i<cols; i++) {
-			Line l = new Line(pos.getAbsX()+getGridWidth()*i, pos.getAbsY(), pos.getAbsX()+getGridWidth()*i, pos.getAbsY()+height);
-			l.setStroke(Color.DARKGREY);
-			this.getChildren().add(l);
+	public int stateSize() {
+		return rows*4 + rows*cols + 10 + 2 + rows*cols*7;
+	}
+	
+	/**
+	 * Write the grid, the active Tetromino and the falling Polyominos
+	 * @param b, buffer to write to
+	 */
+	public void writeState(ByteBuffer b) {
+		for (int r=0; r<rows; r++) {
+			b.putInt(occupancy[r]);
 		}
-
-		for (int i=0; i<rows-1; i++) {
-			Line l = new Line(pos.getAbsX(), pos.getAbsY()+getGridHeight()*i, pos.getAbsX()+width, pos.getAbsY()+getGridHeight()*i);
-			l.setStroke(Color.DARKGREY);
-			this.getChildren().add(l);
+		b.put(colors);
+		
+		if (active_piece == null) {
+			b.put((byte) -1);
+		}
+		else {
+			b.put((byte) active_piece.piece.ordinal());
+			b.put((byte) active_piece.getRotState().ordinal());
+			b.putInt(active_piece.getX());
+			b.putInt(active_piece.getY());
+		}
+		
+		b.putShort((short) polyominos.size());
+		for (int i=0; i<polyominos.size(); i++) {
+			Mino[] ms = polyominos.get(i).minos;
+			b.putShort((short) ms.length);
+			for (Mino m: ms) {
+				b.putShort((short) m.pos.getAbsX());
+				b.putShort((short) m.pos.getAbsY());
+				b.put(m.getColorCode());
+			}
 		}
 	}
 	
 	/**
-	 * Get the current state of a Playfield's grid, thus it needs to add any 
+	 * Read the state written by writeState. The active Tetromino and
+	 * Polyominos are reused where they match in shape, so restoring a
+	 * nearby state doesn't allocate.
+	 * @param b, buffer to read from
+	 */
+	public void readState(ByteBuffer b) {
+		Arrays.fill(columns, 0);
+		for (int r=0; r<rows; r++) {
+			occupancy[r] = b.getInt();
+			for (int mask=occupancy[r]; mask != 0; mask &= mask-1) {
+				columns[Integer.numberOfTrailingZeros(mask)] |= 1L << r;
+			}
+		}
+		b.get(colors);
+		grid_changes++;
+		
+		int piece = b.get();
+		if (piece < 0) {
+			active_piece = null;
+		}
+		else {
+			RotateState s = ROTATE_STATES[b.get()];
+			int x = b.getInt();
+			int y = b.getInt();
+			if (active_piece == null || active_piece.piece != PIECES[piece]) {
+				if (spare_pieces[piece] == null) {
+					spare_pieces[piece] = PIECES[piece].create(this);
+				}
+				active_piece = spare_pieces[piece];
+			}
+			active_piece.setState(s, x, y);
+		}
+		
+		int count = b.getShort();
+		for (int i=0; i<count; i++) {
+			int n = b.getShort();
+			Polyomino p = (i < polyominos.size()) ? polyominos.get(i): null;
+			if (p == null || p.minos.length != n) {
+				Mino[] ms = new Mino[n];
+				for (int j=0; j<n; j++) {
+					ms[j] = new Mino(new Vector2D(0, 0));
+				}
+				p = new Polyomino(ms);
+				if (i < polyominos.size()) {
+					polyominos.set(i, p);
+				}
+				else {
+					polyominos.add(p);
+				}
+			}
+			for (Mino m: p.minos) {
+				int x = b.getShort();
+				int y = b.getShort();
+				m.setPos(x, y);
+				m.setColorCode(b.get());
+			}
+		}
+		while (polyominos.size() > count) {
+			polyominos.remove(polyominos.size()-1);
+		}
+	}
+	
+	/**
+	 * Get the current state of a Playfield's grid, thus it needs to add any
 	 * Tetrominos or Polyominos.
 	 * Used for debugging, console printing or if following strict MVC.
-	 * @return, grid of Minoes
+	 * @return, grid of color codes (0 if free)
 	 */
-	public Mino[][] getDrawGrid() {
-		// Create a deep copy of the grid
-		Mino[][] draw_grid = new Mino[rows][cols]; 
+	public byte[][] getDrawGrid() {
+		return getDrawGrid(new byte[rows][cols]);
+	}
+	
+	/**
+	 * Draw the current state of a Playfield's grid into a grid that is
+	 * reused between calls rather than copied each time
+	 * @param draw_grid, grid of rows x cols to fill
+	 * @return, draw_grid filled with color codes (0 if free)
+	 */
+	public byte[][] getDrawGrid(byte[][] draw_grid) {
 		for (int r=0; r<rows; r++) {
-			for (int c=0; c<cols; c++) {
-				draw_grid[r][c] = grid[r][c];
-			}
+			System.arraycopy(colors, r*cols, draw_grid[r], 0, cols);
 		}
 		// Add Tetromino (active piece) for drawing
 		if (active_piece != null) {
 			for (Mino m: active_piece.minos) {
-				draw_grid[(int)(active_piece.getPos().getY() + m.pos.getY())][(int)(active_piece.getPos().getX() + m.pos.getX())] = m; 
+				draw_grid[(int) m.pos.getAbsY()][(int) m.pos.getAbsX()] = m.getColorCode();
 			}
 		}
 		
 		// Add Polyominos
 		for (Polyomino p: polyominos) {
 			for (Mino m: p.minos) {
-				draw_grid[(int) m.pos.getY()][(int) m.pos.getX()] = m;
+				draw_grid[(int) m.pos.getAbsY()][(int) m.pos.getAbsX()] = m.getColorCode();
 			}
 		}
 		return draw_grid;
@@ -312,10 +794,10 @@ public class Playfield extends GridCanvas {
 	 * Console draw a Playfield's grid
 	 * @param grid, grid to draw
 	 */
-	public static void consoleDraw(Mino[][] grid) {
+	public static void consoleDraw(byte[][] grid) {
 		for (int row=grid.length-1; row>=0; row--) {
 			for (int col=0; col<grid[row].length; col++) {
-				if (grid[row][col] != null) {
+				if (grid[row][col] != 0) {
 					System.out.print("*");
 				}
 				else {
@@ -325,4 +807,4 @@ public class Playfield extends GridCanvas {
 			System.out.print("\n");
 		}
 	}
-}
\ No newline at end of file
+}
@@ -33,14 +33,4 @@ public class Polyomino implements Movable {
 			m.move(vx, vy);
 		}
 	}
-	
-	/**
-	 * Sets the visibility of a Polyomino
-	 * @param b, visible if true
-	 */
-	public void setVisible(boolean b) {
-		for (Mino m: minos) {
-			m.setVisible(b);
-		}
-	}
 }
\ No newline at end of file
@@ -1,62 +1,106 @@
 package model;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * RandomGenerator
  * @author Josh Chia
- * 
- * An enumeration generic implementation of the BPS Random Generator 
+ *
+ * An enumeration generic implementation of the BPS Random Generator
  * that conforms to the Tetris Guideline.
- * 
+ *
  * Uses a buffer to adequately match the the look ahead needed by
- * PiecePreview whilst staying true to the Guideline.
- * 
+ * PiecePreview whilst staying true to the Guideline. The buffer is a
+ * fixed ring that bags are shuffled straight into, so generating and
+ * previewing Pieces does not copy the sequence.
+ *
+ * Randomness comes from a seeded SplitMix64 generator so that the same
+ * seed always produces the same sequence (replays, lockstep games,
+ * benchmarks). Independent streams can be forked with split(), which
+ * doesn't draw from the generator so the sequence isn't changed by it.
+ *
  */
 
 public class RandomGenerator<T extends Enum<T>> {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final long SPLIT_GAMMA = 0xda942042e4dd58b5L;
+	
 	int buffer_size;
 	Class<T> enum_type;
-	Stack<T> sequence;
+	
+	// Ring buffer of the upcoming sequence
+	private T[] bag;
+	private T[] queue;
+	private int head, size;
+	
+	// Generator state
+	private long seed;
+	private long state;
+	private int splits;
+	
+	// Read-only view of the upcoming Pieces (see getPreviewList)
+	private final List<T> preview = new AbstractList<T>() {
+		@Override
+		public T get(int i) {
+			if (i < 0 || i >= buffer_size) {
+				throw new IndexOutOfBoundsException("Preview index: " + i);
+			}
+			return queue[(head+i) % queue.length];
+		}
+		
+		@Override
+		public int size() {
+			return buffer_size;
+		}
+	};
 	
 	/**
-	 * Construct a BPS random generator
+	 * Construct a BPS random generator with a random seed
 	 * @param e, the bag to randomly pick from
 	 * @param bs, the buffer to maintain for previewing
 	 */
 	public RandomGenerator(Class<T> e, int bs) {
-		buffer_size = (bs<=0) ? 1: bs;
-		enum_type = e;
-		sequence = new Stack<T>();
-		appendSequence();
+		this(e, bs, randomSeed());
 	}
 	
 	/**
-	 * Generate a BPS random sequence using Collections interface.
-	 * Collections interface employs Fisher-Yates for shuffle.
-	 * @return, randomised list of enums
+	 * Construct a BPS random generator
+	 * @param e, the bag to randomly pick from
+	 * @param bs, the buffer to maintain for previewing
+	 * @param s, seed of the sequence
 	 */
-	public List<T> randomSequence() {
-		List<T> sequence = new ArrayList<T>(Arrays.asList(enum_type.getEnumConstants()));
-		Collections.shuffle(sequence);
-		return sequence;
+	public RandomGenerator(Class<T> e, int bs, long s) {
+		buffer_size = (bs<=0) ? 1: bs;
+		enum_type = e;
+		seed = s;
+		state = s;
+		
+		bag = e.getEnumConstants();
+		queue = Arrays.copyOf(bag, buffer_size + bag.length);
+		head = 0;
+		size = 0;
+		while (size <= buffer_size) {
+			appendSequence();
+		}
 	}
 	
 	/**
 	 * Get the next Piece in sequence
-	 * Extend the sequence if needed to maintain the amount 
+	 * Extend the sequence if needed to maintain the amount
 	 * to look ahead (preview)
 	 * @return, next Piece
 	 */
 	public T next() {
-		if (sequence.size() <= buffer_size) {
+		if (size <= buffer_size) {
 			appendSequence();
 		}
-		return sequence.pop();
+		T t = queue[head];
+		head = (head+1) % queue.length;
+		size--;
+		return t;
 	}
 	
 	/**
@@ -64,30 +108,129 @@ public class RandomGenerator<T extends Enum<T>> {
 	 * @return, next Piece
 	 */
 	public T peek() {
-		return sequence.peek(); 
+		return queue[head];
 	}
 	
 	/**
-	 * Get list of the Pieces to preview
-	 * @return, list of upcoming Pieces 
+	 * Get list of the Pieces to preview.
+	 * The list is a read-only view of the buffer (not a copy) so it
+	 * reflects the sequence as it is advanced by next().
+	 * @return, list of upcoming Pieces
 	 */
 	public List<T> getPreviewList() {
-		List<T> preview = new ArrayList<T>(buffer_size);
-		
-		for (int i=0; i<buffer_size; i++) {
-			preview.add(i, sequence.elementAt(sequence.size()-1-i));
-		}
-		
 		return preview;
 	}
 	
 	/**
-	 * Extend the random sequence
+	 * Get the seed the sequence was generated from
+	 * @return, seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Bytes written by writeState
+	 * @return, bytes
+	 */
+	public int stateSize() {
+		return 8 + 8 + 4 + 4 + 4 + queue.length;
+	}
+	
+	/**
+	 * Write the seed, the generator state, the number of splits and
+	 * the upcoming sequence
+	 * @param b, buffer to write to
+	 */
+	public void writeState(ByteBuffer b) {
+		b.putLong(seed);
+		b.putLong(state);
+		b.putInt(splits);
+		b.putInt(head);
+		b.putInt(size);
+		for (T t: queue) {
+			b.put((byte) ((t == null) ? -1: t.ordinal()));
+		}
+	}
+	
+	/**
+	 * Read the state written by writeState
+	 * @param b, buffer to read from
+	 */
+	public void readState(ByteBuffer b) {
+		seed = b.getLong();
+		state = b.getLong();
+		splits = b.getInt();
+		head = b.getInt();
+		size = b.getInt();
+		for (int i=0; i<queue.length; i++) {
+			int t = b.get();
+			queue[i] = (t < 0) ? null: bag[t];
+		}
+	}
+	
+	/**
+	 * Fork an independent generator, its sequence is determined by
+	 * this generator's seed and how many times it has been split. The
+	 * sequence of this generator is unchanged.
+	 * @return, new generator of the same bag and buffer size
+	 */
+	public RandomGenerator<T> split() {
+		splits++;
+		return new RandomGenerator<T>(enum_type, buffer_size, mix64(seed + splits*SPLIT_GAMMA));
+	}
+	
+	/**
+	 * Extend the random sequence with a shuffled bag (Fisher-Yates),
+	 * written straight into the ring buffer
 	 */
 	private void appendSequence() {
-		Stack<T> s = new Stack<T>();
-		s.addAll(randomSequence());
-		s.addAll(sequence);
-		sequence = s;
+		int tail = (head+size) % queue.length;
+		
+		for (int i=0; i<bag.length; i++) {
+			queue[(tail+i) % queue.length] = bag[i];
+		}
+		for (int i=bag.length-1; i>0; i--) {
+			int j = nextInt(i+1);
+			int a = (tail+i) % queue.length;
+			int b = (tail+j) % queue.length;
+			T t = queue[a];
+			queue[a] = queue[b];
+			queue[b] = t;
+		}
+		size += bag.length;
+	}
+	
+	/**
+	 * Uniform random integer in [0, bound)
+	 * @param bound, exclusive upper bound
+	 * @return, random integer
+	 */
+	private int nextInt(int bound) {
+		int r = (int) (mix64(nextSeed()) >>> 33);
+		int m = bound-1;
+		for (int u = r; u - (r = u % bound) + m < 0; u = (int) (mix64(nextSeed()) >>> 33));
+		return r;
+	}
+	
+	private long nextSeed() {
+		return state += GOLDEN_GAMMA;
+	}
+	
+	/**
+	 * SplitMix64 finalizer
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Seed for generators that aren't given one
+	 * @return, seed from the system clocks
+	 */
+	public static long randomSeed() {
+		return mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime());
 	}
-}
\ No newline at end of file
+}
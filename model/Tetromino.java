@@ -64,6 +64,22 @@ public class Tetromino extends Polyomino implements Rotatable {
     	return pos;
     }
     
+    /**
+     * Get the current x-coordinate in the grid
+     * @return, x-coordinate
+     */
+    public int getX() {
+    	return (int) pos.getAbsX();
+    }
+    
+    /**
+     * Get the current y-coordinate in the grid
+     * @return, y-coordinate
+     */
+    public int getY() {
+    	return (int) pos.getAbsY();
+    }
+    
     /**
      * Set the vector position of the Tetromino
      * @param px, x-coordinate
@@ -73,6 +89,21 @@ public class Tetromino extends Polyomino implements Rotatable {
     	pos.setXY(px, py);
     }
     
+    /**
+     * Put the Tetromino in a state of rotation and position, as if it
+     * had been rotated and moved there (used to restore a Game's state)
+     * @param s, state of rotation
+     * @param px, x-coordinate
+     * @param py, y-coordinate
+     */
+    void setState(RotateState s, int px, int py) {
+    	for (int i=0; i<minos.length; i++) {
+    		minos[i].setPos(piece.getMinoX(s, i), piece.getMinoY(s, i));
+    	}
+    	setPos(px, py);
+    	rot_state = s;
+    }
+    
     /**
      * Moves Tetromino 
      * @vx, amount to move along x-axis
@@ -81,9 +112,6 @@ public class Tetromino extends Polyomino implements Rotatable {
     @Override
     public void move(int vx, int vy) {
 		pos.adjustXY(vx, vy);
-		for(Mino m: minos) {
-			m.grid_canvas.updateDrawState(m);
-		}
 	}
     
     /**
@@ -1,6 +1,6 @@
 package model;
 
-import game.GridCanvas;
+import data_types.Vector2D;
 
 /**
  * TetrominoFactory
@@ -12,9 +12,9 @@ import game.GridCanvas;
 
 public interface TetrominoFactory<T> {
 	/**
-	 * Creates a Tetromino in a Grid Canvas
-	 * @param gc, the grid canvas to place the Tetromino
+	 * Creates a Tetromino at a position
+	 * @param pos, position vector to place the Tetromino
 	 * @return, Tetromino instance
 	 */
-	public Tetromino create(GridCanvas gc);
-}
\ No newline at end of file
+	public Tetromino create(Vector2D pos);
+}
@@ -0,0 +1,59 @@
+package net;
+
+import game.Game;
+import game.GameLoop;
+
+import java.io.IOException;
+
+/**
+ * RollbackLoop
+ * @author Josh Chia
+ * 
+ * GameLoop that plays the Games of a RollbackSession, advancing the
+ * session once per frame. Frames stalled waiting for the peer are not
+ * caught up later, the loop just repeats the last snapshots.
+ *
+ */
+public class RollbackLoop extends GameLoop {
+	private final RollbackSession session;
+	private boolean failed = false;
+	
+	/**
+	 * Construct a loop over a session
+	 * @param gs, Games of the session, in the order of their players
+	 * @param s, session
+	 * @param fps, frames per second
+	 */
+	public RollbackLoop(Game[] gs, RollbackSession s, int fps) {
+		super(gs, fps);
+		session = s;
+	}
+	
+	@Override
+	protected void step() {
+		if (failed) {
+			return;
+		}
+		try {
+			session.advance();
+		}
+		catch (IOException e) {
+			System.err.println("Network game stopped: " + e.getMessage());
+			failed = true;
+		}
+	}
+	
+	/**
+	 * Stop the loop and close the session's Transport
+	 */
+	@Override
+	public void stop() {
+		super.stop();
+		try {
+			session.close();
+		}
+		catch (IOException e) {
+			System.err.println("Could not close the network game: " + e.getMessage());
+		}
+	}
+}
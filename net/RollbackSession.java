@@ -0,0 +1,510 @@
+package net;
+
+import game.Controller;
+import game.Game;
+import game.GameState;
+import game.InputSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import metrics.EngineMetrics;
+
+import data_types.InputType;
+
+/**
+ * RollbackSession
+ * @author Josh Chia
+ * 
+ * Runs a two player game between peers over an unreliable Transport
+ * with rollback netcode.
+ * 
+ * Each peer runs both Games. The inputs of a frame are a bitmask of
+ * InputTypes. Local inputs are scheduled a fixed input delay ahead and
+ * sent to the peer every frame. A packet carries every input the peer
+ * hasn't acknowledged, so lost packets are covered by the next one.
+ * The peer's inputs that haven't arrived are predicted to be empty
+ * (inputs are key presses and releases, not held keys, and a held
+ * shift repeats within the Game's state, see AutoRepeat). The state
+ * of both Games is saved every frame (see GameState). When an input
+ * arrives for a frame already played and differs from the prediction,
+ * both Games are restored to that frame and resimulated up to the
+ * present.
+ * 
+ * The inputs of a frame are given to the Game in the order of their
+ * ordinals, so the order they were given in is lost. Where that order
+ * matters (a press and release of the same shift, or presses of both
+ * shifts) the later input is deferred to the next frame.
+ * 
+ * A session predicts at most MAX_PREDICTION frames ahead of the peer's
+ * inputs. Past that it stalls until they arrive.
+ * 
+ * The host offers the seed of the Games (host) and the other peer
+ * accepts it (join) before their sessions are started.
+ *
+ */
+public class RollbackSession implements InputSink, Closeable {
+	/** Most frames played ahead of the peer's inputs */
+	public static final int MAX_PREDICTION = 8;
+	
+	/** Most frames of input delay */
+	public static final int MAX_DELAY = 15;
+	
+	private static final int STATES = 16; // frames of state kept, more than MAX_PREDICTION
+	private static final int INPUT_WINDOW = 128; // frames of inputs kept, a power of 2
+	private static final long HELLO_INTERVAL = 100; // ms between offers of the seed
+	
+	// Packet format: magic, type then the message
+	private static final int MAGIC = 0x4a46584e; // "JFXN"
+	private static final byte HELLO = 1; // seed
+	private static final byte HELLO_ACK = 2;
+	private static final byte INPUTS = 3; // ack, first frame, count, masks
+	private static final int PACKET_SIZE = 4 + 1 + 4 + 4 + 2 + INPUT_WINDOW*2;
+	
+	private static final InputType[] INPUT_TYPES = InputType.values();
+	
+	// Frames of local inputs pending, 16 bits of a long each
+	private static final int PENDING_FRAMES = 4;
+	
+	// Inputs whose order matters with each input, by ordinal
+	private static final int[] CONFLICTS = new int[INPUT_TYPES.length];
+	static {
+		conflict(InputType.SHIFT_LEFT, InputType.RELEASE_LEFT);
+		conflict(InputType.SHIFT_RIGHT, InputType.RELEASE_RIGHT);
+		conflict(InputType.SHIFT_LEFT, InputType.SHIFT_RIGHT);
+	}
+	
+	private final Game[] games;
+	private final int local, remote;
+	private final int delay;
+	private final Transport transport;
+	
+	// State of both Games at the start of each of the last STATES frames
+	private final GameState[][] states;
+	
+	// Input masks of each player for the last INPUT_WINDOW frames
+	private final short[][] inputs;
+	
+	// Local input masks given since the last frame, from any thread,
+	// the next frame scheduled in the low 16 bits and deferred ones above
+	private final AtomicLong pending = new AtomicLong();
+	
+	private final ByteBuffer in_packet = ByteBuffer.allocate(PACKET_SIZE);
+	private final ByteBuffer out_packet = ByteBuffer.allocate(PACKET_SIZE);
+	
+	private int frame = 0; // next frame to play
+	private int local_last; // last frame with a local input
+	private int remote_confirmed = -1; // last frame the peer's inputs are known up to
+	private int remote_ack = -1; // last frame of local inputs the peer has
+	private int rollback_to = Integer.MAX_VALUE; // earliest mispredicted frame
+	private volatile boolean connected = false;
+	private volatile long rollbacks = 0, resimulated = 0, stalls = 0;
+	
+	/**
+	 * Construct a session over two Games at frame 0, which it becomes
+	 * the Controller of
+	 * @param gs, Games of player 0 (host) and player 1, of the same size
+	 * @param player, local player (0 or 1)
+	 * @param t, Transport to the peer
+	 * @param d, frames of input delay [0, MAX_DELAY]
+	 */
+	public RollbackSession(Game[] gs, int player, Transport t, int d) {
+		if (gs.length != 2 || (player != 0 && player != 1)) {
+			throw new IllegalArgumentException("A session is between two players");
+		}
+		if (d < 0 || d > MAX_DELAY) {
+			throw new IllegalArgumentException("Input delay must be 0 to " + MAX_DELAY + " frames");
+		}
+		games = gs;
+		local = player;
+		remote = 1-player;
+		delay = d;
+		transport = t;
+		local_last = delay-1;
+		
+		inputs = new short[games.length][INPUT_WINDOW];
+		states = new GameState[STATES][games.length];
+		for (int i=0; i<games.length; i++) {
+			if (games[i].getFrameCount() != 0) {
+				throw new IllegalArgumentException("Games must be at frame 0");
+			}
+			games[i].setController(new PlayerInputs(i));
+			for (int s=0; s<STATES; s++) {
+				states[s][i] = new GameState(games[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Gives a player's inputs for each frame to their Game
+	 */
+	private class PlayerInputs implements Controller {
+		private final int player;
+		
+		private PlayerInputs(int p) {
+			player = p;
+		}
+		
+		@Override
+		public void update(Game game) {
+			int mask = inputMask(player, game.getFrameCount());
+			for (int i=0; mask != 0; i++, mask >>>= 1) {
+				if ((mask & 1) != 0) {
+					game.input(INPUT_TYPES[i]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Give a local input for the next frame scheduled, repeats of an
+	 * input within a frame count once. It is deferred a frame if an
+	 * input whose order matters with it is already given for the frame.
+	 * Safe to call from any thread
+	 * @param in, input
+	 */
+	@Override
+	public void offer(InputType in) {
+		long masks, next;
+		do {
+			masks = pending.get();
+			// After the last frame with an input, to keep them in order
+			int f = (masks == 0) ? 0: (63 - Long.numberOfLeadingZeros(masks)) / 16;
+			if (((masks >>> f*16) & CONFLICTS[in.ordinal()]) != 0 && f < PENDING_FRAMES-1) {
+				f++;
+			}
+			next = masks | 1L << (f*16 + in.ordinal());
+		} while (!pending.compareAndSet(masks, next));
+	}
+	
+	/**
+	 * Take the local inputs of the next frame scheduled
+	 * @return, bitmask of InputType ordinals
+	 */
+	private short takePending() {
+		long masks;
+		do {
+			masks = pending.get();
+		} while (!pending.compareAndSet(masks, masks >>> 16));
+		return (short) masks;
+	}
+	
+	/**
+	 * Play the next frame if the peer's inputs aren't too far behind,
+	 * after receiving their inputs (rolling back if needed) and sending ours
+	 * @return, true if the frame was played, false if stalled
+	 * @throws IOException, if the Transport fails
+	 */
+	public boolean advance() throws IOException {
+		receive();
+		
+		boolean ready = frame - remote_confirmed <= MAX_PREDICTION
+				&& frame + delay - remote_ack < INPUT_WINDOW;
+		if (ready) {
+			local_last = frame + delay;
+			inputs[local][local_last & (INPUT_WINDOW-1)] = takePending();
+		}
+		send();
+		
+		if (!ready) {
+			stalls++;
+			EngineMetrics.NET_STALLS.increment();
+			return false;
+		}
+		simulate();
+		return true;
+	}
+	
+	/**
+	 * Receive the peer's inputs (rolling back if needed) and send ours
+	 * without playing a frame e.g. while waiting at the end of a game
+	 * @throws IOException, if the Transport fails
+	 */
+	public void poll() throws IOException {
+		receive();
+		send();
+	}
+	
+	/**
+	 * Get the next frame to be played
+	 * @return, frame
+	 */
+	public int getFrame() {
+		return frame;
+	}
+	
+	/**
+	 * Get the last frame the peer's inputs are known up to, frames
+	 * after it were played on predicted inputs
+	 * @return, frame or -1 if none
+	 */
+	public int getConfirmedFrame() {
+		return remote_confirmed;
+	}
+	
+	/**
+	 * Check if a packet of inputs has arrived from the peer
+	 * @return, true if connected
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+	
+	/**
+	 * Get the number of rollbacks so far
+	 * @return, rollbacks
+	 */
+	public long getRollbacks() {
+		return rollbacks;
+	}
+	
+	/**
+	 * Get the number of frames resimulated by rollbacks so far
+	 * @return, frames
+	 */
+	public long getResimulatedFrames() {
+		return resimulated;
+	}
+	
+	/**
+	 * Get the number of frames stalled waiting for the peer so far
+	 * @return, frames
+	 */
+	public long getStalls() {
+		return stalls;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		transport.close();
+	}
+	
+	/**
+	 * Get the input mask of a player for a frame, the peer's inputs
+	 * that haven't arrived are predicted to be empty
+	 * @param player, player
+	 * @param f, frame
+	 * @return, bitmask of InputType ordinals
+	 */
+	private int inputMask(int player, int f) {
+		if (player == remote && f > remote_confirmed) {
+			return 0;
+		}
+		return inputs[player][f & (INPUT_WINDOW-1)];
+	}
+	
+	/**
+	 * Save the state of the Games and play a frame
+	 */
+	private void simulate() {
+		GameState[] saved = states[frame % STATES];
+		for (int i=0; i<games.length; i++) {
+			saved[i].save(games[i]);
+		}
+		for (Game g: games) {
+			g.updateGame(1);
+		}
+		frame++;
+	}
+	
+	/**
+	 * Restore the Games to the earliest mispredicted frame and play
+	 * them again up to the present with the inputs now known
+	 */
+	private void rollback() {
+		int from = rollback_to;
+		int to = frame;
+		rollback_to = Integer.MAX_VALUE;
+		if (to - from >= STATES) {
+			throw new IllegalStateException("Can't roll back " + (to-from) + " frames");
+		}
+		
+		GameState[] saved = states[from % STATES];
+		for (int i=0; i<games.length; i++) {
+			saved[i].restore(games[i]);
+		}
+		frame = from;
+		while (frame < to) {
+			simulate();
+		}
+		rollbacks++;
+		resimulated += to-from;
+		EngineMetrics.ROLLBACK_FRAMES.record(to-from);
+	}
+	
+	/**
+	 * Receive every packet that has arrived, then roll back if an input
+	 * differs from its prediction
+	 * @throws IOException, if the Transport fails
+	 */
+	private void receive() throws IOException {
+		while (transport.receive(in_packet)) {
+			if (in_packet.remaining() < 5 || in_packet.getInt() != MAGIC) {
+				continue;
+			}
+			switch (in_packet.get()) {
+			case HELLO:
+				// The host missed our acknowledgement
+				sendMessage(transport, HELLO_ACK, out_packet);
+				break;
+			case INPUTS:
+				readInputs(in_packet);
+				connected = true;
+				break;
+			default:
+				break;
+			}
+		}
+		if (rollback_to < frame) {
+			rollback();
+		}
+	}
+	
+	/**
+	 * Read a packet of the peer's inputs, only extending the inputs
+	 * known without a gap
+	 * @param b, packet after its type
+	 */
+	private void readInputs(ByteBuffer b) {
+		if (b.remaining() < 10) {
+			return;
+		}
+		int ack = b.getInt();
+		int start = b.getInt();
+		int count = b.getShort();
+		if (count*2 > b.remaining()) {
+			return;
+		}
+		remote_ack = Math.max(remote_ack, Math.min(ack, local_last));
+		
+		for (int i=0; i<count; i++) {
+			int f = start + i;
+			short mask = b.getShort();
+			if (f <= remote_confirmed) {
+				continue;
+			}
+			if (f != remote_confirmed+1 || f - frame >= INPUT_WINDOW - STATES) {
+				break;
+			}
+			inputs[remote][f & (INPUT_WINDOW-1)] = mask;
+			remote_confirmed = f;
+			if (f < frame && mask != 0) {
+				rollback_to = Math.min(rollback_to, f);
+			}
+		}
+	}
+	
+	/**
+	 * Send the local inputs the peer hasn't acknowledged, and
+	 * acknowledge theirs
+	 * @throws IOException, if the Transport fails
+	 */
+	private void send() throws IOException {
+		int start = remote_ack+1;
+		int count = Math.max(0, local_last - start + 1);
+		
+		out_packet.clear();
+		out_packet.putInt(MAGIC);
+		out_packet.put(INPUTS);
+		out_packet.putInt(remote_confirmed);
+		out_packet.putInt(start);
+		out_packet.putShort((short) count);
+		for (int f=start; f<start+count; f++) {
+			out_packet.putShort(inputs[local][f & (INPUT_WINDOW-1)]);
+		}
+		out_packet.flip();
+		transport.send(out_packet);
+	}
+	
+	/**
+	 * Offer the seed of the Games to the peer until it accepts, the
+	 * host's side of connecting
+	 * @param t, Transport to the peer
+	 * @param seed, seed of both Games
+	 * @param timeout, milliseconds to wait for the peer
+	 * @throws IOException, if the peer doesn't accept in time
+	 */
+	public static void host(Transport t, long seed, long timeout) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(PACKET_SIZE);
+		long start = System.nanoTime();
+		long offered = start - TimeUnit.MILLISECONDS.toNanos(HELLO_INTERVAL);
+		
+		while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(timeout)) {
+			if (System.nanoTime() - offered >= TimeUnit.MILLISECONDS.toNanos(HELLO_INTERVAL)) {
+				b.clear();
+				b.putInt(MAGIC);
+				b.put(HELLO);
+				b.putLong(seed);
+				b.flip();
+				t.send(b);
+				offered = System.nanoTime();
+			}
+			while (t.receive(b)) {
+				// Inputs mean the peer has started, so its acknowledgement was lost
+				if (b.remaining() >= 5 && b.getInt() == MAGIC) {
+					byte type = b.get();
+					if (type == HELLO_ACK || type == INPUTS) {
+						return;
+					}
+				}
+			}
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		throw new SocketTimeoutException("No peer joined within " + timeout + "ms");
+	}
+	
+	/**
+	 * Wait for the host to offer the seed of the Games and accept it,
+	 * the other peer's side of connecting
+	 * @param t, Transport to the host
+	 * @param timeout, milliseconds to wait for the host
+	 * @return, seed of both Games
+	 * @throws IOException, if the host doesn't offer in time
+	 */
+	public static long join(Transport t, long timeout) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(PACKET_SIZE);
+		long start = System.nanoTime();
+		
+		while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(timeout)) {
+			while (t.receive(b)) {
+				if (b.remaining() >= 13 && b.getInt() == MAGIC && b.get() == HELLO) {
+					long seed = b.getLong();
+					sendMessage(t, HELLO_ACK, b);
+					return seed;
+				}
+			}
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		throw new SocketTimeoutException("No host offered a game within " + timeout + "ms");
+	}
+	
+	/**
+	 * Record that the order of two inputs within a frame matters
+	 * @param a, input
+	 * @param b, other input
+	 */
+	private static void conflict(InputType a, InputType b) {
+		CONFLICTS[a.ordinal()] |= 1 << b.ordinal();
+		CONFLICTS[b.ordinal()] |= 1 << a.ordinal();
+	}
+	
+	/**
+	 * Send a message without a body
+	 * @param t, Transport to the peer
+	 * @param type, type of message
+	 * @param b, buffer to write it in
+	 * @throws IOException, if the Transport fails
+	 */
+	private static void sendMessage(Transport t, byte type, ByteBuffer b) throws IOException {
+		b.clear();
+		b.putInt(MAGIC);
+		b.put(type);
+		b.flip();
+		t.send(b);
+	}
+}
@@ -0,0 +1,111 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * SimulatedTransport
+ * @author Josh Chia
+ * 
+ * Wraps a Transport to simulate a bad network for testing: each packet
+ * sent is lost with a probability, or else held back for the latency
+ * plus a uniformly random jitter. Jitter reorders packets like a real
+ * network would. Held packets are sent by later calls to send or
+ * receive, so the session must keep polling.
+ *
+ */
+public class SimulatedTransport implements Transport {
+	private final Transport transport;
+	private final long latency_nanos, jitter_nanos;
+	private final double loss;
+	private final Random random;
+	private final PriorityQueue<Delayed> held = new PriorityQueue<Delayed>();
+	private long sequence = 0;
+	private int lost = 0;
+	
+	/**
+	 * A packet held until it is due
+	 */
+	private static final class Delayed implements Comparable<Delayed> {
+		private final long due, sequence;
+		private final byte[] data;
+		
+		private Delayed(long d, long s, byte[] bs) {
+			due = d;
+			sequence = s;
+			data = bs;
+		}
+		
+		@Override
+		public int compareTo(Delayed o) {
+			if (due != o.due) {
+				return (due - o.due < 0) ? -1: 1;
+			}
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+	
+	/**
+	 * Construct a simulated network over a Transport
+	 * @param t, Transport that packets are sent on
+	 * @param latency, milliseconds each packet is held back
+	 * @param jitter, most milliseconds added to the latency at random
+	 * @param l, probability of a packet being lost [0, 1]
+	 * @param seed, seed of the losses and jitter
+	 */
+	public SimulatedTransport(Transport t, double latency, double jitter, double l, long seed) {
+		transport = t;
+		latency_nanos = (long) (latency*1e6);
+		jitter_nanos = (long) (jitter*1e6);
+		loss = l;
+		random = new Random(seed);
+	}
+	
+	@Override
+	public void send(ByteBuffer b) throws IOException {
+		if (random.nextDouble() >= loss) {
+			byte[] data = new byte[b.remaining()];
+			b.get(data);
+			long jitter = (jitter_nanos > 0) ? (long) (random.nextDouble()*jitter_nanos): 0;
+			held.add(new Delayed(System.nanoTime() + latency_nanos + jitter, sequence++, data));
+		}
+		else {
+			b.position(b.limit());
+			lost++;
+		}
+		flush();
+	}
+	
+	@Override
+	public boolean receive(ByteBuffer b) throws IOException {
+		flush();
+		return transport.receive(b);
+	}
+	
+	/**
+	 * Send the held packets that are due
+	 * @throws IOException, if one can't be sent
+	 */
+	private void flush() throws IOException {
+		long now = System.nanoTime();
+		while (!held.isEmpty() && held.peek().due - now <= 0) {
+			transport.send(ByteBuffer.wrap(held.poll().data));
+		}
+	}
+	
+	/**
+	 * Get the number of packets lost so far
+	 * @return, packets lost
+	 */
+	public int getLost() {
+		return lost;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		held.clear();
+		transport.close();
+	}
+}
@@ -0,0 +1,31 @@
+package net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Transport
+ * @author Josh Chia
+ * 
+ * Unreliable, unordered datagrams to and from one peer, e.g. UDP.
+ * Packets may be lost, duplicated or reordered, the RollbackSession
+ * copes with all three. Neither method blocks.
+ *
+ */
+public interface Transport extends Closeable {
+	/**
+	 * Send a packet to the peer
+	 * @param b, packet from its position to its limit
+	 * @throws IOException, if it can't be sent
+	 */
+	public void send(ByteBuffer b) throws IOException;
+	
+	/**
+	 * Receive a packet from the peer if one has arrived
+	 * @param b, buffer to receive into, cleared first and flipped after
+	 * @return, true if a packet was received
+	 * @throws IOException, if it can't be received
+	 */
+	public boolean receive(ByteBuffer b) throws IOException;
+}
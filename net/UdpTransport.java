@@ -0,0 +1,98 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * UdpTransport
+ * @author Josh Chia
+ * 
+ * Transport over a non-blocking UDP socket connected to the peer, so
+ * datagrams from anyone else are dropped by the socket.
+ *
+ */
+public class UdpTransport implements Transport {
+	private final DatagramChannel channel;
+	
+	/**
+	 * Bind a socket, it must be connected to the peer before use
+	 * @param port, local port or 0 for any
+	 * @throws IOException, if the socket can't be bound
+	 */
+	public UdpTransport(int port) throws IOException {
+		channel = DatagramChannel.open();
+		try {
+			channel.bind(new InetSocketAddress(port));
+			channel.configureBlocking(false);
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Connect the socket to the peer
+	 * @param peer, address of the peer
+	 * @throws IOException, if it can't be connected
+	 */
+	public void connect(SocketAddress peer) throws IOException {
+		channel.connect(peer);
+	}
+	
+	/**
+	 * Get the local port the socket is bound to
+	 * @return, port
+	 * @throws IOException, if the socket is closed
+	 */
+	public int getLocalPort() throws IOException {
+		return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+	}
+	
+	@Override
+	public void send(ByteBuffer b) throws IOException {
+		try {
+			channel.write(b);
+		}
+		catch (PortUnreachableException e) {
+			// Peer isn't listening yet, the packet is lost like any other
+		}
+	}
+	
+	@Override
+	public boolean receive(ByteBuffer b) throws IOException {
+		b.clear();
+		try {
+			if (channel.read(b) < 0) {
+				return false;
+			}
+		}
+		catch (PortUnreachableException e) {
+			return false;
+		}
+		b.flip();
+		return b.hasRemaining();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	/**
+	 * Parse a peer address
+	 * @param s, host:port
+	 * @return, address
+	 */
+	public static InetSocketAddress parseAddress(String s) {
+		int colon = s.lastIndexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("Expected host:port, not " + s);
+		}
+		return new InetSocketAddress(s.substring(0, colon), Integer.parseInt(s.substring(colon+1)));
+	}
+}
@@ -0,0 +1,82 @@
+package replay;
+
+/**
+ * ArchiveEntry
+ * @author Josh Chia
+ * 
+ * Summary of a Replay in a ReplayArchive, read from the record's
+ * header without decoding the Replay itself e.g. for a leaderboard.
+ *
+ */
+public class ArchiveEntry {
+	private final int id;
+	private final long date;
+	private final int score, lines, frames;
+	private final String player;
+	
+	/**
+	 * Construct an entry, see ReplayArchive.getEntry
+	 * @param i, record id
+	 * @param d, date played (milliseconds since the epoch)
+	 * @param s, score
+	 * @param l, lines cleared
+	 * @param f, frames played
+	 * @param p, player
+	 */
+	ArchiveEntry(int i, long d, int s, int l, int f, String p) {
+		id = i;
+		date = d;
+		score = s;
+		lines = l;
+		frames = f;
+		player = p;
+	}
+	
+	/**
+	 * Get the id of the record in the archive
+	 * @return, id (valid until the archive is compacted)
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Get the date the game was played
+	 * @return, milliseconds since the epoch
+	 */
+	public long getDate() {
+		return date;
+	}
+	
+	/**
+	 * Get the score of the game
+	 * @return, score
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Get the lines cleared in the game
+	 * @return, lines
+	 */
+	public int getLines() {
+		return lines;
+	}
+	
+	/**
+	 * Get the frames played
+	 * @return, frames
+	 */
+	public int getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * Get the player of the game
+	 * @return, player name
+	 */
+	public String getPlayer() {
+		return player;
+	}
+}
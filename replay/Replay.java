@@ -0,0 +1,350 @@
+package replay;
+
+import game.AutoRepeat;
+import game.Game;
+import game.ScriptedController;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import model.Playfield;
+import model.Tetromino;
+import data_types.InputType;
+
+/**
+ * Replay
+ * @author Josh Chia
+ * 
+ * A recorded Game: its dimensions and seed, every input with the frame
+ * it was given on and a hash of the final state. The Game is
+ * deterministic given these, so playing the inputs back through the
+ * engine reproduces it exactly (see play and verify).
+ * 
+ * Binary format (big-endian):
+ *  magic "JFXR", version byte
+ *  varint rows, cols, vanish; 8 byte seed; varint DAS + 1, ARR
+ *  varint flags (1: debris is settled, see Game.setSettleCascades)
+ *  per input: varint (frames since the previous input << 4 | input ordinal)
+ *  end: varint (frames since the last input << 4 | 15); 8 byte state hash
+ * Inputs are a byte or two each, so a game is typically a few KB.
+ * Version 1 replays (no Auto Repeat, inputs << 3 and end 7) and version 2
+ * replays (no flags) are still read.
+ *
+ */
+public class Replay {
+	private static final byte[] MAGIC = {'J', 'F', 'X', 'R'};
+	private static final int VERSION = 3;
+	private static final int SETTLE_CASCADES = 1;
+	private static final int INPUT_BITS = 4;
+	private static final int END = (1 << INPUT_BITS) - 1;
+	private static final int V1_INPUT_BITS = 3;
+	
+	private final int rows, cols, vanish;
+	private final long seed;
+	private final int das, arr;
+	private final boolean settle_cascades;
+	private final int[] frames;
+	private final InputType[] inputs;
+	private final int end_frame;
+	private final long state_hash;
+	
+	/**
+	 * Construct a Replay, see ReplayRecorder
+	 * @param r, number of rows
+	 * @param c, number of cols
+	 * @param v, size of vanish zone
+	 * @param s, seed of the Game
+	 * @param f, frame of each input, ascending
+	 * @param in, inputs
+	 * @param end, frames played
+	 * @param hash, stateHash of the Game after the frames played
+	 */
+	public Replay(int r, int c, int v, long s, int[] f, InputType[] in, int end, long hash) {
+		this(r, c, v, s, AutoRepeat.OFF, 0, false, f, in, end, hash);
+	}
+	
+	/**
+	 * Construct a Replay of a Game with its settings, see ReplayRecorder
+	 * @param r, number of rows
+	 * @param c, number of cols
+	 * @param v, size of vanish zone
+	 * @param s, seed of the Game
+	 * @param d, DAS of the Game or AutoRepeat.OFF
+	 * @param a, ARR of the Game
+	 * @param sc, true if the Game settles debris at once
+	 * @param f, frame of each input, ascending
+	 * @param in, inputs
+	 * @param end, frames played
+	 * @param hash, stateHash of the Game after the frames played
+	 */
+	public Replay(int r, int c, int v, long s, int d, int a, boolean sc, int[] f, InputType[] in, int end, long hash) {
+		if (f.length != in.length) {
+			throw new IllegalArgumentException("Each input needs a frame");
+		}
+		rows = r;
+		cols = c;
+		vanish = v;
+		seed = s;
+		das = (d < 0) ? AutoRepeat.OFF: d;
+		arr = a;
+		settle_cascades = sc;
+		frames = Arrays.copyOf(f, f.length);
+		inputs = Arrays.copyOf(in, in.length);
+		end_frame = end;
+		state_hash = hash;
+	}
+	
+	/**
+	 * Create a Game that plays the Replay's inputs as it is updated
+	 * e.g. to watch it in real time on a GameLoop
+	 * @return, Game at frame 0
+	 */
+	public Game createGame() {
+		Game game = new Game(rows, cols, vanish, seed);
+		game.setAutoRepeat(das, arr);
+		game.setSettleCascades(settle_cascades);
+		game.setController(new ScriptedController(frames, inputs));
+		return game;
+	}
+	
+	/**
+	 * Play the Replay headless, as fast as possible
+	 * @return, Game after the frames played
+	 */
+	public Game play() {
+		Game game = createGame();
+		game.updateGame(end_frame);
+		return game;
+	}
+	
+	/**
+	 * Check the Replay reproduces the recorded Game
+	 * @return, true if playing it ends in the recorded state
+	 */
+	public boolean verify() {
+		return stateHash(play()) == state_hash;
+	}
+	
+	/**
+	 * Hash the state of a Game: every grid, the active Tetromino,
+	 * the held Piece, the score and the frame
+	 * @param g, Game
+	 * @return, hash
+	 */
+	public static long stateHash(Game g) {
+		Playfield pf = g.getPlayfield();
+		long h = 1125899906842597L;
+		for (int r=0; r<pf.getRows(); r++) {
+			for (int c=0; c<pf.getCols(); c++) {
+				h = 31*h + pf.getColor(r, c);
+			}
+		}
+		Tetromino t = pf.active_piece;
+		if (t != null) {
+			h = 31*h + t.piece.ordinal();
+			h = 31*h + t.getRotState().ordinal();
+			h = 31*h + t.getX();
+			h = 31*h + t.getY();
+		}
+		h = 31*h + pf.polyominos.size();
+		h = 31*h + ((g.getHeldPiece() == null) ? -1: g.getHeldPiece().ordinal());
+		h = 31*h + g.getScoreSystem().score;
+		h = 31*h + g.getScoreSystem().lines;
+		h = 31*h + g.getFrameCount();
+		return h;
+	}
+	
+	/**
+	 * Write the Replay in the binary format
+	 * @param os, stream to write to (not closed)
+	 * @throws IOException, if the stream can't be written
+	 */
+	public void write(OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(os);
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		writeVarint(out, rows);
+		writeVarint(out, cols);
+		writeVarint(out, vanish);
+		out.writeLong(seed);
+		writeVarint(out, das + 1);
+		writeVarint(out, arr);
+		writeVarint(out, settle_cascades ? SETTLE_CASCADES: 0);
+		
+		int prev = 0;
+		for (int i=0; i<inputs.length; i++) {
+			writeVarint(out, (long) (frames[i] - prev) << INPUT_BITS | inputs[i].ordinal());
+			prev = frames[i];
+		}
+		writeVarint(out, (long) (end_frame - prev) << INPUT_BITS | END);
+		out.writeLong(state_hash);
+		out.flush();
+	}
+	
+	/**
+	 * Read a Replay in the binary format
+	 * @param is, stream to read from (not closed)
+	 * @return, Replay
+	 * @throws IOException, if the stream can't be read or isn't a Replay
+	 */
+	public static Replay read(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a replay");
+		}
+		int version = in.readUnsignedByte();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported replay version " + version);
+		}
+		int r = (int) readVarint(in);
+		int c = (int) readVarint(in);
+		int v = (int) readVarint(in);
+		long s = in.readLong();
+		int d = AutoRepeat.OFF, a = 0, flags = 0;
+		int bits = V1_INPUT_BITS;
+		if (version > 1) {
+			d = (int) readVarint(in) - 1;
+			a = (int) readVarint(in);
+			bits = INPUT_BITS;
+		}
+		if (version > 2) {
+			flags = (int) readVarint(in);
+		}
+		int end = (1 << bits) - 1;
+		
+		InputType[] types = InputType.values();
+		int[] f = new int[64];
+		InputType[] ins = new InputType[64];
+		int n = 0, frame = 0;
+		while (true) {
+			long event = readVarint(in);
+			int code = (int) (event & end);
+			frame += (int) (event >>> bits);
+			if (code == end) {
+				break;
+			}
+			if (code >= types.length) {
+				throw new IOException("Bad input " + code);
+			}
+			if (n == f.length) {
+				f = Arrays.copyOf(f, n*2);
+				ins = Arrays.copyOf(ins, n*2);
+			}
+			f[n] = frame;
+			ins[n] = types[code];
+			n++;
+		}
+		long hash = in.readLong();
+		return new Replay(r, c, v, s, d, a, (flags & SETTLE_CASCADES) != 0, Arrays.copyOf(f, n), Arrays.copyOf(ins, n), frame, hash);
+	}
+	
+	/**
+	 * Save the Replay to a file
+	 * @param f, file
+	 * @throws IOException, if the file can't be written
+	 */
+	public void save(File f) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(f));
+		try {
+			write(out);
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Load a Replay from a file
+	 * @param f, file
+	 * @return, Replay
+	 * @throws IOException, if the file can't be read or isn't a Replay
+	 */
+	public static Replay load(File f) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(f));
+		try {
+			return read(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Write an unsigned LEB128 varint, 7 bits per byte
+	 * @param out, stream
+	 * @param v, value (not negative)
+	 * @throws IOException, if the stream can't be written
+	 */
+	private static void writeVarint(DataOutputStream out, long v) throws IOException {
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) (v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+	
+	/**
+	 * Read an unsigned LEB128 varint
+	 * @param in, stream
+	 * @return, value
+	 * @throws IOException, if the stream ends or the varint is too long
+	 */
+	private static long readVarint(DataInputStream in) throws IOException {
+		long v = 0;
+		for (int shift=0; shift<64; shift+=7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Replay ends in a varint");
+			}
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return v;
+			}
+		}
+		throw new IOException("Varint too long");
+	}
+	
+	/**
+	 * Get the seed of the Game
+	 * @return, seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Get the number of inputs
+	 * @return, inputs
+	 */
+	public int getInputCount() {
+		return inputs.length;
+	}
+	
+	/**
+	 * Get the frames played
+	 * @return, frames
+	 */
+	public int getEndFrame() {
+		return end_frame;
+	}
+	
+	/**
+	 * Get the hash of the final state of the Game
+	 * @return, stateHash when recorded
+	 */
+	public long getStateHash() {
+		return state_hash;
+	}
+}
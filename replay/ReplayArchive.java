@@ -0,0 +1,512 @@
+package replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * ReplayArchive
+ * @author Josh Chia
+ * 
+ * Append-only file of Replays, read through memory mapping, with
+ * indexes by score, lines, date and player so leaderboards and range
+ * queries never decode a Replay they don't return.
+ * 
+ * File format (big-endian): magic "JFXA", int version, then records of
+ *  int length, int CRC32 of the body, body
+ * where the body is a type byte then either
+ *  REPLAY: long date, int score, int lines, int frames, UTF player, Replay bytes
+ *  DELETE: int id of the record deleted
+ * 
+ * A crash can only leave a partly written record at the end of the
+ * file, on opening the tail is checked and any record that is short
+ * or fails its CRC (and everything after it) is truncated.
+ * 
+ * Records are numbered (ids) in the order they were appended. Deletes
+ * are appended as records, so the space is only reclaimed (and the
+ * ids renumbered) by compact. The indexes are rebuilt from the record
+ * headers on open.
+ *
+ */
+public class ReplayArchive implements Closeable {
+	private static final byte[] MAGIC = {'J', 'F', 'X', 'A'};
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER = MAGIC.length + 4;
+	private static final int RECORD_HEADER = 8;
+	private static final byte REPLAY = 1;
+	private static final byte DELETE = 2;
+	
+	// Largest record body, a Replay of hours of play is well under this
+	private static final int MAX_BODY = 1 << 20;
+	
+	// Bytes mapped per segment, segments overlap by MAX_RECORD so a record is always in one
+	private static final long SEGMENT = 1L << 30;
+	private static final int MAX_RECORD = RECORD_HEADER + MAX_BODY;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long MILLIS_PER_MINUTE = 60*1000;
+	
+	private final File file;
+	private final boolean sync;
+	private FileChannel channel;
+	private long end;
+	private MappedByteBuffer[] segments;
+	
+	// Offset of every record's body, by id
+	private long[] offsets;
+	private int records;
+	private BitSet replays, deleted;
+	
+	// Secondary indexes of the Replays (dates at minute resolution)
+	private final SortedIndex by_score = new SortedIndex();
+	private final SortedIndex by_lines = new SortedIndex();
+	private final SortedIndex by_date = new SortedIndex();
+	private final Map<String, List<Integer>> by_player = new HashMap<String, List<Integer>>();
+	
+	/**
+	 * Open an archive, creating it if it doesn't exist
+	 * @param f, archive file
+	 * @param s, force every append to disk before returning
+	 * @throws IOException, if the file can't be opened or isn't an archive
+	 */
+	public ReplayArchive(File f, boolean s) throws IOException {
+		file = f;
+		sync = s;
+		open();
+	}
+	
+	/**
+	 * Open the file, truncate a torn tail and build the indexes
+	 * @throws IOException, if the file can't be opened or isn't an archive
+	 */
+	private void open() throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segments = new MappedByteBuffer[0];
+		offsets = new long[1024];
+		records = 0;
+		replays = new BitSet();
+		deleted = new BitSet();
+		by_player.clear();
+		by_score.clear();
+		by_lines.clear();
+		by_date.clear();
+		
+		long size = channel.size();
+		if (size < FILE_HEADER) {
+			// New (or torn before the header was written)
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+			header.put(MAGIC).putInt(VERSION).flip();
+			channel.truncate(0);
+			writeFully(header, 0);
+			channel.force(true);
+			end = FILE_HEADER;
+			return;
+		}
+		
+		end = size;
+		ByteBuffer header = read(0, FILE_HEADER);
+		byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a replay archive: " + file);
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported archive version " + version);
+		}
+		
+		long pos = FILE_HEADER;
+		CRC32 crc = new CRC32();
+		while (pos + RECORD_HEADER <= size) {
+			ByteBuffer h = read(pos, RECORD_HEADER);
+			int length = h.getInt();
+			int checksum = h.getInt();
+			if (length <= 0 || length > MAX_BODY || pos + RECORD_HEADER + length > size) {
+				break;
+			}
+			ByteBuffer body = read(pos + RECORD_HEADER, length);
+			crc.reset();
+			crc.update(body.duplicate());
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			index(pos + RECORD_HEADER, body);
+			pos += RECORD_HEADER + length;
+		}
+		
+		if (pos < size) {
+			// Torn tail from a crash during an append
+			channel.truncate(pos);
+			channel.force(true);
+			segments = new MappedByteBuffer[0];
+		}
+		end = pos;
+	}
+	
+	/**
+	 * Append a Replay
+	 * @param replay, Replay to store
+	 * @param player, name of the player
+	 * @param date, date played (milliseconds since the epoch)
+	 * @param score, final score
+	 * @param lines, lines cleared
+	 * @return, id of the record
+	 * @throws IOException, if the record can't be written
+	 */
+	public synchronized int append(Replay replay, String player, long date, int score, int lines) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		replay.write(data);
+		byte[] name = player.getBytes(UTF8);
+		
+		ByteBuffer body = ByteBuffer.allocate(1 + 8 + 4*3 + 2 + name.length + data.size());
+		body.put(REPLAY).putLong(date).putInt(score).putInt(lines).putInt(replay.getEndFrame());
+		body.putShort((short) name.length).put(name).put(data.toByteArray());
+		return appendRecord(body.array());
+	}
+	
+	/**
+	 * Delete a Replay, its space is reclaimed by compact
+	 * @param id, id of the record
+	 * @throws IOException, if the delete can't be written
+	 */
+	public synchronized void delete(int id) throws IOException {
+		if (!isLive(id)) {
+			throw new IllegalArgumentException("No replay " + id);
+		}
+		ByteBuffer body = ByteBuffer.allocate(1 + 4);
+		body.put(DELETE).putInt(id);
+		appendRecord(body.array());
+	}
+	
+	/**
+	 * Append a record after the last and index it
+	 * @param body, body of the record
+	 * @return, id of the record
+	 * @throws IOException, if the record can't be written
+	 */
+	private int appendRecord(byte[] body) throws IOException {
+		if (body.length > MAX_BODY) {
+			throw new IOException("Record too large: " + body.length);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + body.length);
+		record.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+		
+		writeFully(record, end);
+		if (sync) {
+			channel.force(false);
+		}
+		end += RECORD_HEADER + body.length;
+		return index(end - body.length, ByteBuffer.wrap(body));
+	}
+	
+	/**
+	 * Add a record to the indexes
+	 * @param offset, offset of the record's body
+	 * @param body, the record's body
+	 * @return, id of the record
+	 * @throws IOException, if the record is not valid
+	 */
+	private int index(long offset, ByteBuffer body) throws IOException {
+		int id = records++;
+		if (id == offsets.length) {
+			offsets = Arrays.copyOf(offsets, id*2);
+		}
+		offsets[id] = offset;
+		
+		byte type = body.get();
+		if (type == DELETE) {
+			deleted.set(body.getInt());
+		}
+		else if (type == REPLAY) {
+			replays.set(id);
+			long date = body.getLong();
+			by_score.add(body.getInt(), id);
+			by_lines.add(body.getInt(), id);
+			by_date.add((int) (date/MILLIS_PER_MINUTE), id);
+			body.getInt();
+			
+			byte[] name = new byte[body.getShort() & 0xFFFF];
+			body.get(name);
+			String player = new String(name, UTF8);
+			List<Integer> ids = by_player.get(player);
+			if (ids == null) {
+				ids = new ArrayList<Integer>();
+				by_player.put(player, ids);
+			}
+			ids.add(id);
+		}
+		else {
+			throw new IOException("Bad record type " + type + " at " + offset);
+		}
+		return id;
+	}
+	
+	/**
+	 * Check if a record is a Replay that hasn't been deleted
+	 * @param id, id of the record
+	 * @return, true if live
+	 */
+	private boolean isLive(int id) {
+		return id >= 0 && id < records && replays.get(id) && !deleted.get(id);
+	}
+	
+	/**
+	 * Get the number of Replays that haven't been deleted
+	 * @return, count
+	 */
+	public synchronized int size() {
+		return replays.cardinality() - deleted.cardinality();
+	}
+	
+	/**
+	 * Read the summary of a Replay, without decoding it
+	 * @param id, id of the record
+	 * @return, entry
+	 * @throws IOException, if the record can't be read
+	 */
+	public synchronized ArchiveEntry getEntry(int id) throws IOException {
+		if (id < 0 || id >= records || !replays.get(id)) {
+			throw new IllegalArgumentException("No replay " + id);
+		}
+		ByteBuffer b = read(offsets[id] + 1, 8 + 4*3 + 2);
+		long date = b.getLong();
+		int score = b.getInt();
+		int lines = b.getInt();
+		int frames = b.getInt();
+		int name_length = b.getShort() & 0xFFFF;
+		String player = new String(bytes(read(offsets[id] + 1 + 8 + 4*3 + 2, name_length)), UTF8);
+		return new ArchiveEntry(id, date, score, lines, frames, player);
+	}
+	
+	/**
+	 * Read and decode a Replay
+	 * @param id, id of the record
+	 * @return, Replay
+	 * @throws IOException, if the record can't be read
+	 */
+	public synchronized Replay getReplay(int id) throws IOException {
+		if (!isLive(id)) {
+			throw new IllegalArgumentException("No replay " + id);
+		}
+		ByteBuffer h = read(offsets[id] - RECORD_HEADER, RECORD_HEADER);
+		int length = h.getInt();
+		long start = offsets[id] + 1 + 8 + 4*3;
+		int name_length = read(start, 2).getShort() & 0xFFFF;
+		long data = start + 2 + name_length;
+		ByteBuffer replay = read(data, (int) (offsets[id] + length - data));
+		return Replay.read(new ByteArrayInputStream(bytes(replay)));
+	}
+	
+	/**
+	 * Get the Replays with the highest scores
+	 * @param n, maximum number of Replays
+	 * @return, entries, highest score first
+	 * @throws IOException, if a record can't be read
+	 */
+	public synchronized List<ArchiveEntry> topByScore(int n) throws IOException {
+		return query(by_score, Integer.MIN_VALUE, Integer.MAX_VALUE, n, true);
+	}
+	
+	/**
+	 * Get the Replays with the most lines cleared
+	 * @param n, maximum number of Replays
+	 * @return, entries, most lines first
+	 * @throws IOException, if a record can't be read
+	 */
+	public synchronized List<ArchiveEntry> topByLines(int n) throws IOException {
+		return query(by_lines, Integer.MIN_VALUE, Integer.MAX_VALUE, n, true);
+	}
+	
+	/**
+	 * Get the Replays with a score in a range
+	 * @param min, lowest score
+	 * @param max, highest score
+	 * @return, entries, by ascending score
+	 * @throws IOException, if a record can't be read
+	 */
+	public synchronized List<ArchiveEntry> rangeByScore(int min, int max) throws IOException {
+		return query(by_score, min, max, Integer.MAX_VALUE, false);
+	}
+	
+	/**
+	 * Get the Replays with lines cleared in a range
+	 * @param min, fewest lines
+	 * @param max, most lines
+	 * @return, entries, by ascending lines
+	 * @throws IOException, if a record can't be read
+	 */
+	public synchronized List<ArchiveEntry> rangeByLines(int min, int max) throws IOException {
+		return query(by_lines, min, max, Integer.MAX_VALUE, false);
+	}
+	
+	/**
+	 * Get the Replays played in a range of dates
+	 * @param from, earliest date (milliseconds since the epoch)
+	 * @param to, latest date (milliseconds since the epoch)
+	 * @return, entries, oldest first
+	 * @throws IOException, if a record can't be read
+	 */
+	public synchronized List<ArchiveEntry> rangeByDate(long from, long to) throws IOException {
+		List<ArchiveEntry> minutes = query(by_date, (int) (from/MILLIS_PER_MINUTE), (int) (to/MILLIS_PER_MINUTE), Integer.MAX_VALUE, false);
+		List<ArchiveEntry> entries = new ArrayList<ArchiveEntry>();
+		for (ArchiveEntry e: minutes) {
+			if (e.getDate() >= from && e.getDate() <= to) {
+				entries.add(e);
+			}
+		}
+		return entries;
+	}
+	
+	/**
+	 * Get the Replays of a player
+	 * @param player, name of the player
+	 * @return, entries, oldest first
+	 * @throws IOException, if a record can't be read
+	 */
+	public synchronized List<ArchiveEntry> byPlayer(String player) throws IOException {
+		List<ArchiveEntry> entries = new ArrayList<ArchiveEntry>();
+		List<Integer> ids = by_player.get(player);
+		if (ids != null) {
+			for (int id: ids) {
+				if (isLive(id)) {
+					entries.add(getEntry(id));
+				}
+			}
+		}
+		return entries;
+	}
+	
+	/**
+	 * Read the live entries of an index in a range of keys
+	 * @param index, index to query
+	 * @param min, lowest key
+	 * @param max, highest key
+	 * @param n, maximum number of entries
+	 * @param descending, true for the highest keys first
+	 * @return, entries
+	 * @throws IOException, if a record can't be read
+	 */
+	private List<ArchiveEntry> query(SortedIndex index, int min, int max, int n, boolean descending) throws IOException {
+		List<ArchiveEntry> entries = new ArrayList<ArchiveEntry>();
+		int from = index.lowerBound(min);
+		int to = index.upperBound(max);
+		for (int i=0; i<to-from && entries.size()<n; i++) {
+			int id = index.getId(descending ? to-1-i: from+i);
+			if (!deleted.get(id)) {
+				entries.add(getEntry(id));
+			}
+		}
+		return entries;
+	}
+	
+	/**
+	 * Rewrite the archive without deleted Replays (renumbering the ids)
+	 * The new file replaces the old atomically, so a crash leaves one or the other.
+	 * @throws IOException, if the archive can't be rewritten
+	 */
+	public synchronized void compact() throws IOException {
+		File tmp = new File(file.getPath() + ".compact");
+		FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+			header.put(MAGIC).putInt(VERSION).flip();
+			while (header.hasRemaining()) {
+				out.write(header);
+			}
+			for (int id=0; id<records; id++) {
+				if (isLive(id)) {
+					int length = read(offsets[id] - RECORD_HEADER, 4).getInt();
+					ByteBuffer record = read(offsets[id] - RECORD_HEADER, RECORD_HEADER + length);
+					while (record.hasRemaining()) {
+						out.write(record);
+					}
+				}
+			}
+			out.force(true);
+		}
+		finally {
+			out.close();
+		}
+		
+		channel.close();
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		open();
+	}
+	
+	/**
+	 * Close the archive
+	 * @throws IOException, if the file can't be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		segments = new MappedByteBuffer[0];
+		channel.close();
+	}
+	
+	/**
+	 * Get a read-only view of bytes of the file through its mapping,
+	 * mapping (or remapping a grown) segment if needed
+	 * @param pos, offset in the file
+	 * @param length, bytes (at most MAX_RECORD)
+	 * @return, buffer positioned at the bytes
+	 * @throws IOException, if the bytes can't be mapped
+	 */
+	private ByteBuffer read(long pos, int length) throws IOException {
+		int s = (int) (pos / SEGMENT);
+		long start = s*SEGMENT;
+		if (s >= segments.length) {
+			segments = Arrays.copyOf(segments, s+1);
+		}
+		MappedByteBuffer segment = segments[s];
+		if (segment == null || pos + length > start + segment.capacity()) {
+			long size = Math.min(SEGMENT + MAX_RECORD, Math.max(end, pos + length) - start);
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			segments[s] = segment;
+		}
+		ByteBuffer b = segment.duplicate();
+		b.position((int) (pos - start));
+		b.limit((int) (pos - start) + length);
+		return b.slice();
+	}
+	
+	/**
+	 * Write a buffer at a position in the file
+	 * @param b, bytes to write
+	 * @param pos, offset in the file
+	 * @throws IOException, if the bytes can't be written
+	 */
+	private void writeFully(ByteBuffer b, long pos) throws IOException {
+		while (b.hasRemaining()) {
+			pos += channel.write(b, pos);
+		}
+	}
+	
+	/**
+	 * Copy the remaining bytes of a buffer
+	 * @param b, buffer
+	 * @return, bytes
+	 */
+	private static byte[] bytes(ByteBuffer b) {
+		byte[] a = new byte[b.remaining()];
+		b.get(a);
+		return a;
+	}
+}
@@ -0,0 +1,70 @@
+package replay;
+
+import game.Game;
+import game.InputListener;
+
+import java.util.Arrays;
+
+import data_types.InputType;
+
+/**
+ * ReplayRecorder
+ * @author Josh Chia
+ * 
+ * Records the inputs given to a Game (as its InputListener) so it can
+ * be saved as a Replay. Only Games whose state follows from their
+ * dimensions and seed can be replayed (i.e. not a DemoGame).
+ * 
+ * Inputs are recorded on the thread running the Game, finish may be
+ * called from another (e.g. after stopping a GameLoop).
+ *
+ */
+public class ReplayRecorder implements InputListener {
+	private final Game game;
+	private int[] frames = new int[256];
+	private InputType[] inputs = new InputType[256];
+	private int size = 0;
+	
+	/**
+	 * Start recording a Game, before its first frame
+	 * @param g, Game to record
+	 */
+	public ReplayRecorder(Game g) {
+		if (g.getFrameCount() != 0) {
+			throw new IllegalArgumentException("Recording must start at frame 0");
+		}
+		game = g;
+		game.setInputListener(this);
+	}
+	
+	@Override
+	public synchronized void onInput(int frame, InputType in) {
+		if (size == frames.length) {
+			frames = Arrays.copyOf(frames, size*2);
+			inputs = Arrays.copyOf(inputs, size*2);
+		}
+		frames[size] = frame;
+		inputs[size] = in;
+		size++;
+	}
+	
+	/**
+	 * Get the Replay of the Game so far
+	 * The Game must not be updating while this is called.
+	 * @return, Replay up to the Game's current frame
+	 */
+	public synchronized Replay finish() {
+		return new Replay(game.getPlayfield().getRows(), game.getPlayfield().getCols(), game.getPlayfield().getVanish(),
+				game.getSeed(), game.getAutoRepeatDelay(), game.getAutoRepeatRate(),
+				game.isSettleCascades(), Arrays.copyOf(frames, size), Arrays.copyOf(inputs, size),
+				game.getFrameCount(), Replay.stateHash(game));
+	}
+	
+	/**
+	 * Get the Game being recorded
+	 * @return, game
+	 */
+	public Game getGame() {
+		return game;
+	}
+}
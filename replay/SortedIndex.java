@@ -0,0 +1,96 @@
+package replay;
+
+import java.util.Arrays;
+
+/**
+ * SortedIndex
+ * @author Josh Chia
+ * 
+ * Secondary index of a ReplayArchive: the records sorted by an int
+ * key (e.g. score). Each entry is the key and record id packed into
+ * a long, so the index is a single primitive array and range queries
+ * are two binary searches.
+ * 
+ * Records are appended unsorted and the array is only sorted when it
+ * is next queried, so loading an archive or appending many records
+ * between queries costs one sort rather than a shift per record.
+ *
+ */
+class SortedIndex {
+	private long[] entries = new long[1024];
+	private int size = 0;
+	
+	// Entries before this are sorted
+	private int sorted = 0;
+	
+	/**
+	 * Pack a key and record id, ordered by key then id
+	 * @param key, key
+	 * @param id, record id (not negative)
+	 * @return, entry
+	 */
+	private static long pack(int key, int id) {
+		return (long) key << 32 | id;
+	}
+	
+	/**
+	 * Add a record
+	 * @param key, key of the record
+	 * @param id, record id
+	 */
+	void add(int key, int id) {
+		if (size == entries.length) {
+			entries = Arrays.copyOf(entries, size*2);
+		}
+		entries[size++] = pack(key, id);
+	}
+	
+	/**
+	 * Remove every record
+	 */
+	void clear() {
+		size = 0;
+		sorted = 0;
+	}
+	
+	/**
+	 * Sort the records added since the last query
+	 */
+	private void ensureSorted() {
+		if (sorted < size) {
+			Arrays.sort(entries, 0, size);
+			sorted = size;
+		}
+	}
+	
+	/**
+	 * Get the index of the first entry with a key at least min
+	 * @param min, key
+	 * @return, index into the entries
+	 */
+	int lowerBound(int min) {
+		ensureSorted();
+		int i = Arrays.binarySearch(entries, 0, size, pack(min, 0));
+		return (i >= 0) ? i: -i-1;
+	}
+	
+	/**
+	 * Get the index after the last entry with a key at most max
+	 * @param max, key
+	 * @return, index into the entries
+	 */
+	int upperBound(int max) {
+		ensureSorted();
+		int i = Arrays.binarySearch(entries, 0, size, pack(max, Integer.MAX_VALUE));
+		return (i >= 0) ? i+1: -i-1;
+	}
+	
+	/**
+	 * Get the record id of an entry
+	 * @param i, index into the entries (see lowerBound/upperBound)
+	 * @return, record id
+	 */
+	int getId(int i) {
+		return (int) entries[i];
+	}
+}
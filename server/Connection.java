@@ -0,0 +1,137 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection
+ * @author Josh Chia
+ * 
+ * A client's TCP connection to the GameServer. It is read by the
+ * server's selector thread and written by the thread of its room.
+ * Messages are queued in a bounded buffer and written straight away,
+ * and the selector finishes writes the socket couldn't take. A client
+ * that falls a whole buffer behind is disconnected rather than let the
+ * server's memory grow.
+ *
+ */
+final class Connection {
+	private static final int OUT_CAPACITY = 32*1024;
+	
+	final SocketChannel channel;
+	final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_MESSAGE*2);
+	SelectionKey key;
+	
+	// Room joined or watched, set when the join or watch is posted and
+	// cleared by the room, and the player seated, written by the room's thread
+	volatile Room room;
+	volatile int player = -1;
+	
+	private final GameServer server;
+	private final ByteBuffer out = ByteBuffer.allocate(OUT_CAPACITY);
+	private boolean closed = false;
+	private boolean write_requested = false;
+	
+	/**
+	 * Construct a connection
+	 * @param c, accepted channel (non-blocking)
+	 * @param s, server
+	 */
+	Connection(SocketChannel c, GameServer s) {
+		channel = c;
+		server = s;
+	}
+	
+	/**
+	 * Queue a message and write as much as the socket takes
+	 * @param msg, message from its position to its limit (not consumed)
+	 * @return, false if the connection is closed or just overflowed
+	 */
+	boolean send(ByteBuffer msg) {
+		boolean request;
+		synchronized (this) {
+			if (closed) {
+				return false;
+			}
+			if (msg.remaining() > out.remaining()) {
+				ServerMetrics.SLOW_CLIENTS.increment();
+				request = false;
+			}
+			else {
+				out.put(msg.duplicate());
+				ServerMetrics.BYTES_SENT.add(msg.remaining());
+				if (write_requested || flush()) {
+					return true;
+				}
+				write_requested = true;
+				request = true;
+			}
+		}
+		if (request) {
+			server.requestWrite(this);
+			return true;
+		}
+		close();
+		return false;
+	}
+	
+	/**
+	 * Write as much of the queue as the socket takes
+	 * @return, true if the queue is empty
+	 */
+	synchronized boolean flush() {
+		if (closed) {
+			return true;
+		}
+		out.flip();
+		try {
+			channel.write(out);
+		}
+		catch (IOException e) {
+			out.clear();
+			closed = true;
+			return true;
+		}
+		finally {
+			out.compact();
+		}
+		boolean empty = out.position() == 0;
+		if (empty) {
+			write_requested = false;
+		}
+		return empty;
+	}
+	
+	/**
+	 * Check if the connection is closed
+	 * @return, true if closed
+	 */
+	synchronized boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Close the connection, leaving its room
+	 * Safe to call from any thread, more than once
+	 */
+	void close() {
+		synchronized (this) {
+			if (closed && !channel.isOpen()) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			// Closed anyway
+		}
+		Room r = room;
+		if (r != null) {
+			r.leave(this);
+		}
+	}
+}
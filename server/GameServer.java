@@ -0,0 +1,342 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.RandomGenerator;
+
+import data_types.InputType;
+
+/**
+ * GameServer
+ * @author Josh Chia
+ * 
+ * Authoritative server of many independent rooms (matches). Clients
+ * connect over TCP, join a room by its id (creating it if needed) and
+ * send frame stamped inputs. The room plays the Games and broadcasts
+ * their state, see Protocol. Other clients can watch a room that is
+ * open as spectators.
+ * 
+ * One selector thread accepts connections and reads messages, which it
+ * posts to the rooms. Rooms are spread over a small pool of TickLoops,
+ * each ticking its rooms at 60Hz on a single thread. See LoadTest for
+ * how many rooms a node can tick on time.
+ *
+ */
+public class GameServer implements Runnable, Closeable {
+	private static final int FPS = 60;
+	private static final int ROWS = 22, COLS = 10, VANISH = 2;
+	private static final InputType[] INPUT_TYPES = InputType.values();
+	
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private final TickLoop[] loops;
+	private final int state_interval;
+	private final ConcurrentMap<Integer, Room> rooms = new ConcurrentHashMap<Integer, Room>();
+	private final Queue<Connection> write_requests = new ConcurrentLinkedQueue<Connection>();
+	private final AtomicInteger next_loop = new AtomicInteger();
+	
+	private Thread thread;
+	private volatile boolean running;
+	
+	/**
+	 * Bind a server
+	 * @param port, port to listen on or 0 for any
+	 * @param threads, number of TickLoops
+	 * @param interval, frames between broadcasts of each room's state
+	 * @throws IOException, if it can't be bound
+	 */
+	public GameServer(int port, int threads, int interval) throws IOException {
+		if (threads < 1 || interval < 1) {
+			throw new IllegalArgumentException("Need at least one loop and a positive interval");
+		}
+		state_interval = interval;
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port), 1024);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		
+		loops = new TickLoop[threads];
+		for (int i=0; i<threads; i++) {
+			loops[i] = new TickLoop("room-loop-" + i, FPS);
+		}
+	}
+	
+	/**
+	 * Start the loops and the selector thread
+	 */
+	public synchronized void start() {
+		for (TickLoop l: loops) {
+			l.start();
+		}
+		running = true;
+		thread = new Thread(this, "server-selector");
+		thread.start();
+	}
+	
+	/**
+	 * Get the port the server listens on
+	 * @return, port
+	 * @throws IOException, if closed
+	 */
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) server.getLocalAddress()).getPort();
+	}
+	
+	/**
+	 * Get the number of rooms open
+	 * @return, rooms
+	 */
+	public int getRoomCount() {
+		return rooms.size();
+	}
+	
+	/**
+	 * Stop the server, closing every connection
+	 */
+	@Override
+	public void close() throws IOException {
+		Thread t;
+		synchronized (this) {
+			running = false;
+			t = thread;
+		}
+		selector.wakeup();
+		if (t != null) {
+			try {
+				t.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (TickLoop l: loops) {
+			l.stop();
+		}
+		for (SelectionKey k: selector.keys()) {
+			if (k.attachment() instanceof Connection) {
+				((Connection) k.attachment()).close();
+			}
+		}
+		selector.close();
+		server.close();
+	}
+	
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				selector.select();
+				
+				Connection c;
+				while ((c = write_requests.poll()) != null) {
+					if (c.key != null && c.key.isValid()) {
+						c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+				
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey k = keys.next();
+					keys.remove();
+					if (!k.isValid()) {
+						continue;
+					}
+					if (k.isAcceptable()) {
+						accept();
+					}
+					else {
+						c = (Connection) k.attachment();
+						if (k.isWritable() && c.flush() && k.isValid()) {
+							k.interestOps(SelectionKey.OP_READ);
+						}
+						if (k.isValid() && k.isReadable()) {
+							read(c);
+						}
+					}
+				}
+			}
+			catch (IOException e) {
+				System.err.println("Server error: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Ask the selector to finish writing to a connection
+	 * @param c, connection with queued messages
+	 */
+	void requestWrite(Connection c) {
+		write_requests.add(c);
+		selector.wakeup();
+	}
+	
+	/**
+	 * Seat a client in a room, opening it if needed. The client is the
+	 * room's from when the join is posted, so further joins and watches
+	 * are ignored and its leave goes to the room.
+	 * Safe to call from any thread
+	 * @param c, connection of the client
+	 * @param id, id of the room
+	 */
+	void join(Connection c, int id) {
+		while (true) {
+			Room r = rooms.get(id);
+			if (r == null) {
+				Room created = new Room(id, this, RandomGenerator.randomSeed(), state_interval, ROWS, COLS, VANISH);
+				r = rooms.putIfAbsent(id, created);
+				if (r == null) {
+					r = created;
+					ServerMetrics.ROOMS_OPENED.increment();
+					loops[(next_loop.getAndIncrement() & Integer.MAX_VALUE) % loops.length].add(r);
+				}
+			}
+			c.room = r;
+			if (r.join(c)) {
+				return;
+			}
+			// Closed meanwhile, open another
+			rooms.remove(id, r);
+		}
+	}
+	
+	/**
+	 * Let a client watch a room if it is open
+	 * Safe to call from any thread
+	 * @param c, connection of the client
+	 * @param id, id of the room
+	 */
+	void spectate(Connection c, int id) {
+		Room r = rooms.get(id);
+		c.room = r;
+		if (r == null || !r.spectate(c)) {
+			noRoom(c, id);
+		}
+	}
+	
+	/**
+	 * Tell a client a room isn't open, so they can join or watch another
+	 * Safe to call from any thread
+	 * @param c, connection of the client
+	 * @param id, id of the room
+	 */
+	void noRoom(Connection c, int id) {
+		c.room = null;
+		ByteBuffer b = ByteBuffer.allocate(16);
+		Protocol.begin(b, Protocol.NO_ROOM);
+		b.putInt(id);
+		Protocol.end(b);
+		c.send(b);
+	}
+	
+	/**
+	 * Forget a room that has closed
+	 * @param r, room
+	 */
+	void closed(Room r) {
+		rooms.remove(r.id, r);
+	}
+	
+	/**
+	 * Accept a new client
+	 * @throws IOException, if the selector fails
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Connection c = new Connection(channel, this);
+		c.key = channel.register(selector, SelectionKey.OP_READ, c);
+	}
+	
+	/**
+	 * Read the messages a client has sent
+	 * @param c, connection of the client
+	 */
+	private void read(Connection c) {
+		ByteBuffer in = c.in;
+		try {
+			if (c.channel.read(in) < 0) {
+				c.close();
+				return;
+			}
+			in.flip();
+			int length;
+			while ((length = Protocol.messageLength(in)) > 0) {
+				int end = in.position() + 4 + length;
+				in.getInt();
+				dispatch(c, in.get(), in);
+				in.position(end);
+			}
+			in.compact();
+		}
+		catch (IOException e) {
+			c.close();
+		}
+		catch (RuntimeException e) {
+			// Malformed message
+			c.close();
+		}
+	}
+	
+	/**
+	 * Pass a message on to the client's room
+	 * @param c, connection of the client
+	 * @param type, type of message
+	 * @param body, body of the message
+	 */
+	private void dispatch(Connection c, byte type, ByteBuffer body) {
+		switch (type) {
+		case Protocol.JOIN:
+			if (c.room == null) {
+				join(c, body.getInt());
+			}
+			break;
+		case Protocol.SPECTATE:
+			if (c.room == null) {
+				spectate(c, body.getInt());
+			}
+			break;
+		case Protocol.INPUT:
+			Room r = c.room;
+			int frame = body.getInt();
+			int input = body.get();
+			if (r != null && input >= 0 && input < INPUT_TYPES.length) {
+				r.input(c, frame, INPUT_TYPES[input]);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Run a server
+	 * Arguments: [port] [loops] [state interval]
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]): 7788;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]): Runtime.getRuntime().availableProcessors();
+		int interval = (args.length > 2) ? Integer.parseInt(args[2]): 4;
+		
+		GameServer s = new GameServer(port, threads, interval);
+		s.start();
+		System.err.println("Serving rooms on port " + s.getPort() + " with " + threads + " loops");
+	}
+}
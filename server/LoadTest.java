@@ -0,0 +1,190 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+import data_types.InputType;
+
+/**
+ * LoadTest
+ * @author Josh Chia
+ * 
+ * Starts a GameServer and plays many rooms against it over loopback,
+ * then prints how late the rooms were ticked. Clients are driven by a
+ * single NIO thread, each sends a random input stamped with the frame
+ * of the last state it received a few times a second. Spectators only
+ * read, their bandwidth is printed per spectator.
+ * 
+ * Arguments: [rooms] [seconds] [players per room] [loops] [state interval]
+ * [spectators per room]
+ *
+ */
+public final class LoadTest {
+	private static final int INPUTS_PER_SECOND = 4;
+	
+	private static final class Client {
+		private final SocketChannel channel;
+		private final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_MESSAGE*4);
+		private final boolean spectator;
+		private int frame = 0;
+		private long received = 0;
+		
+		private Client(SocketChannel c, boolean s) {
+			channel = c;
+			spectator = s;
+		}
+	}
+	
+	private LoadTest() {}
+	
+	public static void main(String[] args) throws IOException {
+		int rooms = (args.length > 0) ? Integer.parseInt(args[0]): 1000;
+		int seconds = (args.length > 1) ? Integer.parseInt(args[1]): 30;
+		int players = (args.length > 2) ? Integer.parseInt(args[2]): 1;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]): Runtime.getRuntime().availableProcessors();
+		int interval = (args.length > 4) ? Integer.parseInt(args[4]): 4;
+		int watching = (args.length > 5) ? Integer.parseInt(args[5]): 0;
+		
+		GameServer server = new GameServer(0, threads, interval);
+		server.start();
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getPort());
+		
+		Selector selector = Selector.open();
+		Client[] clients = new Client[rooms*players];
+		Client[] spectators = new Client[rooms*watching];
+		ByteBuffer out = ByteBuffer.allocate(64);
+		for (int i=0; i<clients.length; i++) {
+			clients[i] = connect(address, selector, false, Protocol.JOIN, i/players, out);
+		}
+		while (server.getRoomCount() < rooms) {
+			selector.select(10);
+			selector.selectedKeys().clear();
+		}
+		for (int i=0; i<spectators.length; i++) {
+			spectators[i] = connect(address, selector, true, Protocol.SPECTATE, i/watching, out);
+		}
+		System.err.println(clients.length + " clients joined " + server.getRoomCount() + " rooms, "
+				+ spectators.length + " watching");
+		
+		Random random = new Random(1);
+		InputType[] types = InputType.values();
+		long input_nanos = 1000000000L/INPUTS_PER_SECOND/clients.length;
+		long start = System.nanoTime(), end = start + seconds*1000000000L;
+		long next_input = start;
+		long bytes_start = ServerMetrics.BYTES_SENT.get();
+		int next_client = 0;
+		
+		while (System.nanoTime() < end) {
+			selector.select(1);
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey k = keys.next();
+				keys.remove();
+				read((Client) k.attachment(), k);
+			}
+			
+			// Spread the inputs evenly over the clients and time
+			long now = System.nanoTime();
+			while (next_input - now < 0) {
+				Client c = clients[next_client];
+				next_client = (next_client+1) % clients.length;
+				next_input += input_nanos;
+				if (!c.channel.isOpen()) {
+					continue;
+				}
+				Protocol.begin(out, Protocol.INPUT);
+				out.putInt(c.frame + 1);
+				out.put((byte) types[random.nextInt(types.length)].ordinal());
+				Protocol.end(out);
+				c.channel.write(out);
+			}
+		}
+		double secs = (System.nanoTime() - start)/1e9;
+		long watched = 0;
+		for (Client c: spectators) {
+			watched += c.received;
+		}
+		
+		System.out.printf("rooms %d, clients %d, loops %d, state every %d frames%n",
+				server.getRoomCount(), clients.length, threads, interval);
+		System.out.printf("tick lateness p50 %.3fms, p99 %.3fms, max %.3fms%n",
+				ServerMetrics.TICK_LATENESS.getQuantile(0.5)*1e3,
+				ServerMetrics.TICK_LATENESS.getQuantile(0.99)*1e3,
+				ServerMetrics.TICK_LATENESS.getMax()*1e3);
+		System.out.printf("loop tick p50 %.3fms, p99 %.3fms%n",
+				ServerMetrics.LOOP_TICK.getQuantile(0.5)*1e3,
+				ServerMetrics.LOOP_TICK.getQuantile(0.99)*1e3);
+		System.out.printf("ticks dropped %d, slow clients %d, %.1f MB/s sent%n",
+				ServerMetrics.TICKS_DROPPED.get(), ServerMetrics.SLOW_CLIENTS.get(),
+				(ServerMetrics.BYTES_SENT.get() - bytes_start)/secs/1e6);
+		if (spectators.length > 0) {
+			System.out.printf("%.0f bytes/s per spectator%n", watched/secs/spectators.length);
+		}
+		
+		for (Client c: clients) {
+			c.channel.close();
+		}
+		for (Client c: spectators) {
+			c.channel.close();
+		}
+		selector.close();
+		server.close();
+	}
+	
+	/**
+	 * Connect a client and send its first message
+	 * @param address, address of the server
+	 * @param selector, selector to read with
+	 * @param spectator, true if the client only watches
+	 * @param type, JOIN or SPECTATE
+	 * @param room, room to join or watch
+	 * @param out, buffer to write with
+	 * @return, client
+	 */
+	private static Client connect(InetSocketAddress address, Selector selector, boolean spectator,
+			byte type, int room, ByteBuffer out) throws IOException {
+		SocketChannel c = SocketChannel.open(address);
+		c.socket().setTcpNoDelay(true);
+		c.configureBlocking(false);
+		Client client = new Client(c, spectator);
+		c.register(selector, SelectionKey.OP_READ, client);
+		
+		Protocol.begin(out, type);
+		out.putInt(room);
+		Protocol.end(out);
+		c.write(out);
+		return client;
+	}
+	
+	/**
+	 * Read the messages a client has received, noting the latest frame
+	 * @param c, client
+	 * @param k, key of the client
+	 */
+	private static void read(Client c, SelectionKey k) throws IOException {
+		int n = c.channel.read(c.in);
+		if (n < 0) {
+			k.cancel();
+			c.channel.close();
+			return;
+		}
+		c.received += n;
+		c.in.flip();
+		int length;
+		while ((length = Protocol.messageLength(c.in)) > 0) {
+			int pos = c.in.position();
+			if (c.in.get(pos+4) == Protocol.STATE) {
+				// Type, player, then rows, cols and vanish before the frame
+				c.frame = Math.max(c.frame, c.in.getInt(pos+4+1+1+12));
+			}
+			c.in.position(pos+4+length);
+		}
+		c.in.compact();
+	}
+}
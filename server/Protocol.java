@@ -0,0 +1,95 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Protocol
+ * @author Josh Chia
+ * 
+ * Messages between the GameServer and its clients over TCP. Each
+ * message is its length (an int, not counting itself), its type (a
+ * byte) then its body:
+ * 
+ *  Client to server:
+ *   JOIN:		room (int)
+ *   INPUT:		frame (int), InputType ordinal (byte)
+ *   SPECTATE:	room (int)
+ *  Server to client:
+ *   WELCOME:	room (int), player (byte), players (byte), seed (long),
+ *   			rows, cols, vanish (shorts)
+ *   FULL:		room (int)
+ *   STATE:		player (byte), state of their Game (see Game.saveState)
+ *  Server to spectator:
+ *   KEYFRAME:	room (int), frame (int), players (byte), rows, cols (shorts),
+ *   			then a keyframe per Game (see SpectatorState)
+ *   DELTA:		frame (int), then for each Game that changed: its player
+ *   			(byte) and its delta (see SpectatorState)
+ *   NO_ROOM:	room (int), the room isn't open or has closed
+ * 
+ * An input is given to the player's Game at the start of the frame it
+ * is stamped with, or the next frame if that has passed. Held shift
+ * keys repeat on the server with a fixed DAS_FRAMES and ARR_FRAMES, so
+ * clients send the presses and releases of the keys, not the repeats.
+ * A spectator is sent a keyframe, then a delta after every frame in
+ * which something changed.
+ *
+ */
+public final class Protocol {
+	/** Largest message, in bytes including the length */
+	public static final int MAX_MESSAGE = 8192;
+	
+	/** Frames a shift is held before it repeats, in every room */
+	public static final int DAS_FRAMES = 10;
+	/** Frames between repeats of a held shift, in every room */
+	public static final int ARR_FRAMES = 2;
+	
+	public static final byte JOIN = 1;
+	public static final byte INPUT = 2;
+	public static final byte SPECTATE = 3;
+	public static final byte WELCOME = 10;
+	public static final byte FULL = 11;
+	public static final byte STATE = 12;
+	public static final byte KEYFRAME = 13;
+	public static final byte DELTA = 14;
+	public static final byte NO_ROOM = 15;
+	
+	private Protocol() {}
+	
+	/**
+	 * Start writing a message
+	 * @param b, buffer to write it in, cleared first
+	 * @param type, type of message
+	 */
+	public static void begin(ByteBuffer b, byte type) {
+		b.clear();
+		b.putInt(0);
+		b.put(type);
+	}
+	
+	/**
+	 * Finish writing a message, filling in its length
+	 * @param b, buffer written since begin, flipped ready to send
+	 */
+	public static void end(ByteBuffer b) {
+		b.putInt(0, b.position()-4);
+		b.flip();
+	}
+	
+	/**
+	 * Find the length of the next message received, if it has all arrived
+	 * @param b, received bytes from the position to the limit
+	 * @return, length not counting itself, or -1 if it hasn't all arrived
+	 * @throws IOException, if the length is corrupt
+	 */
+	public static int messageLength(ByteBuffer b) throws IOException {
+		if (b.remaining() < 4) {
+			return -1;
+		}
+		int length = b.getInt(b.position());
+		if (length < 1 || length > MAX_MESSAGE-4) {
+			throw new IOException("Bad message length: " + length);
+		}
+		return (b.remaining() < 4+length) ? -1: length;
+	}
+}
@@ -0,0 +1,421 @@
+package server;
+
+import game.Battle;
+import game.Controller;
+import game.Game;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import data_types.InputType;
+
+/**
+ * Room
+ * @author Josh Chia
+ * 
+ * A match on the GameServer: a headless Game per player, all from the
+ * same seed, stepped once per tick by the TickLoop that owns the room.
+ * The players battle, their line clears send garbage to each other.
+ * 
+ * A room is a single writer actor. Other threads only post messages
+ * (joins, inputs, leaves) to its mailbox, which the loop drains at
+ * the start of each tick, so the Games need no locks. Every few
+ * frames the state of each Game is broadcast to the players, the
+ * server is authoritative and clients only draw it.
+ * 
+ * Spectators are sent a keyframe when they join, then a delta after
+ * every frame in which a Game changed (see SpectatorState). Each delta
+ * is encoded once and the same message is sent to every spectator.
+ * 
+ * A room closes once all its players have left, or if its tick throws.
+ *
+ */
+final class Room {
+	static final int PLAYERS = 2;
+	private static final int MAX_LEAD = 60; // frames an input may be stamped ahead
+	private static final int MAX_PENDING = 64; // inputs held per player
+	private static final InputType[] INPUT_TYPES = InputType.values();
+	
+	final int id;
+	private final GameServer server;
+	private final long seed;
+	private final int state_interval;
+	private final Game[] games;
+	private final PlayerInputs[] inputs;
+	private final Connection[] players = new Connection[PLAYERS];
+	private final List<Connection> spectators = new ArrayList<Connection>();
+	private final SpectatorState[] shown, captured; // last sent and this frame's
+	private final ByteBuffer message = ByteBuffer.allocate(Protocol.MAX_MESSAGE);
+	
+	// Guarded by this, posted from any thread
+	private final Queue<Message> mailbox = new ArrayDeque<Message>();
+	private boolean closed = false;
+	
+	private int frame = 0;
+	private int joined = 0;
+	
+	/**
+	 * A message posted to the room
+	 */
+	private static final class Message {
+		private static final int JOIN = 0, INPUT = 1, LEAVE = 2, SPECTATE = 3;
+		
+		private final int type;
+		private final Connection connection;
+		private final int frame;
+		private final InputType input;
+		
+		private Message(int t, Connection c, int f, InputType in) {
+			type = t;
+			connection = c;
+			frame = f;
+			input = in;
+		}
+	}
+	
+	/**
+	 * Construct an empty room
+	 * @param i, id of the room
+	 * @param s, server
+	 * @param seed, seed of the Games
+	 * @param interval, frames between broadcasts of the state
+	 * @param rows, rows of the Games
+	 * @param cols, cols of the Games
+	 * @param vanish, vanish zone of the Games
+	 */
+	Room(int i, GameServer s, long seed, int interval, int rows, int cols, int vanish) {
+		id = i;
+		server = s;
+		this.seed = seed;
+		state_interval = interval;
+		games = new Game[PLAYERS];
+		inputs = new PlayerInputs[PLAYERS];
+		shown = new SpectatorState[PLAYERS];
+		captured = new SpectatorState[PLAYERS];
+		for (int p=0; p<PLAYERS; p++) {
+			games[p] = new Game(rows, cols, vanish, seed);
+			inputs[p] = new PlayerInputs();
+			games[p].setController(inputs[p]);
+			games[p].setAutoRepeat(Protocol.DAS_FRAMES, Protocol.ARR_FRAMES);
+			shown[p] = new SpectatorState(rows, cols);
+			captured[p] = new SpectatorState(rows, cols);
+		}
+		new Battle(games[0], games[1]);
+	}
+	
+	/**
+	 * Inputs of a player in the order of their frames, given to their
+	 * Game at the start of each frame
+	 */
+	private static final class PlayerInputs implements Controller {
+		// Ring of (frame << 8 | InputType ordinal)
+		private final long[] pending = new long[MAX_PENDING];
+		private int head = 0, size = 0;
+		private int last_frame = 0;
+		
+		private void add(int frame, int current, InputType in) {
+			if (size == MAX_PENDING || frame > current + MAX_LEAD) {
+				return;
+			}
+			// Keep the inputs in order of frame, late inputs play now
+			last_frame = Math.max(last_frame, Math.max(frame, current));
+			pending[(head+size) % MAX_PENDING] = (long) last_frame << 8 | in.ordinal();
+			size++;
+		}
+		
+		@Override
+		public void update(Game game) {
+			while (size > 0 && (int) (pending[head] >>> 8) <= game.getFrameCount()) {
+				game.input(INPUT_TYPES[(int) (pending[head] & 0xff)]);
+				head = (head+1) % MAX_PENDING;
+				size--;
+			}
+		}
+	}
+	
+	/**
+	 * Post a join by a client
+	 * @param c, connection of the client
+	 * @return, false if the room has closed (join another)
+	 */
+	boolean join(Connection c) {
+		return post(new Message(Message.JOIN, c, 0, null));
+	}
+	
+	/**
+	 * Post a client's request to watch the room
+	 * @param c, connection of the client
+	 * @return, false if the room has closed
+	 */
+	boolean spectate(Connection c) {
+		return post(new Message(Message.SPECTATE, c, 0, null));
+	}
+	
+	/**
+	 * Post an input by a player
+	 * @param c, connection of the player
+	 * @param f, frame the input is stamped with
+	 * @param in, input
+	 */
+	void input(Connection c, int f, InputType in) {
+		post(new Message(Message.INPUT, c, f, in));
+	}
+	
+	/**
+	 * Post the leave of a player or spectator e.g. when they disconnect
+	 * @param c, connection of the client
+	 */
+	void leave(Connection c) {
+		post(new Message(Message.LEAVE, c, 0, null));
+	}
+	
+	/**
+	 * Check if the room has closed
+	 * @return, true if closed
+	 */
+	synchronized boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Get the frame the Games are up to
+	 * @return, frame
+	 */
+	int getFrame() {
+		return frame;
+	}
+	
+	private synchronized boolean post(Message m) {
+		if (closed) {
+			return false;
+		}
+		mailbox.add(m);
+		return true;
+	}
+	
+	private synchronized Message poll() {
+		return mailbox.poll();
+	}
+	
+	/**
+	 * Play a frame, on the thread of the room's TickLoop
+	 */
+	void tick() {
+		Message m;
+		while ((m = poll()) != null) {
+			switch (m.type) {
+			case Message.JOIN:
+				addPlayer(m.connection);
+				break;
+			case Message.INPUT:
+				int p = m.connection.player;
+				if (p >= 0 && players[p] == m.connection) {
+					inputs[p].add(m.frame, frame, m.input);
+				}
+				break;
+			case Message.LEAVE:
+				removePlayer(m.connection);
+				spectators.remove(m.connection);
+				break;
+			case Message.SPECTATE:
+				addSpectator(m.connection);
+				break;
+			default:
+				break;
+			}
+		}
+		if (joined == 0) {
+			close();
+			return;
+		}
+		
+		for (Game g: games) {
+			g.updateGame(1);
+		}
+		frame++;
+		
+		if (frame % state_interval == 0) {
+			broadcast();
+		}
+		if (!spectators.isEmpty()) {
+			streamDeltas();
+		}
+	}
+	
+	/**
+	 * Give a client the first free seat, or tell them the room is full
+	 * @param c, connection of the client
+	 */
+	private void addPlayer(Connection c) {
+		if (c.player >= 0) {
+			// Already seated
+			return;
+		}
+		int p = 0;
+		while (p < PLAYERS && players[p] != null) {
+			p++;
+		}
+		if (p == PLAYERS) {
+			c.room = null;
+			Protocol.begin(message, Protocol.FULL);
+			message.putInt(id);
+			Protocol.end(message);
+			c.send(message);
+			return;
+		}
+		
+		players[p] = c;
+		c.player = p;
+		c.room = this;
+		joined++;
+		
+		Protocol.begin(message, Protocol.WELCOME);
+		message.putInt(id);
+		message.put((byte) p);
+		message.put((byte) PLAYERS);
+		message.putLong(seed);
+		message.putShort((short) games[p].getPlayfield().getRows());
+		message.putShort((short) games[p].getPlayfield().getCols());
+		message.putShort((short) games[p].getPlayfield().getVanish());
+		Protocol.end(message);
+		
+		// Closed before it was seated, it can't post its leave now
+		if (!c.send(message) || c.isClosed()) {
+			removePlayer(c);
+		}
+	}
+	
+	/**
+	 * Add a spectator and send them a keyframe of every Game
+	 * @param c, connection of the client
+	 */
+	private void addSpectator(Connection c) {
+		if (spectators.isEmpty()) {
+			// Nothing was streamed, shown is stale
+			for (int g=0; g<games.length; g++) {
+				shown[g].capture(games[g]);
+			}
+		}
+		spectators.add(c);
+		
+		Protocol.begin(message, Protocol.KEYFRAME);
+		message.putInt(id);
+		message.putInt(frame);
+		message.put((byte) games.length);
+		message.putShort((short) shown[0].getRows());
+		message.putShort((short) shown[0].getCols());
+		for (SpectatorState s: shown) {
+			s.writeDelta(null, message);
+		}
+		Protocol.end(message);
+		
+		if (!c.send(message) || c.isClosed()) {
+			spectators.remove(c);
+		}
+	}
+	
+	/**
+	 * Send the spectators what changed in the Games this frame
+	 */
+	private void streamDeltas() {
+		Protocol.begin(message, Protocol.DELTA);
+		message.putInt(frame);
+		int start = message.position();
+		for (int g=0; g<games.length; g++) {
+			captured[g].capture(games[g]);
+			int pos = message.position();
+			message.put((byte) g);
+			if (!captured[g].writeDelta(shown[g], message)) {
+				message.position(pos);
+				continue;
+			}
+			SpectatorState s = shown[g];
+			shown[g] = captured[g];
+			captured[g] = s;
+		}
+		if (message.position() == start) {
+			return;
+		}
+		Protocol.end(message);
+		
+		for (int i=spectators.size()-1; i>=0; i--) {
+			if (!spectators.get(i).send(message)) {
+				spectators.remove(i);
+			}
+		}
+	}
+	
+	/**
+	 * Free the seat of a player
+	 * @param c, connection of the player
+	 */
+	private void removePlayer(Connection c) {
+		int p = c.player;
+		if (p >= 0 && players[p] == c) {
+			players[p] = null;
+			joined--;
+		}
+	}
+	
+	/**
+	 * Send the state of every Game to every player
+	 */
+	private void broadcast() {
+		for (int g=0; g<games.length; g++) {
+			Protocol.begin(message, Protocol.STATE);
+			message.put((byte) g);
+			games[g].saveState(message);
+			Protocol.end(message);
+			
+			for (Connection c: players) {
+				if (c != null && !c.send(message)) {
+					removePlayer(c);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Close the room after its tick failed, its players and spectators
+	 * are told it has closed so they can join another
+	 */
+	void fail() {
+		for (int p=0; p<PLAYERS; p++) {
+			if (players[p] != null) {
+				players[p].player = -1;
+				server.noRoom(players[p], id);
+				players[p] = null;
+			}
+		}
+		joined = 0;
+		close();
+	}
+	
+	/**
+	 * Close the room, joins that raced the close are sent to a new room
+	 * and spectators are told it has closed
+	 */
+	private void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		server.closed(this);
+		
+		for (Connection c: spectators) {
+			server.noRoom(c, id);
+		}
+		spectators.clear();
+		Message m;
+		while ((m = poll()) != null) {
+			if (m.type == Message.JOIN) {
+				server.join(m.connection, id);
+			}
+			else if (m.type == Message.SPECTATE) {
+				server.noRoom(m.connection, id);
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package server;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+/**
+ * ServerMetrics
+ * @author Josh Chia
+ * 
+ * The Metrics of the GameServer, registered with the default
+ * MetricsRegistry alongside the engine's (see EngineMetrics).
+ *
+ */
+public final class ServerMetrics {
+	private static final MetricsRegistry REGISTRY = MetricsRegistry.getDefault();
+	private static final double NANOS = 1e-9;
+	
+	/** How late each tick of a TickLoop started */
+	public static final Histogram TICK_LATENESS = REGISTRY.histogram("jfxtris_server_tick_lateness_seconds",
+			"Time a room tick started after it was due", Histogram.exponentialBounds(1000, 20), NANOS);
+	
+	/** Time each TickLoop took to tick all of its rooms */
+	public static final Histogram LOOP_TICK = REGISTRY.histogram("jfxtris_server_loop_tick_seconds",
+			"Time to tick every room of a loop", Histogram.exponentialBounds(1000, 20), NANOS);
+	
+	/** Ticks skipped by loops that fell too far behind */
+	public static final Counter TICKS_DROPPED = REGISTRY.counter("jfxtris_server_ticks_dropped_total",
+			"Room ticks skipped by overloaded loops");
+	
+	/** Rooms opened */
+	public static final Counter ROOMS_OPENED = REGISTRY.counter("jfxtris_server_rooms_opened_total",
+			"Rooms opened");
+	
+	/** Rooms closed because their tick threw */
+	public static final Counter ROOMS_FAILED = REGISTRY.counter("jfxtris_server_rooms_failed_total",
+			"Rooms closed after an error in their tick");
+	
+	/** Bytes of messages queued to clients */
+	public static final Counter BYTES_SENT = REGISTRY.counter("jfxtris_server_sent_bytes_total",
+			"Bytes of messages sent to clients");
+	
+	/** Clients dropped for not reading their messages */
+	public static final Counter SLOW_CLIENTS = REGISTRY.counter("jfxtris_server_slow_clients_total",
+			"Clients disconnected because their send buffer overflowed");
+	
+	private ServerMetrics() {}
+}
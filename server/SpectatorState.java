@@ -0,0 +1,387 @@
+package server;
+
+import game.Game;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import data_types.RotateState;
+
+/**
+ * SpectatorState
+ * @author Josh Chia
+ * 
+ * What a spectator sees of a Game: the occupancy of each row, the
+ * pose of the active Tetromino, the preview, the held Piece and the
+ * score. Falling Polyominos are not shown until they land.
+ * 
+ * A state is encoded as a delta from an earlier state, writing only the
+ * fields that changed and only the rows that changed (as bitmasks). A
+ * delta from nothing is a keyframe. Capturing and encoding don't
+ * allocate, so a Room can keep the last state it sent and encode each
+ * frame once for all of its spectators.
+ *
+ */
+public final class SpectatorState {
+	// Fields in a delta, OVER is the game over flag itself
+	private static final int ROWS = 1, PIECE = 2, PREVIEW = 4, HOLD = 8, SCORE = 16, OVER = 32;
+	private static final int MAX_PREVIEW = 16;
+	private static final Piece[] PIECES = Piece.values();
+	private static final RotateState[] ROT_STATES = RotateState.values();
+	
+	private final int rows, cols;
+	private final int[] row_masks;
+	private int piece = -1, rot = 0, x = 0, y = 0;
+	private final byte[] preview = new byte[MAX_PREVIEW];
+	private int preview_size = 0;
+	private int hold = -1;
+	private boolean can_hold = true;
+	private int score = 0, lines = 0, level = 0, goal = 0;
+	private boolean game_over = false;
+	
+	/**
+	 * Construct an empty state
+	 * @param r, number of rows (including the vanish zone, at most 127)
+	 * @param c, number of columns (at most 32)
+	 */
+	public SpectatorState(int r, int c) {
+		if (r > Byte.MAX_VALUE || c > 32) {
+			throw new IllegalArgumentException("Playfield too large: " + r + "x" + c);
+		}
+		rows = r;
+		cols = c;
+		row_masks = new int[r];
+	}
+	
+	/**
+	 * Set the state to what is shown of a Game
+	 * @param g, Game of the same size
+	 */
+	public void capture(Game g) {
+		Playfield pf = g.getPlayfield();
+		for (int r=0; r<rows; r++) {
+			row_masks[r] = pf.getRowMask(r);
+		}
+		
+		Tetromino t = pf.active_piece;
+		if (t != null) {
+			piece = t.piece.ordinal();
+			rot = t.getRotState().ordinal();
+			x = t.getX();
+			y = t.getY();
+		}
+		else {
+			piece = -1;
+		}
+		
+		List<Piece> next = g.getPreviewList();
+		preview_size = Math.min(next.size(), MAX_PREVIEW);
+		for (int i=0; i<preview_size; i++) {
+			preview[i] = (byte) next.get(i).ordinal();
+		}
+		Piece held = g.getHeldPiece();
+		hold = (held == null) ? -1: held.ordinal();
+		can_hold = g.canHold();
+		
+		score = g.getScoreSystem().score;
+		lines = g.getScoreSystem().lines;
+		level = g.getScoreSystem().level;
+		goal = g.getScoreSystem().goal;
+		game_over = g.isGameOver();
+	}
+	
+	/**
+	 * Copy another state of the same size
+	 * @param s, state to copy
+	 */
+	public void copyFrom(SpectatorState s) {
+		System.arraycopy(s.row_masks, 0, row_masks, 0, rows);
+		piece = s.piece;
+		rot = s.rot;
+		x = s.x;
+		y = s.y;
+		System.arraycopy(s.preview, 0, preview, 0, s.preview_size);
+		preview_size = s.preview_size;
+		hold = s.hold;
+		can_hold = s.can_hold;
+		score = s.score;
+		lines = s.lines;
+		level = s.level;
+		goal = s.goal;
+		game_over = s.game_over;
+	}
+	
+	/**
+	 * Find the fields that differ from another state
+	 * @param s, earlier state or null for all of them
+	 * @return, flags of the fields changed (0 if none)
+	 */
+	private int changes(SpectatorState s) {
+		if (s == null) {
+			return ROWS | PIECE | PREVIEW | HOLD | SCORE | OVER;
+		}
+		int flags = 0;
+		for (int r=0; r<rows; r++) {
+			if (row_masks[r] != s.row_masks[r]) {
+				flags |= ROWS;
+				break;
+			}
+		}
+		if (piece != s.piece || rot != s.rot || x != s.x || y != s.y) {
+			flags |= PIECE;
+		}
+		if (preview_size != s.preview_size) {
+			flags |= PREVIEW;
+		}
+		for (int i=0; i<preview_size && (flags & PREVIEW) == 0; i++) {
+			if (preview[i] != s.preview[i]) {
+				flags |= PREVIEW;
+			}
+		}
+		if (hold != s.hold || can_hold != s.can_hold) {
+			flags |= HOLD;
+		}
+		if (score != s.score || lines != s.lines || level != s.level || goal != s.goal) {
+			flags |= SCORE;
+		}
+		if (game_over != s.game_over) {
+			flags |= OVER;
+		}
+		return flags;
+	}
+	
+	/**
+	 * Check if the state shows the same as another
+	 * @param s, other state of the same size
+	 * @return, true if nothing differs
+	 */
+	public boolean sameAs(SpectatorState s) {
+		return changes(s) == 0;
+	}
+	
+	/**
+	 * Write the fields that changed since an earlier state
+	 * @param since, earlier state or null for a keyframe
+	 * @param b, buffer to write to
+	 * @return, false if nothing changed (nothing is written)
+	 */
+	public boolean writeDelta(SpectatorState since, ByteBuffer b) {
+		int flags = changes(since);
+		if (flags == 0) {
+			return false;
+		}
+		b.put((byte) ((flags & ~OVER) | (game_over ? OVER: 0)));
+		
+		if ((flags & ROWS) != 0) {
+			int count_pos = b.position();
+			b.put((byte) 0);
+			int count = 0;
+			for (int r=0; r<rows; r++) {
+				if (since == null || row_masks[r] != since.row_masks[r]) {
+					b.put((byte) r);
+					for (int i=0; i<cols; i+=8) {
+						b.put((byte) (row_masks[r] >>> i));
+					}
+					count++;
+				}
+			}
+			b.put(count_pos, (byte) count);
+		}
+		if ((flags & PIECE) != 0) {
+			b.put((byte) piece);
+			b.put((byte) rot);
+			b.put((byte) x);
+			b.put((byte) y);
+		}
+		if ((flags & PREVIEW) != 0) {
+			b.put((byte) preview_size);
+			b.put(preview, 0, preview_size);
+		}
+		if ((flags & HOLD) != 0) {
+			b.put((byte) hold);
+			b.put((byte) (can_hold ? 1: 0));
+		}
+		if ((flags & SCORE) != 0) {
+			b.putInt(score);
+			b.putInt(lines);
+			b.putShort((short) level);
+			b.putShort((short) goal);
+		}
+		return true;
+	}
+	
+	/**
+	 * Apply a delta (or keyframe) written by writeDelta
+	 * @param b, buffer to read from
+	 */
+	public void readDelta(ByteBuffer b) {
+		int flags = b.get();
+		
+		if ((flags & ROWS) != 0) {
+			int count = b.get() & 0xff;
+			for (int n=0; n<count; n++) {
+				int r = b.get();
+				int mask = 0;
+				for (int i=0; i<cols; i+=8) {
+					mask |= (b.get() & 0xff) << i;
+				}
+				row_masks[r] = mask;
+			}
+		}
+		if ((flags & PIECE) != 0) {
+			piece = b.get();
+			rot = b.get();
+			x = b.get();
+			y = b.get();
+		}
+		if ((flags & PREVIEW) != 0) {
+			preview_size = b.get();
+			b.get(preview, 0, preview_size);
+		}
+		if ((flags & HOLD) != 0) {
+			hold = b.get();
+			can_hold = b.get() != 0;
+		}
+		if ((flags & SCORE) != 0) {
+			score = b.getInt();
+			lines = b.getInt();
+			level = b.getShort();
+			goal = b.getShort();
+		}
+		game_over = (flags & OVER) != 0;
+	}
+	
+	/**
+	 * Get number of rows (including the vanish zone)
+	 * @return, rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Get number of columns
+	 * @return, cols
+	 */
+	public int getCols() {
+		return cols;
+	}
+	
+	/**
+	 * Get the occupancy bitmask of a row
+	 * @param r, row
+	 * @return, bitmask where bit c is set if column c is occupied
+	 */
+	public int getRowMask(int r) {
+		return row_masks[r];
+	}
+	
+	/**
+	 * Get the Piece of the active Tetromino
+	 * @return, Piece or null if none
+	 */
+	public Piece getPiece() {
+		return (piece < 0) ? null: PIECES[piece];
+	}
+	
+	/**
+	 * Get the rotation of the active Tetromino
+	 * @return, RotateState
+	 */
+	public RotateState getRotState() {
+		return ROT_STATES[rot];
+	}
+	
+	/**
+	 * Get the x position of the active Tetromino
+	 * @return, x
+	 */
+	public int getX() {
+		return x;
+	}
+	
+	/**
+	 * Get the y position of the active Tetromino
+	 * @return, y
+	 */
+	public int getY() {
+		return y;
+	}
+	
+	/**
+	 * Get the number of Pieces previewed
+	 * @return, preview size
+	 */
+	public int getPreviewSize() {
+		return preview_size;
+	}
+	
+	/**
+	 * Get a previewed Piece
+	 * @param i, index in the preview (0 is next)
+	 * @return, Piece
+	 */
+	public Piece getPreview(int i) {
+		return PIECES[preview[i]];
+	}
+	
+	/**
+	 * Get the held Piece
+	 * @return, Piece or null if none
+	 */
+	public Piece getHeldPiece() {
+		return (hold < 0) ? null: PIECES[hold];
+	}
+	
+	/**
+	 * Check if the player can hold
+	 * @return, true if they can
+	 */
+	public boolean canHold() {
+		return can_hold;
+	}
+	
+	/**
+	 * Get the score
+	 * @return, score
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Get the total lines cleared
+	 * @return, lines
+	 */
+	public int getLines() {
+		return lines;
+	}
+	
+	/**
+	 * Get the level
+	 * @return, level
+	 */
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Get the lines left to clear for the next level
+	 * @return, goal
+	 */
+	public int getGoal() {
+		return goal;
+	}
+	
+	/**
+	 * Check if the game was over
+	 * @return, true if over
+	 */
+	public boolean isGameOver() {
+		return game_over;
+	}
+}
@@ -0,0 +1,146 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TickLoop
+ * @author Josh Chia
+ * 
+ * An event loop thread that owns a set of Rooms and ticks each of them
+ * at a fixed rate, like a GameLoop for many Games. A server runs a
+ * small pool of loops (about one per core) rather than a thread per
+ * room, so thousands of rooms share a few threads.
+ * 
+ * How late each tick starts is recorded (ServerMetrics.TICK_LATENESS).
+ * A loop that falls more than MAX_BEHIND ticks behind skips the ticks
+ * missed rather than bursting through them. A room that throws from its
+ * tick is closed (ServerMetrics.ROOMS_FAILED), the other rooms of the
+ * loop carry on.
+ *
+ */
+final class TickLoop implements Runnable {
+	private static final int MAX_BEHIND = 3;
+	
+	private final long step_nanos;
+	private final String name;
+	private final Queue<Room> added = new ConcurrentLinkedQueue<Room>();
+	private final List<Room> rooms = new ArrayList<Room>();
+	
+	private Thread thread;
+	private volatile boolean running;
+	private volatile int room_count = 0;
+	
+	/**
+	 * Construct a loop
+	 * @param n, name of its thread
+	 * @param fps, ticks per second
+	 */
+	TickLoop(String n, int fps) {
+		name = n;
+		step_nanos = 1000000000L/fps;
+	}
+	
+	/**
+	 * Start the loop on a new (daemon) thread
+	 */
+	synchronized void start() {
+		running = true;
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stop the loop and wait for its thread to finish
+	 */
+	void stop() {
+		Thread t;
+		synchronized (this) {
+			running = false;
+			t = thread;
+		}
+		if (t == null) {
+			return;
+		}
+		LockSupport.unpark(t);
+		try {
+			t.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Give a Room to the loop, it is ticked from the next tick
+	 * Safe to call from any thread
+	 * @param r, room
+	 */
+	void add(Room r) {
+		added.add(r);
+	}
+	
+	/**
+	 * Get the number of rooms the loop is ticking
+	 * @return, rooms
+	 */
+	int getRoomCount() {
+		return room_count;
+	}
+	
+	@Override
+	public void run() {
+		long next = System.nanoTime();
+		
+		while (running) {
+			long now = System.nanoTime();
+			if (now - next < 0) {
+				LockSupport.parkNanos(this, next - now);
+				continue;
+			}
+			ServerMetrics.TICK_LATENESS.record(now - next);
+			
+			Room r;
+			while ((r = added.poll()) != null) {
+				rooms.add(r);
+			}
+			for (int i=rooms.size()-1; i>=0; i--) {
+				tick(rooms.get(i));
+				if (rooms.get(i).isClosed()) {
+					// Order of the rooms doesn't matter, swap remove
+					rooms.set(i, rooms.get(rooms.size()-1));
+					rooms.remove(rooms.size()-1);
+				}
+			}
+			room_count = rooms.size();
+			long end = System.nanoTime();
+			ServerMetrics.LOOP_TICK.record(end - now);
+			
+			next += step_nanos;
+			long behind = (end - next)/step_nanos;
+			if (behind > MAX_BEHIND) {
+				ServerMetrics.TICKS_DROPPED.add(behind);
+				next += behind*step_nanos;
+			}
+		}
+	}
+	
+	/**
+	 * Tick a room, closing it if it fails
+	 * @param r, room
+	 */
+	private void tick(Room r) {
+		try {
+			r.tick();
+		}
+		catch (RuntimeException e) {
+			ServerMetrics.ROOMS_FAILED.increment();
+			System.err.println("Room " + r.id + " failed: " + e);
+			r.fail();
+		}
+	}
+}
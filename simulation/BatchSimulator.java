@@ -0,0 +1,199 @@
+package simulation;
+
+import game.Controller;
+import game.Game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+
+/**
+ * BatchSimulator
+ * @author Josh Chia
+ *
+ * Plays many headless games, each with a fixed seed and its own
+ * Controller, spread across the threads of a ForkJoinPool. Games are
+ * stepped as fast as possible (no AnimationTimer) and the debris of
+ * line clears is settled rather than animated, so a batch runs much
+ * faster than real time.
+ *
+ * Results are returned in the order of the seeds and a game's result
+ * only depends on its seed and Controller, therefore a batch is
+ * reproducible regardless of the number of threads.
+ *
+ */
+public class BatchSimulator {
+	// Frames stepped per call to updateGame
+	private static final int STEP_FRAMES = 600;
+	
+	private final int rows, cols, vanish;
+	private final int max_frames;
+	private final ControllerFactory factory;
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Construct a BatchSimulator that uses all cores
+	 * @param r, number of rows
+	 * @param c, number of cols
+	 * @param v, size of vanish zone
+	 * @param f, frames after which a game is stopped if it hasn't topped out
+	 * @param cf, factory of a Controller for each game
+	 */
+	public BatchSimulator(int r, int c, int v, int f, ControllerFactory cf) {
+		this(r, c, v, f, cf, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Construct a BatchSimulator
+	 * @param r, number of rows
+	 * @param c, number of cols
+	 * @param v, size of vanish zone
+	 * @param f, frames after which a game is stopped if it hasn't topped out
+	 * @param cf, factory of a Controller for each game or null if batches give their own
+	 * @param threads, number of games played at once
+	 */
+	public BatchSimulator(int r, int c, int v, int f, ControllerFactory cf, int threads) {
+		rows = r;
+		cols = c;
+		vanish = v;
+		max_frames = f;
+		factory = cf;
+		pool = new ForkJoinPool(threads);
+	}
+	
+	/**
+	 * Play a game for every seed
+	 * @param seeds, seed of each game
+	 * @return, result of each game, in the order of the seeds
+	 */
+	public GameResult[] run(long[] seeds) {
+		return run(seeds, null);
+	}
+	
+	/**
+	 * Play a game for every seed, each with a Controller from its own
+	 * factory e.g. to compare bots within one batch
+	 * @param seeds, seed of each game
+	 * @param factories, factory for each game or null for the simulator's
+	 * @return, result of each game, in the order of the seeds
+	 */
+	public GameResult[] run(long[] seeds, ControllerFactory[] factories) {
+		GameResult[] results = new GameResult[seeds.length];
+		pool.invoke(new Batch(seeds, factories, results, 0, seeds.length));
+		return results;
+	}
+	
+	/**
+	 * Play a single game on the calling thread
+	 * @param seed, seed of the game
+	 * @return, result of the game
+	 */
+	public GameResult play(long seed) {
+		return play(seed, factory);
+	}
+	
+	/**
+	 * Play a single game on the calling thread
+	 * @param seed, seed of the game
+	 * @param cf, factory of the Controller
+	 * @return, result of the game
+	 */
+	public GameResult play(long seed, ControllerFactory cf) {
+		Game game = new Game(rows, cols, vanish, seed);
+		game.setSettleCascades(true);
+		Controller controller = cf.create(seed);
+		game.setController(controller);
+		
+		while (!game.isGameOver() && game.getFrameCount() < max_frames) {
+			game.updateGame(Math.min(STEP_FRAMES, max_frames - game.getFrameCount()));
+		}
+		return new GameResult(seed, game.getScoreSystem().score, game.getScoreSystem().lines,
+				game.getScoreSystem().level, game.getPiecesPlaced(), game.getFrameCount(), game.isGameOver());
+	}
+	
+	/**
+	 * Stop the threads of the simulator
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Plays a range of the seeds, splitting it until one game is left
+	 */
+	private class Batch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final long[] seeds;
+		private final ControllerFactory[] factories;
+		private final GameResult[] results;
+		private final int from, to;
+		
+		private Batch(long[] s, ControllerFactory[] cf, GameResult[] r, int f, int t) {
+			seeds = s;
+			factories = cf;
+			results = r;
+			from = f;
+			to = t;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				results[from] = play(seeds[from], (factories == null) ? factory: factories[from]);
+			}
+			else if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Batch(seeds, factories, results, from, mid),
+						new Batch(seeds, factories, results, mid, to));
+			}
+		}
+	}
+	
+	/**
+	 * Play a batch of bot games and print the results as CSV
+	 * Arguments: games [beam width] [depth] [max frames] [threads]
+	 * Seeds are 1 to games so runs can be compared.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: BatchSimulator games [beam width] [depth] [max frames] [threads]");
+			System.exit(1);
+		}
+		int games = Integer.parseInt(args[0]);
+		final int width = (args.length > 1) ? Integer.parseInt(args[1]): 8;
+		final int depth = (args.length > 2) ? Integer.parseInt(args[2]): 2;
+		int frames = (args.length > 3) ? Integer.parseInt(args[3]): 60*60*10;
+		int threads = (args.length > 4) ? Integer.parseInt(args[4]): Runtime.getRuntime().availableProcessors();
+		
+		final Evaluator evaluator = new Evaluator();
+		BatchSimulator sim = new BatchSimulator(22, 10, 2, frames, new ControllerFactory() {
+			@Override
+			public Controller create(long seed) {
+				return new BotController(new BeamSearch(evaluator, width, depth));
+			}
+		}, threads);
+		
+		long[] seeds = new long[games];
+		for (int i=0; i<games; i++) {
+			seeds[i] = i+1;
+		}
+		
+		long start = System.nanoTime();
+		GameResult[] results = sim.run(seeds);
+		double secs = (System.nanoTime() - start)/1e9;
+		sim.shutdown();
+		
+		long lines = 0, frames_played = 0;
+		System.out.println(GameResult.csvHeader());
+		for (GameResult r: results) {
+			System.out.println(r.toCSV());
+			lines += r.getLines();
+			frames_played += r.getFrames();
+		}
+		System.err.printf("%d games, mean lines %.1f, %.0fx real time (%.1fs)%n",
+				games, (double) lines/games, frames_played/60.0/secs, secs);
+	}
+}
@@ -0,0 +1,22 @@
+package simulation;
+
+import game.Controller;
+
+/**
+ * ControllerFactory
+ * @author Josh Chia
+ * 
+ * Creates the Controller for each game of a batch. Called from the
+ * threads playing the games, so a Controller is never shared.
+ * 
+ */
+
+
+public interface ControllerFactory {
+	/**
+	 * Create a Controller for a game
+	 * @param seed, seed of the game to be played
+	 * @return, Controller
+	 */
+	public Controller create(long seed);
+}
@@ -0,0 +1,107 @@
+package simulation;
+
+/**
+ * GameResult
+ * @author Josh Chia
+ * 
+ * Outcome of a game played by the BatchSimulator
+ * 
+ */
+
+public class GameResult {
+	private final long seed;
+	private final int score, lines, level, pieces, frames;
+	private final boolean topped_out;
+	
+	/**
+	 * Construct the result of a game
+	 * @param s, seed of the game
+	 * @param sc, final score
+	 * @param ln, lines cleared
+	 * @param lvl, level reached
+	 * @param p, pieces placed
+	 * @param f, frames played (until top out if topped out)
+	 * @param t, true if the game ended by topping out
+	 */
+	public GameResult(long s, int sc, int ln, int lvl, int p, int f, boolean t) {
+		seed = s;
+		score = sc;
+		lines = ln;
+		level = lvl;
+		pieces = p;
+		frames = f;
+		topped_out = t;
+	}
+	
+	/**
+	 * Get the seed of the game
+	 * @return, seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Get the final score
+	 * @return, score
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Get the number of lines cleared
+	 * @return, lines
+	 */
+	public int getLines() {
+		return lines;
+	}
+	
+	/**
+	 * Get the level reached
+	 * @return, level
+	 */
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Get the number of Tetrominos locked
+	 * @return, pieces placed
+	 */
+	public int getPieces() {
+		return pieces;
+	}
+	
+	/**
+	 * Get the number of frames played, until top out if it topped out
+	 * @return, frames
+	 */
+	public int getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * Check if the game ended by topping out
+	 * @return, true if topped out
+	 */
+	public boolean isToppedOut() {
+		return topped_out;
+	}
+	
+	/**
+	 * Header for the CSV output of results
+	 * @return, comma separated column names
+	 */
+	public static String csvHeader() {
+		return "seed,score,lines,level,pieces,frames,topped_out";
+	}
+	
+	/**
+	 * Result as a line of CSV (see csvHeader)
+	 * @return, comma separated values
+	 */
+	public String toCSV() {
+		return seed + "," + score + "," + lines + "," + level + "," + pieces + "," + frames + "," + topped_out;
+	}
+}
@@ -0,0 +1,445 @@
+package simulation;
+
+import game.Controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.Random;
+
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+
+/**
+ * WeightTuner
+ * @author Josh Chia
+ *
+ * Evolves the weights of an Evaluator with a genetic algorithm.
+ * Every candidate is scored by the mean lines cleared by a bot over
+ * the same fixed seeds, all the games of a generation are played as
+ * one batch so every core is kept busy. Bots are reused per thread
+ * (only their Evaluator changes) to avoid allocating one per game.
+ *
+ * Each generation:
+ *  the best candidates (elites) are kept as they are
+ *  the rest are bred from parents chosen by tournament, blending the
+ *  parents' weights by fitness and mutating one weight
+ *
+ * Weights are kept at unit length since scaling them doesn't change
+ * which placement is chosen. The population is checkpointed after
+ * every generation so a run can be resumed, and the best weights so
+ * far are written to the weights file loaded by the game's bot. By
+ * default the bots search as widely and deeply as the game's bot, so
+ * the weights are tuned for the search that uses them.
+ *
+ */
+public class WeightTuner {
+	private static final int TOURNAMENT_SIZE = 3;
+	private static final double MUTATION_SIGMA = 0.2;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	// Search of the game's bot (see Main), the defaults of main
+	private static final int BOT_BEAM_WIDTH = 16;
+	private static final int BOT_DEPTH = 3;
+	private static final int BOT_INPUT_DELAY = 6;
+	
+	private final BatchSimulator simulator;
+	private final long[] seeds;
+	private final int population_size, elites;
+	private final long tuner_seed;
+	
+	// Bot of each thread, reused for every game it plays
+	private final ThreadLocal<BotController> bots;
+	
+	private int generation;
+	private double[][] population;
+	private double[] fitness;
+	
+	/**
+	 * Construct a WeightTuner with bots that input every frame
+	 * @param sim, simulator to play the games with
+	 * @param s, seeds of the games every candidate plays
+	 * @param size, number of candidates
+	 * @param e, number of elites kept each generation
+	 * @param width, beam width of the bots
+	 * @param depth, depth of the bots
+	 * @param ts, seed of the tuner's own randomness
+	 */
+	public WeightTuner(BatchSimulator sim, long[] s, int size, int e, int width, int depth, long ts) {
+		this(sim, s, size, e, width, depth, 0, ts);
+	}
+	
+	/**
+	 * Construct a WeightTuner
+	 * @param sim, simulator to play the games with
+	 * @param s, seeds of the games every candidate plays
+	 * @param size, number of candidates
+	 * @param e, number of elites kept each generation
+	 * @param width, beam width of the bots
+	 * @param depth, depth of the bots
+	 * @param delay, frames the bots wait between inputs
+	 * @param ts, seed of the tuner's own randomness
+	 */
+	public WeightTuner(BatchSimulator sim, long[] s, int size, int e, final int width, final int depth,
+			final int delay, long ts) {
+		if (size < 2 || e < 1 || e >= size) {
+			throw new IllegalArgumentException("Need at least 2 candidates and fewer elites than candidates");
+		}
+		simulator = sim;
+		seeds = s;
+		population_size = size;
+		elites = e;
+		tuner_seed = ts;
+		bots = new ThreadLocal<BotController>() {
+			@Override
+			protected BotController initialValue() {
+				return new BotController(new BeamSearch(new Evaluator(), width, depth), delay);
+			}
+		};
+		
+		// Initial population around the default weights
+		Random rand = random();
+		double[] defaults = new Evaluator().getWeights();
+		population = new double[size][];
+		fitness = new double[size];
+		for (int i=0; i<size; i++) {
+			population[i] = normalise(mutate(defaults, (i == 0) ? 0: 1, rand));
+			fitness[i] = Double.NaN;
+		}
+	}
+	
+	/**
+	 * Run generations, checkpointing and writing the best weights after each
+	 * @param generations, number of generations to run up to (in total)
+	 * @param checkpoint, file to checkpoint the population to
+	 * @param weights, file to write the best weights to
+	 * @throws IOException, if a file can't be written
+	 */
+	public void run(int generations, File checkpoint, File weights) throws IOException {
+		while (generation < generations) {
+			evaluate();
+			sort();
+			File tmp = new File(weights.getPath() + ".tmp");
+			new Evaluator(population[0]).save(tmp, "Generation " + generation + ", mean lines " + fitness[0]);
+			replace(tmp, weights);
+			System.err.printf("Generation %d: best %.2f, median %.2f%n", generation, fitness[0], fitness[population_size/2]);
+			
+			breed();
+			generation++;
+			save(checkpoint);
+		}
+	}
+	
+	/**
+	 * Score every candidate that hasn't been scored, as one batch
+	 */
+	private void evaluate() {
+		int candidates = 0;
+		int[] index = new int[population_size];
+		for (int i=0; i<population_size; i++) {
+			if (Double.isNaN(fitness[i])) {
+				index[candidates++] = i;
+			}
+		}
+		
+		long[] games = new long[candidates*seeds.length];
+		ControllerFactory[] factories = new ControllerFactory[games.length];
+		for (int c=0; c<candidates; c++) {
+			ControllerFactory factory = botFactory(new Evaluator(population[index[c]]));
+			for (int s=0; s<seeds.length; s++) {
+				games[c*seeds.length+s] = seeds[s];
+				factories[c*seeds.length+s] = factory;
+			}
+		}
+		
+		GameResult[] results = simulator.run(games, factories);
+		for (int c=0; c<candidates; c++) {
+			double lines = 0;
+			for (int s=0; s<seeds.length; s++) {
+				lines += results[c*seeds.length+s].getLines();
+			}
+			fitness[index[c]] = lines/seeds.length;
+		}
+	}
+	
+	private ControllerFactory botFactory(final Evaluator e) {
+		return new ControllerFactory() {
+			@Override
+			public Controller create(long seed) {
+				BotController bot = bots.get();
+				bot.getSearch().setEvaluator(e);
+				return bot;
+			}
+		};
+	}
+	
+	/**
+	 * Sort the population by fitness, best first
+	 */
+	private void sort() {
+		Integer[] order = new Integer[population_size];
+		for (int i=0; i<population_size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(fitness[b], fitness[a]);
+			}
+		});
+		
+		double[][] p = new double[population_size][];
+		double[] f = new double[population_size];
+		for (int i=0; i<population_size; i++) {
+			p[i] = population[order[i]];
+			f[i] = fitness[order[i]];
+		}
+		population = p;
+		fitness = f;
+	}
+	
+	/**
+	 * Replace all but the elites with children of the (sorted) population
+	 */
+	private void breed() {
+		Random rand = random();
+		double[][] p = new double[population_size][];
+		double[] f = new double[population_size];
+		
+		for (int i=0; i<population_size; i++) {
+			if (i < elites) {
+				p[i] = population[i];
+				f[i] = fitness[i];
+				continue;
+			}
+			int a = tournament(rand);
+			int b = tournament(rand);
+			double fa = Math.max(fitness[a], 0) + 1e-9;
+			double fb = Math.max(fitness[b], 0) + 1e-9;
+			
+			double[] child = new double[population[a].length];
+			for (int w=0; w<child.length; w++) {
+				child[w] = (population[a][w]*fa + population[b][w]*fb)/(fa + fb);
+			}
+			p[i] = normalise(mutate(child, 1, rand));
+			f[i] = Double.NaN;
+		}
+		population = p;
+		fitness = f;
+	}
+	
+	/**
+	 * Choose the fittest of a few random candidates
+	 * @return, index of the candidate
+	 */
+	private int tournament(Random rand) {
+		int best = rand.nextInt(population_size);
+		for (int i=1; i<TOURNAMENT_SIZE; i++) {
+			int c = rand.nextInt(population_size);
+			if (fitness[c] > fitness[best]) {
+				best = c;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Add gaussian noise to random weights
+	 * @param w, weights
+	 * @param count, number of weights to mutate
+	 * @return, mutated copy of the weights
+	 */
+	private static double[] mutate(double[] w, int count, Random rand) {
+		double[] m = Arrays.copyOf(w, w.length);
+		for (int i=0; i<count; i++) {
+			m[rand.nextInt(m.length)] += rand.nextGaussian()*MUTATION_SIGMA;
+		}
+		return m;
+	}
+	
+	private static double[] normalise(double[] w) {
+		double length = 0;
+		for (double x: w) {
+			length += x*x;
+		}
+		length = Math.sqrt(length);
+		if (length > 0) {
+			for (int i=0; i<w.length; i++) {
+				w[i] /= length;
+			}
+		}
+		return w;
+	}
+	
+	/**
+	 * Randomness of the current generation, derived from the tuner's
+	 * seed so that a resumed run continues exactly as it would have
+	 */
+	private Random random() {
+		return new Random(tuner_seed + generation*GOLDEN_GAMMA);
+	}
+	
+	/**
+	 * Get the generation the tuner is up to
+	 * @return, generation
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * Get the weights of a candidate
+	 * @param i, candidate (0 is the best after a generation is run)
+	 * @return, copy of the weights
+	 */
+	public double[] getWeights(int i) {
+		return Arrays.copyOf(population[i], population[i].length);
+	}
+	
+	/**
+	 * Get the fitness of a candidate
+	 * @param i, candidate
+	 * @return, mean lines cleared or NaN if not scored yet
+	 */
+	public double getFitness(int i) {
+		return fitness[i];
+	}
+	
+	/**
+	 * Checkpoint the population, written to a temporary file first so
+	 * a crash while saving can't corrupt the last checkpoint
+	 * @param f, checkpoint file
+	 * @throws IOException, if the file can't be written
+	 */
+	public void save(File f) throws IOException {
+		Properties props = new Properties();
+		props.setProperty("generation", Integer.toString(generation));
+		props.setProperty("size", Integer.toString(population_size));
+		for (int i=0; i<population_size; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (double w: population[i]) {
+				sb.append((sb.length() == 0) ? "": ",").append(w);
+			}
+			props.setProperty("weights." + i, sb.toString());
+			props.setProperty("fitness." + i, Double.toString(fitness[i]));
+		}
+		
+		File tmp = new File(f.getPath() + ".tmp");
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			props.store(out, "WeightTuner checkpoint");
+		}
+		finally {
+			out.close();
+		}
+		replace(tmp, f);
+	}
+	
+	/**
+	 * Replace a file with a temporary file written in full, so a crash
+	 * while writing can't leave it truncated
+	 * @param tmp, temporary file
+	 * @param f, file to replace
+	 * @throws IOException, if the file can't be replaced
+	 */
+	private static void replace(File tmp, File f) throws IOException {
+		Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Resume from a checkpoint
+	 * @param f, checkpoint file
+	 * @throws IOException, if the file can't be read or doesn't match the tuner
+	 */
+	public void load(File f) throws IOException {
+		Properties props = new Properties();
+		InputStream in = new FileInputStream(f);
+		try {
+			props.load(in);
+		}
+		finally {
+			in.close();
+		}
+		
+		try {
+			if (Integer.parseInt(required(props, "size")) != population_size) {
+				throw new IOException("Checkpoint population size does not match");
+			}
+			int g = Integer.parseInt(required(props, "generation"));
+			double[][] p = new double[population_size][];
+			double[] fit = new double[population_size];
+			for (int i=0; i<population_size; i++) {
+				String[] ws = required(props, "weights." + i).split(",");
+				p[i] = new double[ws.length];
+				for (int w=0; w<ws.length; w++) {
+					p[i][w] = Double.parseDouble(ws[w]);
+				}
+				fit[i] = Double.parseDouble(required(props, "fitness." + i));
+			}
+			generation = g;
+			population = p;
+			fitness = fit;
+		}
+		catch (NumberFormatException e) {
+			throw new IOException("Corrupt checkpoint " + f, e);
+		}
+	}
+	
+	private static String required(Properties props, String key) throws IOException {
+		String value = props.getProperty(key);
+		if (value == null) {
+			throw new IOException("Checkpoint is missing " + key);
+		}
+		return value;
+	}
+	
+	/**
+	 * Tune weights, resuming from the checkpoint if there is one
+	 * Arguments: checkpoint weights [generations] [population] [games] [max frames] [threads]
+	 * [beam width] [depth] [input delay], the bots default to the search of the game's bot
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: WeightTuner checkpoint weights [generations] [population] [games] [max frames] [threads]"
+					+ " [beam width] [depth] [input delay]");
+			System.exit(1);
+		}
+		File checkpoint = new File(args[0]);
+		File weights = new File(args[1]);
+		int generations = (args.length > 2) ? Integer.parseInt(args[2]): 50;
+		int size = (args.length > 3) ? Integer.parseInt(args[3]): 32;
+		int games = (args.length > 4) ? Integer.parseInt(args[4]): 16;
+		int frames = (args.length > 5) ? Integer.parseInt(args[5]): 60*60*5;
+		int threads = (args.length > 6) ? Integer.parseInt(args[6]): Runtime.getRuntime().availableProcessors();
+		int width = (args.length > 7) ? Integer.parseInt(args[7]): BOT_BEAM_WIDTH;
+		int depth = (args.length > 8) ? Integer.parseInt(args[8]): BOT_DEPTH;
+		int delay = (args.length > 9) ? Integer.parseInt(args[9]): BOT_INPUT_DELAY;
+		
+		long[] seeds = new long[games];
+		for (int i=0; i<games; i++) {
+			seeds[i] = i+1;
+		}
+		
+		BatchSimulator sim = new BatchSimulator(22, 10, 2, frames, null, threads);
+		WeightTuner tuner = new WeightTuner(sim, seeds, size, Math.max(1, size/8), width, depth, delay, 0);
+		if (checkpoint.exists()) {
+			tuner.load(checkpoint);
+			System.err.println("Resuming from generation " + tuner.getGeneration());
+		}
+		try {
+			tuner.run(generations, checkpoint, weights);
+		}
+		finally {
+			sim.shutdown();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.junit.Test;
+
+import replay.Replay;
+import replay.ReplayRecorder;
+import data_types.InputType;
+import data_types.RotateDirection;
+import data_types.RotateState;
+import data_types.Vector2D;
+
+/**
+ * TestAutoRepeat
+ * @author Josh Chia
+ *
+ * Tests the Auto Repeat System of the shift keys
+ *
+ * Tests:
+ *  A held shift repeats after DAS frames, then every ARR frames
+ *  An ARR of 0 shifts to the wall in one frame
+ *  Releasing a shift stops it, the other held shift takes over
+ *  The shift distance matches moving a cell at a time on random boards
+ *  Replays with Auto Repeat play back, version 1 replays are still read
+ */
+public class TestAutoRepeat {
+	private Game game;
+	
+	private void start(int das, int arr) {
+		game = new Game(22, 10, 2, 3);
+		game.setAutoRepeat(das, arr);
+		game.updateGame(1);
+	}
+	
+	private int x() {
+		return game.getPlayfield().active_piece.getX();
+	}
+	
+	@Test
+	public void testDelayAndRate() {
+		start(10, 2);
+		int x = x();
+		game.input(InputType.SHIFT_LEFT);
+		assertEquals(x-1, x());
+		
+		game.updateGame(10);
+		assertEquals(x-1, x());
+		game.updateGame(1);
+		assertEquals(x-2, x());
+		game.updateGame(1);
+		assertEquals(x-2, x());
+		game.updateGame(1);
+		assertEquals(x-3, x());
+	}
+	
+	@Test
+	public void testToWall() {
+		start(0, 0);
+		game.input(InputType.SHIFT_RIGHT);
+		game.updateGame(1);
+		
+		Tetromino t = game.getPlayfield().active_piece;
+		assertEquals(9, t.getX() + t.piece.getMaxX(t.getRotState()));
+	}
+	
+	@Test
+	public void testRelease() {
+		start(5, 1);
+		int x = x();
+		game.input(InputType.SHIFT_LEFT);
+		game.updateGame(3);
+		game.input(InputType.RELEASE_LEFT);
+		game.updateGame(10);
+		assertEquals(x-1, x());
+		
+		// Right takes over from left, left repeats again once right is released
+		game.input(InputType.SHIFT_LEFT);
+		game.input(InputType.SHIFT_RIGHT);
+		game.updateGame(5);
+		assertEquals(x-1, x());
+		game.input(InputType.RELEASE_RIGHT);
+		game.updateGame(6);
+		assertEquals(x-2, x());
+	}
+	
+	@Test
+	public void testShiftDistance() {
+		Random random = new Random(5);
+		for (int board=0; board<20; board++) {
+			Playfield pf = new Playfield(22, 10, 2);
+			for (int r=0; r<16; r++) {
+				for (int c=0; c<10; c++) {
+					if (random.nextInt(10) < 3) {
+						pf.addToGrid(new Mino(new Vector2D(c, r)));
+					}
+				}
+			}
+			
+			for (Piece p: Piece.values()) {
+				for (RotateState s: RotateState.values()) {
+					for (int y=0; y<22; y++) {
+						for (int x=-2; x<12; x++) {
+							if (!pf.isLegalPosition(p, s, x, y)) {
+								continue;
+							}
+							Tetromino t = p.create(new Vector2D(x, y));
+							while (t.getRotState() != s) {
+								t.rotate(RotateDirection.RIGHT);
+							}
+							for (int dir=-1; dir<=1; dir+=2) {
+								int d = 0;
+								while (pf.isLegalMove(t, dir*(d+1), 0)) {
+									d++;
+								}
+								assertEquals(d, pf.shiftDistance(t, dir));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testReplay() throws IOException {
+		Game recorded = new Game(22, 10, 2, 8);
+		recorded.setAutoRepeat(6, 0);
+		ReplayRecorder recorder = new ReplayRecorder(recorded);
+		recorded.updateGame(5);
+		recorded.input(InputType.SHIFT_LEFT);
+		recorded.updateGame(20);
+		recorded.input(InputType.RELEASE_LEFT);
+		recorded.input(InputType.HARD_DROP);
+		recorded.updateGame(30);
+		recorded.input(InputType.SHIFT_RIGHT);
+		recorded.updateGame(8);
+		recorded.input(InputType.RELEASE_RIGHT);
+		recorded.updateGame(30);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		recorder.finish().write(out);
+		Replay read = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(6, read.createGame().getAutoRepeatDelay());
+		assertTrue(read.verify());
+		assertEquals(Replay.stateHash(recorded), Replay.stateHash(read.play()));
+	}
+	
+	@Test
+	public void testVersion1() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(new byte[] {'J', 'F', 'X', 'R', 1, 22, 10, 2});
+		out.writeLong(5);
+		out.writeByte(10 << 3 | InputType.HOLD.ordinal());
+		out.writeByte(10 << 3 | 7);
+		out.writeLong(0);
+		
+		Replay read = Replay.read(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(1, read.getInputCount());
+		assertEquals(20, read.getEndFrame());
+		assertEquals(-1, read.createGame().getAutoRepeatDelay());
+	}
+}
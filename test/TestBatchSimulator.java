@@ -0,0 +1,78 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Controller;
+import game.ScriptedController;
+
+import org.junit.Test;
+
+import simulation.BatchSimulator;
+import simulation.ControllerFactory;
+import simulation.GameResult;
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+import data_types.InputType;
+
+/**
+ * TestBatchSimulator
+ * @author Josh Chia
+ *
+ * Tests the BatchSimulator
+ * 
+ * Tests:
+ *  Results are in seed order and don't depend on the threads
+ *  Scripted inputs are played on their frames
+ */
+public class TestBatchSimulator {
+	private static final long[] SEEDS = {5, 3, 8, 1};
+	
+	private ControllerFactory bots() {
+		return new ControllerFactory() {
+			@Override
+			public Controller create(long seed) {
+				return new BotController(new BeamSearch(new Evaluator(), 2, 1));
+			}
+		};
+	}
+	
+	@Test
+	public void testReproducible() {
+		BatchSimulator serial = new BatchSimulator(22, 10, 2, 1200, bots(), 1);
+		BatchSimulator parallel = new BatchSimulator(22, 10, 2, 1200, bots(), 3);
+		GameResult[] a = serial.run(SEEDS);
+		GameResult[] b = parallel.run(SEEDS);
+		serial.shutdown();
+		parallel.shutdown();
+		
+		for (int i=0; i<SEEDS.length; i++) {
+			assertEquals(SEEDS[i], a[i].getSeed());
+			assertEquals(a[i].toCSV(), b[i].toCSV());
+			assertTrue(a[i].getPieces() > 0);
+		}
+	}
+	
+	@Test
+	public void testScripted() {
+		// Hard drop every 10 frames, stacking in the middle until top out
+		final int[] frames = new int[100];
+		final InputType[] inputs = new InputType[100];
+		for (int i=0; i<100; i++) {
+			frames[i] = 10*i;
+			inputs[i] = InputType.HARD_DROP;
+		}
+		BatchSimulator sim = new BatchSimulator(22, 10, 2, 1200, new ControllerFactory() {
+			@Override
+			public Controller create(long seed) {
+				return new ScriptedController(frames, inputs);
+			}
+		}, 1);
+		GameResult r = sim.play(1);
+		sim.shutdown();
+		
+		assertTrue(r.isToppedOut());
+		assertTrue(r.getFrames() < 1200);
+		assertTrue(r.getPieces() > 5);
+	}
+}
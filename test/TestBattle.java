@@ -0,0 +1,219 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import game.AttackTable;
+import game.Battle;
+import game.Game;
+import game.GarbageQueue;
+
+import java.nio.ByteBuffer;
+
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.junit.Test;
+
+import data_types.InputType;
+import data_types.RotateDirection;
+import data_types.TSpin;
+import data_types.Vector2D;
+
+/**
+ * TestBattle
+ * @author Josh Chia
+ *
+ * Tests the battle rules: attacks, T-Spins and garbage
+ * 
+ * Tests:
+ *  Attacks follow the guideline tables
+ *  T-Spins are detected from the corners around the T
+ *  Garbage is inserted by shifting the rows up
+ *  Attacks cancel incoming garbage, oldest first
+ *  Garbage waits for a lock without a line clear once ready
+ *  Garbage pushing the stack out of the top ends the Game
+ *  A Tetris sends garbage to the opponent after cancelling
+ *  Incoming garbage is saved and restored with the Game
+ */
+public class TestBattle {
+	private static final int COLS = 10;
+	private static final int FULL_ROW = (1 << COLS) - 1;
+	
+	private void fill(Playfield pf, int c, int r) {
+		pf.addToGrid(new Mino(new Vector2D(c, r)));
+	}
+	
+	/**
+	 * Hard drop the active piece of a Game and lock it
+	 */
+	private void hardDrop(Game g) {
+		g.input(InputType.HARD_DROP);
+		g.updateGame(1);
+	}
+	
+	@Test
+	public void testAttackTable() {
+		assertEquals(0, AttackTable.attack(1, TSpin.NONE, false, 0, false));
+		assertEquals(1, AttackTable.attack(2, TSpin.NONE, false, 0, false));
+		assertEquals(2, AttackTable.attack(3, TSpin.NONE, false, 0, false));
+		assertEquals(4, AttackTable.attack(4, TSpin.NONE, false, 0, false));
+		assertEquals(5, AttackTable.attack(4, TSpin.NONE, true, 0, false));
+		assertEquals(4, AttackTable.attack(2, TSpin.FULL, false, 0, false));
+		assertEquals(7, AttackTable.attack(3, TSpin.FULL, true, 0, false));
+		assertEquals(1, AttackTable.attack(2, TSpin.MINI, false, 0, false));
+		assertEquals(0+2, AttackTable.attack(1, TSpin.NONE, false, 4, false));
+		assertEquals(1+5, AttackTable.attack(2, TSpin.NONE, false, 20, false));
+		assertEquals(0+10, AttackTable.attack(1, TSpin.NONE, false, 0, true));
+		assertEquals(0, AttackTable.attack(0, TSpin.FULL, true, 3, false));
+	}
+	
+	@Test
+	public void testTSpin() {
+		Playfield pf = new Playfield(22, COLS, 2);
+		// T pointing down into a slot with both bottom corners blocked
+		Tetromino t = Piece.T.create(new Vector2D(1, 1));
+		t.rotate(RotateDirection.RIGHT);
+		t.rotate(RotateDirection.RIGHT);
+		fill(pf, 0, 0);
+		fill(pf, 2, 0);
+		assertEquals(TSpin.NONE, pf.testTSpin(t, 0));
+		fill(pf, 0, 2);
+		assertEquals(TSpin.FULL, pf.testTSpin(t, 0));
+		assertEquals(TSpin.NONE, pf.testTSpin(t, -1));
+		
+		// Only one front corner is a Mini, unless kicked in by the last test
+		pf.removeFromGrid(0, 2);
+		pf.removeFromGrid(2, 0);
+		fill(pf, 0, 2);
+		fill(pf, 2, 2);
+		assertEquals(TSpin.MINI, pf.testTSpin(t, 0));
+		assertEquals(TSpin.FULL, pf.testTSpin(t, Piece.T.getWallKickTests()-1));
+		
+		// The wall and floor count as blocked
+		Tetromino floor = Piece.T.create(new Vector2D(0, 0));
+		floor.rotate(RotateDirection.RIGHT);
+		assertEquals(TSpin.MINI, pf.testTSpin(floor, 0));
+		assertEquals(TSpin.NONE, pf.testTSpin(Piece.S.create(new Vector2D(1, 1)), 0));
+	}
+	
+	@Test
+	public void testInsertGarbage() {
+		Playfield pf = new Playfield(22, COLS, 2);
+		fill(pf, 4, 0);
+		fill(pf, 5, 1);
+		
+		assertFalse(pf.insertGarbage(2, 3, Mino.DEFAULT_COLOR));
+		assertEquals(FULL_ROW & ~(1 << 3), pf.getRowMask(0));
+		assertEquals(FULL_ROW & ~(1 << 3), pf.getRowMask(1));
+		assertEquals(1 << 4, pf.getRowMask(2));
+		assertEquals(1 << 5, pf.getRowMask(3));
+		assertEquals(0, pf.getColor(0, 3));
+		assertEquals(Mino.DEFAULT_COLOR, pf.getColor(1, 0));
+		
+		assertTrue(pf.insertGarbage(20, 0, Mino.DEFAULT_COLOR));
+	}
+	
+	@Test
+	public void testCancel() {
+		GarbageQueue q = new GarbageQueue(20, COLS, 1);
+		q.add(3, 0);
+		q.add(2, 0);
+		assertEquals(5, q.getPending());
+		assertEquals(0, q.cancel(4));
+		assertEquals(1, q.getPending());
+		assertEquals(4, q.cancel(5));
+		assertEquals(0, q.getPending());
+	}
+	
+	@Test
+	public void testGarbageWaits() {
+		Game g = new Game(22, COLS, 2, 1);
+		g.updateGame(1);
+		g.receiveGarbage(3);
+		
+		// Not ready yet, the lock doesn't insert it
+		hardDrop(g);
+		assertEquals(3, g.getPendingGarbage());
+		int stack = g.getPlayfield().getRowMask(0);
+		
+		g.updateGame(30);
+		hardDrop(g);
+		assertEquals(0, g.getPendingGarbage());
+		for (int r=0; r<3; r++) {
+			assertEquals(COLS-1, Integer.bitCount(g.getPlayfield().getRowMask(r)));
+		}
+		assertEquals(stack, g.getPlayfield().getRowMask(3) & stack);
+		assertFalse(g.isGameOver());
+	}
+	
+	@Test
+	public void testToppedOut() {
+		Game g = new Game(22, COLS, 2, 1);
+		g.updateGame(1);
+		hardDrop(g);
+		g.receiveGarbage(22);
+		g.updateGame(30);
+		hardDrop(g);
+		assertTrue(g.isGameOver());
+	}
+	
+	@Test
+	public void testSendTetris() {
+		Game g0 = null;
+		for (long seed=1; g0 == null; seed++) {
+			Game g = new Game(22, COLS, 2, seed);
+			g.updateGame(1);
+			if (g.getPlayfield().active_piece.piece == Piece.I) {
+				g0 = g;
+			}
+		}
+		Game g1 = new Game(22, COLS, 2, 2);
+		Battle battle = new Battle(g0, g1);
+		for (int r=0; r<4; r++) {
+			for (int c=0; c<COLS-1; c++) {
+				fill(g0.getPlayfield(), c, r);
+			}
+		}
+		// Left over so it isn't a Perfect Clear
+		fill(g0.getPlayfield(), 0, 4);
+		g0.receiveGarbage(1);
+		
+		// Vertical I into the right most column
+		g0.input(InputType.ROTATE_RIGHT);
+		for (int i=0; i<COLS; i++) {
+			g0.input(InputType.SHIFT_RIGHT);
+		}
+		hardDrop(g0);
+		
+		assertEquals(4, g0.getScoreSystem().lines);
+		assertEquals(0, g0.getPendingGarbage());
+		assertEquals(3, g0.getLinesSent());
+		assertEquals(3, g1.getPendingGarbage());
+		assertTrue(battle.getWinner() == null);
+	}
+	
+	@Test
+	public void testState() {
+		Game g = new Game(22, COLS, 2, 4);
+		g.updateGame(10);
+		g.receiveGarbage(2);
+		g.receiveGarbage(5);
+		ByteBuffer b = ByteBuffer.allocate(g.stateSize());
+		g.saveState(b);
+		b.flip();
+		
+		Game copy = new Game(22, COLS, 2, 9);
+		copy.restoreState(b);
+		assertEquals(7, copy.getPendingGarbage());
+		g.updateGame(40);
+		hardDrop(g);
+		copy.updateGame(40);
+		hardDrop(copy);
+		for (int r=0; r<22; r++) {
+			assertEquals(g.getPlayfield().getRowMask(r), copy.getPlayfield().getRowMask(r));
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ai.BeamSearch;
+import ai.Board;
+import ai.BotController;
+import ai.Evaluator;
+import data_types.RotateState;
+import data_types.Vector2D;
+
+/**
+ * TestBeamSearch
+ * @author Josh Chia
+ *
+ * Tests the Evaluator, BeamSearch and BotController
+ *
+ * Tests:
+ *  Each Feature of a Board is measured
+ *  Placing a Piece clears the lines it completes
+ *  Search takes the line clear that is available
+ *  Search on several threads chooses the same placement
+ *  A bot plays a Game without topping out
+ */
+public class TestBeamSearch {
+	Playfield playfield;
+	Board board;
+	
+	@Before
+	public void setUp() {
+		playfield = new Playfield(22, 10, 2);
+		board = new Board(playfield);
+	}
+	
+	private void fill(int c, int r) {
+		playfield.addToGrid(new Mino(new Vector2D(c, r)));
+	}
+	
+	private double feature(Evaluator.Feature f, int lines) {
+		double[] w = new double[Evaluator.Feature.values().length];
+		w[f.ordinal()] = 1;
+		return new Evaluator(w).evaluate(board, lines);
+	}
+	
+	@Test
+	public void testFeatures() {
+		// Heights 3, 1, 0, 2 and a hole under column 0
+		fill(0, 0);
+		fill(0, 2);
+		fill(1, 0);
+		fill(3, 0);
+		fill(3, 1);
+		board.copyFrom(playfield);
+		
+		assertEquals(6, feature(Evaluator.Feature.AGGREGATE_HEIGHT, 0), 0);
+		assertEquals(1, feature(Evaluator.Feature.HOLES, 0), 0);
+		assertEquals(2+1+2+2, feature(Evaluator.Feature.BUMPINESS, 0), 0);
+		assertEquals(1, feature(Evaluator.Feature.WELLS, 0), 0);
+		assertEquals(2, feature(Evaluator.Feature.LINES_CLEARED, 2), 0);
+	}
+	
+	@Test
+	public void testPlace() {
+		for (int c=0; c<9; c++) {
+			fill(c, 0);
+			fill(c, 1);
+		}
+		fill(0, 2);
+		board.copyFrom(playfield);
+		
+		// Vertical I in the right most column clears two lines
+		int x = 9 - Piece.I.getMinX(RotateState.RIGHT);
+		int y = -Piece.I.getMinY(RotateState.RIGHT);
+		assertEquals(2, board.place(Piece.I, RotateState.RIGHT, x, y));
+		assertEquals(1 | 1 << 9, board.getRowMask(0));
+		assertEquals(1 << 9, board.getRowMask(1));
+		assertEquals(0, board.getRowMask(2));
+	}
+	
+	@Test
+	public void testTakesLineClear() {
+		for (int c=0; c<9; c++) {
+			for (int r=0; r<4; r++) {
+				fill(c, r);
+			}
+		}
+		board.copyFrom(playfield);
+		
+		BeamSearch search = new BeamSearch(new Evaluator(), 8, 2);
+		assertTrue(search.search(board, Piece.I, null, false, Arrays.asList(Piece.O, Piece.T)));
+		assertTrue(search.getPiece() == Piece.I);
+		board.place(search.getPiece(), search.getRotState(), search.getX(), search.getY());
+		assertEquals(0, board.getRowMask(0));
+	}
+	
+	@Test
+	public void testThreads() {
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			Game serial = new Game(22, 10, 2, 7);
+			Game parallel = new Game(22, 10, 2, 7);
+			serial.setController(new BotController(new BeamSearch(new Evaluator(), 8, 2)));
+			parallel.setController(new BotController(new BeamSearch(new Evaluator(), 8, 2, pool, 3)));
+			serial.updateGame(1000);
+			parallel.updateGame(1000);
+			
+			assertEquals(serial.getScoreSystem().score, parallel.getScoreSystem().score);
+			for (int r=0; r<22; r++) {
+				assertEquals(serial.getPlayfield().getRowMask(r), parallel.getPlayfield().getRowMask(r));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void testBotGame() {
+		Game game = new Game(22, 10, 2, 42);
+		game.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2)));
+		game.updateGame(3000);
+		
+		assertFalse(game.isGameOver());
+		assertTrue(game.getScoreSystem().lines > 0);
+	}
+}
@@ -0,0 +1,206 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import model.Fragments;
+import model.Mino;
+import model.Playfield;
+import model.Polyomino;
+import model.Tetromino;
+
+import org.junit.Test;
+
+import replay.Replay;
+import replay.ReplayRecorder;
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+import data_types.InputType;
+import data_types.Vector2D;
+
+/**
+ * TestFragments
+ * @author Josh Chia
+ *
+ * Tests finding the fragments of a grid and settling the debris of
+ * a Line Clear
+ *
+ * Tests:
+ *  Fragments match a flood fill on random boards
+ *  A fragment is taken off the grid once
+ *  Settled debris lands where animated debris does, within the frame
+ *  Games that settle debris play back from their Replays
+ */
+public class TestFragments {
+	private static void fill(Playfield pf, int c, int r) {
+		pf.addToGrid(new Mino(new Vector2D(c, r)));
+	}
+	
+	/**
+	 * Label each cell with its fragment by flood fill (reference)
+	 */
+	private static int[][] floodFill(Playfield pf) {
+		int[][] labels = new int[pf.getRows()][pf.getCols()];
+		int next = 1;
+		for (int r=0; r<pf.getRows(); r++) {
+			for (int c=0; c<pf.getCols(); c++) {
+				if (!pf.isOccupied(r, c) || labels[r][c] != 0) {
+					continue;
+				}
+				ArrayDeque<int[]> cells = new ArrayDeque<int[]>();
+				cells.add(new int[] {r, c});
+				labels[r][c] = next;
+				while (!cells.isEmpty()) {
+					int[] cell = cells.poll();
+					int[][] around = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+					for (int[] d: around) {
+						int nr = cell[0]+d[0], nc = cell[1]+d[1];
+						if (nr >= 0 && nr < pf.getRows() && nc >= 0 && nc < pf.getCols()
+								&& pf.isOccupied(nr, nc) && labels[nr][nc] == 0) {
+							labels[nr][nc] = next;
+							cells.add(new int[] {nr, nc});
+						}
+					}
+				}
+				next++;
+			}
+		}
+		return labels;
+	}
+	
+	@Test
+	public void testMatchesFloodFill() {
+		Random random = new Random(17);
+		Fragments fragments = new Fragments(22, 10);
+		for (int board=0; board<50; board++) {
+			Playfield pf = new Playfield(22, 10, 2);
+			for (int r=0; r<22; r++) {
+				for (int c=0; c<10; c++) {
+					if (random.nextInt(10) < 5) {
+						fill(pf, c, r);
+					}
+				}
+			}
+			fragments.label(pf);
+			int[][] labels = floodFill(pf);
+			
+			for (int a=0; a<22*10; a++) {
+				int ra = a/10, ca = a%10;
+				assertEquals(labels[ra][ca] == 0, fragments.get(ra, ca) < 0);
+				for (int b=a+1; b<22*10 && labels[ra][ca] != 0; b++) {
+					int rb = b/10, cb = b%10;
+					if (labels[rb][cb] != 0) {
+						assertEquals(labels[ra][ca] == labels[rb][cb], fragments.get(ra, ca) == fragments.get(rb, cb));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testTake() {
+		// A U with an O resting inside it, and a separate Mino
+		Playfield pf = new Playfield(22, 10, 2);
+		for (int c=0; c<4; c++) {
+			fill(pf, c, 0);
+		}
+		fill(pf, 0, 1);
+		fill(pf, 3, 1);
+		fill(pf, 1, 2);
+		fill(pf, 2, 2);
+		fill(pf, 1, 3);
+		fill(pf, 2, 3);
+		fill(pf, 6, 0);
+		
+		Fragments fragments = new Fragments(22, 10);
+		fragments.label(pf);
+		int u = fragments.get(0, 0);
+		assertEquals(u, fragments.get(1, 3));
+		assertTrue(u != fragments.get(2, 1));
+		assertTrue(u != fragments.get(0, 6));
+		assertEquals(-1, fragments.get(1, 1));
+		
+		Polyomino p = fragments.take(pf, u);
+		assertEquals(6, p.minos.length);
+		assertEquals(Mino.DEFAULT_COLOR, p.minos[0].getColorCode());
+		assertEquals(0, pf.getRowMask(0) & 0xf);
+		assertEquals(1 << 1 | 1 << 2, pf.getRowMask(2));
+		assertNull(fragments.take(pf, u));
+	}
+	
+	/**
+	 * Hard drop the first piece into a line clear under a stick that
+	 * falls as debris
+	 */
+	private Game clearUnderStick(boolean settle) {
+		Game game = new Game(22, 10, 2, 4);
+		game.setSettleCascades(settle);
+		game.updateGame(1);
+		
+		Playfield pf = game.getPlayfield();
+		Tetromino t = pf.active_piece;
+		int bottom = Integer.MAX_VALUE;
+		for (Mino m: t.minos) {
+			bottom = Math.min(bottom, (int) m.getPos().getAbsY());
+		}
+		int gap = 0;
+		for (Mino m: t.minos) {
+			if ((int) m.getPos().getAbsY() == bottom) {
+				gap |= 1 << (int) m.getPos().getAbsX();
+			}
+		}
+		for (int c=0; c<10; c++) {
+			if ((gap >>> c & 1) == 0) {
+				fill(pf, c, 0);
+			}
+		}
+		for (int r=1; r<4; r++) {
+			fill(pf, 0, r);
+		}
+		
+		game.input(InputType.HARD_DROP);
+		game.updateGame(1);
+		return game;
+	}
+	
+	@Test
+	public void testSettle() {
+		Game settled = clearUnderStick(true);
+		Game animated = clearUnderStick(false);
+		assertEquals(1, settled.getScoreSystem().lines);
+		assertTrue(settled.getPlayfield().polyominos.isEmpty());
+		assertTrue(!animated.getPlayfield().polyominos.isEmpty());
+		
+		animated.updateGame(60);
+		assertTrue(animated.getPlayfield().polyominos.isEmpty());
+		for (int r=0; r<22; r++) {
+			assertEquals(animated.getPlayfield().getRowMask(r), settled.getPlayfield().getRowMask(r));
+		}
+		assertEquals(3, settled.getPlayfield().getColumnHeight(0));
+	}
+	
+	@Test
+	public void testReplay() throws IOException {
+		Game recorded = new Game(22, 10, 2, 21);
+		recorded.setSettleCascades(true);
+		recorded.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2), 2));
+		ReplayRecorder recorder = new ReplayRecorder(recorded);
+		recorded.updateGame(3000);
+		assertTrue(recorded.getScoreSystem().lines > 0);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		recorder.finish().write(out);
+		Replay read = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+		assertTrue(read.createGame().isSettleCascades());
+		assertTrue(read.verify());
+	}
+}
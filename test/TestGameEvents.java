@@ -0,0 +1,128 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Controller;
+import game.Game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import metrics.GameEvents;
+
+import org.junit.Test;
+
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+import data_types.InputType;
+
+/**
+ * TestGameEvents
+ * @author Josh Chia
+ *
+ * Tests the Flight Recorder events of a Game
+ * 
+ * Tests:
+ *  A recording with the events enabled has one of each per occurrence
+ *  Level ups are recorded with the new level, and the game over once
+ */
+public class TestGameEvents {
+	@Test
+	public void testRecording() throws IOException {
+		File file = File.createTempFile("jfxtris", ".jfr");
+		Game game = new Game(22, 10, 2, 42);
+		game.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2)));
+		
+		Recording recording = new Recording();
+		try {
+			GameEvents.enableAll(recording);
+			recording.start();
+			game.updateGame(3000);
+			recording.stop();
+			recording.dump(file.toPath());
+			
+			Map<String, Integer> counts = new HashMap<String, Integer>();
+			for (RecordedEvent e: RecordingFile.readAllEvents(file.toPath())) {
+				String name = e.getEventType().getName();
+				counts.put(name, (counts.containsKey(name) ? counts.get(name): 0) + 1);
+			}
+			
+			assertEquals(game.getPiecesPlaced(), (int) counts.get(GameEvents.PREFIX + "Lock"));
+			assertTrue(counts.get(GameEvents.PREFIX + "Spawn") >= game.getPiecesPlaced());
+			assertTrue(counts.get(GameEvents.PREFIX + "LineClear") > 0);
+			assertTrue(counts.get(GameEvents.PREFIX + "Rotation") > 0);
+		}
+		finally {
+			recording.close();
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void testLevelUpAndGameOver() throws IOException {
+		File file = File.createTempFile("jfxtris", ".jfr");
+		Game game = new Game(22, 10, 2, 42);
+		game.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2)));
+		
+		Recording recording = new Recording();
+		try {
+			GameEvents.enableAll(recording);
+			recording.start();
+			while (game.getScoreSystem().level < 3 && game.getFrameCount() < 60*60*10) {
+				game.updateGame(600);
+			}
+			
+			// Hard drop every frame to top out, then play on past it
+			game.setController(new Controller() {
+				@Override
+				public void update(Game g) {
+					g.input(InputType.HARD_DROP);
+				}
+			});
+			while (!game.isGameOver() && game.getFrameCount() < 60*60*20) {
+				game.updateGame(60);
+			}
+			game.updateGame(60);
+			recording.stop();
+			recording.dump(file.toPath());
+			
+			List<RecordedEvent> level_ups = new ArrayList<RecordedEvent>();
+			int game_overs = 0;
+			for (RecordedEvent e: RecordingFile.readAllEvents(file.toPath())) {
+				String name = e.getEventType().getName();
+				if (name.equals(GameEvents.PREFIX + "LevelUp")) {
+					level_ups.add(e);
+				}
+				else if (name.equals(GameEvents.PREFIX + "GameOver")) {
+					game_overs++;
+					assertEquals(game.getScoreSystem().lines, e.getInt("lines"));
+					assertEquals(game.getPiecesPlaced(), e.getInt("pieces"));
+				}
+			}
+			
+			assertTrue(game.isGameOver());
+			assertEquals(1, game_overs);
+			assertTrue(game.getScoreSystem().level >= 3);
+			assertTrue(level_ups.size() > 0 && level_ups.size() < game.getScoreSystem().level);
+			int level = 1;
+			for (RecordedEvent e: level_ups) {
+				assertTrue(e.getInt("level") > level);
+				assertTrue(e.getInt("gravity_cells") > 0 && e.getInt("gravity_frames") > 0);
+				level = e.getInt("level");
+			}
+			assertEquals(game.getScoreSystem().level, level);
+		}
+		finally {
+			recording.close();
+			file.delete();
+		}
+	}
+}
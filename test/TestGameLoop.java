@@ -0,0 +1,74 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+import game.GameLoop;
+import game.GameSnapshot;
+import game.InputQueue;
+
+import org.junit.Test;
+
+import data_types.InputType;
+
+/**
+ * TestGameLoop
+ * @author Josh Chia
+ *
+ * Tests running Games on the GameLoop's thread
+ * 
+ * Tests:
+ *  Queued inputs are given on the next frame, in order
+ *  The loop publishes snapshots as it plays and stops when paused
+ */
+public class TestGameLoop {
+	@Test
+	public void testInputQueue() {
+		Game queued = new Game(22, 10, 2, 11);
+		Game direct = new Game(22, 10, 2, 11);
+		InputQueue inputs = new InputQueue();
+		queued.setController(inputs);
+		queued.updateGame(1);
+		direct.updateGame(1);
+		
+		inputs.offer(InputType.SHIFT_LEFT);
+		inputs.offer(InputType.SHIFT_LEFT);
+		inputs.offer(InputType.HARD_DROP);
+		direct.input(InputType.SHIFT_LEFT);
+		direct.input(InputType.SHIFT_LEFT);
+		direct.input(InputType.HARD_DROP);
+		queued.updateGame(1);
+		direct.updateGame(1);
+		
+		assertEquals(1, queued.getPiecesPlaced());
+		for (int r=0; r<22; r++) {
+			assertEquals(direct.getPlayfield().getRowMask(r), queued.getPlayfield().getRowMask(r));
+		}
+	}
+	
+	@Test
+	public void testLoop() throws InterruptedException {
+		Game game = new Game(22, 10, 2, 3);
+		InputQueue inputs = new InputQueue();
+		game.setController(inputs);
+		GameLoop loop = new GameLoop(new Game[] {game}, 600);
+		assertEquals(0, loop.getSnapshot(0).getFrame());
+		
+		loop.start();
+		// Wait for the first piece to spawn
+		while (loop.getSnapshot(0).getFrame() < 2) {
+			Thread.sleep(1);
+		}
+		inputs.offer(InputType.HARD_DROP);
+		Thread.sleep(200);
+		loop.pause();
+		Thread.sleep(50);
+		GameSnapshot paused = loop.getSnapshot(0);
+		Thread.sleep(100);
+		loop.stop();
+		
+		assertTrue(paused.getFrame() > 0);
+		assertEquals(paused.getFrame(), loop.getSnapshot(0).getFrame());
+		assertTrue(paused.getScore() > 0);
+	}
+}
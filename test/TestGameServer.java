@@ -0,0 +1,224 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import server.GameServer;
+import server.Protocol;
+import server.SpectatorState;
+import data_types.InputType;
+
+/**
+ * TestGameServer
+ * @author Josh Chia
+ *
+ * Tests a GameServer with clients over TCP on the loopback interface
+ * 
+ * Tests:
+ *  A player is welcomed and their input is played in the state sent
+ *  A room turns away a client once it is full
+ *  A spectator is sent a keyframe and sees a player's drop in the deltas
+ *  Rooms close once their players leave
+ *  A client that joins twice is seated once and its room closes when it leaves
+ */
+public class TestGameServer {
+	private static final int TIMEOUT = 5000;
+	
+	private GameServer server;
+	
+	@Before
+	public void setUp() throws IOException {
+		server = new GameServer(0, 1, 2);
+		server.start();
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+	
+	private Socket connect() throws IOException {
+		Socket s = new Socket("127.0.0.1", server.getPort());
+		s.setSoTimeout(TIMEOUT);
+		s.setTcpNoDelay(true);
+		return s;
+	}
+	
+	private void send(Socket s, byte type, int value, int input) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(16);
+		Protocol.begin(b, type);
+		b.putInt(value);
+		if (input >= 0) {
+			b.put((byte) input);
+		}
+		Protocol.end(b);
+		OutputStream out = s.getOutputStream();
+		out.write(b.array(), 0, b.limit());
+		out.flush();
+	}
+	
+	/**
+	 * Read the next message, from its type to its end
+	 */
+	private ByteBuffer receive(Socket s) throws IOException {
+		DataInputStream in = new DataInputStream(s.getInputStream());
+		byte[] message = new byte[in.readInt()];
+		in.readFully(message);
+		return ByteBuffer.wrap(message);
+	}
+	
+	/**
+	 * Read the next delta sent to a spectator into the Games' states
+	 */
+	private void readDelta(Socket spectator, SpectatorState[] states) throws IOException {
+		ByteBuffer delta = receive(spectator);
+		assertEquals(Protocol.DELTA, delta.get());
+		delta.getInt();
+		while (delta.hasRemaining()) {
+			states[delta.get()].readDelta(delta);
+		}
+	}
+	
+	private void waitFor(int rooms) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (server.getRoomCount() != rooms && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals(rooms, server.getRoomCount());
+	}
+	
+	@Test
+	public void testPlay() throws IOException {
+		Socket s = connect();
+		try {
+			send(s, Protocol.JOIN, 7, -1);
+			ByteBuffer welcome = receive(s);
+			assertEquals(Protocol.WELCOME, welcome.get());
+			assertEquals(7, welcome.getInt());
+			assertEquals(0, welcome.get());
+			welcome.get();
+			long seed = welcome.getLong();
+			Game game = new Game(welcome.getShort(), welcome.getShort(), welcome.getShort(), seed);
+			
+			send(s, Protocol.INPUT, 0, InputType.HARD_DROP.ordinal());
+			while (game.getPiecesPlaced() == 0) {
+				ByteBuffer state = receive(s);
+				if (state.get() == Protocol.STATE && state.get() == 0) {
+					game.restoreState(state);
+				}
+			}
+			assertEquals(1, game.getPiecesPlaced());
+		}
+		finally {
+			s.close();
+		}
+	}
+	
+	@Test
+	public void testFull() throws IOException {
+		Socket[] clients = {connect(), connect(), connect()};
+		try {
+			for (int i=0; i<clients.length; i++) {
+				send(clients[i], Protocol.JOIN, 1, -1);
+				ByteBuffer reply = receive(clients[i]);
+				if (i < 2) {
+					assertEquals(Protocol.WELCOME, reply.get());
+					assertEquals(1, reply.getInt());
+					assertEquals(i, reply.get());
+				}
+				else {
+					assertEquals(Protocol.FULL, reply.get());
+					assertEquals(1, reply.getInt());
+				}
+			}
+		}
+		finally {
+			for (Socket s: clients) {
+				s.close();
+			}
+		}
+	}
+	
+	@Test
+	public void testSpectate() throws IOException {
+		Socket player = connect(), spectator = connect();
+		try {
+			send(spectator, Protocol.SPECTATE, 3, -1);
+			ByteBuffer reply = receive(spectator);
+			assertEquals(Protocol.NO_ROOM, reply.get());
+			assertEquals(3, reply.getInt());
+			
+			send(player, Protocol.JOIN, 3, -1);
+			assertEquals(Protocol.WELCOME, receive(player).get());
+			send(spectator, Protocol.SPECTATE, 3, -1);
+			ByteBuffer keyframe = receive(spectator);
+			assertEquals(Protocol.KEYFRAME, keyframe.get());
+			assertEquals(3, keyframe.getInt());
+			keyframe.getInt();
+			SpectatorState[] states = new SpectatorState[keyframe.get()];
+			int rows = keyframe.getShort(), cols = keyframe.getShort();
+			for (int i=0; i<states.length; i++) {
+				states[i] = new SpectatorState(rows, cols);
+				states[i].readDelta(keyframe);
+			}
+			
+			// The room may not have played a frame yet, drop once a piece is shown
+			while (states[0].getPiece() == null) {
+				readDelta(spectator, states);
+			}
+			send(player, Protocol.INPUT, 0, InputType.HARD_DROP.ordinal());
+			while (states[0].getRowMask(0) == 0) {
+				readDelta(spectator, states);
+			}
+			assertTrue(states[0].getScore() > 0);
+			assertEquals(0, states[1].getRowMask(0));
+		}
+		finally {
+			player.close();
+			spectator.close();
+		}
+	}
+	
+	@Test
+	public void testRoomsClose() throws IOException, InterruptedException {
+		Socket[] clients = {connect(), connect(), connect()};
+		for (int i=0; i<clients.length; i++) {
+			send(clients[i], Protocol.JOIN, i, -1);
+			assertEquals(Protocol.WELCOME, receive(clients[i]).get());
+		}
+		assertEquals(3, server.getRoomCount());
+		
+		clients[0].close();
+		clients[1].close();
+		waitFor(1);
+		clients[2].close();
+		waitFor(0);
+	}
+	
+	@Test
+	public void testJoinTwice() throws IOException, InterruptedException {
+		Socket s = connect();
+		send(s, Protocol.JOIN, 5, -1);
+		send(s, Protocol.JOIN, 5, -1);
+		send(s, Protocol.JOIN, 6, -1);
+		ByteBuffer welcome = receive(s);
+		assertEquals(Protocol.WELCOME, welcome.get());
+		assertEquals(5, welcome.getInt());
+		assertEquals(0, welcome.get());
+		assertEquals(1, server.getRoomCount());
+		
+		s.close();
+		waitFor(0);
+	}
+}
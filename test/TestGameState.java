@@ -0,0 +1,134 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+import game.GameState;
+
+import org.junit.Test;
+
+import metrics.EngineMetrics;
+import replay.Replay;
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+
+/**
+ * TestGameState
+ * @author Josh Chia
+ *
+ * Tests saving and restoring the full state of a Game
+ * 
+ * Tests:
+ *  A restored Game plays on exactly as the original did
+ *  Restoring while debris falls after a line clear
+ *  A state restores into another Game of the same size
+ *  Saving and restoring doesn't allocate
+ *  A state of another size is rejected
+ */
+public class TestGameState {
+	private static final int FRAMES = 600;
+	
+	private Game botGame(long seed) {
+		Game game = new Game(22, 10, 2, seed);
+		game.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2), 2));
+		return game;
+	}
+	
+	/**
+	 * Play on from a state with a new bot and save where it ends
+	 */
+	private GameState playOn(Game game, GameState from) {
+		from.restore(game);
+		game.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2), 2));
+		game.updateGame(FRAMES);
+		GameState end = new GameState(game);
+		end.save(game);
+		return end;
+	}
+	
+	private void assertPlaysOn(Game game, GameState from) {
+		GameState first = playOn(game, from);
+		long hash = Replay.stateHash(game);
+		GameState second = playOn(game, from);
+		
+		assertEquals(from.getFrame() + FRAMES, second.getFrame());
+		assertEquals(hash, Replay.stateHash(game));
+		assertEquals(first.getBuffer(), second.getBuffer());
+	}
+	
+	@Test
+	public void testRestore() {
+		Game game = botGame(5);
+		game.updateGame(2000);
+		GameState state = new GameState(game);
+		state.save(game);
+		
+		assertEquals(2000, state.getFrame());
+		assertPlaysOn(game, state);
+	}
+	
+	@Test
+	public void testRestoreDebris() {
+		Game game = botGame(5);
+		while (game.getPlayfield().polyominos.isEmpty()) {
+			assertFalse(game.isGameOver());
+			game.updateGame(1);
+		}
+		GameState state = new GameState(game);
+		state.save(game);
+		
+		assertPlaysOn(game, state);
+	}
+	
+	@Test
+	public void testRestoreOtherGame() {
+		Game game = botGame(5);
+		game.updateGame(2000);
+		GameState state = new GameState(game);
+		state.save(game);
+		
+		Game other = new Game(22, 10, 2, 6);
+		GameState copy = new GameState(other);
+		copy.copyFrom(state);
+		copy.restore(other);
+		assertEquals(game.getSeed(), other.getSeed());
+		assertEquals(Replay.stateHash(game), Replay.stateHash(other));
+		assertEquals(playOn(game, state).getBuffer(), playOn(other, copy).getBuffer());
+	}
+	
+	@Test
+	public void testNoAllocation() {
+		Game game = botGame(5);
+		game.updateGame(2000);
+		GameState state = new GameState(game);
+		
+		for (int i=0; i<20000; i++) {
+			state.save(game);
+			state.restore(game);
+		}
+		
+		// The JVM's counter can jump at a safepoint (e.g. installing
+		// compiled code), so the best of a few rounds is taken
+		long allocated = Long.MAX_VALUE;
+		for (int round=0; round<5 && allocated != 0; round++) {
+			long start = EngineMetrics.allocatedBytes();
+			for (int i=0; i<1000; i++) {
+				state.save(game);
+				state.restore(game);
+			}
+			allocated = (start >= 0) ? EngineMetrics.allocatedBytes() - start: 0;
+		}
+		assertEquals(0, allocated);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherSize() {
+		Game game = botGame(5);
+		GameState state = new GameState(game);
+		state.save(game);
+		assertTrue(state.getSize() > 0);
+		state.restore(new Game(20, 10, 2, 5));
+	}
+}
@@ -0,0 +1,89 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import metrics.Counter;
+import metrics.EngineMetrics;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+import org.junit.Test;
+
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+
+/**
+ * TestMetrics
+ * @author Josh Chia
+ *
+ * Tests the MetricsRegistry and the engine's Metrics
+ * 
+ * Tests:
+ *  Histograms count observations into cumulative buckets
+ *  Metrics are written in the Prometheus text format
+ *  Names can't be registered twice
+ *  Playing a Game updates the engine's Metrics
+ */
+public class TestMetrics {
+	@Test
+	public void testHistogram() {
+		MetricsRegistry registry = new MetricsRegistry();
+		Histogram h = registry.histogram("test_seconds", "Test", new long[] {10, 20, 40}, 0.5);
+		h.record(5);
+		h.record(10);
+		h.record(30);
+		h.record(100);
+		
+		assertEquals(4, h.getCount());
+		assertEquals(2, h.getCumulativeCount(0));
+		assertEquals(2, h.getCumulativeCount(1));
+		assertEquals(3, h.getCumulativeCount(2));
+		assertEquals(4, h.getCumulativeCount(3));
+		assertEquals(72.5, h.getSum(), 1e-9);
+		assertEquals(50, h.getMax(), 1e-9);
+	}
+	
+	@Test
+	public void testPrometheus() {
+		MetricsRegistry registry = new MetricsRegistry();
+		Counter c = registry.counter("test_lines_total", "Lines");
+		Histogram h = registry.histogram("test_bytes", "Bytes", new long[] {1, 2}, 1);
+		c.add(3);
+		h.record(2);
+		
+		String text = registry.toPrometheus();
+		assertTrue(text.contains("# TYPE test_lines_total counter\ntest_lines_total 3\n"));
+		assertTrue(text.contains("# TYPE test_lines_per_second gauge\n"));
+		assertTrue(text.contains("test_bytes_bucket{le=\"1\"} 0\n"));
+		assertTrue(text.contains("test_bytes_bucket{le=\"2\"} 1\n"));
+		assertTrue(text.contains("test_bytes_bucket{le=\"+Inf\"} 1\n"));
+		assertTrue(text.contains("test_bytes_count 1\n"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateName() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("test_total", "Test");
+		registry.counter("test_total", "Test");
+	}
+	
+	@Test
+	public void testEngineMetrics() {
+		long ticks = EngineMetrics.TICK.getCount();
+		long spawned = EngineMetrics.PIECES_SPAWNED.get();
+		long lines = EngineMetrics.LINES_CLEARED.get();
+		long rotations = EngineMetrics.KICK_ATTEMPTS.getCount();
+		
+		Game game = new Game(22, 10, 2, 42);
+		game.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2)));
+		game.updateGame(3000);
+		
+		assertTrue(EngineMetrics.TICK.getCount() > ticks);
+		assertTrue(EngineMetrics.PIECES_SPAWNED.get() - spawned >= game.getPiecesPlaced());
+		assertTrue(EngineMetrics.LINES_CLEARED.get() - lines >= game.getScoreSystem().lines);
+		assertTrue(EngineMetrics.KICK_ATTEMPTS.getCount() > rotations);
+	}
+}
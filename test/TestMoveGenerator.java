@@ -0,0 +1,147 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ai.MoveGenerator;
+import ai.PlacementList;
+import data_types.InputType;
+import data_types.RotateDirection;
+import data_types.Vector2D;
+
+/**
+ * TestMoveGenerator
+ * @author Josh Chia
+ *
+ * Tests the placements found by the MoveGenerator
+ *
+ * Tests:
+ *  All placements of a T on an empty Playfield
+ *  Following a path lands the Tetromino on its placement
+ *  Tucking under an overhang is found
+ *  Placements of the held Piece start with a hold
+ */
+public class TestMoveGenerator {
+	Playfield playfield;
+	MoveGenerator generator;
+	PlacementList placements;
+	
+	@Before
+	public void setUp() {
+		playfield = new Playfield(22, 10, 2);
+		generator = new MoveGenerator();
+		placements = new PlacementList();
+	}
+	
+	private void fill(int c, int r) {
+		playfield.addToGrid(new Mino(new Vector2D(c, r)));
+	}
+	
+	/**
+	 * Follow the path to a placement like Game would
+	 */
+	private Tetromino follow(int i) {
+		Tetromino t = placements.getPiece(i).create(playfield);
+		for (InputType in: placements.getPath(i)) {
+			switch (in) {
+			case SHIFT_LEFT:
+				playfield.move(t, -1, 0);
+				break;
+			case SHIFT_RIGHT:
+				playfield.move(t, 1, 0);
+				break;
+			case ROTATE_LEFT:
+				playfield.rotate(t, RotateDirection.LEFT);
+				break;
+			case ROTATE_RIGHT:
+				playfield.rotate(t, RotateDirection.RIGHT);
+				break;
+			case SOFT_DROP:
+				playfield.move(t, 0, -1);
+				break;
+			case HARD_DROP:
+				playfield.move(t, 0, -playfield.getRows());
+				break;
+			default:
+				break;
+			}
+		}
+		return t;
+	}
+	
+	@Test
+	public void testEmptyPlayfield() {
+		generator.generate(playfield, Piece.T, null, placements);
+		
+		// 8 flat in ZERO and TWO, 9 upright in RIGHT and LEFT
+		assertEquals(34, placements.size());
+		for (int i=0; i<placements.size(); i++) {
+			assertTrue(!playfield.isLegalPosition(Piece.T, placements.getRotState(i), placements.getX(i), placements.getY(i)-1));
+			assertEquals(InputType.HARD_DROP, placements.getInput(i, placements.getPathLength(i)-1));
+		}
+	}
+	
+	@Test
+	public void testPathsReachPlacements() {
+		for (int c=0; c<10; c++) {
+			for (int r=0; r<(c*7)%5; r++) {
+				fill(c, r);
+			}
+		}
+		fill(2, 5);
+		fill(7, 4);
+		
+		for (Piece p: Piece.values()) {
+			generator.generate(playfield, p, null, placements);
+			assertTrue(placements.size() > 0);
+			for (int i=0; i<placements.size(); i++) {
+				Tetromino t = follow(i);
+				assertEquals(placements.getX(i), t.getX());
+				assertEquals(placements.getY(i), t.getY());
+				assertTrue(placements.getRotState(i) == t.getRotState());
+			}
+		}
+	}
+	
+	@Test
+	public void testTuck() {
+		// Overhang over the bottom left corner
+		for (int c=0; c<4; c++) {
+			fill(c, 2);
+		}
+		generator.generate(playfield, Piece.O, null, placements);
+		
+		boolean tucked = false;
+		for (int i=0; i<placements.size(); i++) {
+			Tetromino t = follow(i);
+			boolean under = true;
+			for (Mino m: t.minos) {
+				under &= m.getPos().getAbsX() <= 1 && m.getPos().getAbsY() < 2;
+			}
+			tucked |= under;
+		}
+		assertTrue(tucked);
+	}
+	
+	@Test
+	public void testHold() {
+		generator.generate(playfield, Piece.T, null, placements);
+		int t_count = placements.size();
+		generator.generate(playfield, Piece.I, null, placements);
+		int i_count = placements.size();
+		
+		generator.generate(playfield, Piece.T, Piece.I, placements);
+		assertEquals(t_count + i_count, placements.size());
+		for (int i=0; i<placements.size(); i++) {
+			assertEquals(placements.getPiece(i) == Piece.I, placements.usesHold(i));
+			assertEquals(placements.usesHold(i), placements.getInput(i, 0) == InputType.HOLD);
+		}
+	}
+}
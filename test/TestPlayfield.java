@@ -0,0 +1,197 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import data_types.RotateDirection;
+import data_types.RotateState;
+import data_types.Vector2D;
+
+/**
+ * TestPlayfield
+ * @author Josh Chia
+ *
+ * Tests the (headless) Playfield rules for locking Minos,
+ * moving Tetrominos and detecting Line Clears.
+ * 
+ * Tests:
+ *  Locked Minos occupy the grid
+ *  Moves blocked by walls, floor and locked Minos
+ *  Full row is a Line Clear
+ *  Clearing a line frees the row
+ *  Hard drop lands on the stack
+ *  Drop in one move stops after its rows or where it lands
+ *  Column heights follow locks, removals, Line Clears and garbage
+ *  Drop distance matches moving a row at a time on random boards
+ *  Ghost lands on the stack and follows changes to the grid
+ */
+public class TestPlayfield {
+	Playfield playfield;
+	
+	@Before
+	public void setUp() {
+		playfield = new Playfield(22, 10, 2);
+	}
+	
+	/**
+	 * Fill a row leaving a gap
+	 * @param r, row to fill
+	 * @param gap, column to leave free or -1 for none
+	 */
+	private void fillRow(int r, int gap) {
+		for (int c=0; c<playfield.getCols(); c++) {
+			if (c != gap) {
+				playfield.addToGrid(new Mino(new Vector2D(c, r)));
+			}
+		}
+	}
+	
+	@Test
+	public void testAddToGrid() {
+		playfield.addToGrid(new Mino(new Vector2D(3, 0)));
+		assertTrue(playfield.isOccupied(0, 3));
+		assertFalse(playfield.isOccupied(0, 4));
+		assertTrue(playfield.getColor(0, 3) == Mino.DEFAULT_COLOR);
+	}
+	
+	@Test
+	public void testWallBlocksMove() {
+		Tetromino t = Piece.I.create(playfield);
+		assertTrue(playfield.isLegalMove(t, -3, 0));
+		assertFalse(playfield.isLegalMove(t, -4, 0));
+		assertTrue(playfield.isLegalMove(t, 3, 0));
+		assertFalse(playfield.isLegalMove(t, 4, 0));
+	}
+	
+	@Test
+	public void testStackBlocksMove() {
+		fillRow(0, -1);
+		Tetromino t = Piece.O.create(playfield);
+		assertTrue(playfield.isLegalMove(t, 0, -19));
+		assertFalse(playfield.isLegalMove(t, 0, -20));
+	}
+	
+	@Test
+	public void testIsLine() {
+		fillRow(0, 4);
+		assertFalse(playfield.isLine(0));
+		playfield.addToGrid(new Mino(new Vector2D(4, 0)));
+		assertTrue(playfield.isLine(0));
+	}
+	
+	@Test
+	public void testClearLine() {
+		fillRow(0, -1);
+		playfield.clearLine(0);
+		assertFalse(playfield.isLine(0));
+		assertTrue(playfield.getRowMask(0) == 0);
+		assertTrue(playfield.getColor(0, 0) == 0);
+	}
+	
+	@Test
+	public void testHardDrop() {
+		fillRow(0, -1);
+		fillRow(1, -1);
+		Tetromino t = Piece.T.create(playfield);
+		playfield.move(t, 0, -playfield.getRows());
+		assertTrue(t.getPos().getAbsY() == 2);
+		assertFalse(playfield.isDroppable(t));
+	}
+	
+	@Test
+	public void testDrop() {
+		fillRow(0, -1);
+		fillRow(1, -1);
+		Tetromino t = Piece.T.create(playfield);
+		int y = t.getY();
+		assertEquals(3, playfield.drop(t, 3));
+		assertEquals(y-3, t.getY());
+		
+		Tetromino walked = Piece.T.create(playfield);
+		playfield.move(walked, 0, -playfield.getRows());
+		assertEquals(y-3-walked.getY(), playfield.drop(t, playfield.getRows()));
+		assertEquals(walked.getY(), t.getY());
+		assertEquals(walked.minos[0].getPos().getAbsY(), t.minos[0].getPos().getAbsY(), 0);
+		assertEquals(0, playfield.drop(t, 1));
+	}
+	
+	@Test
+	public void testColumnHeights() {
+		playfield.addToGrid(new Mino(new Vector2D(2, 0)));
+		playfield.addToGrid(new Mino(new Vector2D(2, 5)));
+		assertEquals(6, playfield.getColumnHeight(2));
+		assertEquals(0, playfield.getColumnHeight(3));
+		
+		playfield.removeFromGrid(5, 2);
+		assertEquals(1, playfield.getColumnHeight(2));
+		playfield.clearLine(0);
+		assertEquals(0, playfield.getColumnHeight(2));
+		
+		playfield.addToGrid(new Mino(new Vector2D(4, 1)));
+		playfield.insertGarbage(2, 4, Mino.DEFAULT_COLOR);
+		assertEquals(4, playfield.getColumnHeight(4));
+		assertEquals(2, playfield.getColumnHeight(0));
+	}
+	
+	@Test
+	public void testDropDistance() {
+		Random random = new Random(11);
+		for (int board=0; board<20; board++) {
+			playfield = new Playfield(22, 10, 2);
+			for (int r=0; r<16; r++) {
+				for (int c=0; c<10; c++) {
+					if (random.nextInt(10) < 3) {
+						playfield.addToGrid(new Mino(new Vector2D(c, r)));
+					}
+				}
+			}
+			
+			for (Piece p: Piece.values()) {
+				for (RotateState s: RotateState.values()) {
+					for (int y=0; y<22; y++) {
+						for (int x=-2; x<12; x++) {
+							if (!playfield.isLegalPosition(p, s, x, y)) {
+								continue;
+							}
+							Tetromino t = p.create(new Vector2D(x, y));
+							while (t.getRotState() != s) {
+								t.rotate(RotateDirection.RIGHT);
+							}
+							int d = 0;
+							while (playfield.isLegalMove(t, 0, -(d+1))) {
+								d++;
+							}
+							assertEquals(d, playfield.dropDistance(t));
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testGhost() {
+		fillRow(0, -1);
+		Tetromino t = Piece.O.create(playfield);
+		playfield.spawn(t);
+		int y = playfield.getGhostY();
+		playfield.move(t, 0, -5);
+		assertEquals(y, playfield.getGhostY());
+		
+		// Landing rises with the stack, under the O
+		playfield.addToGrid(new Mino(new Vector2D((int) t.minos[0].getPos().getAbsX(), 3)));
+		assertEquals(y+3, playfield.getGhostY());
+		playfield.move(t, 0, -playfield.getRows());
+		assertEquals(t.getY(), playfield.getGhostY());
+	}
+}
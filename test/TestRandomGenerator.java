@@ -0,0 +1,111 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import model.Piece;
+import model.RandomGenerator;
+
+import org.junit.Test;
+
+/**
+ * TestRandomGenerator
+ * @author Josh Chia
+ *
+ * Tests the BPS Random Generator
+ * 
+ * Tests:
+ *  Every bag of 7 contains each Piece once
+ *  Preview matches the Pieces that are generated
+ *  Same seed generates the same sequence
+ *  Split generators are deterministic and independent
+ *  Splitting doesn't change the sequence of the parent
+ */
+public class TestRandomGenerator {
+	private final int PREVIEW_SIZE = 5;
+	private final int BAGS = 100;
+	
+	@Test
+	public void testBags() {
+		RandomGenerator<Piece> rg = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 42);
+		for (int b=0; b<BAGS; b++) {
+			Set<Piece> bag = EnumSet.noneOf(Piece.class);
+			for (int i=0; i<Piece.values().length; i++) {
+				bag.add(rg.next());
+			}
+			assertEquals(Piece.values().length, bag.size());
+		}
+	}
+	
+	@Test
+	public void testPreview() {
+		RandomGenerator<Piece> rg = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 7);
+		RandomGenerator<Piece> same = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 7);
+		List<Piece> preview = rg.getPreviewList();
+		
+		for (int i=0; i<BAGS; i++) {
+			assertEquals(PREVIEW_SIZE, preview.size());
+			assertTrue(preview.get(0) == rg.peek());
+			Piece first = preview.get(0);
+			Piece second = preview.get(1);
+			assertTrue(rg.next() == first);
+			assertTrue(rg.peek() == second);
+			assertTrue(same.next() == first);
+		}
+	}
+	
+	@Test
+	public void testSeed() {
+		RandomGenerator<Piece> rg1 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 1234);
+		RandomGenerator<Piece> rg2 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 1234);
+		for (int i=0; i<BAGS*7; i++) {
+			assertTrue(rg1.next() == rg2.next());
+		}
+		assertEquals(1234, rg1.getSeed());
+	}
+	
+	@Test
+	public void testSplit() {
+		RandomGenerator<Piece> rg1 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 99);
+		RandomGenerator<Piece> rg2 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 99);
+		RandomGenerator<Piece> child1 = rg1.split();
+		RandomGenerator<Piece> child2 = rg2.split();
+		
+		assertEquals(child1.getSeed(), child2.getSeed());
+		assertTrue(child1.getSeed() != rg1.getSeed());
+		
+		int same = 0;
+		for (int i=0; i<BAGS*7; i++) {
+			Piece p = child1.next();
+			assertTrue(p == child2.next());
+			if (p == rg1.next()) {
+				same++;
+			}
+		}
+		assertTrue(same < BAGS*7);
+	}
+	
+	@Test
+	public void testSplitKeepsSequence() {
+		RandomGenerator<Piece> rg1 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 99);
+		RandomGenerator<Piece> rg2 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 99);
+		for (int i=0; i<10; i++) {
+			assertTrue(rg1.next() == rg2.next());
+		}
+		RandomGenerator<Piece> child1 = rg1.split();
+		RandomGenerator<Piece> child2 = rg1.split();
+		assertTrue(child1.getSeed() != child2.getSeed());
+		
+		for (int i=0; i<BAGS*7; i++) {
+			assertTrue(rg1.next() == rg2.next());
+		}
+		
+		// The child doesn't depend on the pieces drawn before the split
+		RandomGenerator<Piece> rg3 = new RandomGenerator<Piece>(Piece.class, PREVIEW_SIZE, 99);
+		assertEquals(child1.getSeed(), rg3.split().getSeed());
+	}
+}
@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import replay.Replay;
+import replay.ReplayRecorder;
+import ai.BeamSearch;
+import ai.BotController;
+import ai.Evaluator;
+import data_types.InputType;
+
+/**
+ * TestReplay
+ * @author Josh Chia
+ *
+ * Tests recording and playing back Replays
+ * 
+ * Tests:
+ *  A bot game played back reproduces the board exactly
+ *  Replays survive the binary format and are compact
+ *  A tampered Replay fails verification
+ *  Bad data is rejected
+ */
+public class TestReplay {
+	private Game recorded;
+	
+	private Replay record(int frames) {
+		recorded = new Game(22, 10, 2, 99);
+		recorded.setController(new BotController(new BeamSearch(new Evaluator(), 4, 2), 2));
+		ReplayRecorder recorder = new ReplayRecorder(recorded);
+		recorded.updateGame(frames);
+		return recorder.finish();
+	}
+	
+	@Test
+	public void testPlayback() {
+		Replay replay = record(3000);
+		Game played = replay.play();
+		
+		assertTrue(replay.getInputCount() > 0);
+		assertEquals(recorded.getFrameCount(), played.getFrameCount());
+		assertEquals(recorded.getScoreSystem().score, played.getScoreSystem().score);
+		for (int r=0; r<22; r++) {
+			assertEquals(recorded.getPlayfield().getRowMask(r), played.getPlayfield().getRowMask(r));
+		}
+		assertTrue(replay.verify());
+	}
+	
+	@Test
+	public void testFormat() throws IOException {
+		Replay replay = record(3000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		replay.write(out);
+		
+		// Header, a byte or two per input and the end
+		assertTrue(out.size() <= 32 + 2*replay.getInputCount());
+		
+		Replay read = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(replay.getSeed(), read.getSeed());
+		assertEquals(replay.getInputCount(), read.getInputCount());
+		assertEquals(replay.getEndFrame(), read.getEndFrame());
+		assertEquals(replay.getStateHash(), read.getStateHash());
+		assertTrue(read.verify());
+	}
+	
+	@Test
+	public void testTampered() {
+		Replay replay = new Replay(22, 10, 2, 5, new int[] {10, 10, 10}, 
+				new InputType[] {InputType.SHIFT_LEFT, InputType.SHIFT_LEFT, InputType.HARD_DROP}, 100, 0);
+		assertFalse(replay.verify());
+	}
+	
+	@Test(expected = IOException.class)
+	public void testBadMagic() throws IOException {
+		Replay.read(new ByteArrayInputStream(new byte[] {'J', 'F', 'X', 'X', 1}));
+	}
+}
@@ -0,0 +1,128 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import replay.ArchiveEntry;
+import replay.Replay;
+import replay.ReplayArchive;
+import data_types.InputType;
+
+/**
+ * TestReplayArchive
+ * @author Josh Chia
+ *
+ * Tests the ReplayArchive
+ * 
+ * Tests:
+ *  Replays are found by score, lines, date and player
+ *  An archive is the same after reopening
+ *  A torn record at the end is truncated on open
+ *  Compaction drops deleted Replays
+ */
+public class TestReplayArchive {
+	private File file;
+	private ReplayArchive archive;
+	
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("jfxtris", ".jfxa");
+		file.delete();
+		archive = new ReplayArchive(file, false);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		archive.close();
+		file.delete();
+	}
+	
+	private Replay replay(long seed) {
+		return new Replay(22, 10, 2, seed, new int[] {1, 5}, new InputType[] {InputType.SHIFT_LEFT, InputType.HARD_DROP}, 60, seed);
+	}
+	
+	private void fill() throws IOException {
+		for (int i=0; i<20; i++) {
+			archive.append(replay(i), (i%2 == 0) ? "even": "odd", 1000L*60*i, 100*((i*7)%20), i);
+		}
+	}
+	
+	@Test
+	public void testQueries() throws IOException {
+		fill();
+		assertEquals(20, archive.size());
+		
+		List<ArchiveEntry> top = archive.topByScore(3);
+		assertEquals(3, top.size());
+		assertEquals(1900, top.get(0).getScore());
+		assertEquals(1800, top.get(1).getScore());
+		assertEquals(1700, top.get(2).getScore());
+		assertEquals(19, archive.topByLines(1).get(0).getLines());
+		
+		assertEquals(3, archive.rangeByScore(500, 700).size());
+		assertEquals(5, archive.rangeByLines(10, 14).size());
+		assertEquals(3, archive.rangeByDate(1000L*60*2, 1000L*60*4).size());
+		assertEquals(10, archive.byPlayer("odd").size());
+		
+		ArchiveEntry e = archive.topByScore(1).get(0);
+		assertEquals(e.getLines(), archive.getReplay(e.getId()).getSeed());
+	}
+	
+	@Test
+	public void testReopen() throws IOException {
+		fill();
+		archive.delete(3);
+		archive.close();
+		archive = new ReplayArchive(file, false);
+		
+		assertEquals(19, archive.size());
+		assertEquals(1900, archive.topByScore(1).get(0).getScore());
+		assertEquals(9, archive.byPlayer("odd").size());
+		assertEquals(60, archive.getReplay(4).getEndFrame());
+	}
+	
+	@Test
+	public void testTornTail() throws IOException {
+		fill();
+		archive.close();
+		long good = file.length();
+		
+		// A record cut short by a crash, then garbage
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(good);
+		raf.writeInt(100);
+		raf.writeInt(12345);
+		raf.write(new byte[30]);
+		raf.close();
+		
+		archive = new ReplayArchive(file, false);
+		assertEquals(20, archive.size());
+		assertEquals(good, file.length());
+		archive.append(replay(99), "late", 0, 5, 5);
+		assertEquals(21, archive.size());
+	}
+	
+	@Test
+	public void testCompact() throws IOException {
+		fill();
+		for (int id=0; id<10; id++) {
+			archive.delete(id);
+		}
+		long before = file.length();
+		archive.compact();
+		
+		assertEquals(10, archive.size());
+		assertTrue(file.length() < before);
+		assertEquals(10, archive.rangeByLines(10, 19).size());
+		assertEquals(10, archive.getReplay(0).getSeed());
+	}
+}
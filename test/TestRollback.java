@@ -0,0 +1,205 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+import game.GameState;
+import model.Tetromino;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.RollbackSession;
+import net.SimulatedTransport;
+import net.UdpTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import replay.Replay;
+import data_types.InputType;
+
+/**
+ * TestRollback
+ * @author Josh Chia
+ *
+ * Tests RollbackSessions between two peers over UDP on the loopback
+ * interface, a frame every millisecond so latencies are in frames
+ * 
+ * Tests:
+ *  The host's seed is accepted by the peer
+ *  Both peers end in the same state despite latency, jitter and loss
+ *  A session stalls rather than predict too far ahead
+ *  Presses and releases of the shifts within a frame keep their order
+ */
+public class TestRollback {
+	private static final int FRAMES = 1500;
+	private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	private UdpTransport udp0, udp1;
+	
+	@Before
+	public void setUp() throws IOException {
+		udp0 = new UdpTransport(0);
+		udp1 = new UdpTransport(0);
+		udp0.connect(new InetSocketAddress("127.0.0.1", udp1.getLocalPort()));
+		udp1.connect(new InetSocketAddress("127.0.0.1", udp0.getLocalPort()));
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		udp0.close();
+		udp1.close();
+	}
+	
+	private Game[] games(long seed) {
+		return new Game[] {new Game(22, 10, 2, seed), new Game(22, 10, 2, seed)};
+	}
+	
+	/**
+	 * Give random inputs to a session, about one every 8 frames
+	 */
+	private void randomInput(RollbackSession s, Random random) {
+		if (random.nextInt(8) == 0) {
+			InputType[] types = InputType.values();
+			s.offer(types[random.nextInt(types.length)]);
+		}
+	}
+	
+	private byte[] state(Game g) {
+		GameState s = new GameState(g);
+		s.save(g);
+		ByteBuffer b = s.getBuffer();
+		byte[] bs = new byte[b.remaining()];
+		b.get(bs);
+		return bs;
+	}
+	
+	@Test
+	public void testHandshake() throws IOException {
+		SimulatedTransport lossy = new SimulatedTransport(udp0, 5, 0, 0.5, 1);
+		final long[] seed = new long[1];
+		Thread peer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					seed[0] = RollbackSession.join(udp1, 5000);
+				}
+				catch (IOException e) {
+					seed[0] = -1;
+				}
+			}
+		};
+		peer.start();
+		RollbackSession.host(lossy, 1234, 5000);
+		try {
+			peer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		assertEquals(1234, seed[0]);
+	}
+	
+	@Test
+	public void testSameState() throws IOException {
+		Game[] games0 = games(7), games1 = games(7);
+		SimulatedTransport net0 = new SimulatedTransport(udp0, 6, 4, 0.1, 1);
+		SimulatedTransport net1 = new SimulatedTransport(udp1, 6, 4, 0.1, 2);
+		RollbackSession s0 = new RollbackSession(games0, 0, net0, 2);
+		RollbackSession s1 = new RollbackSession(games1, 1, net1, 2);
+		Random random0 = new Random(1), random1 = new Random(2);
+		
+		long next = System.nanoTime();
+		while (s0.getFrame() < FRAMES || s1.getFrame() < FRAMES
+				|| s0.getConfirmedFrame() < FRAMES-1 || s1.getConfirmedFrame() < FRAMES-1) {
+			if (s0.getFrame() < FRAMES) {
+				randomInput(s0, random0);
+				s0.advance();
+			}
+			else {
+				s0.poll();
+			}
+			if (s1.getFrame() < FRAMES) {
+				randomInput(s1, random1);
+				s1.advance();
+			}
+			else {
+				s1.poll();
+			}
+			next += FRAME_NANOS;
+			LockSupport.parkNanos(next - System.nanoTime());
+		}
+		
+		assertTrue(s0.isConnected() && s1.isConnected());
+		assertTrue(net0.getLost() > 0 && net1.getLost() > 0);
+		assertTrue(s0.getRollbacks() > 0 && s1.getRollbacks() > 0);
+		for (int i=0; i<2; i++) {
+			assertEquals(games0[i].isGameOver(), games1[i].isGameOver());
+			assertEquals(Replay.stateHash(games0[i]), Replay.stateHash(games1[i]));
+			assertArrayEquals(state(games0[i]), state(games1[i]));
+		}
+		assertTrue(games0[0].getPiecesPlaced() > 10);
+	}
+	
+	@Test
+	public void testStall() throws IOException {
+		RollbackSession s0 = new RollbackSession(games(7), 0, udp0, 0);
+		
+		// The peer never plays, so only the predicted frames are played
+		for (int i=0; i<50; i++) {
+			s0.advance();
+		}
+		assertEquals(RollbackSession.MAX_PREDICTION, s0.getFrame());
+		assertEquals(50 - RollbackSession.MAX_PREDICTION, s0.getStalls());
+	}
+	
+	/**
+	 * Play frames of a session, with a peer that gives no inputs
+	 */
+	private void play(RollbackSession s, RollbackSession peer, int frames) throws IOException {
+		for (int i=0; i<frames; i++) {
+			s.advance();
+			peer.advance();
+		}
+	}
+	
+	@Test
+	public void testShiftOrder() throws IOException {
+		Game[] games0 = games(7);
+		for (Game g: games0) {
+			g.setAutoRepeat(2, 0);
+		}
+		RollbackSession s0 = new RollbackSession(games0, 0, udp0, 0);
+		RollbackSession s1 = new RollbackSession(games(7), 1, udp1, 0);
+		play(s0, s1, 5);
+		Tetromino t = games0[0].getPlayfield().active_piece;
+		
+		// Tapped then held again, so it repeats to the wall
+		s0.offer(InputType.SHIFT_LEFT);
+		s0.offer(InputType.RELEASE_LEFT);
+		s0.offer(InputType.SHIFT_LEFT);
+		play(s0, s1, 6);
+		assertEquals(0, t.getX() + t.piece.getMinX(t.getRotState()));
+		
+		// The last shift pressed takes over
+		s0.offer(InputType.RELEASE_LEFT);
+		s0.offer(InputType.SHIFT_RIGHT);
+		s0.offer(InputType.SHIFT_LEFT);
+		s0.offer(InputType.RELEASE_RIGHT);
+		play(s0, s1, 6);
+		assertEquals(0, t.getX() + t.piece.getMinX(t.getRotState()));
+		
+		s0.offer(InputType.RELEASE_LEFT);
+		s0.offer(InputType.SHIFT_LEFT);
+		s0.offer(InputType.SHIFT_RIGHT);
+		play(s0, s1, 6);
+		assertEquals(9, t.getX() + t.piece.getMaxX(t.getRotState()));
+	}
+}
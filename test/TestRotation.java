@@ -9,7 +9,6 @@ import org.junit.Before;
 import org.junit.Test;
 
 import data_types.RotateDirection;
-import data_types.Vector2D;
 
 /**
  * TestRotateState
@@ -36,7 +35,7 @@ import data_types.Vector2D;
 public class TestRotation {
 	Tetromino t, i, o, s, z, j, l;
 	
-	Playfield playfield = new Playfield(new Vector2D(0, 0), 1024, 600, 10, 22, 2);
+	Playfield playfield = new Playfield(10, 22, 2);
 	
 	Tetromino T_ZERO, T_RIGHT, T_TWO, T_LEFT;
 	Tetromino I_ZERO, I_RIGHT, I_TWO, I_LEFT;
@@ -0,0 +1,120 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import game.Game;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import server.SpectatorState;
+import data_types.InputType;
+
+/**
+ * TestSpectatorState
+ * @author Josh Chia
+ *
+ * Tests encoding Games for spectators as a keyframe then deltas
+ * 
+ * Tests:
+ *  A keyframe shows the same as the Game
+ *  Deltas keep a spectator's state the same as the Game's
+ *  Nothing is written for a frame in which nothing changed
+ *  A game in steady play streams under 300 bytes per second
+ */
+public class TestSpectatorState {
+	private static final int FRAMES = 60*60;
+	// Length, type and frame of each delta message
+	private static final int MESSAGE_HEADER = 4+1+4;
+	
+	private Game game;
+	private SpectatorState sent, next, spectator;
+	private ByteBuffer buffer;
+	
+	@Before
+	public void setUp() {
+		game = new Game(22, 10, 2, 3);
+		sent = new SpectatorState(22, 10);
+		next = new SpectatorState(22, 10);
+		spectator = new SpectatorState(22, 10);
+		buffer = ByteBuffer.allocate(1024);
+	}
+	
+	/**
+	 * Play a frame with a random input about every 8 frames
+	 */
+	private void play(Random random) {
+		if (random.nextInt(8) == 0) {
+			InputType[] types = InputType.values();
+			game.input(types[random.nextInt(types.length)]);
+		}
+		game.updateGame(1);
+	}
+	
+	@Test
+	public void testKeyframe() {
+		game.input(InputType.HARD_DROP);
+		game.updateGame(120);
+		sent.capture(game);
+		assertTrue(sent.writeDelta(null, buffer));
+		buffer.flip();
+		spectator.readDelta(buffer);
+		
+		assertFalse(buffer.hasRemaining());
+		assertTrue(spectator.sameAs(sent));
+		assertEquals(game.getScoreSystem().score, spectator.getScore());
+		assertEquals(game.getHeldPiece(), spectator.getHeldPiece());
+		assertEquals(game.getPreviewList().get(0), spectator.getPreview(0));
+		assertEquals(game.getPlayfield().active_piece.piece, spectator.getPiece());
+		for (int r=0; r<22; r++) {
+			assertEquals(game.getPlayfield().getRowMask(r), spectator.getRowMask(r));
+		}
+	}
+	
+	@Test
+	public void testDeltas() {
+		Random random = new Random(5);
+		sent.capture(game);
+		spectator.copyFrom(sent);
+		
+		for (int f=0; f<FRAMES && !game.isGameOver(); f++) {
+			play(random);
+			next.capture(game);
+			buffer.clear();
+			if (next.writeDelta(sent, buffer)) {
+				buffer.flip();
+				spectator.readDelta(buffer);
+				assertFalse(buffer.hasRemaining());
+			}
+			else {
+				assertEquals(0, buffer.position());
+			}
+			assertTrue(spectator.sameAs(next));
+			sent.copyFrom(next);
+		}
+		assertTrue(game.getPiecesPlaced() > 0);
+	}
+	
+	@Test
+	public void testBandwidth() {
+		Random random = new Random(11);
+		sent.capture(game);
+		long bytes = 0;
+		int frames = 0;
+		for (; frames<FRAMES && !game.isGameOver(); frames++) {
+			play(random);
+			next.capture(game);
+			buffer.clear();
+			if (next.writeDelta(sent, buffer)) {
+				bytes += MESSAGE_HEADER + 1 + buffer.position();
+			}
+			sent.copyFrom(next);
+		}
+		double per_second = bytes*60.0/frames;
+		assertTrue("Streamed " + per_second + " bytes per second", per_second < 300);
+	}
+}
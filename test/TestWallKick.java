@@ -0,0 +1,112 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import model.Mino;
+import model.Piece;
+import model.Playfield;
+import model.Tetromino;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import data_types.RotateDirection;
+import data_types.RotateState;
+import data_types.Vector2D;
+
+/**
+ * TestWallKick
+ * @author Josh Chia
+ *
+ * Tests the Wall Kicks applied by the Playfield when rotating
+ * 
+ * Tests:
+ *  Rotation in free space uses no kick
+ *  I rotating against the wall is kicked away from it
+ *  T boxed in against the wall is kicked up by the last test
+ *  Testing a rotation does not move the Tetromino
+ *  Failed rotation leaves the Tetromino unchanged
+ */
+public class TestWallKick {
+	Playfield playfield;
+	
+	@Before
+	public void setUp() {
+		playfield = new Playfield(22, 10, 2);
+	}
+	
+	private void fill(int c, int r) {
+		playfield.addToGrid(new Mino(new Vector2D(c, r)));
+	}
+	
+	@Test
+	public void testNoKick() {
+		Tetromino t = Piece.T.create(playfield);
+		assertEquals(0, playfield.rotate(t, RotateDirection.RIGHT));
+		assertTrue(t.getRotState() == RotateState.RIGHT);
+	}
+	
+	@Test
+	public void testWallKickI() {
+		Tetromino i = Piece.I.create(playfield);
+		playfield.rotate(i, RotateDirection.RIGHT);
+		playfield.move(i, -10, 0);
+		int x = i.getX();
+		
+		assertTrue(playfield.rotate(i, RotateDirection.RIGHT) > 0);
+		assertTrue(i.getRotState() == RotateState.TWO);
+		assertTrue(i.getX() > x);
+		assertTrue(playfield.isLegalPosition(i.piece, i.getRotState(), i.getX(), i.getY()));
+	}
+	
+	@Test
+	public void testLastWallKick() {
+		// T standing against the left wall, blocked on its right
+		fill(0, 2);
+		fill(2, 3);
+		fill(2, 4);
+		
+		Tetromino t = Piece.T.create(playfield);
+		playfield.rotate(t, RotateDirection.RIGHT);
+		playfield.move(t, -4, 0);
+		playfield.move(t, 0, -playfield.getRows());
+		assertEquals(0, t.getX());
+		assertEquals(4, t.getY());
+		
+		// Only the last test, (+1, +2), is free
+		assertEquals(4, playfield.rotate(t, RotateDirection.LEFT));
+		assertTrue(t.getRotState() == RotateState.ZERO);
+		assertEquals(1, t.getX());
+		assertEquals(6, t.getY());
+	}
+	
+	@Test
+	public void testRotationTestDoesNotMutate() {
+		Tetromino t = Piece.S.create(playfield);
+		Tetromino same = Piece.S.create(playfield);
+		playfield.testRotation(t.piece, t.getRotState(), RotateDirection.LEFT, t.getX(), t.getY());
+		assertTrue(t.equals(same));
+	}
+	
+	@Test
+	public void testFailedRotation() {
+		// Box in an I piece lying flat
+		for (int c=0; c<10; c++) {
+			fill(c, 0);
+			if (c < 3 || c > 6) fill(c, 1);
+		}
+		Tetromino i = Piece.I.create(playfield);
+		Tetromino same = Piece.I.create(playfield);
+		playfield.move(i, 0, -playfield.getRows());
+		playfield.move(same, 0, -playfield.getRows());
+		for (int r=2; r<6; r++) {
+			for (int c=0; c<10; c++) {
+				fill(c, r);
+			}
+		}
+		
+		assertEquals(-1, playfield.rotate(i, RotateDirection.RIGHT));
+		assertTrue(i.equals(same));
+		assertEquals(same.getY(), i.getY());
+	}
+}
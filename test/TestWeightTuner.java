@@ -0,0 +1,89 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import simulation.BatchSimulator;
+import simulation.WeightTuner;
+import ai.Evaluator;
+
+/**
+ * TestWeightTuner
+ * @author Josh Chia
+ *
+ * Tests the WeightTuner and the weights file
+ * 
+ * Tests:
+ *  Weights saved are loaded back
+ *  A generation scores the population and writes the best weights
+ *  Resuming from a checkpoint continues the same run
+ */
+public class TestWeightTuner {
+	private static final long[] SEEDS = {1, 2};
+	
+	BatchSimulator sim;
+	File checkpoint, weights;
+	
+	@Before
+	public void setUp() throws IOException {
+		sim = new BatchSimulator(22, 10, 2, 600, null, 2);
+		checkpoint = File.createTempFile("tuner", ".checkpoint");
+		weights = File.createTempFile("tuner", ".properties");
+		checkpoint.delete();
+	}
+	
+	@After
+	public void tearDown() {
+		sim.shutdown();
+		checkpoint.delete();
+		weights.delete();
+	}
+	
+	private WeightTuner tuner() {
+		return new WeightTuner(sim, SEEDS, 4, 1, 1, 1, 99);
+	}
+	
+	@Test
+	public void testSaveLoad() throws IOException {
+		Evaluator e = new Evaluator(new double[] {-1, -2, -3, -4, 5});
+		e.save(weights, "test");
+		assertArrayEquals(e.getWeights(), Evaluator.load(weights).getWeights(), 0);
+	}
+	
+	@Test
+	public void testGeneration() throws IOException {
+		WeightTuner t = tuner();
+		t.run(1, checkpoint, weights);
+		
+		assertEquals(1, t.getGeneration());
+		assertTrue(checkpoint.exists());
+		assertFalse(Double.isNaN(t.getFitness(0)));
+		assertEquals(5, Evaluator.load(weights).getWeights().length);
+	}
+	
+	@Test
+	public void testResume() throws IOException {
+		WeightTuner straight = tuner();
+		straight.run(2, checkpoint, weights);
+		
+		WeightTuner first = tuner();
+		first.run(1, checkpoint, weights);
+		WeightTuner resumed = tuner();
+		resumed.load(checkpoint);
+		assertEquals(1, resumed.getGeneration());
+		resumed.run(2, checkpoint, weights);
+		
+		for (int i=0; i<4; i++) {
+			assertArrayEquals(straight.getWeights(i), resumed.getWeights(i), 0);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package ui;
+
+import game.Game;
+import game.GameSnapshot;
+import data_types.Vector2D;
+import javafx.scene.Group;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+
+/**
+ * GameView
+ * @author Josh Chia
+ * 
+ * JavaFX view of a Game of Tetris: the Playfield, Piece Preview, 
+ * Piece Hold, the score/level/goal text and the incoming garbage. 
+ * 
+ * Holds no game state of its own, it is redrawn from GameSnapshots 
+ * so the Game can be run on another thread (see GameLoop).
+ *
+ */
+public class GameView extends Group {
+	private final int PREVIEW_SIZE = 5;
+	private final int HOLD_ROWS = 4;
+	private final int HOLD_COLS = 4;
+	
+	/*
+	 * Preset UI Constants
+	 * Used to make Games scalable for different screen resolutions
+	 * 
+	 * Using relative factors allows the game to support some variation from
+	 * default resolution.
+	 * 
+	 * If there is more time, would be better to implement an abstraction
+	 * for layouts. 
+	 */
+	private final double PLAYFIELD_RELATIVE_OFFSET_X = 0.25;
+	private final double PLAYFIELD_RELATIVE_OFFSET_Y = 0.10;
+	private final double PLAYFIELD_RELATIVE_WIDTH = 0.50;
+	private final double PLAYFIELD_RELATIVE_HEIGHT = 0.85;
+	private final double PIECE_DISPLAY_RELATIVE_WIDTH = 0.2;
+	private final double PIECE_DISPLAY_RELATIVE_HEIGHT = 0.17;
+	
+	// Constants determined by Game parameters
+	public final double PLAYFIELD_POS_X, PLAYFIELD_POS_Y, PLAYFIELD_WIDTH, PLAYFIELD_HEIGHT;
+	public final double PIECE_DISPLAY_WIDTH, PIECE_DISPLAY_HEIGHT;
+	private final Vector2D PLAYFIELD_POS;
+	private final Font GAME_FONT;
+	private final double PADDING;
+	
+	// Game being viewed
+	private Game game;
+	
+	// Views of the Game Objects
+	private PlayfieldView playfield_view;
+	private PiecePreview piece_preview;
+	private PieceDisplay piece_hold;
+	
+	// JavaFX UI
+	protected Text score_text, level_text, goal_text, next_text, hold_text, feedback_text, garbage_text;
+	
+	/**
+	 * Sets up a view of a game of Tetris
+	 * @param g, game to view
+	 * @param x, x-coordinate to display the game
+	 * @param y, y-coordinate to display the game
+	 * @param width, in pixels
+	 * @param height, in pixels
+	 */
+	public GameView(Game g, double x, double y, double width, double height) {
+		game = g;
+		
+		// Set/Determine Constants for Playfield
+		PLAYFIELD_POS_X = x + width * PLAYFIELD_RELATIVE_OFFSET_X;
+		PLAYFIELD_POS_Y = y + height * PLAYFIELD_RELATIVE_OFFSET_Y;
+		PLAYFIELD_POS = new Vector2D(PLAYFIELD_POS_X, PLAYFIELD_POS_Y);
+		PLAYFIELD_WIDTH = width * PLAYFIELD_RELATIVE_WIDTH;
+		PLAYFIELD_HEIGHT = height * PLAYFIELD_RELATIVE_HEIGHT;
+		
+		// Set/Determine Constants for PieceDisplay
+		PIECE_DISPLAY_WIDTH = PIECE_DISPLAY_RELATIVE_WIDTH * width;
+		PIECE_DISPLAY_HEIGHT = PIECE_DISPLAY_RELATIVE_HEIGHT * height;
+		
+		// Style Setup
+		GAME_FONT = Font.font("Tahoma",  FontWeight.NORMAL, height*0.03);
+		PADDING = height * 0.02;
+		
+		// View Setup ("Gridworlds")
+		playfield_view = new PlayfieldView(PLAYFIELD_POS, PLAYFIELD_WIDTH, PLAYFIELD_HEIGHT, 
+				game.getPlayfield().getRows(), game.getPlayfield().getCols(), game.getPlayfield().getVanish());
+		piece_preview = new PiecePreview(new Vector2D(PLAYFIELD_POS, PLAYFIELD_WIDTH+PADDING, 0), PREVIEW_SIZE, PIECE_DISPLAY_WIDTH, PIECE_DISPLAY_HEIGHT);
+		piece_hold = new PieceDisplay(new Vector2D(PLAYFIELD_POS_X-PADDING*10, PLAYFIELD_POS_Y), PIECE_DISPLAY_WIDTH, PIECE_DISPLAY_HEIGHT, HOLD_ROWS, HOLD_COLS);
+		
+		// UI Setup
+		GameSnapshot snapshot = game.snapshot();
+		
+		score_text = new Text(PLAYFIELD_POS_X, PLAYFIELD_POS_Y-PADDING, "Score: " + snapshot.getScore());
+		score_text.setFont(GAME_FONT);
+
+		level_text = new Text(PLAYFIELD_POS_X+PLAYFIELD_WIDTH-PADDING, PLAYFIELD_POS_Y-PADDING, "Level: " + snapshot.getLevel());
+		level_text.setFont(GAME_FONT);
+		level_text.setTranslateX(-level_text.getLayoutBounds().getWidth());
+
+		goal_text = new Text(PLAYFIELD_POS_X+PLAYFIELD_WIDTH+PADDING*2, PLAYFIELD_POS_Y+PLAYFIELD_HEIGHT, "Goal: " + snapshot.getGoal());
+		goal_text.setFont(GAME_FONT);
+		goal_text.setTranslateY(goal_text.getLayoutBounds().getHeight());
+
+		next_text = new Text(PLAYFIELD_POS_X+PLAYFIELD_WIDTH+PADDING*3, PLAYFIELD_POS_Y-PADDING, "Next");
+		next_text.setFont(GAME_FONT);
+
+		hold_text = new Text(PLAYFIELD_POS_X-PADDING*6, PLAYFIELD_POS_Y-PADDING, "Hold");
+		hold_text.setFont(GAME_FONT);
+
+		feedback_text = new Text(PLAYFIELD_POS_X, PLAYFIELD_POS_Y+PLAYFIELD_HEIGHT, "");
+		feedback_text.setFont(GAME_FONT);
+		feedback_text.setTranslateY(feedback_text.getLayoutBounds().getHeight());
+		
+		garbage_text = new Text(PLAYFIELD_POS_X-PADDING*10, PLAYFIELD_POS_Y+PIECE_DISPLAY_HEIGHT+PADDING*3, "");
+		garbage_text.setFont(GAME_FONT);
+		
+		// Add to JavaFx Group for display 
+		this.getChildren().add(playfield_view);
+		this.getChildren().add(piece_preview);
+		this.getChildren().add(piece_hold);
+		this.getChildren().add(score_text);
+		this.getChildren().add(level_text);
+		this.getChildren().add(goal_text);
+		this.getChildren().add(next_text);
+		this.getChildren().add(hold_text);
+		this.getChildren().add(feedback_text);
+		this.getChildren().add(garbage_text);
+		
+		update(snapshot);
+	}
+	
+	/**
+	 * Redraw the view from a snapshot of the Game
+	 * @param snapshot, latest snapshot of the Game
+	 */
+	public void update(GameSnapshot snapshot) {
+		playfield_view.update(snapshot);
+		piece_preview.update(snapshot.getPreviewList());
+		piece_hold.setDisplay(snapshot.getHeldPiece());
+		
+		score_text.setText("Score: " + snapshot.getScore());
+		level_text.setText("Level: " + snapshot.getLevel());
+		goal_text.setText("Goal: " + snapshot.getGoal());
+		garbage_text.setText((snapshot.getPendingGarbage() > 0) ? "Garbage: " + snapshot.getPendingGarbage(): "");
+		feedback_text.setText(snapshot.isGameOver() ? "GAME OVER! Press Esc": snapshot.getFeedback());
+	}
+	
+	/**
+	 * Get the Game being viewed
+	 * @return, game
+	 */
+	public Game getGame() {
+		return game;
+	}
+}
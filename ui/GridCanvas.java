@@ -0,0 +1,177 @@
+package ui;
+
+import model.Mino;
+import data_types.Vector2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+/**
+ * GridCanvas
+ * @author Josh Chia
+ * 
+ * The shared properties of all the views of 'grid worlds' which
+ * Minos can exist in. 
+ * Visually Minos are represented as rectangles (cells)
+ * 
+ * A grid world is drawn onto a single Canvas rather than a node per
+ * cell. Cells are drawn by copying the lit sprite of their color from
+ * the SpriteCache, subclasses only redraw when what they show has 
+ * changed.
+ *
+ */
+public abstract class GridCanvas extends Canvas {
+	protected Vector2D pos;
+	protected double height, width;
+	protected int rows, cols;
+	protected final double margin;
+	protected final GraphicsContext gc;
+	
+	/**
+	 * Colors of the Minos, indexed by their color code.
+	 * Code 0 is an empty cell, 1-7 are the Pieces (I, O, T, S, Z, J, L)
+	 * and the last is the default color (see Mino).
+	 */
+	private static final Paint[] PALETTE = new Paint[] {
+		Color.TRANSPARENT,
+		Color.SKYBLUE,
+		Color.GOLD,
+		Color.DARKORCHID,
+		Color.LIMEGREEN,
+		Color.RED,
+		Color.ROYALBLUE,
+		Color.DARKORANGE,
+		Color.SEASHELL
+	};
+	
+	// Number of color codes, including empty
+	static final int COLORS = PALETTE.length;
+	
+	// Line width of the outline of a ghost cell
+	private static final double GHOST_STROKE = 2;
+	
+	// Sprites of the cell size last drawn
+	private Image[] sprites;
+	private double sprite_width, sprite_height;
+	
+	/**
+	 * Constructs a grid worl which Minos can exist in
+	 * @param p, position vector
+	 * @param w, width in pixels
+	 * @param h, height in pixels
+	 * @param r, number of rows
+	 * @param c, number ofcols
+	 */
+	public GridCanvas(Vector2D p, double w, double h, int r, int c) {
+		this(p, w, h, r, c, 0);
+	}
+	
+	/**
+	 * Constructs a grid world with space around it for a border
+	 * @param p, position vector
+	 * @param w, width in pixels
+	 * @param h, height in pixels
+	 * @param r, number of rows
+	 * @param c, number ofcols
+	 * @param m, pixels around the grid that can be drawn on
+	 */
+	protected GridCanvas(Vector2D p, double w, double h, int r, int c, double m) {
+		super(w+2*m, h+2*m);
+		pos = p;
+		width = w;
+		height = h;
+		rows = r;
+		cols = c;
+		margin = m;
+		gc = getGraphicsContext2D();
+		
+		setLayoutX(pos.getAbsX()-margin);
+		setLayoutY(pos.getAbsY()-margin);
+	}
+	
+	/**
+	 * Get size to draw individual grid width
+	 * @return, pixel width of a individual grid
+	 */
+	abstract public double getGridWidth();
+	
+	/**
+	 * Get size to draw individual grid height
+	 * @return, pixel height of a individual grid
+	 */
+	abstract public double getGridHeight();
+	
+	/**
+	 * Translate x-coordinate of a grid position into
+	 * the x-coordinate on the canvas for drawing 
+	 * @param x, grid x-coordinate
+	 * @return, the draw x-coordinate     
+	 */
+	public final double getDrawX(double x) {
+		return getGridWidth()*x + margin;
+	}
+	
+	/**
+	 * Translate y-coordinate of a grid position into
+	 * the y-coordinate on the canvas for drawing 
+	 * @param y, grid y-coordinate
+	 * @return, the draw y-coordinate 
+	 */
+	public final double getDrawY(double y) {
+		return height-getGridHeight()*(1+y) + margin;
+	}
+	
+	/**
+	 * Draw a Mino's cell at a grid position, empty cells are not drawn
+	 * @param x, grid x-coordinate
+	 * @param y, grid y-coordinate
+	 * @param color, color code of the Mino (0 if empty)
+	 */
+	protected final void drawCell(double x, double y, byte color) {
+		if (color == 0) {
+			return;
+		}
+		double w = getGridWidth(), h = getGridHeight();
+		if (sprites == null || w != sprite_width || h != sprite_height) {
+			sprites = SpriteCache.get(w, h);
+			sprite_width = w;
+			sprite_height = h;
+		}
+		
+		int code = (color > 0 && color < PALETTE.length) ? color: Mino.DEFAULT_COLOR;
+		double stroke = SpriteCache.STROKE;
+		gc.drawImage(sprites[code], getDrawX(x)-stroke/2, getDrawY(y)-stroke/2, w+stroke, h+stroke);
+	}
+	
+	/**
+	 * Draw the outline of a ghost Mino's cell at a grid position
+	 * @param x, grid x-coordinate
+	 * @param y, grid y-coordinate
+	 * @param color, color code of the Mino
+	 */
+	protected final void drawGhostCell(double x, double y, byte color) {
+		int code = (color > 0 && color < PALETTE.length) ? color: Mino.DEFAULT_COLOR;
+		double inset = GHOST_STROKE/2;
+		gc.setStroke(PALETTE[code]);
+		gc.setLineWidth(GHOST_STROKE);
+		gc.strokeRect(getDrawX(x)+inset, getDrawY(y)+inset, getGridWidth()-2*inset, getGridHeight()-2*inset);
+	}
+	
+	/**
+	 * Clear the whole canvas, including the margin
+	 */
+	protected final void clear() {
+		gc.clearRect(0, 0, getWidth(), getHeight());
+	}
+	
+	/**
+	 * Get the color to draw a Mino's color code
+	 * @param color, color code
+	 * @return, color to draw
+	 */
+	public static Paint getPaint(byte color) {
+		return (color >= 0 && color < PALETTE.length) ? PALETTE[color]: PALETTE[Mino.DEFAULT_COLOR];
+	}
+}
@@ -1,4 +1,4 @@
-package game;
+package ui;
 
 import model.Mino;
 import model.Piece;
@@ -17,7 +17,7 @@ import data_types.Vector2D;
  *
  */
 public class PieceDisplay extends GridCanvas {
-	Tetromino tetromino;
+	private Piece piece;
 	
 	// Same as the superclass constructor
 	protected PieceDisplay(Vector2D p, double w, double h, int r, int c) {
@@ -26,15 +26,23 @@ public class PieceDisplay extends GridCanvas {
 	
 	/**
 	 * Set a Piece for display 
-	 * @param p, piece to display
+	 * @param p, piece to display or null to clear the display
 	 */
 	public void setDisplay(Piece p) {
-		if (tetromino != null) {
-			for (Mino m: tetromino.minos) {
-				this.getChildren().remove(m);
-			}
+		if (p == piece) {
+			return;
+		}
+		piece = p;
+		
+		clear();
+		if (p == null) {
+			return;
+		}
+		
+		Tetromino t = p.create(getSpawnPos(p));
+		for (Mino m: t.minos) {
+			drawCell(m.getPos().getAbsX(), m.getPos().getAbsY(), m.getColorCode());
 		}
-		tetromino = p.create(this);
 	}
 	
 	/**
@@ -45,7 +53,7 @@ public class PieceDisplay extends GridCanvas {
 	public double getGridWidth() {
 		return width/cols;
 	}
-
+	
 	/**
 	 * Get size to draw individual grid height
 	 * @return, pixel height of a individual grid
@@ -54,11 +62,12 @@ public class PieceDisplay extends GridCanvas {
 	public double getGridHeight() {
 		return height/rows;
 	}
-
+	
 	/**
 	 * The spawn rules for this grid world
+	 * @param p, piece to be displayed
+	 * @return, position vector
 	 */
-	@Override
 	public Vector2D getSpawnPos(Piece p) {
 		switch(p) {
 		case J:
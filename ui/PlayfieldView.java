@@ -0,0 +1,103 @@
+package ui;
+
+import game.GameSnapshot;
+import data_types.Vector2D;
+import javafx.scene.paint.Color;
+
+/**
+ * PlayfieldView
+ * @author Josh Chia
+ * 
+ * View of a Playfield. The visible grids (the vanish zone is never 
+ * drawn) are painted from a GameSnapshot, which has the active
+ * Tetromino, its ghost (drawn as an outline) and the falling
+ * Polyominos drawn in.
+ * 
+ * The snapshot last drawn is kept, so frames where nothing visible
+ * has changed (e.g. a piece waiting on gravity) cost no drawing.
+ *
+ */
+public class PlayfieldView extends GridCanvas {
+	private static final double BORDER = 5;
+	
+	private int vanish;
+	private GameSnapshot drawn;
+	
+	/**
+	 * Constructs a view of a Playfield
+	 * @param p, position to draw the Playfield
+	 * @param w, draw width (pixels) of the Playfield 
+	 * @param h, draw height (pixels) of the Playfield
+	 * @param r, number of rows
+	 * @param c, number of columns
+	 * @param v, size of vanish zone
+	 */
+	public PlayfieldView(Vector2D p, double w, double h, int r, int c, int v) {
+		super(p, w, h, r, c, BORDER/2);
+		vanish = v;
+		drawn = null;
+	}
+	
+	/**
+	 * Redraw the view from a snapshot of the Game
+	 * @param snapshot, snapshot to draw
+	 */
+	public void update(GameSnapshot snapshot) {
+		if (snapshot.sameColors(drawn)) {
+			return;
+		}
+		drawn = snapshot;
+		
+		clear();
+		drawBackground();
+		for (int row=0; row<rows-vanish; row++) {
+			for (int col=0; col<cols; col++) {
+				byte color = snapshot.getColor(row, col);
+				if (color < 0) {
+					drawGhostCell(col, row, (byte) -color);
+				}
+				else {
+					drawCell(col, row, color);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get size to draw individual grid width
+	 * @return, pixel width of a individual grid
+	 */
+	@Override
+	public double getGridWidth() {
+		return width/cols;
+	}
+	
+	/**
+	 * Get size to draw individual grid height
+	 * @return, pixel height of a individual grid
+	 */
+	@Override
+	public double getGridHeight() {
+		return height/(rows-vanish);
+	}
+	
+	/**
+	 * Draw the background of the Playfield: the border and grid lines
+	 */
+	private void drawBackground() {
+		gc.setFill(Color.BLACK);
+		gc.fillRect(margin, margin, width, height);
+		
+		gc.setStroke(Color.DARKGREY);
+		gc.setLineWidth(1);
+		for (int i=1; i<cols; i++) {
+			gc.strokeLine(margin+getGridWidth()*i, margin, margin+getGridWidth()*i, margin+height);
+		}
+		for (int i=1; i<rows-vanish; i++) {
+			gc.strokeLine(margin, margin+getGridHeight()*i, margin+width, margin+getGridHeight()*i);
+		}
+		
+		gc.setLineWidth(BORDER);
+		gc.strokeRect(margin, margin, width, height);
+	}
+}
@@ -0,0 +1,98 @@
+package ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.effect.Light;
+import javafx.scene.effect.Lighting;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * SpriteCache
+ * @author Josh Chia
+ * 
+ * Lit cells of every Mino color, rendered once per cell size and 
+ * shared by all the grid worlds (Playfields, previews and holds).
+ * The lighting effect is the most expensive part of drawing a cell,
+ * with the cache it is only applied when a new cell size is first
+ * drawn.
+ * 
+ * Sprites are rendered with snapshots, therefore the cache must only
+ * be used on the JavaFX application thread.
+ *
+ */
+public final class SpriteCache {
+	// Width of the cell outline, half of it falls outside the cell
+	public static final double STROKE = 1.0;
+	
+	// Cell sizes kept, the least recently used is dropped first
+	private static final int MAX_SIZES = 16;
+	
+	// Sizes are matched to a hundredth of a pixel
+	private static final double PRECISION = 100.0;
+	
+	/**
+	 * Setup lighting effects for '3D look'
+	 */
+	private static Light.Distant light = new Light.Distant();
+	static {
+		light.setAzimuth(-90.0);
+	}
+	private static Lighting lighting = new Lighting();
+	static {
+		lighting.setLight(light);
+		lighting.setSurfaceScale(3.0);
+	}
+	
+	private static final Map<Long, Image[]> sprites = new LinkedHashMap<Long, Image[]>(MAX_SIZES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Image[]> eldest) {
+			return size() > MAX_SIZES;
+		}
+	};
+	
+	private SpriteCache() {}
+	
+	/**
+	 * Get the sprites of a cell size, rendering them if it is new
+	 * @param w, cell width in pixels
+	 * @param h, cell height in pixels
+	 * @return, sprite of each color code (null for empty), includes the outline
+	 */
+	public static Image[] get(double w, double h) {
+		Long key = Long.valueOf(Math.round(w*PRECISION) << 32 | Math.round(h*PRECISION));
+		Image[] images = sprites.get(key);
+		if (images == null) {
+			images = render(w, h);
+			sprites.put(key, images);
+		}
+		return images;
+	}
+	
+	/**
+	 * Render the lit cell of every color
+	 * @param w, cell width in pixels
+	 * @param h, cell height in pixels
+	 * @return, sprite of each color code (null for empty)
+	 */
+	private static Image[] render(double w, double h) {
+		SnapshotParameters params = new SnapshotParameters();
+		params.setFill(Color.TRANSPARENT);
+		
+		Image[] images = new Image[GridCanvas.COLORS];
+		for (byte code=1; code<images.length; code++) {
+			Rectangle cell = new Rectangle(w, h);
+			cell.setStroke(Color.BLACK);
+			cell.setStrokeWidth(STROKE);
+			cell.setEffect(lighting);
+			cell.setFill(GridCanvas.getPaint(code));
+			images[code] = cell.snapshot(params, null);
+		}
+		return images;
+	}
+}